@@ -17,6 +17,7 @@ package saker.nest.support.api.dependency;
 
 import java.util.Collection;
 
+import saker.build.task.utils.StructuredListTaskResult;
 import saker.nest.bundle.BundleKey;
 
 /**
@@ -33,4 +34,24 @@ public interface DependencyResolutionTaskOutput {
 	 * @return The bundle keys.
 	 */
 	public Collection<? extends BundleKey> getBundles();
+
+	//element BundleKey
+	/**
+	 * Gets the structured task result of the resolved bundles.
+	 * <p>
+	 * The elements of the result are instances of {@link BundleKey}. The element at a given index is the same as the
+	 * bundle key at the same index in {@link #getBundles()}.
+	 * <p>
+	 * Retrieving an element of the structured result only reports a dependency on the presence of the given bundle in
+	 * the resolution result. If the dependency resolution result changes, only the callers which used the elements of
+	 * the removed bundles are affected. Tasks that start a worker task for each resolved bundle can use this to avoid
+	 * depending on the whole resolution result.
+	 * <p>
+	 * The default implementation returns <code>null</code>.
+	 * 
+	 * @return The bundle keys or <code>null</code> if the output doesn't support per bundle results.
+	 */
+	public default StructuredListTaskResult getBundleResults() {
+		return null;
+	}
 }
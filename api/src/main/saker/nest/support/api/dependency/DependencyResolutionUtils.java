@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.nest.support.api.dependency;
+
+import java.util.Objects;
+
+import saker.nest.bundle.BundleIdentifier;
+import saker.nest.support.impl.dependency.SharedDependencyResolutionCache;
+import saker.nest.support.impl.util.BundleConstraintExclusionCache;
+import saker.nest.support.impl.util.BundleLookupMissCache;
+import saker.nest.support.impl.util.StorageViewResolver;
+
+/**
+ * Utility class for working with the dependency resolution functionality.
+ */
+public final class DependencyResolutionUtils {
+	private DependencyResolutionUtils() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Invalidates the cached lookup misses, constraint exclusions, and loaded informations of the specified bundle.
+	 * <p>
+	 * If a bundle is not found during dependency resolution, the lookup is not performed again for a period of time.
+	 * Similarly, if a bundle is excluded by the dependency constraints, it is not loaded again by the subsequent
+	 * resolutions. The loaded bundle informations and dependencies are also shared by the resolutions in the same
+	 * build. Tasks that make a bundle available for the dependency resolution, or modify it, should call this method
+	 * so the bundle is discovered by subsequent resolutions.
+	 * <p>
+	 * All versions of the bundle are invalidated.
+	 *
+	 * @param bundleid
+	 *            The bundle identifier.
+	 * @throws NullPointerException
+	 *             If the argument is <code>null</code>.
+	 */
+	public static void invalidateBundleLookupCaches(BundleIdentifier bundleid) throws NullPointerException {
+		Objects.requireNonNull(bundleid, "bundle identifier");
+		BundleLookupMissCache.invalidate(bundleid);
+		BundleConstraintExclusionCache.invalidate(bundleid);
+		SharedDependencyResolutionCache.invalidate(bundleid);
+		StorageViewResolver.invalidate(bundleid);
+	}
+
+	/**
+	 * Invalidates all cached lookup misses, constraint exclusions, and loaded informations.
+	 *
+	 * @see #invalidateBundleLookupCaches(BundleIdentifier)
+	 */
+	public static void invalidateAllBundleLookupCaches() {
+		BundleLookupMissCache.invalidateAll();
+		BundleConstraintExclusionCache.invalidateAll();
+		SharedDependencyResolutionCache.invalidateAll();
+		StorageViewResolver.invalidateAll();
+	}
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.nest.support.api.download;
+
+import java.util.List;
+
+import saker.build.file.path.SakerPath;
+import saker.nest.bundle.BundleKey;
+
+/**
+ * Interface representing the output of the attachment download task.
+ * <p>
+ * The interface provides access to the downloaded source and documentation attachments of the bundles. The lists
+ * returned by the methods have the same size, and the elements at the same index are associated with the same bundle.
+ * <p>
+ * Clients shouldn't implement this interface.
+ */
+public interface DownloadAttachmentsTaskOutput {
+	/**
+	 * Gets the bundles for which the attachments were downloaded.
+	 * 
+	 * @return The bundle keys.
+	 */
+	public List<? extends BundleKey> getBundles();
+
+	/**
+	 * Gets the execution paths of the downloaded source attachments.
+	 * <p>
+	 * An element is <code>null</code> if the associated bundle has no source attachment, or the source attachments
+	 * weren't requested.
+	 * 
+	 * @return The source attachment paths.
+	 */
+	public List<? extends SakerPath> getSourceAttachmentPaths();
+
+	/**
+	 * Gets the execution paths of the downloaded documentation attachments.
+	 * <p>
+	 * An element is <code>null</code> if the associated bundle has no documentation attachment, or the documentation
+	 * attachments weren't requested.
+	 * 
+	 * @return The documentation attachment paths.
+	 */
+	public List<? extends SakerPath> getDocumentationAttachmentPaths();
+}
@@ -32,6 +32,9 @@ import saker.nest.bundle.BundleKey;
 public interface DownloadBundleWorkerTaskOutput {
 	/**
 	 * Gets the absolute build execution path of the downloaded bundle.
+	 * <p>
+	 * If the bundle was downloaded in extract mode, the path refers to the directory that contains the extracted
+	 * contents of the bundle.
 	 * 
 	 * @return The result path.
 	 */
@@ -17,11 +17,14 @@ package saker.nest.support.api.localize;
 
 import java.util.Objects;
 
+import saker.build.file.path.SakerPath;
+import saker.build.task.TaskContext;
 import saker.build.task.TaskFactory;
 import saker.build.task.identifier.TaskIdentifier;
 import saker.nest.bundle.BundleKey;
 import saker.nest.support.impl.localize.BundleKeyLocalizingWorkerTaskFactory;
 import saker.nest.support.impl.localize.BundleLocalizeWorkerTaskIdentifierImpl;
+import saker.nest.support.impl.util.BundleKeyLocalPathEnvironmentProperty;
 
 /**
  * Utility class for working with bundle localization functionality.
@@ -63,4 +66,31 @@ public final class BundleLocalizeUtils {
 		Objects.requireNonNull(bundlekey, "bundle key");
 		return new BundleKeyLocalizingWorkerTaskFactory(bundlekey);
 	}
+
+	/**
+	 * Localizes the specified bundle on the build environment of the calling task.
+	 * <p>
+	 * The bundle is retrieved from the bundle storages of the repository in the environment that the task is executing
+	 * on, and an environment dependency is reported for the result. Tasks that are dispatched to build clusters can use
+	 * this method to access the bundles directly on the cluster, instead of transferring them from the coordinator.
+	 * <p>
+	 * The localization and download tasks are not dispatched to build clusters, their results are only valid on the
+	 * coordinator.
+	 * 
+	 * @param taskcontext
+	 *            The task context of the calling task.
+	 * @param bundlekey
+	 *            The bundle key of the bundle that is being localized.
+	 * @return The local file system path of the bundle on the current environment, or <code>null</code> if the bundle
+	 *             has no local path.
+	 * @throws NullPointerException
+	 *             If an argument is <code>null</code>.
+	 */
+	public static SakerPath localizeOnCurrentEnvironment(TaskContext taskcontext, BundleKey bundlekey)
+			throws NullPointerException {
+		Objects.requireNonNull(taskcontext, "task context");
+		Objects.requireNonNull(bundlekey, "bundle key");
+		return taskcontext.getTaskUtilities()
+				.getReportEnvironmentDependency(new BundleKeyLocalPathEnvironmentProperty(bundlekey));
+	}
 }
@@ -20,16 +20,26 @@ import java.util.Objects;
 
 import saker.build.file.path.SakerPath;
 import saker.build.task.TaskFactory;
+import saker.build.task.TaskResultDependencyHandle;
+import saker.build.task.TaskResultResolver;
 import saker.build.task.identifier.TaskIdentifier;
+import saker.build.task.utils.StructuredListTaskResult;
+import saker.build.task.utils.StructuredTaskResult;
+import saker.build.util.data.DataConverterUtils;
+import saker.nest.support.api.dependency.DependencyResolutionTaskOutput;
 import saker.nest.support.api.download.DownloadBundleTaskOutput;
 import saker.nest.support.api.local.install.LocalInstallTaskOutput;
 import saker.nest.support.api.local.install.LocalInstallWorkerTaskOutput;
 import saker.nest.support.api.server.upload.BundleUploadTaskOutput;
 import saker.nest.support.api.server.upload.BundleUploadWorkerTaskOutput;
+import saker.nest.support.impl.dependency.BatchDependencyResolutionTaskOutput;
+import saker.nest.support.impl.dependency.BatchModuleStructuredTaskResult;
+import saker.nest.support.impl.dependency.ResolvedBundleCountTaskOutputChangeDetector;
 import saker.nest.support.impl.download.DownloadBundleTaskOutputImpl;
 import saker.nest.support.impl.local.install.BundleInstallerTaskFactory;
 import saker.nest.support.impl.local.install.BundleInstallerTaskIdentifier;
 import saker.nest.support.impl.local.install.LocalInstallTaskOutputImpl;
+import saker.nest.support.impl.server.upload.BundleUploadSettings;
 import saker.nest.support.impl.server.upload.BundleUploadTaskOutputImpl;
 import saker.nest.support.impl.server.upload.BundleUploadWorkerTaskFactory;
 import saker.nest.support.impl.server.upload.BundleUploadWorkerTaskIdentifier;
@@ -49,7 +59,20 @@ public class NestSupportImpl {
 		Objects.requireNonNull(server, "server");
 		Objects.requireNonNull(apiKey, "api key");
 		Objects.requireNonNull(apiSecret, "api secret");
-		return new BundleUploadWorkerTaskFactory(bundlePath, overwrite, server, apiKey.clone(), apiSecret.clone());
+		return createBundleUploadWorkerTaskFactory(bundlePath, overwrite, server, apiKey, apiSecret,
+				BundleUploadSettings.DEFAULT);
+	}
+
+	public static TaskFactory<? extends BundleUploadWorkerTaskOutput> createBundleUploadWorkerTaskFactory(
+			SakerPath bundlePath, Boolean overwrite, String server, byte[] apiKey, byte[] apiSecret,
+			BundleUploadSettings settings) {
+		Objects.requireNonNull(bundlePath, "bundle path");
+		Objects.requireNonNull(server, "server");
+		Objects.requireNonNull(apiKey, "api key");
+		Objects.requireNonNull(apiSecret, "api secret");
+		Objects.requireNonNull(settings, "settings");
+		return new BundleUploadWorkerTaskFactory(bundlePath, overwrite, server, apiKey.clone(), apiSecret.clone(),
+				settings);
 	}
 
 	public static TaskIdentifier createLocalInstallWorkerTaskIdentifier(String storagename, SakerPath bundlepath) {
@@ -70,7 +93,71 @@ public class NestSupportImpl {
 		return new DownloadBundleTaskOutputImpl(bundleworkertaskids);
 	}
 
+	public static DownloadBundleTaskOutput createGroupedBundleDownloadTaskOutput(
+			List<? extends TaskIdentifier> groupworkertaskids, List<Integer> groupindices) {
+		return new DownloadBundleTaskOutputImpl(groupworkertaskids, groupindices);
+	}
+
 	public static LocalInstallTaskOutput createLocalInstallTaskOutput(List<? extends TaskIdentifier> workertaskids) {
 		return new LocalInstallTaskOutputImpl(workertaskids);
 	}
+
+	/**
+	 * Gets the structured results of the resolved bundles if the argument is the result of a dependency resolution.
+	 * <p>
+	 * If the result is a dependency resolution output, the dependency on it is narrowed to the number of resolved
+	 * bundles. The callers should retrieve the elements of the returned list, which report dependencies on the
+	 * resolved bundles separately. Therefore changing a bundle in the resolution output only affects the callers that
+	 * used it.
+	 * <p>
+	 * The module outputs of a batch dependency resolution are handled the same way, the dependency is reported on the
+	 * output of the given module only.
+	 * <p>
+	 * The order of the bundles is not part of the reported dependencies.
+	 * 
+	 * @return The structured list of resolved {@link saker.nest.bundle.BundleKey BundleKeys} or <code>null</code> if
+	 *             the argument is not a dependency resolution output.
+	 */
+	public static StructuredListTaskResult getDependencyResolutionBundleResults(TaskResultResolver results,
+			StructuredTaskResult structuredresult) {
+		TaskResultDependencyHandle dephandle;
+		Object resultobj;
+		int moduleindex = -1;
+		while (true) {
+			if (structuredresult instanceof BatchModuleStructuredTaskResult) {
+				//don't call toResult, as that depends on the whole output of the module
+				BatchModuleStructuredTaskResult moduleresult = (BatchModuleStructuredTaskResult) structuredresult;
+				moduleindex = moduleresult.getModuleIndex();
+				dephandle = results.getTaskResultDependencyHandle(moduleresult.getBatchTaskId());
+				resultobj = BatchDependencyResolutionTaskOutput.getModuleOutput(dephandle.get(), moduleindex);
+				break;
+			}
+			dephandle = structuredresult.toResultDependencyHandle(results);
+			resultobj = dephandle.get();
+			if (!(resultobj instanceof StructuredTaskResult)) {
+				break;
+			}
+			structuredresult = (StructuredTaskResult) resultobj;
+		}
+		if (resultobj == null) {
+			return null;
+		}
+		Object adapted;
+		try {
+			adapted = DataConverterUtils.adaptInterface(NestSupportImpl.class.getClassLoader(), resultobj);
+		} catch (Exception e) {
+			return null;
+		}
+		if (!(adapted instanceof DependencyResolutionTaskOutput)) {
+			return null;
+		}
+		DependencyResolutionTaskOutput depoutput = (DependencyResolutionTaskOutput) adapted;
+		StructuredListTaskResult bundleresults = depoutput.getBundleResults();
+		if (bundleresults == null) {
+			return null;
+		}
+		dephandle.setTaskOutputChangeDetector(
+				new ResolvedBundleCountTaskOutputChangeDetector(moduleindex, depoutput.getBundles().size()));
+		return bundleresults;
+	}
 }
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.nest.support.impl.dependency;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.List;
+
+import saker.build.thirdparty.saker.util.ImmutableUtils;
+import saker.build.thirdparty.saker.util.io.SerialUtils;
+import saker.nest.support.api.dependency.DependencyResolutionTaskOutput;
+
+/**
+ * Output of the batch dependency resolution worker task.
+ * <p>
+ * Contains the dependency resolution output for each module in the same order as the modules were specified.
+ */
+public class BatchDependencyResolutionTaskOutput implements Externalizable {
+	private static final long serialVersionUID = 1L;
+
+	private List<DependencyResolutionTaskOutput> moduleOutputs;
+
+	/**
+	 * For {@link Externalizable}.
+	 */
+	public BatchDependencyResolutionTaskOutput() {
+	}
+
+	public BatchDependencyResolutionTaskOutput(List<? extends DependencyResolutionTaskOutput> moduleOutputs) {
+		this.moduleOutputs = ImmutableUtils.makeImmutableList(moduleOutputs);
+	}
+
+	public List<DependencyResolutionTaskOutput> getModuleOutputs() {
+		return moduleOutputs;
+	}
+
+	/**
+	 * Gets the dependency resolution output of a module from a task output.
+	 * <p>
+	 * If the module index is negative, the task output is expected to be a {@link DependencyResolutionTaskOutput}.
+	 * Otherwise it is expected to be a {@link BatchDependencyResolutionTaskOutput}.
+	 *
+	 * @return The output or <code>null</code> if not found.
+	 */
+	public static DependencyResolutionTaskOutput getModuleOutput(Object taskoutput, int moduleindex) {
+		if (moduleindex < 0) {
+			if (taskoutput instanceof DependencyResolutionTaskOutput) {
+				return (DependencyResolutionTaskOutput) taskoutput;
+			}
+			return null;
+		}
+		if (!(taskoutput instanceof BatchDependencyResolutionTaskOutput)) {
+			return null;
+		}
+		List<DependencyResolutionTaskOutput> outputs = ((BatchDependencyResolutionTaskOutput) taskoutput).moduleOutputs;
+		if (moduleindex >= outputs.size()) {
+			return null;
+		}
+		return outputs.get(moduleindex);
+	}
+
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		SerialUtils.writeExternalCollection(out, moduleOutputs);
+	}
+
+	@Override
+	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+		moduleOutputs = SerialUtils.readExternalImmutableList(in);
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((moduleOutputs == null) ? 0 : moduleOutputs.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		BatchDependencyResolutionTaskOutput other = (BatchDependencyResolutionTaskOutput) obj;
+		if (moduleOutputs == null) {
+			if (other.moduleOutputs != null)
+				return false;
+		} else if (!moduleOutputs.equals(other.moduleOutputs))
+			return false;
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + moduleOutputs;
+	}
+
+}
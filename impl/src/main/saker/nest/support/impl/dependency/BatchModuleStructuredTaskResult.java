@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.nest.support.impl.dependency;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+import saker.build.task.TaskResultDependencyHandle;
+import saker.build.task.TaskResultResolver;
+import saker.build.task.identifier.TaskIdentifier;
+import saker.build.task.utils.StructuredTaskResult;
+import saker.nest.support.api.dependency.DependencyResolutionTaskOutput;
+
+/**
+ * Structured task result of a single module in the output of a batch dependency resolution worker task.
+ * <p>
+ * Only reports a dependency on the resolution output of the associated module.
+ */
+public class BatchModuleStructuredTaskResult implements StructuredTaskResult, Externalizable {
+	private static final long serialVersionUID = 1L;
+
+	private TaskIdentifier batchTaskId;
+	private int moduleIndex;
+
+	/**
+	 * For {@link Externalizable}.
+	 */
+	public BatchModuleStructuredTaskResult() {
+	}
+
+	public BatchModuleStructuredTaskResult(TaskIdentifier batchTaskId, int moduleIndex) {
+		this.batchTaskId = batchTaskId;
+		this.moduleIndex = moduleIndex;
+	}
+
+	public TaskIdentifier getBatchTaskId() {
+		return batchTaskId;
+	}
+
+	public int getModuleIndex() {
+		return moduleIndex;
+	}
+
+	@Override
+	public Object toResult(TaskResultResolver results) {
+		TaskResultDependencyHandle dephandle = results.getTaskResultDependencyHandle(batchTaskId);
+		DependencyResolutionTaskOutput out = BatchDependencyResolutionTaskOutput.getModuleOutput(dephandle.get(),
+				moduleIndex);
+		dephandle.setTaskOutputChangeDetector(new BatchModuleOutputTaskOutputChangeDetector(moduleIndex, out));
+		return out;
+	}
+
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		out.writeObject(batchTaskId);
+		out.writeInt(moduleIndex);
+	}
+
+	@Override
+	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+		batchTaskId = (TaskIdentifier) in.readObject();
+		moduleIndex = in.readInt();
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((batchTaskId == null) ? 0 : batchTaskId.hashCode());
+		result = prime * result + moduleIndex;
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		BatchModuleStructuredTaskResult other = (BatchModuleStructuredTaskResult) obj;
+		if (batchTaskId == null) {
+			if (other.batchTaskId != null)
+				return false;
+		} else if (!batchTaskId.equals(other.batchTaskId))
+			return false;
+		if (moduleIndex != other.moduleIndex)
+			return false;
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[" + batchTaskId + "[" + moduleIndex + "]]";
+	}
+
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.nest.support.impl.dependency;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import saker.build.runtime.execution.ExecutionContext;
+import saker.build.task.Task;
+import saker.build.task.TaskContext;
+import saker.build.task.TaskFactory;
+import saker.build.task.identifier.TaskIdentifier;
+import saker.build.task.utils.dependencies.EqualityTaskOutputChangeDetector;
+import saker.build.thirdparty.saker.util.ImmutableUtils;
+import saker.build.thirdparty.saker.util.io.SerialUtils;
+import saker.build.trace.BuildTrace;
+import saker.nest.support.api.dependency.DependencyResolutionTaskOutput;
+import saker.nest.support.main.dependency.BatchResolveBundleDependencyTaskFactory;
+
+/**
+ * Worker task that executes the dependency resolution for multiple modules.
+ * <p>
+ * The resolutions are executed in the same task, so the bundle lookups and the reported dependencies are shared
+ * between them. The bundle informations and filtered dependencies are shared through the
+ * {@link SharedDependencyResolutionCache} as with the single resolution tasks.
+ * <p>
+ * The task returns a {@link BatchDependencyResolutionTaskOutput}.
+ */
+public class BatchResolveBundleDependencyWorkerTaskFactory implements TaskFactory<BatchDependencyResolutionTaskOutput>,
+		Task<BatchDependencyResolutionTaskOutput>, Externalizable, TaskIdentifier {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The resolution configurations of the modules.
+	 * <p>
+	 * The tasks are not started, they're only used to hold the configuration.
+	 */
+	protected List<ResolveBundleDependencyFileWorkerTaskFactory> modules;
+
+	/**
+	 * For {@link Externalizable}.
+	 */
+	public BatchResolveBundleDependencyWorkerTaskFactory() {
+	}
+
+	public BatchResolveBundleDependencyWorkerTaskFactory(List<ResolveBundleDependencyFileWorkerTaskFactory> modules) {
+		this.modules = ImmutableUtils.makeImmutableList(modules);
+	}
+
+	@Override
+	public Task<? extends BatchDependencyResolutionTaskOutput> createTask(ExecutionContext executioncontext) {
+		return this;
+	}
+
+	@Override
+	public BatchDependencyResolutionTaskOutput run(TaskContext taskcontext) throws Exception {
+		if (saker.build.meta.Versions.VERSION_FULL_COMPOUND >= 8_006) {
+			BuildTrace.classifyTask(BuildTrace.CLASSIFICATION_WORKER);
+			if (saker.build.meta.Versions.VERSION_FULL_COMPOUND >= 8_009) {
+				Map<String, Object> valmap = new LinkedHashMap<>();
+				valmap.put("Module count", modules.size());
+				BuildTrace.setValues(valmap, BuildTrace.VALUE_CATEGORY_TASK);
+			}
+		}
+		taskcontext.setStandardOutDisplayIdentifier(BatchResolveBundleDependencyTaskFactory.TASK_NAME);
+
+		DependencyResolutionLookupCache lookupcache = new DependencyResolutionLookupCache();
+		List<DependencyResolutionTaskOutput> outputs = new ArrayList<>(modules.size());
+		for (int i = 0; i < modules.size(); i++) {
+			DependencyResolutionTaskOutputImpl moduleoutput = modules.get(i).resolve(taskcontext, lookupcache, this,
+					i);
+			if (moduleoutput == null) {
+				//aborted
+				return null;
+			}
+			outputs.add(moduleoutput);
+		}
+		BatchDependencyResolutionTaskOutput result = new BatchDependencyResolutionTaskOutput(outputs);
+		taskcontext.reportSelfTaskOutputChangeDetector(new EqualityTaskOutputChangeDetector(result));
+		return result;
+	}
+
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		SerialUtils.writeExternalCollection(out, modules);
+	}
+
+	@Override
+	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+		modules = SerialUtils.readExternalImmutableList(in);
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((modules == null) ? 0 : modules.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		BatchResolveBundleDependencyWorkerTaskFactory other = (BatchResolveBundleDependencyWorkerTaskFactory) obj;
+		if (modules == null) {
+			if (other.modules != null)
+				return false;
+		} else if (!modules.equals(other.modules))
+			return false;
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[" + (modules != null ? "modules=" + modules : "") + "]";
+	}
+
+}
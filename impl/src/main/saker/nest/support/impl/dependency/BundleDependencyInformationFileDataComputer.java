@@ -15,22 +15,57 @@
  */
 package saker.nest.support.impl.dependency;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.Externalizable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 
+import saker.build.file.SakerDirectory;
 import saker.build.file.SakerFile;
+import saker.build.file.content.ContentDescriptor;
+import saker.build.file.path.SakerPath;
 import saker.build.runtime.execution.FileDataComputer;
+import saker.build.thirdparty.saker.util.StringUtils;
 import saker.nest.bundle.BundleDependencyInformation;
 import saker.nest.bundle.BundleIdentifier;
 
+/**
+ * Parses the dependency files.
+ * <p>
+ * If a persistent cache file is set, the computer attempts to read the dependency information from it first. The
+ * computer only reads the cache file, it is the responsibility of the caller to write it if the dependency file was
+ * parsed. See {@link #isParsed()} and {@link #getCacheFileBytes(SakerFile, BundleDependencyInformation)}.
+ * <p>
+ * The cache file is keyed by the content descriptor of the dependency file, and the dependency information is stored
+ * in the same format as in the bundle index files.
+ */
 final class BundleDependencyInformationFileDataComputer
 		implements FileDataComputer<BundleDependencyInformation>, Externalizable {
 	private static final long serialVersionUID = 1L;
 
+	private static final int CACHE_FILE_MAGIC = 0x4e444643;
+	private static final int CACHE_FILE_FORMAT_VERSION = 3;
+
 	private BundleIdentifier thisBundleId;
+	/**
+	 * The persistent cache file to read the dependency information from. May be <code>null</code>.
+	 * <p>
+	 * Not part of the equality and serialization, as it doesn't affect the computed data.
+	 */
+	private transient SakerFile cacheFile;
+	/**
+	 * Set to <code>true</code> if this computer instance parsed the dependency file.
+	 */
+	private transient volatile boolean parsed;
 
 	/**
 	 * For {@link Externalizable}.
@@ -42,10 +77,107 @@ final class BundleDependencyInformationFileDataComputer
 		this.thisBundleId = thisBundleId;
 	}
 
+	public BundleDependencyInformationFileDataComputer(BundleIdentifier thisBundleId, SakerFile cacheFile) {
+		this.thisBundleId = thisBundleId;
+		this.cacheFile = cacheFile;
+	}
+
 	@Override
 	public BundleDependencyInformation compute(SakerFile file) throws IOException {
+		if (cacheFile != null) {
+			BundleDependencyInformation cached = readCacheFile(cacheFile, getContentDescriptorBytes(file));
+			if (cached != null) {
+				return cached;
+			}
+		}
+		BundleDependencyInformation result;
 		try (InputStream is = file.openInputStream()) {
-			return BundleDependencyInformation.readFrom(is, thisBundleId);
+			result = BundleDependencyInformation.readFrom(is, thisBundleId);
+		}
+		parsed = true;
+		return result;
+	}
+
+	/**
+	 * Checks if the dependency file was parsed by this computer instance, and the cache file should be updated.
+	 * 
+	 * @return <code>true</code> if the dependency file was parsed.
+	 */
+	public boolean isParsed() {
+		return parsed;
+	}
+
+	/**
+	 * Gets the name of the persistent cache file for the given dependency file and self bundle identifier.
+	 * <p>
+	 * There is a single cache file for each pair, that is overwritten when the contents of the dependency file change.
+	 * Therefore the size of the cache is bounded by the number of dependency files that are used in the build.
+	 */
+	public static String getCacheFileName(SakerPath dependencyfilepath, BundleIdentifier thisbundleid) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new AssertionError(e);
+		}
+		digest.update(dependencyfilepath.toString().getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) 0);
+		if (thisbundleid != null) {
+			digest.update(thisbundleid.toString().getBytes(StandardCharsets.UTF_8));
+		}
+		return StringUtils.toHexString(digest.digest());
+	}
+
+	/**
+	 * Gets the contents of the persistent cache file for the dependency information of the given file.
+	 */
+	public static byte[] getCacheFileBytes(SakerFile dependencyfile, BundleDependencyInformation depinfo)
+			throws IOException {
+		byte[] cdbytes = getContentDescriptorBytes(dependencyfile);
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		try (DataOutputStream dos = new DataOutputStream(baos)) {
+			dos.writeInt(CACHE_FILE_MAGIC);
+			dos.writeInt(CACHE_FILE_FORMAT_VERSION);
+			dos.writeInt(cdbytes.length);
+			dos.write(cdbytes);
+			BundleIndex.writeDependencyInformation(dos, depinfo);
+		}
+		return baos.toByteArray();
+	}
+
+	private static byte[] getContentDescriptorBytes(SakerFile file) throws IOException {
+		ContentDescriptor cd = file.getContentDescriptor();
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+			oos.writeObject(cd);
+		}
+		return baos.toByteArray();
+	}
+
+	private static BundleDependencyInformation readCacheFile(SakerFile cachefile, byte[] contentdescriptorbytes) {
+		if (cachefile instanceof SakerDirectory) {
+			return null;
+		}
+		try (InputStream is = cachefile.openInputStream()) {
+			DataInputStream dis = new DataInputStream(is);
+			if (dis.readInt() != CACHE_FILE_MAGIC || dis.readInt() != CACHE_FILE_FORMAT_VERSION) {
+				return null;
+			}
+			int cdlength = dis.readInt();
+			if (cdlength != contentdescriptorbytes.length) {
+				//the dependency file was modified
+				return null;
+			}
+			byte[] cdbytes = new byte[cdlength];
+			dis.readFully(cdbytes);
+			if (!Arrays.equals(cdbytes, contentdescriptorbytes)) {
+				//the dependency file was modified
+				return null;
+			}
+			return BundleIndex.readDependencyInformation(dis);
+		} catch (IOException | IllegalArgumentException e) {
+			//corrupt or incompatible cache file, parse again and overwrite
+			return null;
 		}
 	}
 
@@ -89,4 +221,4 @@ final class BundleDependencyInformationFileDataComputer
 		return getClass().getSimpleName() + "[" + (thisBundleId != null ? "thisBundleId=" + thisBundleId : "") + "]";
 	}
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,423 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.nest.support.impl.dependency;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import saker.nest.bundle.BundleDependency;
+import saker.nest.bundle.BundleDependencyInformation;
+import saker.nest.bundle.BundleDependencyList;
+import saker.nest.bundle.BundleIdentifier;
+import saker.nest.bundle.BundleKey;
+import saker.nest.bundle.DependencyConstraintConfiguration;
+import saker.nest.bundle.NestBundleStorageConfiguration;
+import saker.nest.bundle.storage.BundleStorageView;
+import saker.nest.bundle.storage.StorageViewKey;
+import saker.nest.version.VersionRange;
+
+/**
+ * Snapshot of bundle versions and their dependency information that can be used for dependency resolution without
+ * accessing the bundle storages.
+ * <p>
+ * The index file has the following layout. All integers are big endian.
+ *
+ * <pre>
+ * int magic
+ * int format version
+ * int bundle count
+ * int storage names offset
+ * int storage names length
+ * int constraints offset
+ * int constraints length
+ * bundle count * {
+ *     int bundle identifier offset
+ *     int storage name index
+ *     int dependency information offset
+ *     int dependency information length
+ * }
+ * data
+ * </pre>
+ *
+ * The bundle identifiers are stored as an <code>int</code> length followed by the UTF-8 bytes. The other sections are
+ * written using {@link DataOutputStream}, the index doesn't contain serialized Java objects. The storages are
+ * recorded by their names in the storage configuration, and are mapped to the storages of the current configuration
+ * when the index is read.
+ * <p>
+ * The records are fixed size, so the index can be used directly from a memory mapped buffer. Only the bundle
+ * identifiers are decoded when the index is opened, the dependency informations are decoded lazily when they are
+ * first requested.
+ * <p>
+ * The bundles with the same name are listed in the order they were added. The writer adds them in descending version
+ * order, same as the bundle lookups.
+ * <p>
+ * The index records the dependency constraints that were used to exclude the bundles and filter the dependencies
+ * during the export. The index can only be used for resolutions with the same constraints. See
+ * {@link #isSameConstraints()}.
+ */
+final class BundleIndex {
+	private static final int INDEX_FILE_MAGIC = 0x4e494458;
+	private static final int INDEX_FILE_FORMAT_VERSION = 2;
+
+	private static final int HEADER_SIZE = 4 * 7;
+	private static final int RECORD_SIZE = 4 * 4;
+
+	private final ByteBuffer buffer;
+	private final Map<BundleIdentifier, Set<BundleKey>> bundleVersions;
+	private final Map<BundleKey, Integer> bundleRecords;
+	private final AtomicReferenceArray<BundleDependencyInformation> dependencyInformations;
+	private final boolean sameConstraints;
+
+	private BundleIndex(ByteBuffer buffer, Map<BundleIdentifier, Set<BundleKey>> bundleVersions,
+			Map<BundleKey, Integer> bundleRecords, boolean sameConstraints) {
+		this.buffer = buffer;
+		this.bundleVersions = bundleVersions;
+		this.bundleRecords = bundleRecords;
+		this.sameConstraints = sameConstraints;
+		this.dependencyInformations = new AtomicReferenceArray<>(bundleRecords.size());
+	}
+
+	/**
+	 * Reads the index from the argument buffer.
+	 *
+	 * @param buffer
+	 *            The index file contents.
+	 * @param storagekeys
+	 *            The storage view keys mapped to the storage names of the current storage configuration.
+	 * @param constraints
+	 *            The dependency constraints of the resolution that the index is used for.
+	 * @return The index.
+	 * @throws IOException
+	 *             If the index is malformed, or a storage is not present in the current configuration.
+	 * @see #getStorageKeys(NestBundleStorageConfiguration)
+	 */
+	public static BundleIndex read(ByteBuffer buffer, Map<String, ? extends StorageViewKey> storagekeys,
+			DependencyConstraintConfiguration constraints) throws IOException {
+		if (buffer.remaining() < HEADER_SIZE || buffer.getInt(0) != INDEX_FILE_MAGIC) {
+			throw new IOException("Not a bundle index file.");
+		}
+		if (buffer.getInt(4) != INDEX_FILE_FORMAT_VERSION) {
+			throw new IOException("Unsupported bundle index format version: " + buffer.getInt(4));
+		}
+		int count = buffer.getInt(8);
+		StorageViewKey[] indexstoragekeys;
+		try (DataInputStream in = openSection(buffer, buffer.getInt(12), buffer.getInt(16))) {
+			indexstoragekeys = new StorageViewKey[in.readInt()];
+			for (int i = 0; i < indexstoragekeys.length; i++) {
+				String name = in.readUTF();
+				StorageViewKey key = storagekeys.get(name);
+				if (key == null) {
+					throw new IOException("Storage of the bundle index not found in the configuration: " + name);
+				}
+				indexstoragekeys[i] = key;
+			}
+		}
+		String[] constraintvalues = new String[4];
+		try (DataInputStream in = openSection(buffer, buffer.getInt(20), buffer.getInt(24))) {
+			for (int i = 0; i < constraintvalues.length; i++) {
+				constraintvalues[i] = readNullableUTF(in);
+			}
+		}
+
+		Map<BundleIdentifier, Set<BundleKey>> bundleversions = new HashMap<>();
+		Map<BundleKey, Integer> bundlerecords = new HashMap<>();
+		for (int i = 0; i < count; i++) {
+			int recordoffset = HEADER_SIZE + i * RECORD_SIZE;
+			int idoffset = buffer.getInt(recordoffset);
+			int storageidx = buffer.getInt(recordoffset + 4);
+
+			byte[] idbytes = new byte[buffer.getInt(idoffset)];
+			ByteBuffer dup = buffer.duplicate();
+			dup.position(idoffset + 4);
+			dup.get(idbytes);
+			BundleIdentifier bundleid = BundleIdentifier.valueOf(new String(idbytes, StandardCharsets.UTF_8));
+
+			BundleKey bundlekey = BundleKey.create(indexstoragekeys[storageidx], bundleid);
+			bundleversions.computeIfAbsent(bundleid.withoutMetaQualifiers(), x -> new LinkedHashSet<>())
+					.add(bundlekey);
+			bundlerecords.put(bundlekey, i);
+		}
+		return new BundleIndex(buffer, bundleversions, bundlerecords,
+				Arrays.equals(constraintvalues, getConstraintValues(constraints)));
+	}
+
+	/**
+	 * Gets the storage view keys of the storages in the configuration mapped to their names.
+	 */
+	public static Map<String, StorageViewKey> getStorageKeys(NestBundleStorageConfiguration storageconfig) {
+		Map<String, StorageViewKey> result = new TreeMap<>();
+		putStorageKeys(result, storageconfig.getParameterStorages());
+		putStorageKeys(result, storageconfig.getLocalStorages());
+		putStorageKeys(result, storageconfig.getServerStorages());
+		return result;
+	}
+
+	/**
+	 * Gets the bundle versions in the index for the given bundle name.
+	 *
+	 * @return The bundle keys in descending version order or <code>null</code> if the bundle is not in the index.
+	 */
+	public Set<BundleKey> lookupBundleVersions(BundleIdentifier bundleid) {
+		return bundleVersions.get(bundleid.withoutMetaQualifiers());
+	}
+
+	/**
+	 * Checks if the index was exported with the same dependency constraints as the ones it was read with.
+	 * <p>
+	 * The bundles that are excluded by the constraints are not present in the index. If the constraints differ, the
+	 * index may be missing bundles or contain the ones that should be excluded.
+	 */
+	public boolean isSameConstraints() {
+		return sameConstraints;
+	}
+
+	/**
+	 * Gets the dependency information of a bundle in the index.
+	 * <p>
+	 * The dependency information is already filtered by the dependency constraints that were used when the index was
+	 * exported.
+	 *
+	 * @return The dependency information or <code>null</code> if the bundle is not in the index.
+	 * @throws IOException
+	 *             If the dependency information failed to be decoded.
+	 */
+	public BundleDependencyInformation getDependencyInformation(BundleKey bundlekey) throws IOException {
+		Integer record = bundleRecords.get(bundlekey);
+		if (record == null) {
+			return null;
+		}
+		BundleDependencyInformation result = dependencyInformations.get(record);
+		if (result != null) {
+			return result;
+		}
+		int recordoffset = HEADER_SIZE + record * RECORD_SIZE;
+		try (DataInputStream in = openSection(buffer, buffer.getInt(recordoffset + 8),
+				buffer.getInt(recordoffset + 12))) {
+			result = readDependencyInformation(in);
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Invalid bundle index dependency information for: " + bundlekey, e);
+		}
+		//decoding again by concurrent callers is harmless
+		dependencyInformations.compareAndSet(record, null, result);
+		return result;
+	}
+
+	public int getBundleCount() {
+		return bundleRecords.size();
+	}
+
+	private static void putStorageKeys(Map<String, StorageViewKey> result,
+			Map<String, ? extends BundleStorageView> storages) {
+		for (Entry<String, ? extends BundleStorageView> entry : storages.entrySet()) {
+			result.put(entry.getKey(), entry.getValue().getStorageViewKey());
+		}
+	}
+
+	private static String[] getConstraintValues(DependencyConstraintConfiguration constraints) {
+		if (constraints == null) {
+			return new String[4];
+		}
+		Integer jremajor = constraints.getJreMajorVersion();
+		return new String[] { jremajor == null ? null : jremajor.toString(), constraints.getRepositoryVersion(),
+				constraints.getBuildSystemVersion(), constraints.getNativeArchitecture() };
+	}
+
+	private static DataInputStream openSection(ByteBuffer buffer, int offset, int length) {
+		byte[] bytes = new byte[length];
+		ByteBuffer dup = buffer.duplicate();
+		dup.position(offset);
+		dup.get(bytes);
+		return new DataInputStream(new ByteArrayInputStream(bytes));
+	}
+
+	private static String readNullableUTF(DataInputStream in) throws IOException {
+		if (!in.readBoolean()) {
+			return null;
+		}
+		return in.readUTF();
+	}
+
+	private static void writeNullableUTF(DataOutputStream out, String s) throws IOException {
+		out.writeBoolean(s != null);
+		if (s != null) {
+			out.writeUTF(s);
+		}
+	}
+
+	static BundleDependencyInformation readDependencyInformation(DataInputStream in) throws IOException {
+		int depcount = in.readInt();
+		if (depcount == 0) {
+			return BundleDependencyInformation.EMPTY;
+		}
+		Map<BundleIdentifier, BundleDependencyList> dependencies = new LinkedHashMap<>();
+		for (int i = 0; i < depcount; i++) {
+			BundleIdentifier depid = BundleIdentifier.valueOf(in.readUTF());
+			int count = in.readInt();
+			Set<BundleDependency> deps = new LinkedHashSet<>();
+			for (int j = 0; j < count; j++) {
+				BundleDependency.Builder builder = BundleDependency.builder();
+				for (int k = in.readInt(); k > 0; k--) {
+					builder.addKind(in.readUTF());
+				}
+				builder.setRange(VersionRange.valueOf(in.readUTF()));
+				for (int k = in.readInt(); k > 0; k--) {
+					builder.addMetaData(in.readUTF(), in.readUTF());
+				}
+				deps.add(builder.build());
+			}
+			dependencies.put(depid, BundleDependencyList.create(deps));
+		}
+		return BundleDependencyInformation.create(dependencies);
+	}
+
+	static void writeDependencyInformation(DataOutputStream out, BundleDependencyInformation depinfo)
+			throws IOException {
+		Map<BundleIdentifier, ? extends BundleDependencyList> dependencies = depinfo.getDependencies();
+		out.writeInt(dependencies.size());
+		for (Entry<BundleIdentifier, ? extends BundleDependencyList> entry : dependencies.entrySet()) {
+			out.writeUTF(entry.getKey().toString());
+			Set<? extends BundleDependency> deps = entry.getValue().getDependencies();
+			out.writeInt(deps.size());
+			for (BundleDependency dep : deps) {
+				Set<String> kinds = dep.getKinds();
+				out.writeInt(kinds.size());
+				for (String kind : kinds) {
+					out.writeUTF(kind);
+				}
+				out.writeUTF(dep.getRange().toString());
+				Map<String, String> metadata = dep.getMetaData();
+				out.writeInt(metadata.size());
+				for (Entry<String, String> metaentry : metadata.entrySet()) {
+					out.writeUTF(metaentry.getKey());
+					out.writeUTF(metaentry.getValue());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Builder for the contents of a bundle index file.
+	 */
+	public static final class Writer {
+		private final Map<BundleKey, BundleDependencyInformation> bundles = new LinkedHashMap<>();
+		private final DependencyConstraintConfiguration constraints;
+		private final Map<StorageViewKey, String> storageNames = new HashMap<>();
+
+		/**
+		 * Creates a new writer.
+		 *
+		 * @param constraints
+		 *            The dependency constraints that are used to exclude the bundles and filter the dependencies.
+		 * @param storagekeys
+		 *            The storage view keys mapped to their names. See
+		 *            {@link BundleIndex#getStorageKeys(NestBundleStorageConfiguration)}.
+		 */
+		public Writer(DependencyConstraintConfiguration constraints,
+				Map<String, ? extends StorageViewKey> storagekeys) {
+			this.constraints = constraints;
+			for (Entry<String, ? extends StorageViewKey> entry : storagekeys.entrySet()) {
+				storageNames.put(entry.getValue(), entry.getKey());
+			}
+		}
+
+		public void add(BundleKey bundlekey, BundleDependencyInformation depinfo) {
+			bundles.putIfAbsent(bundlekey, depinfo == null ? BundleDependencyInformation.EMPTY : depinfo);
+		}
+
+		public int getBundleCount() {
+			return bundles.size();
+		}
+
+		public byte[] toByteArray() throws IOException {
+			List<String> storagenames = new ArrayList<>();
+			Map<StorageViewKey, Integer> storagekeyindices = new HashMap<>();
+
+			ByteArrayOutputStream data = new ByteArrayOutputStream();
+			int dataoffset = HEADER_SIZE + bundles.size() * RECORD_SIZE;
+			int[] records = new int[bundles.size() * 4];
+			int idx = 0;
+			DataOutputStream datadout = new DataOutputStream(data);
+			for (Map.Entry<BundleKey, BundleDependencyInformation> entry : bundles.entrySet()) {
+				BundleKey bundlekey = entry.getKey();
+				StorageViewKey storagekey = bundlekey.getStorageViewKey();
+				Integer storageidx = storagekeyindices.get(storagekey);
+				if (storageidx == null) {
+					String name = storageNames.get(storagekey);
+					if (name == null) {
+						throw new IOException("Storage not found in the configuration for: " + bundlekey);
+					}
+					storageidx = storagenames.size();
+					storagenames.add(name);
+					storagekeyindices.put(storagekey, storageidx);
+				}
+				byte[] idbytes = bundlekey.getBundleIdentifier().toString().getBytes(StandardCharsets.UTF_8);
+				records[idx * 4] = dataoffset + data.size();
+				records[idx * 4 + 1] = storageidx;
+				datadout.writeInt(idbytes.length);
+				datadout.write(idbytes);
+
+				int depinfooffset = dataoffset + data.size();
+				writeDependencyInformation(datadout, entry.getValue());
+				records[idx * 4 + 2] = depinfooffset;
+				records[idx * 4 + 3] = dataoffset + data.size() - depinfooffset;
+				++idx;
+			}
+			int storagesoffset = dataoffset + data.size();
+			datadout.writeInt(storagenames.size());
+			for (String name : storagenames) {
+				datadout.writeUTF(name);
+			}
+			int constraintsoffset = dataoffset + data.size();
+			for (String val : getConstraintValues(constraints)) {
+				writeNullableUTF(datadout, val);
+			}
+			int endoffset = dataoffset + data.size();
+			datadout.flush();
+
+			ByteArrayOutputStream result = new ByteArrayOutputStream(endoffset);
+			DataOutputStream out = new DataOutputStream(result);
+			out.writeInt(INDEX_FILE_MAGIC);
+			out.writeInt(INDEX_FILE_FORMAT_VERSION);
+			out.writeInt(bundles.size());
+			out.writeInt(storagesoffset);
+			out.writeInt(constraintsoffset - storagesoffset);
+			out.writeInt(constraintsoffset);
+			out.writeInt(endoffset - constraintsoffset);
+			for (int r : records) {
+				out.writeInt(r);
+			}
+			data.writeTo(out);
+			out.flush();
+			return result.toByteArray();
+		}
+	}
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.nest.support.impl.dependency;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import saker.build.file.SakerFile;
+import saker.build.runtime.execution.FileDataComputer;
+import saker.build.thirdparty.saker.util.io.ByteArrayRegion;
+import saker.nest.bundle.DependencyConstraintConfiguration;
+import saker.nest.bundle.storage.StorageViewKey;
+
+/**
+ * Reads the bundle index files.
+ * <p>
+ * The read index depends on the storage configuration and the dependency constraints, so they are part of the
+ * identity of the computer.
+ */
+final class BundleIndexFileDataComputer implements FileDataComputer<BundleIndex>, Externalizable {
+	private static final long serialVersionUID = 1L;
+
+	private Map<String, StorageViewKey> storageKeys;
+	private DependencyConstraintConfiguration constraints;
+
+	/**
+	 * For {@link Externalizable}.
+	 */
+	public BundleIndexFileDataComputer() {
+	}
+
+	/**
+	 * Creates a new computer.
+	 * 
+	 * @param storageKeys
+	 *            The storage view keys of the current configuration. See
+	 *            {@link BundleIndex#getStorageKeys(saker.nest.bundle.NestBundleStorageConfiguration)}.
+	 * @param constraints
+	 *            The dependency constraints of the resolution.
+	 */
+	public BundleIndexFileDataComputer(Map<String, StorageViewKey> storageKeys,
+			DependencyConstraintConfiguration constraints) {
+		this.storageKeys = storageKeys;
+		this.constraints = constraints;
+	}
+
+	@Override
+	public BundleIndex compute(SakerFile file) throws IOException {
+		try {
+			ByteArrayRegion bytes = file.getBytes();
+			return BundleIndex.read(ByteBuffer.wrap(bytes.getArray(), bytes.getOffset(), bytes.getLength()).slice(),
+					storageKeys, constraints);
+		} catch (IndexOutOfBoundsException | IllegalArgumentException | BufferUnderflowException e) {
+			throw new IOException("Corrupt bundle index file: " + file.getSakerPath(), e);
+		}
+	}
+
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		out.writeInt(storageKeys.size());
+		for (Entry<String, StorageViewKey> entry : storageKeys.entrySet()) {
+			out.writeUTF(entry.getKey());
+			out.writeObject(entry.getValue());
+		}
+		out.writeObject(constraints);
+	}
+
+	@Override
+	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+		Map<String, StorageViewKey> keys = new TreeMap<>();
+		for (int i = in.readInt(); i > 0; i--) {
+			keys.put(in.readUTF(), (StorageViewKey) in.readObject());
+		}
+		storageKeys = keys;
+		constraints = (DependencyConstraintConfiguration) in.readObject();
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((constraints == null) ? 0 : constraints.hashCode());
+		result = prime * result + ((storageKeys == null) ? 0 : storageKeys.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		BundleIndexFileDataComputer other = (BundleIndexFileDataComputer) obj;
+		if (constraints == null) {
+			if (other.constraints != null)
+				return false;
+		} else if (!constraints.equals(other.constraints))
+			return false;
+		if (storageKeys == null) {
+			if (other.storageKeys != null)
+				return false;
+		} else if (!storageKeys.equals(other.storageKeys))
+			return false;
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[" + (storageKeys != null ? "storageKeys=" + storageKeys + ", " : "")
+				+ (constraints != null ? "constraints=" + constraints : "") + "]";
+	}
+}
@@ -30,6 +30,7 @@ import saker.nest.bundle.BundleInformation;
 import saker.nest.bundle.NestBundleClassLoader;
 import saker.nest.bundle.storage.BundleStorageView;
 import saker.nest.bundle.storage.StorageViewKey;
+import saker.nest.support.impl.util.BundleInformationCache;
 
 public class BundleInformationExecutionProperty implements ExecutionProperty<BundleInformation>, Externalizable {
 	private static final long serialVersionUID = 1L;
@@ -56,7 +57,7 @@ public class BundleInformationExecutionProperty implements ExecutionProperty<Bun
 		if (sv == null) {
 			return null;
 		}
-		return sv.getBundleInformation(bundleIdentifier);
+		return BundleInformationCache.getBundleInformation(sv, bundleIdentifier, null);
 	}
 
 	@Override
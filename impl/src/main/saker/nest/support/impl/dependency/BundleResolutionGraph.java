@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.nest.support.impl.dependency;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import saker.nest.bundle.BundleKey;
+import saker.nest.dependency.DependencyDomainResolutionResult;
+
+/**
+ * Compact representation of a dependency resolution result.
+ * <p>
+ * The graph consists of nodes which represent the dependency domains. Each node has an ordered list of edges that
+ * point to the resolved direct dependencies. The bundle keys are interned to dense <code>int</code> indices.
+ * <p>
+ * The graph is traversed iteratively, and the visited nodes and collected bundles are tracked with bitsets.
+ */
+final class BundleResolutionGraph {
+	private static final int[] EMPTY_INT_ARRAY = {};
+
+	private final Map<BundleKey, Integer> keyIndices = new HashMap<>();
+	private final List<BundleKey> keys = new ArrayList<>();
+
+	private int nodeCount;
+	/**
+	 * The bundle key indices of the edges for each node.
+	 */
+	private int[][] edgeKeys = new int[16][];
+	/**
+	 * The target nodes of the edges for each node.
+	 */
+	private int[][] edgeTargets = new int[16][];
+	private int[] edgeCounts = new int[16];
+
+	public BundleResolutionGraph() {
+	}
+
+	/**
+	 * Creates a graph from a domain based dependency resolution result.
+	 * <p>
+	 * The root domain is the node at index 0. The domains are identified by identity, the possibly deep
+	 * {@link Object#hashCode()} and {@link Object#equals(Object)} of the domains are not used.
+	 */
+	public static BundleResolutionGraph create(DependencyDomainResolutionResult<BundleKey, ?> rootdomain) {
+		BundleResolutionGraph result = new BundleResolutionGraph();
+		Map<DependencyDomainResolutionResult<BundleKey, ?>, Integer> domainnodes = new IdentityHashMap<>();
+		ArrayDeque<DependencyDomainResolutionResult<BundleKey, ?>> worklist = new ArrayDeque<>();
+		domainnodes.put(rootdomain, result.addNode());
+		worklist.add(rootdomain);
+		DependencyDomainResolutionResult<BundleKey, ?> domain;
+		while ((domain = worklist.poll()) != null) {
+			int node = domainnodes.get(domain);
+			for (Entry<? extends Entry<? extends BundleKey, ?>, ? extends DependencyDomainResolutionResult<BundleKey, ?>> entry : domain
+					.getDirectDependencies().entrySet()) {
+				DependencyDomainResolutionResult<BundleKey, ?> depdomain = entry.getValue();
+				Integer target = domainnodes.get(depdomain);
+				if (target == null) {
+					target = result.addNode();
+					domainnodes.put(depdomain, target);
+					worklist.add(depdomain);
+				}
+				result.addEdge(node, entry.getKey().getKey(), target);
+			}
+		}
+		return result;
+	}
+
+	public int addNode() {
+		int node = nodeCount++;
+		if (node == edgeCounts.length) {
+			int ncap = node * 2;
+			edgeKeys = Arrays.copyOf(edgeKeys, ncap);
+			edgeTargets = Arrays.copyOf(edgeTargets, ncap);
+			edgeCounts = Arrays.copyOf(edgeCounts, ncap);
+		}
+		edgeKeys[node] = EMPTY_INT_ARRAY;
+		edgeTargets[node] = EMPTY_INT_ARRAY;
+		return node;
+	}
+
+	public void addEdge(int node, BundleKey bundlekey, int targetnode) {
+		int keyidx = internKey(bundlekey);
+		int count = edgeCounts[node];
+		int[] nodekeys = edgeKeys[node];
+		if (count == nodekeys.length) {
+			int ncap = Math.max(4, count * 2);
+			nodekeys = Arrays.copyOf(nodekeys, ncap);
+			edgeKeys[node] = nodekeys;
+			edgeTargets[node] = Arrays.copyOf(edgeTargets[node], ncap);
+		}
+		nodekeys[count] = keyidx;
+		edgeTargets[node][count] = targetnode;
+		edgeCounts[node] = count + 1;
+	}
+
+	public int getNodeCount() {
+		return nodeCount;
+	}
+
+	public int getBundleKeyCount() {
+		return keys.size();
+	}
+
+	/**
+	 * Collects the bundle keys that are reachable from the given node.
+	 * <p>
+	 * The direct dependencies of a node are added before the dependencies of its dependencies. The nodes are visited
+	 * in depth first pre-order.
+	 *
+	 * @param rootnode
+	 *            The node to start from.
+	 * @return The bundle keys in resolution order.
+	 */
+	public Set<BundleKey> collectBundles(int rootnode) {
+		BitSet visitednodes = new BitSet(nodeCount);
+		BitSet collectedkeys = new BitSet(keys.size());
+		int[] order = new int[keys.size()];
+		int ordercount = 0;
+
+		int[] stack = new int[Math.max(16, nodeCount)];
+		int stacksize = 0;
+		stack[stacksize++] = rootnode;
+		while (stacksize > 0) {
+			int node = stack[--stacksize];
+			if (visitednodes.get(node)) {
+				continue;
+			}
+			visitednodes.set(node);
+			int count = edgeCounts[node];
+			int[] nodekeys = edgeKeys[node];
+			int[] nodetargets = edgeTargets[node];
+			for (int i = 0; i < count; i++) {
+				int keyidx = nodekeys[i];
+				if (!collectedkeys.get(keyidx)) {
+					collectedkeys.set(keyidx);
+					order[ordercount++] = keyidx;
+				}
+			}
+			//push in reverse order so the first dependency is visited first
+			if (stacksize + count > stack.length) {
+				stack = Arrays.copyOf(stack, Math.max(stack.length * 2, stacksize + count));
+			}
+			for (int i = count - 1; i >= 0; i--) {
+				int target = nodetargets[i];
+				if (!visitednodes.get(target)) {
+					stack[stacksize++] = target;
+				}
+			}
+		}
+		Set<BundleKey> result = new LinkedHashSet<>(ordercount * 4 / 3 + 1);
+		for (int i = 0; i < ordercount; i++) {
+			result.add(keys.get(order[i]));
+		}
+		return result;
+	}
+
+	private int internKey(BundleKey bundlekey) {
+		Integer idx = keyIndices.get(bundlekey);
+		if (idx != null) {
+			return idx;
+		}
+		int nidx = keys.size();
+		keys.add(bundlekey);
+		keyIndices.put(bundlekey, nidx);
+		return nidx;
+	}
+}
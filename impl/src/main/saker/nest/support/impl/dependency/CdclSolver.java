@@ -0,0 +1,642 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.nest.support.impl.dependency;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Conflict driven clause learning boolean satisfiability solver.
+ * <p>
+ * Literals are represented as <code>int</code>s. The positive literal of variable <code>v</code> is
+ * <code>v * 2</code>, the negative is <code>v * 2 + 1</code>. See {@link #positive(int)} and {@link #negative(int)}.
+ * <p>
+ * Each clause added to the solver has an associated origin identifier. If the problem is found to be unsatisfiable, the
+ * solver reports the set of origins which participated in the refutation. (I.e. an unsatisfiable core.)
+ * <p>
+ * The branching is deterministic and only considers the dependency clauses (see {@link #addDependencyClause}). The
+ * dependency clauses are visited depth first: starting from the root clauses, the clauses of a variable are visited
+ * right after the clause in which the variable was selected. The first clause in this order that is not satisfied has
+ * its first unassigned literal assigned to <code>true</code>. If all visited clauses are satisfied, the unassigned
+ * variables are considered to be <code>false</code>.
+ * <p>
+ * The position of the visit is kept between the decisions and restored when backtracking, so a decision doesn't
+ * require scanning all clauses. If there are no conflicts, this results in the same choices as a depth first search
+ * that tries the candidates in declaration order. After a conflict, the learnt clauses may lead to a different solution
+ * than the one a chronologically backtracking depth first search would find.
+ * <p>
+ * Auxiliary variables (see {@link #newAuxiliaryVariable()}) are never branched on, they are only assigned by
+ * propagation.
+ */
+final class CdclSolver {
+	public static final int RESULT_UNSATISFIABLE = 0;
+	public static final int RESULT_SATISFIABLE = 1;
+	/**
+	 * The solver failed to decide the satisfiability of the problem in the given conflict limit.
+	 */
+	public static final int RESULT_UNKNOWN = 2;
+
+	private static final byte VALUE_UNASSIGNED = 0;
+	private static final byte VALUE_TRUE = 1;
+	private static final byte VALUE_FALSE = -1;
+
+	private static final class Clause {
+		/**
+		 * The literals of the clause.
+		 * <p>
+		 * The first two literals are being watched. If the clause is a reason for an assignment, the implied literal is
+		 * at index 0.
+		 */
+		protected final int[] literals;
+		protected final BitSet origins;
+
+		public Clause(int[] literals, BitSet origins) {
+			this.literals = literals;
+			this.origins = origins;
+		}
+	}
+
+	/**
+	 * The position of the depth first visit of the dependency clauses.
+	 */
+	private static final class BranchingCursor {
+		/**
+		 * The owner variables of the visited clause lists, or -1 for the root clauses.
+		 */
+		protected int[] owners;
+		/**
+		 * The index of the next clause to visit in the clause list of the owner.
+		 */
+		protected int[] indices;
+		protected int size;
+		/**
+		 * The number of variables in {@link CdclSolver#visitedTrail} at the time of the snapshot.
+		 */
+		protected int visitedCount;
+
+		public BranchingCursor(int capacity) {
+			this.owners = new int[capacity];
+			this.indices = new int[capacity];
+		}
+
+		public BranchingCursor(BranchingCursor copy, int visitedCount) {
+			this.owners = Arrays.copyOf(copy.owners, copy.size);
+			this.indices = Arrays.copyOf(copy.indices, copy.size);
+			this.size = copy.size;
+			this.visitedCount = visitedCount;
+		}
+
+		public void push(int owner) {
+			if (size == owners.length) {
+				int ncap = Math.max(size * 2, 8);
+				owners = Arrays.copyOf(owners, ncap);
+				indices = Arrays.copyOf(indices, ncap);
+			}
+			owners[size] = owner;
+			indices[size] = 0;
+			++size;
+		}
+
+		public void restore(BranchingCursor snapshot) {
+			if (owners.length < snapshot.size) {
+				owners = new int[snapshot.size];
+				indices = new int[snapshot.size];
+			}
+			System.arraycopy(snapshot.owners, 0, owners, 0, snapshot.size);
+			System.arraycopy(snapshot.indices, 0, indices, 0, snapshot.size);
+			size = snapshot.size;
+		}
+	}
+
+	private int variableCount;
+
+	private final List<Clause> problemClauses = new ArrayList<>();
+	private final List<List<Clause>> watches = new ArrayList<>();
+
+	/**
+	 * The candidate literals of the root dependency clauses.
+	 */
+	private final List<int[]> rootDependencyClauses = new ArrayList<>();
+	/**
+	 * The candidate literals of the dependency clauses for each owner variable.
+	 */
+	private final List<List<int[]>> variableDependencyClauses = new ArrayList<>();
+	private final BranchingCursor cursor = new BranchingCursor(8);
+	private BranchingCursor[] levelCursors = new BranchingCursor[16];
+	private final BitSet visited = new BitSet();
+	private int[] visitedTrail = new int[16];
+	private int visitedTrailSize;
+
+	private byte[] values = new byte[16];
+	private int[] levels = new int[16];
+	private Clause[] reasons = new Clause[16];
+	/**
+	 * The origins which caused the assignment of the variable at decision level 0.
+	 */
+	private BitSet[] rootOrigins = new BitSet[16];
+	private boolean[] seen = new boolean[16];
+
+	private int[] trail = new int[16];
+	private int trailSize;
+	private int propagateHead;
+	private int[] trailLimits = new int[16];
+	private int decisionLevel;
+
+	private boolean initialized;
+	private BitSet unsatisfiableCore;
+	private long conflictCount;
+
+	public CdclSolver() {
+	}
+
+	public static int positive(int variable) {
+		return variable << 1;
+	}
+
+	public static int negative(int variable) {
+		return (variable << 1) | 1;
+	}
+
+	public int newVariable() {
+		if (variableCount == values.length) {
+			int ncap = variableCount * 2;
+			values = Arrays.copyOf(values, ncap);
+			levels = Arrays.copyOf(levels, ncap);
+			reasons = Arrays.copyOf(reasons, ncap);
+			rootOrigins = Arrays.copyOf(rootOrigins, ncap);
+			seen = Arrays.copyOf(seen, ncap);
+			trail = Arrays.copyOf(trail, ncap);
+			trailLimits = Arrays.copyOf(trailLimits, ncap);
+			levelCursors = Arrays.copyOf(levelCursors, ncap);
+			visitedTrail = Arrays.copyOf(visitedTrail, ncap);
+		}
+		watches.add(new ArrayList<>());
+		watches.add(new ArrayList<>());
+		variableDependencyClauses.add(Collections.emptyList());
+		return variableCount++;
+	}
+
+	/**
+	 * Creates a new auxiliary variable.
+	 * <p>
+	 * Auxiliary variables shouldn't be used in dependency clauses, so they are never branched on.
+	 *
+	 * @return The variable.
+	 */
+	public int newAuxiliaryVariable() {
+		return newVariable();
+	}
+
+	public int getVariableCount() {
+		return variableCount;
+	}
+
+	public long getConflictCount() {
+		return conflictCount;
+	}
+
+	/**
+	 * Adds a clause to the problem.
+	 * <p>
+	 * Clauses can only be added before {@link #solve(long)} is called.
+	 *
+	 * @param literals
+	 *            The literals of the clause. The array is not modified.
+	 * @param origin
+	 *            The origin identifier of the clause.
+	 */
+	public void addClause(int[] literals, int origin) {
+		if (initialized) {
+			throw new IllegalStateException("Solving already started.");
+		}
+		addProblemClause(literals, origin);
+	}
+
+	/**
+	 * Adds a dependency clause to the problem.
+	 * <p>
+	 * The clause requires that if the owner variable is <code>true</code>, at least one of the candidates is
+	 * <code>true</code>. The dependency clauses are used for branching, the candidates are tried in the given order.
+	 * <p>
+	 * Clauses can only be added before {@link #solve(long)} is called.
+	 *
+	 * @param owner
+	 *            The owner variable, or -1 if the clause is a root dependency that always needs to be satisfied.
+	 * @param candidates
+	 *            The candidate variables.
+	 * @param origin
+	 *            The origin identifier of the clause.
+	 */
+	public void addDependencyClause(int owner, int[] candidates, int origin) {
+		if (initialized) {
+			throw new IllegalStateException("Solving already started.");
+		}
+		int[] candidatelits = new int[candidates.length];
+		for (int i = 0; i < candidates.length; i++) {
+			candidatelits[i] = positive(candidates[i]);
+		}
+		if (owner < 0) {
+			rootDependencyClauses.add(candidatelits);
+			addProblemClause(candidatelits, origin);
+			return;
+		}
+		List<int[]> ownerclauses = variableDependencyClauses.get(owner);
+		if (ownerclauses.isEmpty()) {
+			ownerclauses = new ArrayList<>();
+			variableDependencyClauses.set(owner, ownerclauses);
+		}
+		ownerclauses.add(candidatelits);
+		int[] lits = new int[candidates.length + 1];
+		lits[0] = negative(owner);
+		System.arraycopy(candidatelits, 0, lits, 1, candidatelits.length);
+		addProblemClause(lits, origin);
+	}
+
+	private void addProblemClause(int[] literals, int origin) {
+		int[] lits = new int[literals.length];
+		int count = 0;
+		outer:
+		for (int l : literals) {
+			for (int i = 0; i < count; i++) {
+				if (lits[i] == l) {
+					continue outer;
+				}
+				if (lits[i] == (l ^ 1)) {
+					//tautology, always satisfied
+					return;
+				}
+			}
+			lits[count++] = l;
+		}
+		BitSet origins = new BitSet();
+		origins.set(origin);
+		lits = Arrays.copyOf(lits, count);
+		problemClauses.add(new Clause(lits, origins));
+	}
+
+	/**
+	 * Solves the problem.
+	 *
+	 * @param conflictlimit
+	 *            The maximum number of conflicts after which the solver gives up.
+	 * @return One of the <code>RESULT_*</code> constants.
+	 */
+	public int solve(long conflictlimit) {
+		if (!initialize()) {
+			return RESULT_UNSATISFIABLE;
+		}
+		while (true) {
+			Clause conflict = propagate();
+			if (conflict != null) {
+				if (decisionLevel == 0) {
+					BitSet core = (BitSet) conflict.origins.clone();
+					for (int l : conflict.literals) {
+						core.or(rootOrigins[l >> 1]);
+					}
+					unsatisfiableCore = core;
+					return RESULT_UNSATISFIABLE;
+				}
+				if (++conflictCount > conflictlimit) {
+					return RESULT_UNKNOWN;
+				}
+				Clause learnt = analyze(conflict);
+				int[] lits = learnt.literals;
+				int backjumplevel = lits.length == 1 ? 0 : levels[lits[1] >> 1];
+				cancelUntil(backjumplevel);
+				if (lits.length > 1) {
+					watches.get(lits[0]).add(learnt);
+					watches.get(lits[1]).add(learnt);
+				}
+				enqueue(lits[0], learnt);
+				continue;
+			}
+			int next = pickBranchingLiteral();
+			if (next < 0) {
+				return RESULT_SATISFIABLE;
+			}
+			levelCursors[decisionLevel] = new BranchingCursor(cursor, visitedTrailSize);
+			trailLimits[decisionLevel++] = trailSize;
+			enqueue(next, null);
+		}
+	}
+
+	/**
+	 * Checks if the variable is assigned to <code>true</code> in the model.
+	 * <p>
+	 * Only valid after {@link #solve(long)} returned {@link #RESULT_SATISFIABLE}. Unassigned variables are
+	 * <code>false</code>.
+	 *
+	 * @param variable
+	 *            The variable.
+	 * @return <code>true</code> if the variable is <code>true</code>.
+	 */
+	public boolean isTrue(int variable) {
+		return values[variable] == VALUE_TRUE;
+	}
+
+	/**
+	 * Gets the origins of the clauses that make the problem unsatisfiable.
+	 *
+	 * @return The unsatisfiable core or <code>null</code> if the problem is not known to be unsatisfiable.
+	 */
+	public BitSet getUnsatisfiableCore() {
+		return unsatisfiableCore;
+	}
+
+	private boolean initialize() {
+		initialized = true;
+		cursor.push(-1);
+		List<Clause> units = new ArrayList<>();
+		for (Clause c : problemClauses) {
+			int[] lits = c.literals;
+			if (lits.length == 0) {
+				unsatisfiableCore = (BitSet) c.origins.clone();
+				return false;
+			}
+			if (lits.length == 1) {
+				units.add(c);
+				continue;
+			}
+			watches.get(lits[0]).add(c);
+			watches.get(lits[1]).add(c);
+		}
+		for (Clause c : units) {
+			int l = c.literals[0];
+			byte val = literalValue(l);
+			if (val == VALUE_TRUE) {
+				continue;
+			}
+			if (val == VALUE_FALSE) {
+				BitSet core = (BitSet) c.origins.clone();
+				core.or(rootOrigins[l >> 1]);
+				unsatisfiableCore = core;
+				return false;
+			}
+			enqueue(l, c);
+		}
+		return true;
+	}
+
+	private byte literalValue(int literal) {
+		byte v = values[literal >> 1];
+		return (literal & 1) == 0 ? v : (byte) -v;
+	}
+
+	private void enqueue(int literal, Clause reason) {
+		int var = literal >> 1;
+		values[var] = (literal & 1) == 0 ? VALUE_TRUE : VALUE_FALSE;
+		levels[var] = decisionLevel;
+		reasons[var] = reason;
+		if (decisionLevel == 0) {
+			BitSet origins = (BitSet) reason.origins.clone();
+			int[] lits = reason.literals;
+			for (int i = 1; i < lits.length; i++) {
+				origins.or(rootOrigins[lits[i] >> 1]);
+			}
+			rootOrigins[var] = origins;
+		}
+		trail[trailSize++] = literal;
+	}
+
+	private Clause propagate() {
+		while (propagateHead < trailSize) {
+			int falselit = trail[propagateHead++] ^ 1;
+			List<Clause> watchlist = watches.get(falselit);
+			int n = watchlist.size();
+			int i = 0;
+			int j = 0;
+			Clause conflict = null;
+			while (i < n) {
+				Clause c = watchlist.get(i++);
+				int[] lits = c.literals;
+				if (lits[0] == falselit) {
+					lits[0] = lits[1];
+					lits[1] = falselit;
+				}
+				if (literalValue(lits[0]) == VALUE_TRUE) {
+					watchlist.set(j++, c);
+					continue;
+				}
+				boolean moved = false;
+				for (int k = 2; k < lits.length; k++) {
+					if (literalValue(lits[k]) != VALUE_FALSE) {
+						lits[1] = lits[k];
+						lits[k] = falselit;
+						watches.get(lits[1]).add(c);
+						moved = true;
+						break;
+					}
+				}
+				if (moved) {
+					continue;
+				}
+				watchlist.set(j++, c);
+				if (literalValue(lits[0]) == VALUE_FALSE) {
+					conflict = c;
+					while (i < n) {
+						watchlist.set(j++, watchlist.get(i++));
+					}
+					break;
+				}
+				enqueue(lits[0], c);
+			}
+			watchlist.subList(j, n).clear();
+			if (conflict != null) {
+				return conflict;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Analyzes the conflict and creates a learnt clause based on the first unique implication point.
+	 * <p>
+	 * The asserting literal is at index 0 of the result, and the literal with the highest decision level of the
+	 * remaining ones is at index 1.
+	 */
+	private Clause analyze(Clause conflict) {
+		int[] learnt = new int[8];
+		int learntsize = 1;
+		BitSet origins = new BitSet();
+		List<Integer> rootseen = new ArrayList<>();
+
+		int counter = 0;
+		int p = -1;
+		int index = trailSize - 1;
+		Clause c = conflict;
+		do {
+			origins.or(c.origins);
+			int[] lits = c.literals;
+			for (int k = p == -1 ? 0 : 1; k < lits.length; k++) {
+				int q = lits[k];
+				int var = q >> 1;
+				if (seen[var]) {
+					continue;
+				}
+				seen[var] = true;
+				int lvl = levels[var];
+				if (lvl == 0) {
+					origins.or(rootOrigins[var]);
+					rootseen.add(var);
+				} else if (lvl >= decisionLevel) {
+					++counter;
+				} else {
+					if (learntsize == learnt.length) {
+						learnt = Arrays.copyOf(learnt, learntsize * 2);
+					}
+					learnt[learntsize++] = q;
+				}
+			}
+			while (!seen[trail[index] >> 1]) {
+				--index;
+			}
+			p = trail[index--];
+			c = reasons[p >> 1];
+			seen[p >> 1] = false;
+			--counter;
+		} while (counter > 0);
+		learnt[0] = p ^ 1;
+
+		for (int i = 1; i < learntsize; i++) {
+			seen[learnt[i] >> 1] = false;
+		}
+		for (Integer var : rootseen) {
+			seen[var] = false;
+		}
+		int maxidx = 1;
+		for (int i = 2; i < learntsize; i++) {
+			if (levels[learnt[i] >> 1] > levels[learnt[maxidx] >> 1]) {
+				maxidx = i;
+			}
+		}
+		if (learntsize > 2 && maxidx != 1) {
+			int tmp = learnt[1];
+			learnt[1] = learnt[maxidx];
+			learnt[maxidx] = tmp;
+		}
+		return new Clause(Arrays.copyOf(learnt, learntsize), origins);
+	}
+
+	private void cancelUntil(int level) {
+		if (decisionLevel <= level) {
+			return;
+		}
+		int limit = trailLimits[level];
+		for (int i = trailSize - 1; i >= limit; i--) {
+			int var = trail[i] >> 1;
+			values[var] = VALUE_UNASSIGNED;
+			reasons[var] = null;
+		}
+		trailSize = limit;
+		propagateHead = limit;
+
+		BranchingCursor snapshot = levelCursors[level];
+		cursor.restore(snapshot);
+		for (int i = visitedTrailSize - 1; i >= snapshot.visitedCount; i--) {
+			visited.clear(visitedTrail[i]);
+		}
+		visitedTrailSize = snapshot.visitedCount;
+		for (int i = level; i < decisionLevel; i++) {
+			levelCursors[i] = null;
+		}
+		decisionLevel = level;
+	}
+
+	private List<int[]> getDependencyClauses(int owner) {
+		return owner < 0 ? rootDependencyClauses : variableDependencyClauses.get(owner);
+	}
+
+	private int pickBranchingLiteral() {
+		while (cursor.size > 0) {
+			int top = cursor.size - 1;
+			List<int[]> clauses = getDependencyClauses(cursor.owners[top]);
+			int idx = cursor.indices[top];
+			if (idx >= clauses.size()) {
+				--cursor.size;
+				continue;
+			}
+			int[] candidates = clauses.get(idx);
+			int firstunassigned = -1;
+			boolean satisfied = false;
+			for (int l : candidates) {
+				byte val = literalValue(l);
+				if (val == VALUE_TRUE) {
+					satisfied = true;
+				} else if (val == VALUE_UNASSIGNED && firstunassigned < 0) {
+					firstunassigned = l;
+				}
+			}
+			if (!satisfied && firstunassigned >= 0) {
+				//the cursor stays at this clause, it is visited again after the decision
+				return firstunassigned;
+			}
+			cursor.indices[top] = idx + 1;
+			//visit the clauses of the selected candidates next
+			//push in reverse order, so the first candidate is visited first
+			for (int i = candidates.length - 1; i >= 0; i--) {
+				int l = candidates[i];
+				int var = l >> 1;
+				if (literalValue(l) == VALUE_TRUE && !visited.get(var)) {
+					visited.set(var);
+					visitedTrail[visitedTrailSize++] = var;
+					cursor.push(var);
+				}
+			}
+		}
+		return pickUnvisitedBranchingLiteral();
+	}
+
+	/**
+	 * Checks the clauses of the variables that became <code>true</code> after their clause was visited. (E.g. due to
+	 * a learnt clause.)
+	 * <p>
+	 * This is only called when the depth first visit is finished, so all clauses are scanned only once per model
+	 * candidate.
+	 */
+	private int pickUnvisitedBranchingLiteral() {
+		int result = pickUnsatisfiedCandidate(rootDependencyClauses);
+		for (int var = 0; var < variableCount && result < 0; var++) {
+			if (values[var] == VALUE_TRUE) {
+				result = pickUnsatisfiedCandidate(variableDependencyClauses.get(var));
+			}
+		}
+		return result;
+	}
+
+	private int pickUnsatisfiedCandidate(List<int[]> clauses) {
+		for (int[] candidates : clauses) {
+			int firstunassigned = -1;
+			boolean satisfied = false;
+			for (int l : candidates) {
+				byte val = literalValue(l);
+				if (val == VALUE_TRUE) {
+					satisfied = true;
+					break;
+				}
+				if (val == VALUE_UNASSIGNED && firstunassigned < 0) {
+					firstunassigned = l;
+				}
+			}
+			if (!satisfied && firstunassigned >= 0) {
+				return firstunassigned;
+			}
+		}
+		return -1;
+	}
+}
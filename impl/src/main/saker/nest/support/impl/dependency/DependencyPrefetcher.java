@@ -0,0 +1,256 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.nest.support.impl.dependency;
+
+import java.util.HashSet;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+import saker.build.runtime.execution.ExecutionContext;
+import saker.nest.bundle.BundleDependency;
+import saker.nest.bundle.BundleDependencyInformation;
+import saker.nest.bundle.BundleDependencyList;
+import saker.nest.bundle.BundleIdentifier;
+import saker.nest.bundle.BundleKey;
+import saker.nest.bundle.DependencyConstraintConfiguration;
+import saker.nest.bundle.lookup.BundleLookup;
+import saker.nest.bundle.lookup.BundleVersionLookupResult;
+import saker.nest.bundle.lookup.LookupKey;
+import saker.nest.support.impl.util.BundleConstraintExclusionCache;
+import saker.nest.support.impl.util.BundleLookupMissCache;
+import saker.nest.support.impl.util.BundleVersionsLookupExecutionProperty;
+import saker.nest.support.impl.util.BundleVersionsLookupExecutionProperty.PropertyLookupResult;
+
+/**
+ * Prefetches the bundle version lookups and bundle informations of the dependencies during a dependency resolution.
+ * <p>
+ * The resolution engines visit the dependencies of a bundle one after the other, so the lookups and the bundle
+ * information loads, which may require network requests for server storages, are performed sequentially. When the
+ * dependencies of a bundle are retrieved, the prefetcher starts looking up all of them in parallel, and loads the
+ * information of the newest candidate that satisfies the declared version ranges.
+ * <p>
+ * The prefetcher doesn't report any dependencies. The lookups are performed by computing the same execution property
+ * that the resolver reports, so the values are memoized by the build execution, and the bundle informations are
+ * loaded into the {@link SharedDependencyResolutionCache}. When the resolver reaches a prefetched dependency, it waits
+ * for the prefetch to finish, and reports the dependencies on the values it uses as usual. The prefetched values that
+ * are not used by the resolution don't affect the task.
+ * <p>
+ * The prefetch threads are owned by the instance, it must be closed at the end of the resolution.
+ */
+final class DependencyPrefetcher implements AutoCloseable {
+	private static final int THREAD_COUNT = 4;
+
+	private static final AtomicLong TOTAL_PREFETCH_COUNT = new AtomicLong();
+	private static final AtomicLong TOTAL_HIT_COUNT = new AtomicLong();
+
+	private final ExecutionContext executionContext;
+	private final SharedDependencyResolutionCache sharedCache;
+	private final DependencyConstraintConfiguration constraints;
+	private final ExecutorService executor;
+	private final ConcurrentMap<PrefetchKey, Future<?>> prefetches = new ConcurrentHashMap<>();
+	private final Set<PrefetchKey> awaited = new HashSet<>();
+
+	private int prefetchCount;
+	private int hitCount;
+
+	public DependencyPrefetcher(ExecutionContext executionContext, SharedDependencyResolutionCache sharedCache,
+			DependencyConstraintConfiguration constraints) {
+		this.executionContext = executionContext;
+		this.sharedCache = sharedCache;
+		this.constraints = constraints;
+		this.executor = Executors.newFixedThreadPool(THREAD_COUNT, r -> {
+			Thread thread = new Thread(r, "Nest dependency prefetch");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Gets the number of dependencies that were prefetched by all prefetchers.
+	 */
+	public static long getTotalPrefetchCount() {
+		return TOTAL_PREFETCH_COUNT.get();
+	}
+
+	/**
+	 * Gets the number of prefetched dependencies that were used by the resolutions of all prefetchers.
+	 */
+	public static long getTotalHitCount() {
+		return TOTAL_HIT_COUNT.get();
+	}
+
+	/**
+	 * Starts prefetching the dependencies in the argument dependency information.
+	 * <p>
+	 * Should be called from the resolver thread.
+	 * 
+	 * @param lookup
+	 *            The lookup that the resolver uses for the dependencies.
+	 * @param depinfo
+	 *            The dependency information.
+	 */
+	public void prefetch(BundleLookup lookup, BundleDependencyInformation depinfo) {
+		if (lookup == null || depinfo == null) {
+			return;
+		}
+		LookupKey lookupkey = lookup.getLookupKey();
+		for (Entry<BundleIdentifier, ? extends BundleDependencyList> entry : depinfo.getDependencies().entrySet()) {
+			BundleIdentifier bundleid = entry.getKey();
+			PrefetchKey key = new PrefetchKey(lookupkey, bundleid);
+			if (prefetches.containsKey(key)) {
+				continue;
+			}
+			BundleDependencyList deplist = entry.getValue();
+			FutureTask<Void> task = new FutureTask<>(() -> prefetchImpl(lookup, bundleid, deplist), null);
+			if (prefetches.putIfAbsent(key, task) == null) {
+				++prefetchCount;
+				TOTAL_PREFETCH_COUNT.incrementAndGet();
+				executor.execute(task);
+			}
+		}
+	}
+
+	/**
+	 * Waits for the prefetch of the given bundle to finish if it was started.
+	 * <p>
+	 * Should be called from the resolver thread before looking up the versions of a bundle.
+	 */
+	public void await(BundleLookup lookup, BundleIdentifier bundleid) {
+		PrefetchKey key = new PrefetchKey(lookup.getLookupKey(), bundleid);
+		Future<?> future = prefetches.get(key);
+		if (future == null || future.isCancelled() || !awaited.add(key)) {
+			return;
+		}
+		try {
+			future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return;
+		} catch (ExecutionException e) {
+			//the failures are ignored, the resolver performs the lookup itself
+			return;
+		}
+		++hitCount;
+		TOTAL_HIT_COUNT.incrementAndGet();
+	}
+
+	public int getPrefetchCount() {
+		return prefetchCount;
+	}
+
+	public int getHitCount() {
+		return hitCount;
+	}
+
+	@Override
+	public void close() {
+		//don't interrupt the running prefetches, as other resolvers may wait for the bundle informations
+		for (Future<?> future : prefetches.values()) {
+			future.cancel(false);
+		}
+		executor.shutdown();
+	}
+
+	private void prefetchImpl(BundleLookup lookup, BundleIdentifier bundleid, BundleDependencyList deplist) {
+		try {
+			if (BundleLookupMissCache.getMissExpiration(lookup.getLookupKey(), bundleid) != 0) {
+				//the resolver depends on the recorded miss
+				return;
+			}
+			PropertyLookupResult propertylookup = executionContext
+					.getExecutionPropertyCurrentValue(new BundleVersionsLookupExecutionProperty(lookup, bundleid));
+			if (propertylookup == null) {
+				return;
+			}
+			BundleVersionLookupResult lookupresult = propertylookup.getLookupResult();
+			VersionRangeMatchCache rangematches = sharedCache.getVersionRangeMatches();
+			for (BundleKey bk : ResolveBundleDependencyFileWorkerTaskFactory.toBundleKeySet(lookupresult)) {
+				if (!isSatisfiedBy(rangematches, deplist,
+						VersionNumber.valueOf(bk.getBundleIdentifier().getVersionNumber()))) {
+					continue;
+				}
+				if (BundleConstraintExclusionCache.getExcludedBundleInformation(bk, constraints) == null) {
+					sharedCache.getBundleInformation(bk, lookupresult.getStorageView(), null);
+				}
+				break;
+			}
+		} catch (Exception e) {
+			//the failures are ignored, the resolver performs the lookup itself and reports them
+		}
+	}
+
+	private static boolean isSatisfiedBy(VersionRangeMatchCache rangematches, BundleDependencyList deplist,
+			VersionNumber version) {
+		if (version == null) {
+			return true;
+		}
+		for (BundleDependency dep : deplist.getDependencies()) {
+			if (!rangematches.includes(dep.getRange(), version)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static final class PrefetchKey {
+		private final LookupKey lookupKey;
+		private final BundleIdentifier bundleId;
+
+		public PrefetchKey(LookupKey lookupKey, BundleIdentifier bundleId) {
+			this.lookupKey = lookupKey;
+			this.bundleId = bundleId;
+		}
+
+		@Override
+		public int hashCode() {
+			final int prime = 31;
+			int result = 1;
+			result = prime * result + ((bundleId == null) ? 0 : bundleId.hashCode());
+			result = prime * result + ((lookupKey == null) ? 0 : lookupKey.hashCode());
+			return result;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (obj == null)
+				return false;
+			if (getClass() != obj.getClass())
+				return false;
+			PrefetchKey other = (PrefetchKey) obj;
+			if (bundleId == null) {
+				if (other.bundleId != null)
+					return false;
+			} else if (!bundleId.equals(other.bundleId))
+				return false;
+			if (lookupKey == null) {
+				if (other.lookupKey != null)
+					return false;
+			} else if (!lookupKey.equals(other.lookupKey))
+				return false;
+			return true;
+		}
+	}
+}
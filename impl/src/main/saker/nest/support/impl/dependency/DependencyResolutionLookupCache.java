@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.nest.support.impl.dependency;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import saker.build.task.TaskContext;
+import saker.nest.bundle.BundleIdentifier;
+import saker.nest.bundle.BundleKey;
+import saker.nest.bundle.NestBundleClassLoader;
+import saker.nest.bundle.lookup.BundleLookup;
+import saker.nest.bundle.lookup.BundleVersionLookupResult;
+import saker.nest.bundle.lookup.LookupKey;
+import saker.nest.support.impl.util.BundleInformationCache;
+import saker.nest.support.impl.util.BundleLookupMissCache;
+import saker.nest.support.impl.util.BundleLookupMissExecutionProperty;
+import saker.nest.support.impl.util.BundleVersionsLookupExecutionProperty;
+import saker.nest.support.impl.util.BundleVersionsLookupExecutionProperty.PropertyLookupResult;
+
+/**
+ * Task scoped cache of the bundle lookups performed during dependency resolution.
+ * <p>
+ * A single task may perform multiple dependency resolutions. The cache ensures that the bundle version lookups are
+ * only executed and their execution dependencies are only reported once per task.
+ * <p>
+ * The class is not thread safe.
+ */
+final class DependencyResolutionLookupCache {
+	private final Map<BundleVersionsLookupExecutionProperty, PropertyLookupResult> versionLookups = new HashMap<>();
+	private final Map<BundleVersionLookupResult, Set<BundleKey>> lookupBundleKeys = new IdentityHashMap<>();
+	private final Set<BundleKey> reportedBundleInformations = new HashSet<>();
+	private final BundleInformationCache.Statistics bundleInformationStatistics = new BundleInformationCache.Statistics();
+	private boolean rootLookupReported = false;
+	private int prefetchCount;
+	private int prefetchHitCount;
+
+	public DependencyResolutionLookupCache() {
+	}
+
+	/**
+	 * Gets the bundle information cache statistics of the resolutions that used this lookup cache.
+	 */
+	public BundleInformationCache.Statistics getBundleInformationStatistics() {
+		return bundleInformationStatistics;
+	}
+
+	/**
+	 * Adds the statistics of a {@link DependencyPrefetcher} used by a resolution.
+	 */
+	public void addPrefetchStatistics(int prefetchcount, int hitcount) {
+		this.prefetchCount += prefetchcount;
+		this.prefetchHitCount += hitcount;
+	}
+
+	public int getPrefetchCount() {
+		return prefetchCount;
+	}
+
+	public int getPrefetchHitCount() {
+		return prefetchHitCount;
+	}
+
+	public void reportRootLookup(TaskContext taskcontext, BundleLookup rootlookup) {
+		if (rootLookupReported) {
+			return;
+		}
+		taskcontext.reportExecutionDependency(RootBundleLookupKeyExecutionProperty.INSTANCE,
+				rootlookup.getLookupKey());
+		rootLookupReported = true;
+	}
+
+	public BundleVersionLookupResult lookupBundleVersions(TaskContext taskcontext, BundleLookup lookup,
+			BundleIdentifier bundleid) {
+		BundleVersionsLookupExecutionProperty property = new BundleVersionsLookupExecutionProperty(lookup, bundleid);
+		PropertyLookupResult propertylookup;
+		if (versionLookups.containsKey(property)) {
+			propertylookup = versionLookups.get(property);
+		} else {
+			propertylookup = getReportVersionsLookup(taskcontext, lookup, bundleid, property);
+			versionLookups.put(property, propertylookup);
+		}
+		if (propertylookup == null) {
+			return null;
+		}
+		return propertylookup.getLookupResult();
+	}
+
+	private static PropertyLookupResult getReportVersionsLookup(TaskContext taskcontext, BundleLookup lookup,
+			BundleIdentifier bundleid, BundleVersionsLookupExecutionProperty property) {
+		LookupKey lookupkey = lookup.getLookupKey();
+		long missexpiration = BundleLookupMissCache.getMissExpiration(lookupkey, bundleid);
+		if (missexpiration != 0) {
+			//the bundle was recently not found, depend on the recorded miss instead of looking it up again
+			if (taskcontext.getTaskUtilities().getReportExecutionDependency(
+					new BundleLookupMissExecutionProperty(lookupkey, bundleid, missexpiration))) {
+				return null;
+			}
+		}
+		PropertyLookupResult result = taskcontext.getExecutionContext().getExecutionPropertyCurrentValue(property);
+		if (result == null && !((NestBundleClassLoader) DependencyResolutionLookupCache.class.getClassLoader())
+				.getBundleStorageConfiguration().getServerStorages().isEmpty()) {
+			missexpiration = BundleLookupMissCache.addMissing(lookupkey, bundleid);
+			if (taskcontext.getTaskUtilities().getReportExecutionDependency(
+					new BundleLookupMissExecutionProperty(lookupkey, bundleid, missexpiration))) {
+				return null;
+			}
+		}
+		taskcontext.reportExecutionDependency(property, result);
+		return result;
+	}
+
+	/**
+	 * Gets the bundle keys of the bundles in the lookup result.
+	 * <p>
+	 * The lookup results are cached by this class, so the bundle keys are only created once for each lookup.
+	 *
+	 * @return The bundle keys in the order of the lookup result. (Version descending.)
+	 */
+	public Set<BundleKey> getBundleKeys(BundleVersionLookupResult lookupresult) {
+		return lookupBundleKeys.computeIfAbsent(lookupresult,
+				ResolveBundleDependencyFileWorkerTaskFactory::toBundleKeySet);
+	}
+
+	/**
+	 * Checks if the bundle information execution dependency for the given bundle should be reported.
+	 *
+	 * @return <code>true</code> if the dependency haven't been reported yet.
+	 */
+	public boolean addReportedBundleInformation(BundleKey bundlekey) {
+		return reportedBundleInformations.add(bundlekey);
+	}
+}
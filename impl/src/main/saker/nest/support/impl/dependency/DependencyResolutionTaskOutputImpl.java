@@ -19,11 +19,17 @@ import java.io.Externalizable;
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 
+import saker.build.task.identifier.TaskIdentifier;
+import saker.build.task.utils.SimpleStructuredListTaskResult;
+import saker.build.task.utils.StructuredListTaskResult;
+import saker.build.task.utils.StructuredTaskResult;
 import saker.build.thirdparty.saker.util.ImmutableUtils;
 import saker.build.thirdparty.saker.util.io.SerialUtils;
 import saker.nest.bundle.BundleKey;
@@ -33,6 +39,18 @@ public class DependencyResolutionTaskOutputImpl implements DependencyResolutionT
 	private static final long serialVersionUID = 1L;
 
 	private Set<BundleKey> bundleKeys;
+	/**
+	 * The identifier of the task that produced this output.
+	 * <p>
+	 * Not part of the equality, as {@link #equals(Object)} compares the bundles of any
+	 * {@link DependencyResolutionTaskOutput}.
+	 */
+	private TaskIdentifier resolverTaskId;
+	/**
+	 * The index of this output in the {@link BatchDependencyResolutionTaskOutput} of the resolver task, or -1 if the
+	 * resolver task returns this output directly.
+	 */
+	private int moduleIndex = -1;
 
 	/**
 	 * For {@link Externalizable}.
@@ -40,7 +58,14 @@ public class DependencyResolutionTaskOutputImpl implements DependencyResolutionT
 	public DependencyResolutionTaskOutputImpl() {
 	}
 
-	public DependencyResolutionTaskOutputImpl(Set<BundleKey> bundleKeys) {
+	public DependencyResolutionTaskOutputImpl(TaskIdentifier resolverTaskId, Set<BundleKey> bundleKeys) {
+		this(resolverTaskId, -1, bundleKeys);
+	}
+
+	public DependencyResolutionTaskOutputImpl(TaskIdentifier resolverTaskId, int moduleIndex,
+			Set<BundleKey> bundleKeys) {
+		this.resolverTaskId = resolverTaskId;
+		this.moduleIndex = moduleIndex;
 		this.bundleKeys = ImmutableUtils.makeImmutableLinkedHashSet(bundleKeys);
 	}
 
@@ -49,14 +74,27 @@ public class DependencyResolutionTaskOutputImpl implements DependencyResolutionT
 		return bundleKeys;
 	}
 
+	@Override
+	public StructuredListTaskResult getBundleResults() {
+		List<StructuredTaskResult> results = new ArrayList<>(bundleKeys.size());
+		for (BundleKey bk : bundleKeys) {
+			results.add(new ResolvedBundleStructuredTaskResult(resolverTaskId, moduleIndex, bk));
+		}
+		return new SimpleStructuredListTaskResult(results);
+	}
+
 	@Override
 	public void writeExternal(ObjectOutput out) throws IOException {
 		SerialUtils.writeExternalCollection(out, bundleKeys);
+		out.writeObject(resolverTaskId);
+		out.writeInt(moduleIndex);
 	}
 
 	@Override
 	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
 		bundleKeys = SerialUtils.readExternalImmutableLinkedHashSet(in);
+		resolverTaskId = (TaskIdentifier) in.readObject();
+		moduleIndex = in.readInt();
 	}
 
 	@Override
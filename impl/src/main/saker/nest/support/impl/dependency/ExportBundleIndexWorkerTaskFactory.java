@@ -0,0 +1,233 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.nest.support.impl.dependency;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import saker.build.file.ByteArraySakerFile;
+import saker.build.file.SakerDirectory;
+import saker.build.file.path.SakerPath;
+import saker.build.file.provider.SakerPathFiles;
+import saker.build.runtime.execution.ExecutionContext;
+import saker.build.runtime.execution.SakerLog;
+import saker.build.task.Task;
+import saker.build.task.TaskContext;
+import saker.build.task.TaskFactory;
+import saker.build.task.identifier.TaskIdentifier;
+import saker.build.thirdparty.saker.util.ImmutableUtils;
+import saker.build.thirdparty.saker.util.io.SerialUtils;
+import saker.build.trace.BuildTrace;
+import saker.nest.bundle.BundleDependencyInformation;
+import saker.nest.bundle.BundleIdentifier;
+import saker.nest.bundle.BundleInformation;
+import saker.nest.bundle.BundleKey;
+import saker.nest.bundle.DependencyConstraintConfiguration;
+import saker.nest.bundle.NestBundleClassLoader;
+import saker.nest.bundle.NestBundleStorageConfiguration;
+import saker.nest.bundle.lookup.BundleLookup;
+import saker.nest.bundle.lookup.BundleVersionLookupResult;
+import saker.nest.dependency.DependencyUtils;
+import saker.nest.exc.BundleLoadingFailedException;
+import saker.nest.support.impl.dependency.filter.ConstraintDependencyFilter;
+import saker.nest.support.main.dependency.ExportBundleIndexTaskFactory;
+
+/**
+ * Worker task that exports the bundles that are transitively reachable from the specified bundles to a
+ * {@link BundleIndex} file.
+ * <p>
+ * All versions of the reachable bundles are exported. The bundles that are excluded by the dependency constraints
+ * are omitted, and the dependencies are filtered by the constraints.
+ */
+public class ExportBundleIndexWorkerTaskFactory
+		implements TaskFactory<SakerPath>, Task<SakerPath>, Externalizable, TaskIdentifier {
+	private static final long serialVersionUID = 1L;
+
+	protected List<BundleIdentifier> bundleIds;
+	protected DependencyConstraintConfiguration constraints;
+	/**
+	 * The output path relative to the {@link ExportBundleIndexTaskFactory#TASK_NAME} directory in the build directory.
+	 */
+	protected SakerPath outputPath;
+
+	/**
+	 * For {@link Externalizable}.
+	 */
+	public ExportBundleIndexWorkerTaskFactory() {
+	}
+
+	public ExportBundleIndexWorkerTaskFactory(Set<BundleIdentifier> bundleIds,
+			DependencyConstraintConfiguration constraints, SakerPath outputPath) {
+		this.bundleIds = ImmutableUtils.makeImmutableList(bundleIds);
+		this.constraints = constraints;
+		this.outputPath = outputPath;
+	}
+
+	@Override
+	public Task<? extends SakerPath> createTask(ExecutionContext executioncontext) {
+		return this;
+	}
+
+	@Override
+	public SakerPath run(TaskContext taskcontext) throws Exception {
+		if (saker.build.meta.Versions.VERSION_FULL_COMPOUND >= 8_006) {
+			BuildTrace.classifyTask(BuildTrace.CLASSIFICATION_WORKER);
+			if (saker.build.meta.Versions.VERSION_FULL_COMPOUND >= 8_009) {
+				Map<String, Object> valmap = new LinkedHashMap<>();
+				valmap.put("Bundles", bundleIds.stream().map(Object::toString).toArray());
+				valmap.put("Output", outputPath.toString());
+				BuildTrace.setValues(valmap, BuildTrace.VALUE_CATEGORY_TASK);
+			}
+		}
+		taskcontext.setStandardOutDisplayIdentifier(ExportBundleIndexTaskFactory.TASK_NAME);
+
+		NestBundleStorageConfiguration storageconfig = ((NestBundleClassLoader) this.getClass().getClassLoader())
+				.getBundleStorageConfiguration();
+		BundleLookup bundlelookup = storageconfig.getBundleLookup();
+		DependencyResolutionLookupCache lookupcache = new DependencyResolutionLookupCache();
+		lookupcache.reportRootLookup(taskcontext, bundlelookup);
+		SharedDependencyResolutionCache sharedcache = SharedDependencyResolutionCache
+				.get(taskcontext.getExecutionContext());
+
+		BundleIndex.Writer writer = new BundleIndex.Writer(constraints,
+				BundleIndex.getStorageKeys(storageconfig));
+		Set<BundleIdentifier> visitednames = new HashSet<>();
+		ArrayDeque<BundleIdentifier> worklist = new ArrayDeque<>();
+		for (BundleIdentifier bundleid : bundleIds) {
+			BundleIdentifier name = bundleid.withoutMetaQualifiers();
+			if (visitednames.add(name)) {
+				worklist.add(name);
+			}
+		}
+		BundleIdentifier name;
+		while ((name = worklist.poll()) != null) {
+			BundleVersionLookupResult lookupresult = lookupcache.lookupBundleVersions(taskcontext, bundlelookup,
+					name);
+			if (lookupresult == null) {
+				continue;
+			}
+			for (BundleKey bundlekey : lookupcache.getBundleKeys(lookupresult)) {
+				BundleInformation bundleinfo;
+				try {
+					bundleinfo = sharedcache.getBundleInformation(bundlekey, lookupresult.getStorageView(),
+							lookupcache.getBundleInformationStatistics());
+				} catch (BundleLoadingFailedException e) {
+					SakerLog.warning().out(taskcontext)
+							.println("Failed to load bundle: " + bundlekey.getBundleIdentifier() + " (" + e + ")");
+					continue;
+				}
+				taskcontext.reportExecutionDependency(new BundleInformationExecutionProperty(
+						lookupresult.getStorageView(), bundlekey.getBundleIdentifier()), bundleinfo);
+				if (DependencyUtils.isDependencyConstraintClassPathExcludes(constraints, bundleinfo)) {
+					continue;
+				}
+				BundleDependencyInformation depinfo = ConstraintDependencyFilter
+						.filterBundleDependencyInformation(bundleinfo.getDependencyInformation(), constraints);
+				writer.add(bundlekey, depinfo);
+				if (depinfo == null) {
+					continue;
+				}
+				for (BundleIdentifier depname : depinfo.getDependencies().keySet()) {
+					BundleIdentifier depnamewithoutmeta = depname.withoutMetaQualifiers();
+					if (visitednames.add(depnamewithoutmeta)) {
+						worklist.add(depnamewithoutmeta);
+					}
+				}
+			}
+		}
+		if (saker.build.meta.Versions.VERSION_FULL_COMPOUND >= 8_009) {
+			BuildTrace.setValues(Collections.singletonMap("Bundle count", writer.getBundleCount()),
+					BuildTrace.VALUE_CATEGORY_TASK);
+		}
+
+		SakerDirectory outdir = taskcontext.getTaskUtilities().resolveDirectoryAtPathCreate(SakerPathFiles
+				.requireBuildDirectory(taskcontext).getDirectoryCreate(ExportBundleIndexTaskFactory.TASK_NAME),
+				outputPath.getParent());
+		ByteArraySakerFile indexfile = new ByteArraySakerFile(outputPath.getFileName(), writer.toByteArray());
+		outdir.add(indexfile);
+		indexfile.synchronize();
+		SakerPath indexpath = indexfile.getSakerPath();
+		taskcontext.reportOutputFileDependency(null, indexpath, indexfile.getContentDescriptor());
+		return indexpath;
+	}
+
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		SerialUtils.writeExternalCollection(out, bundleIds);
+		out.writeObject(constraints);
+		out.writeObject(outputPath);
+	}
+
+	@Override
+	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+		bundleIds = SerialUtils.readExternalImmutableList(in);
+		constraints = (DependencyConstraintConfiguration) in.readObject();
+		outputPath = (SakerPath) in.readObject();
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((bundleIds == null) ? 0 : bundleIds.hashCode());
+		result = prime * result + ((constraints == null) ? 0 : constraints.hashCode());
+		result = prime * result + ((outputPath == null) ? 0 : outputPath.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		ExportBundleIndexWorkerTaskFactory other = (ExportBundleIndexWorkerTaskFactory) obj;
+		if (bundleIds == null) {
+			if (other.bundleIds != null)
+				return false;
+		} else if (!bundleIds.equals(other.bundleIds))
+			return false;
+		if (constraints == null) {
+			if (other.constraints != null)
+				return false;
+		} else if (!constraints.equals(other.constraints))
+			return false;
+		if (outputPath == null) {
+			if (other.outputPath != null)
+				return false;
+		} else if (!outputPath.equals(other.outputPath))
+			return false;
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[" + (bundleIds != null ? "bundleIds=" + bundleIds + ", " : "")
+				+ (outputPath != null ? "outputPath=" + outputPath : "") + "]";
+	}
+
+}
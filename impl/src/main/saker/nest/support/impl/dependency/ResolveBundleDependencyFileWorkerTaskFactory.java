@@ -22,7 +22,6 @@ import java.io.ObjectInput;
 import java.io.ObjectOutput;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -31,8 +30,11 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.function.BiFunction;
 
+import saker.build.file.ByteArraySakerFile;
+import saker.build.file.SakerDirectory;
 import saker.build.file.SakerFile;
 import saker.build.file.path.SakerPath;
+import saker.build.file.provider.SakerPathFiles;
 import saker.build.runtime.execution.ExecutionContext;
 import saker.build.task.CommonTaskContentDescriptors;
 import saker.build.task.Task;
@@ -64,8 +66,8 @@ import saker.nest.exc.BundleLoadingFailedException;
 import saker.nest.support.api.dependency.DependencyResolutionTaskOutput;
 import saker.nest.support.api.dependency.filter.DependencyFilter;
 import saker.nest.support.impl.dependency.filter.ConstraintDependencyFilter;
-import saker.nest.support.impl.util.BundleVersionsLookupExecutionProperty;
-import saker.nest.support.impl.util.BundleVersionsLookupExecutionProperty.PropertyLookupResult;
+import saker.nest.support.impl.util.BundleConstraintExclusionCache;
+import saker.nest.support.impl.util.BundleInformationCache;
 import saker.nest.support.main.dependency.ResolveBundleDependencyTaskFactory;
 import saker.nest.version.ExactVersionRange;
 import saker.nest.version.MinimumVersionRange;
@@ -75,6 +77,24 @@ public class ResolveBundleDependencyFileWorkerTaskFactory implements TaskFactory
 		Task<DependencyResolutionTaskOutput>, Externalizable, TaskIdentifier {
 	private static final long serialVersionUID = 1L;
 
+	/**
+	 * Resolution engine that uses the dependency domain based resolution of the Nest repository.
+	 */
+	public static final String ENGINE_DOMAIN = "Domain";
+	/**
+	 * Resolution engine that encodes the dependencies as a boolean satisfiability problem and solves it using conflict
+	 * driven clause learning.
+	 * <p>
+	 * Each bundle name can only be present with a single version in the resolution result. If the dependency graph
+	 * contains private dependencies, the resolution falls back to {@link #ENGINE_DOMAIN}.
+	 */
+	public static final String ENGINE_SAT = "SAT";
+
+	/**
+	 * The name of the directory in the build directory where the parsed dependency files are cached.
+	 */
+	public static final String DEPENDENCY_FILE_CACHE_DIRECTORY_NAME = "nest.dependency.file.cache";
+
 	protected DependencyFilter filter;
 	protected DependencyConstraintConfiguration constraints;
 
@@ -87,6 +107,15 @@ public class ResolveBundleDependencyFileWorkerTaskFactory implements TaskFactory
 	protected List<BundleIdentifier> bundleIds;
 	protected SakerPath dependencyFilePath;
 	protected BundleIdentifier thisBundleId;
+	/**
+	 * The resolution engine. <code>null</code> means {@link #ENGINE_DOMAIN}.
+	 */
+	protected String engine;
+	/**
+	 * The path of the bundle index file to resolve the dependencies from. If <code>null</code>, the bundle lookup of
+	 * the repository is used.
+	 */
+	protected SakerPath indexFilePath;
 
 	/**
 	 * For {@link Externalizable}.
@@ -97,12 +126,26 @@ public class ResolveBundleDependencyFileWorkerTaskFactory implements TaskFactory
 	public ResolveBundleDependencyFileWorkerTaskFactory(DependencyFilter filter,
 			DependencyConstraintConfiguration constraints, Set<BundleIdentifier> bundleIds,
 			SakerPath dependencyFilePath, BundleIdentifier thisBundleId) {
+		this(filter, constraints, bundleIds, dependencyFilePath, thisBundleId, null);
+	}
+
+	public ResolveBundleDependencyFileWorkerTaskFactory(DependencyFilter filter,
+			DependencyConstraintConfiguration constraints, Set<BundleIdentifier> bundleIds,
+			SakerPath dependencyFilePath, BundleIdentifier thisBundleId, String engine) {
+		this(filter, constraints, bundleIds, dependencyFilePath, thisBundleId, engine, null);
+	}
+
+	public ResolveBundleDependencyFileWorkerTaskFactory(DependencyFilter filter,
+			DependencyConstraintConfiguration constraints, Set<BundleIdentifier> bundleIds,
+			SakerPath dependencyFilePath, BundleIdentifier thisBundleId, String engine, SakerPath indexFilePath) {
 		this.filter = filter;
 		this.constraints = constraints;
 		this.dependencyFilePath = dependencyFilePath;
 		this.bundleIds = ObjectUtils.isNullOrEmpty(bundleIds) ? Collections.emptyList()
 				: ImmutableUtils.makeImmutableList(bundleIds);
 		this.thisBundleId = thisBundleId;
+		this.engine = ENGINE_DOMAIN.equals(engine) ? null : engine;
+		this.indexFilePath = indexFilePath;
 	}
 
 	@Override
@@ -122,6 +165,12 @@ public class ResolveBundleDependencyFileWorkerTaskFactory implements TaskFactory
 				if (dependencyFilePath != null) {
 					valmap.put("Dependency file", dependencyFilePath.toString());
 				}
+				if (engine != null) {
+					valmap.put("Engine", engine);
+				}
+				if (indexFilePath != null) {
+					valmap.put("Index file", indexFilePath.toString());
+				}
 				if (constraints != null) {
 					Map<String, Object> constraintvals = new LinkedHashMap<>();
 					String bsver = constraints.getBuildSystemVersion();
@@ -149,6 +198,44 @@ public class ResolveBundleDependencyFileWorkerTaskFactory implements TaskFactory
 		}
 		taskcontext.setStandardOutDisplayIdentifier(ResolveBundleDependencyTaskFactory.TASK_NAME);
 
+		DependencyResolutionLookupCache lookupcache = new DependencyResolutionLookupCache();
+		DependencyResolutionTaskOutputImpl result = resolve(taskcontext, lookupcache, this, -1);
+		if (saker.build.meta.Versions.VERSION_FULL_COMPOUND >= 8_009) {
+			BundleInformationCache.Statistics stats = lookupcache.getBundleInformationStatistics();
+			Map<String, Object> cachevals = new LinkedHashMap<>();
+			cachevals.put("Hits", stats.getHitCount());
+			cachevals.put("Misses", stats.getMissCount());
+			BuildTrace.setValues(Collections.singletonMap("Bundle information cache", cachevals),
+					BuildTrace.VALUE_CATEGORY_TASK);
+			Map<String, Object> prefetchvals = new LinkedHashMap<>();
+			prefetchvals.put("Prefetched", lookupcache.getPrefetchCount());
+			prefetchvals.put("Used", lookupcache.getPrefetchHitCount());
+			BuildTrace.setValues(Collections.singletonMap("Dependency prefetch", prefetchvals),
+					BuildTrace.VALUE_CATEGORY_TASK);
+		}
+		if (result == null) {
+			//aborted
+			return null;
+		}
+		taskcontext.reportSelfTaskOutputChangeDetector(new EqualityTaskOutputChangeDetector(result));
+		return result;
+	}
+
+	/**
+	 * Executes the dependency resolution for the configuration of this task.
+	 * <p>
+	 * The dependencies are reported for the argument task context.
+	 * 
+	 * @param lookupcache
+	 *            The lookup cache to use. May be shared between multiple resolutions in the same task.
+	 * @param outputtaskid
+	 *            The identifier of the task that returns the resolution output.
+	 * @param moduleindex
+	 *            The index of the resolution output in the batch output, or -1 if the task returns it directly.
+	 * @return The resolution output or <code>null</code> if the execution was aborted.
+	 */
+	DependencyResolutionTaskOutputImpl resolve(TaskContext taskcontext, DependencyResolutionLookupCache lookupcache,
+			TaskIdentifier outputtaskid, int moduleindex) throws Exception {
 		BundleDependencyInformation bundledependencyinfo = BundleDependencyInformation.EMPTY;
 		if (dependencyFilePath != null) {
 			SakerFile depfile = taskcontext.getTaskUtilities().resolveFileAtPath(dependencyFilePath);
@@ -161,8 +248,7 @@ public class ResolveBundleDependencyFileWorkerTaskFactory implements TaskFactory
 			}
 			taskcontext.getTaskUtilities().reportInputFileDependency(null, depfile);
 
-			bundledependencyinfo = taskcontext.computeFileContentData(depfile,
-					new BundleDependencyInformationFileDataComputer(thisBundleId));
+			bundledependencyinfo = readDependencyFile(taskcontext, depfile);
 			bundledependencyinfo = filterBundleDependencyInformation(null, constraints, filter, bundledependencyinfo);
 		}
 		if (!ObjectUtils.isNullOrEmpty(bundleIds)) {
@@ -193,87 +279,206 @@ public class ResolveBundleDependencyFileWorkerTaskFactory implements TaskFactory
 			}
 		}
 		BundleIdentifier rootbundleid = generateRootBundleId();
-		return runWorkerTaskForDependencyInformation(taskcontext, rootbundleid, bundledependencyinfo);
-	}
-
-	protected DependencyResolutionTaskOutput runWorkerTaskForDependencyInformation(TaskContext taskcontext,
-			BundleIdentifier rootbundleid, BundleDependencyInformation depinfo) {
-		NestBundleClassLoader cl = (NestBundleClassLoader) this.getClass().getClassLoader();
-		NestBundleStorageConfiguration storageconfig = cl.getBundleStorageConfiguration();
-		BundleLookup bundlelookup = storageconfig.getBundleLookup();
 		BundleKey rootbundlekey = BundleKey.create(null, rootbundleid);
 
-		return executeDependencyResolution(taskcontext, depinfo, bundlelookup, rootbundlekey);
+		Set<BundleKey> bundleresolutions;
+		if (indexFilePath != null) {
+			SakerFile indexfile = taskcontext.getTaskUtilities().resolveFileAtPath(indexFilePath);
+			if (indexfile == null) {
+				taskcontext.reportInputFileDependency(null, indexFilePath, CommonTaskContentDescriptors.IS_NOT_FILE);
+				taskcontext.abortExecution(new FileNotFoundException("Bundle index file not found: " + indexFilePath));
+				return null;
+			}
+			taskcontext.getTaskUtilities().reportInputFileDependency(null, indexfile);
+			NestBundleStorageConfiguration storageconfig = ((NestBundleClassLoader) this.getClass().getClassLoader())
+					.getBundleStorageConfiguration();
+			//the storages of the index are mapped to the current configuration
+			lookupcache.reportRootLookup(taskcontext, storageconfig.getBundleLookup());
+			BundleIndex index = taskcontext.computeFileContentData(indexfile,
+					new BundleIndexFileDataComputer(BundleIndex.getStorageKeys(storageconfig), constraints));
+			if (!index.isSameConstraints()) {
+				taskcontext.abortExecution(new IllegalArgumentException("Bundle index " + indexFilePath
+						+ " was exported with different dependency constraints than used for the resolution."));
+				return null;
+			}
+			bundleresolutions = executeIndexDependencyResolution(taskcontext, bundledependencyinfo, index,
+					rootbundlekey);
+		} else {
+			NestBundleClassLoader cl = (NestBundleClassLoader) this.getClass().getClassLoader();
+			NestBundleStorageConfiguration storageconfig = cl.getBundleStorageConfiguration();
+			BundleLookup bundlelookup = storageconfig.getBundleLookup();
+
+			bundleresolutions = executeDependencyResolution(taskcontext, bundledependencyinfo, bundlelookup,
+					rootbundlekey, lookupcache);
+		}
+		if (bundleresolutions == null) {
+			return null;
+		}
+		//don't include the root container bundle in the result
+		bundleresolutions.remove(rootbundlekey);
+		return new DependencyResolutionTaskOutputImpl(outputtaskid, moduleindex, bundleresolutions);
 	}
 
-	private DependencyResolutionTaskOutput executeDependencyResolution(TaskContext taskcontext,
-			BundleDependencyInformation depinfo, BundleLookup bundlelookup, BundleKey rootbundlekey) {
-		List<Throwable> unsatisfiedsuppressions = new ArrayList<>();
+	private Set<BundleKey> executeDependencyResolution(TaskContext taskcontext, BundleDependencyInformation depinfo,
+			BundleLookup bundlelookup, BundleKey rootbundlekey, DependencyResolutionLookupCache lookupcache) {
+		SharedDependencyResolutionCache sharedcache = SharedDependencyResolutionCache
+				.get(taskcontext.getExecutionContext());
+		try (DependencyPrefetcher prefetcher = new DependencyPrefetcher(taskcontext.getExecutionContext(),
+				sharedcache, this.constraints)) {
+			prefetcher.prefetch(bundlelookup, depinfo);
+			Set<BundleKey> result = executeDependencyResolution(taskcontext, depinfo, bundlelookup, rootbundlekey,
+					lookupcache, sharedcache, prefetcher);
+			lookupcache.addPrefetchStatistics(prefetcher.getPrefetchCount(), prefetcher.getHitCount());
+			return result;
+		}
+	}
 
-		BiFunction<BundleIdentifier, DependencyResolutionBundleContext, Iterable<? extends Entry<? extends BundleKey, ? extends DependencyResolutionBundleContext>>> bundleslookupfunction = new BiFunction<BundleIdentifier, DependencyResolutionBundleContext, Iterable<? extends Entry<? extends BundleKey, ? extends DependencyResolutionBundleContext>>>() {
-			private boolean rootReported = false;
-
-			@Override
-			public Iterable<? extends Entry<? extends BundleKey, ? extends DependencyResolutionBundleContext>> apply(
-					BundleIdentifier bi, DependencyResolutionBundleContext bc) {
-				BundleLookup lookuptouse;
-				if (bc == null) {
-					if (!rootReported) {
-						taskcontext.reportExecutionDependency(RootBundleLookupKeyExecutionProperty.INSTANCE,
-								bundlelookup.getLookupKey());
-						rootReported = true;
-					}
-					lookuptouse = bundlelookup;
-				} else {
-					lookuptouse = bc.getRelativeLookup();
-				}
-				PropertyLookupResult propertylookup = taskcontext.getTaskUtilities()
-						.getReportExecutionDependency(new BundleVersionsLookupExecutionProperty(lookuptouse, bi));
-				if (propertylookup == null) {
-					return null;
-				}
-				BundleVersionLookupResult lookupresult = propertylookup.getLookupResult();
+	private Set<BundleKey> executeDependencyResolution(TaskContext taskcontext, BundleDependencyInformation depinfo,
+			BundleLookup bundlelookup, BundleKey rootbundlekey, DependencyResolutionLookupCache lookupcache,
+			SharedDependencyResolutionCache sharedcache, DependencyPrefetcher prefetcher) {
+		List<Throwable> unsatisfiedsuppressions = new ArrayList<>();
 
-				if (lookupresult == null) {
-					return null;
-				}
-				return ObjectUtils.singleValueMap(toBundleKeySet(lookupresult),
-						new DependencyResolutionBundleContext(lookupresult)).entrySet();
+		BiFunction<BundleIdentifier, DependencyResolutionBundleContext, Iterable<? extends Entry<? extends BundleKey, ? extends DependencyResolutionBundleContext>>> bundleslookupfunction = (
+				bi, bc) -> {
+			BundleLookup lookuptouse;
+			if (bc == null) {
+				lookupcache.reportRootLookup(taskcontext, bundlelookup);
+				lookuptouse = bundlelookup;
+			} else {
+				lookuptouse = bc.getRelativeLookup();
+			}
+			prefetcher.await(lookuptouse, bi);
+			BundleVersionLookupResult lookupresult = lookupcache.lookupBundleVersions(taskcontext, lookuptouse, bi);
+			if (lookupresult == null) {
+				return null;
 			}
+			DependencyResolutionBundleContext bundlecontext = new DependencyResolutionBundleContext(lookupresult);
+			return ObjectUtils.singleValueMap(removeConstraintExcluded(taskcontext, lookupcache,
+					lookupcache.getBundleKeys(lookupresult), bundlecontext.getStorageView()), bundlecontext).entrySet();
 		};
 		BiFunction<? super BundleKey, ? super DependencyResolutionBundleContext, ? extends BundleDependencyInformation> bundledependencieslookupfunction = (
 				bk, bc) -> {
 			try {
 				BundleStorageView storageview = bc.getStorageView();
 				BundleIdentifier bundleid = bk.getBundleIdentifier();
-				BundleInformation lookupbundleinfo = storageview.getBundleInformation(bundleid);
-				taskcontext.reportExecutionDependency(new BundleInformationExecutionProperty(storageview, bundleid),
-						lookupbundleinfo);
-
-				DependencyConstraintConfiguration constraints = this.constraints;
-				if (DependencyUtils.isDependencyConstraintClassPathExcludes(constraints, lookupbundleinfo)) {
-					//XXX log somewhere?
-					return null;
+				//the bundle informations and filtered dependencies are shared with other resolver tasks in the build
+				//the dependencies are still reported for this task
+				BundleInformation lookupbundleinfo = sharedcache.getBundleInformation(bk, storageview,
+						lookupcache.getBundleInformationStatistics());
+				if (lookupcache.addReportedBundleInformation(bk)) {
+					taskcontext.reportExecutionDependency(
+							new BundleInformationExecutionProperty(storageview, bundleid), lookupbundleinfo);
 				}
-				BundleDependencyInformation lookupbundledepinfo = lookupbundleinfo.getDependencyInformation();
-				return filterBundleDependencyInformation(bk, constraints, this.filter, lookupbundledepinfo);
+
+				//XXX log somewhere if excluded by the constraints?
+				BundleDependencyInformation result = sharedcache.getFilteredDependencies(bk, lookupbundleinfo,
+						this.constraints, this.filter);
+				//start retrieving the dependencies while the resolver processes the current bundle
+				prefetcher.prefetch(bc.getRelativeLookup(), result);
+				return result;
 			} catch (BundleLoadingFailedException e) {
 				unsatisfiedsuppressions.add(e);
 			}
 			return null;
 		};
 
+		return executeEngineDependencyResolution(taskcontext, depinfo, rootbundlekey, bundleslookupfunction,
+				bundledependencieslookupfunction, unsatisfiedsuppressions);
+	}
+
+	/**
+	 * Removes the bundles that are known to be excluded by the dependency constraints of this task.
+	 * <p>
+	 * The excluded bundles are recorded when their information is first loaded, so the subsequent resolutions don't
+	 * need to load them again only to discard them. The bundle information dependencies are still reported for the
+	 * removed bundles with the recorded information, so the task is reinvoked if they change.
+	 */
+	private Set<BundleKey> removeConstraintExcluded(TaskContext taskcontext, DependencyResolutionLookupCache lookupcache,
+			Set<BundleKey> bundlekeys, BundleStorageView storageview) {
+		Set<BundleKey> result = null;
+		for (BundleKey bk : bundlekeys) {
+			BundleInformation excludedinfo = BundleConstraintExclusionCache.getExcludedBundleInformation(bk,
+					this.constraints);
+			if (excludedinfo != null) {
+				if (lookupcache.addReportedBundleInformation(bk)) {
+					taskcontext.reportExecutionDependency(
+							new BundleInformationExecutionProperty(storageview, bk.getBundleIdentifier()),
+							excludedinfo);
+				}
+				if (result == null) {
+					result = new LinkedHashSet<>(bundlekeys);
+				}
+				result.remove(bk);
+			}
+		}
+		return result == null ? bundlekeys : result;
+	}
+
+	/**
+	 * Executes the dependency resolution using the bundles and dependencies in the argument index.
+	 * <p>
+	 * The repository bundle lookups are not accessed.
+	 */
+	private Set<BundleKey> executeIndexDependencyResolution(TaskContext taskcontext,
+			BundleDependencyInformation depinfo, BundleIndex index, BundleKey rootbundlekey) {
+		List<Throwable> unsatisfiedsuppressions = new ArrayList<>();
+		//all bundles in the index share the same context, the storages are not used
+		DependencyResolutionBundleContext indexcontext = new DependencyResolutionBundleContext();
+		BiFunction<BundleIdentifier, DependencyResolutionBundleContext, Iterable<? extends Entry<? extends BundleKey, ? extends DependencyResolutionBundleContext>>> bundleslookupfunction = (
+				bi, bc) -> {
+			Set<BundleKey> bundlekeys = index.lookupBundleVersions(bi);
+			if (bundlekeys == null) {
+				return null;
+			}
+			return ObjectUtils.singleValueMap(bundlekeys, indexcontext).entrySet();
+		};
+		BiFunction<? super BundleKey, ? super DependencyResolutionBundleContext, ? extends BundleDependencyInformation> bundledependencieslookupfunction = (
+				bk, bc) -> {
+			BundleDependencyInformation bundledepinfo;
+			try {
+				bundledepinfo = index.getDependencyInformation(bk);
+			} catch (IOException e) {
+				unsatisfiedsuppressions.add(e);
+				return null;
+			}
+			if (bundledepinfo == null) {
+				return null;
+			}
+			return filterBundleDependencyInformation(bk, this.constraints, this.filter, bundledepinfo);
+		};
+		return executeEngineDependencyResolution(taskcontext, depinfo, rootbundlekey, bundleslookupfunction,
+				bundledependencieslookupfunction, unsatisfiedsuppressions);
+	}
+
+	private Set<BundleKey> executeEngineDependencyResolution(TaskContext taskcontext,
+			BundleDependencyInformation depinfo, BundleKey rootbundlekey,
+			BiFunction<BundleIdentifier, DependencyResolutionBundleContext, Iterable<? extends Entry<? extends BundleKey, ? extends DependencyResolutionBundleContext>>> bundleslookupfunction,
+			BiFunction<? super BundleKey, ? super DependencyResolutionBundleContext, ? extends BundleDependencyInformation> bundledependencieslookupfunction,
+			List<Throwable> unsatisfiedsuppressions) {
+		if (ENGINE_SAT.equals(engine)) {
+			return executeSatDependencyResolution(taskcontext, depinfo, rootbundlekey, bundleslookupfunction,
+					bundledependencieslookupfunction, unsatisfiedsuppressions);
+		}
+		return executeDomainEngineDependencyResolution(taskcontext, depinfo, rootbundlekey, bundleslookupfunction,
+				bundledependencieslookupfunction, unsatisfiedsuppressions);
+	}
+
+	private static Set<BundleKey> executeDomainEngineDependencyResolution(TaskContext taskcontext,
+			BundleDependencyInformation depinfo, BundleKey rootbundlekey,
+			BiFunction<BundleIdentifier, DependencyResolutionBundleContext, Iterable<? extends Entry<? extends BundleKey, ? extends DependencyResolutionBundleContext>>> bundleslookupfunction,
+			BiFunction<? super BundleKey, ? super DependencyResolutionBundleContext, ? extends BundleDependencyInformation> bundledependencieslookupfunction,
+			List<Throwable> unsatisfiedsuppressions) {
 		if (saker.nest.meta.Versions.VERSION_FULL_COMPOUND < 8_001) {
 			//domain based dependency resolution is not yet available
 			//use legacy
-			return executeLegacyDependencyResolution(taskcontext, depinfo, rootbundlekey, bundleslookupfunction,
-					bundledependencieslookupfunction, unsatisfiedsuppressions);
+			return executeLegacyDependencyResolution(taskcontext, depinfo, rootbundlekey,
+					bundleslookupfunction, bundledependencieslookupfunction, unsatisfiedsuppressions);
 		}
 		return executeDomainDependencyResolution(taskcontext, depinfo, rootbundlekey, bundleslookupfunction,
 				bundledependencieslookupfunction, unsatisfiedsuppressions);
 	}
 
-	private static DependencyResolutionTaskOutput executeDomainDependencyResolution(TaskContext taskcontext,
+	private static Set<BundleKey> executeDomainDependencyResolution(TaskContext taskcontext,
 			BundleDependencyInformation depinfo, BundleKey rootbundlekey,
 			BiFunction<BundleIdentifier, DependencyResolutionBundleContext, Iterable<? extends Entry<? extends BundleKey, ? extends DependencyResolutionBundleContext>>> bundleslookupfunction,
 			BiFunction<? super BundleKey, ? super DependencyResolutionBundleContext, ? extends BundleDependencyInformation> bundledependencieslookupfunction,
@@ -289,33 +494,35 @@ public class ResolveBundleDependencyFileWorkerTaskFactory implements TaskFactory
 			taskcontext.abortExecution(unsatisfiedexc);
 			return null;
 		}
-		Set<BundleKey> bundleresolutions = new LinkedHashSet<>();
-		collectBundleResolutions(resolutionresult, bundleresolutions, new HashSet<>());
-		//don't include the root container bundle in the result
-		bundleresolutions.remove(rootbundlekey);
-		DependencyResolutionTaskOutputImpl result = new DependencyResolutionTaskOutputImpl(bundleresolutions);
-		taskcontext.reportSelfTaskOutputChangeDetector(new EqualityTaskOutputChangeDetector(result));
-		return result;
+		return BundleResolutionGraph.create(resolutionresult).collectBundles(0);
 	}
 
-	private static void collectBundleResolutions(DependencyDomainResolutionResult<BundleKey, ?> domain,
-			Set<BundleKey> result, Set<DependencyDomainResolutionResult<BundleKey, ?>> collected) {
-		if (!collected.add(domain)) {
-			return;
-		}
-		//add first and collect later for order
-		for (Entry<? extends Entry<? extends BundleKey, ?>, ? extends DependencyDomainResolutionResult<BundleKey, ?>> entry : domain
-				.getDirectDependencies().entrySet()) {
-			result.add(entry.getKey().getKey());
+	private static Set<BundleKey> executeSatDependencyResolution(TaskContext taskcontext,
+			BundleDependencyInformation depinfo, BundleKey rootbundlekey,
+			BiFunction<BundleIdentifier, DependencyResolutionBundleContext, Iterable<? extends Entry<? extends BundleKey, ? extends DependencyResolutionBundleContext>>> bundleslookupfunction,
+			BiFunction<? super BundleKey, ? super DependencyResolutionBundleContext, ? extends BundleDependencyInformation> bundledependencieslookupfunction,
+			List<Throwable> unsatisfiedsuppressions) {
+		SatDependencyResolver<DependencyResolutionBundleContext> resolver = new SatDependencyResolver<>(
+				bundleslookupfunction, bundledependencieslookupfunction,
+				SharedDependencyResolutionCache.get(taskcontext.getExecutionContext()).getVersionRangeMatches());
+		Set<BundleKey> bundleresolutions = resolver.resolve(depinfo, SatDependencyResolver.DEFAULT_CONFLICT_LIMIT);
+		if (resolver.isDomainResolutionRequired()) {
+			//private dependencies create separate dependency domains, the single version encoding doesn't apply
+			return executeDomainEngineDependencyResolution(taskcontext, depinfo, rootbundlekey,
+					bundleslookupfunction, bundledependencieslookupfunction, unsatisfiedsuppressions);
 		}
-		for (Entry<? extends Entry<? extends BundleKey, ?>, ? extends DependencyDomainResolutionResult<BundleKey, ?>> entry : domain
-				.getDirectDependencies().entrySet()) {
-			collectBundleResolutions(entry.getValue(), result, collected);
+		if (bundleresolutions == null) {
+			BundleDependencyUnsatisfiedException unsatisfiedexc = new BundleDependencyUnsatisfiedException(
+					resolver.getFailureMessage());
+			unsatisfiedsuppressions.forEach(unsatisfiedexc::addSuppressed);
+			taskcontext.abortExecution(unsatisfiedexc);
+			return null;
 		}
+		return bundleresolutions;
 	}
 
 	@SuppressWarnings("deprecation")
-	private static DependencyResolutionTaskOutput executeLegacyDependencyResolution(TaskContext taskcontext,
+	private static Set<BundleKey> executeLegacyDependencyResolution(TaskContext taskcontext,
 			BundleDependencyInformation depinfo, BundleKey rootbundlekey,
 			BiFunction<BundleIdentifier, DependencyResolutionBundleContext, Iterable<? extends Entry<? extends BundleKey, ? extends DependencyResolutionBundleContext>>> bundleslookupfunction,
 			BiFunction<? super BundleKey, ? super DependencyResolutionBundleContext, ? extends BundleDependencyInformation> bundledependencieslookupfunction,
@@ -343,9 +550,7 @@ public class ResolveBundleDependencyFileWorkerTaskFactory implements TaskFactory
 			}
 			bundleresolutions.add(resolutionbundlekey);
 		}
-		DependencyResolutionTaskOutputImpl result = new DependencyResolutionTaskOutputImpl(bundleresolutions);
-		taskcontext.reportSelfTaskOutputChangeDetector(new EqualityTaskOutputChangeDetector(result));
-		return result;
+		return bundleresolutions;
 	}
 
 	protected static BundleDependencyInformation filterBundleDependencyInformation(BundleKey bk,
@@ -359,6 +564,42 @@ public class ResolveBundleDependencyFileWorkerTaskFactory implements TaskFactory
 		return filter.filterBundleDependency(bk, constraintfiltered);
 	}
 
+	private BundleDependencyInformation readDependencyFile(TaskContext taskcontext, SakerFile depfile)
+			throws IOException {
+		SakerDirectory cachedir = getDependencyFileCacheDirectory(taskcontext);
+		if (cachedir == null) {
+			return taskcontext.computeFileContentData(depfile,
+					new BundleDependencyInformationFileDataComputer(thisBundleId));
+		}
+		String cachefilename = BundleDependencyInformationFileDataComputer.getCacheFileName(depfile.getSakerPath(),
+				thisBundleId);
+		SakerFile cachefile = cachedir.get(cachefilename);
+		BundleDependencyInformationFileDataComputer computer = new BundleDependencyInformationFileDataComputer(
+				thisBundleId, cachefile);
+		BundleDependencyInformation result = taskcontext.computeFileContentData(depfile, computer);
+		if (computer.isParsed()) {
+			ByteArraySakerFile outfile = new ByteArraySakerFile(cachefilename,
+					BundleDependencyInformationFileDataComputer.getCacheFileBytes(depfile, result));
+			cachedir.add(outfile);
+			outfile.synchronize();
+			taskcontext.reportOutputFileDependency(null, outfile.getSakerPath(), outfile.getContentDescriptor());
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the directory in the build directory where the parsed dependency files are cached between builds.
+	 * 
+	 * @return The directory or <code>null</code> if there is no build directory.
+	 */
+	protected static SakerDirectory getDependencyFileCacheDirectory(TaskContext taskcontext) {
+		if (taskcontext.getExecutionContext().getBuildDirectoryPath() == null) {
+			return null;
+		}
+		return SakerPathFiles.requireBuildDirectory(taskcontext)
+				.getDirectoryCreate(DEPENDENCY_FILE_CACHE_DIRECTORY_NAME);
+	}
+
 	protected static Set<BundleKey> toBundleKeySet(BundleVersionLookupResult lookedupversions) {
 		//keep order, version descending
 		Set<BundleKey> result = new LinkedHashSet<>();
@@ -380,6 +621,8 @@ public class ResolveBundleDependencyFileWorkerTaskFactory implements TaskFactory
 		out.writeObject(dependencyFilePath);
 		SerialUtils.writeExternalCollection(out, bundleIds);
 		out.writeObject(thisBundleId);
+		out.writeObject(engine);
+		out.writeObject(indexFilePath);
 	}
 
 	@Override
@@ -389,6 +632,8 @@ public class ResolveBundleDependencyFileWorkerTaskFactory implements TaskFactory
 		dependencyFilePath = (SakerPath) in.readObject();
 		bundleIds = SerialUtils.readExternalImmutableList(in);
 		thisBundleId = (BundleIdentifier) in.readObject();
+		engine = (String) in.readObject();
+		indexFilePath = (SakerPath) in.readObject();
 	}
 
 	@Override
@@ -398,7 +643,9 @@ public class ResolveBundleDependencyFileWorkerTaskFactory implements TaskFactory
 		result = prime * result + ((bundleIds == null) ? 0 : bundleIds.hashCode());
 		result = prime * result + ((constraints == null) ? 0 : constraints.hashCode());
 		result = prime * result + ((dependencyFilePath == null) ? 0 : dependencyFilePath.hashCode());
+		result = prime * result + ((engine == null) ? 0 : engine.hashCode());
 		result = prime * result + ((filter == null) ? 0 : filter.hashCode());
+		result = prime * result + ((indexFilePath == null) ? 0 : indexFilePath.hashCode());
 		result = prime * result + ((thisBundleId == null) ? 0 : thisBundleId.hashCode());
 		return result;
 	}
@@ -427,11 +674,21 @@ public class ResolveBundleDependencyFileWorkerTaskFactory implements TaskFactory
 				return false;
 		} else if (!dependencyFilePath.equals(other.dependencyFilePath))
 			return false;
+		if (engine == null) {
+			if (other.engine != null)
+				return false;
+		} else if (!engine.equals(other.engine))
+			return false;
 		if (filter == null) {
 			if (other.filter != null)
 				return false;
 		} else if (!filter.equals(other.filter))
 			return false;
+		if (indexFilePath == null) {
+			if (other.indexFilePath != null)
+				return false;
+		} else if (!indexFilePath.equals(other.indexFilePath))
+			return false;
 		if (thisBundleId == null) {
 			if (other.thisBundleId != null)
 				return false;
@@ -445,13 +702,21 @@ public class ResolveBundleDependencyFileWorkerTaskFactory implements TaskFactory
 		return "ResolveBundleDependencyFileWorkerTaskFactory["
 				+ (bundleIds != null ? "bundleIds=" + bundleIds + ", " : "")
 				+ (dependencyFilePath != null ? "dependencyFilePath=" + dependencyFilePath + ", " : "")
-				+ (thisBundleId != null ? "thisBundleId=" + thisBundleId : "") + "]";
+				+ (thisBundleId != null ? "thisBundleId=" + thisBundleId + ", " : "")
+				+ (engine != null ? "engine=" + engine + ", " : "")
+				+ (indexFilePath != null ? "indexFilePath=" + indexFilePath : "") + "]";
 	}
 
 	private static class DependencyResolutionBundleContext {
 		private BundleStorageView storageView;
 		private BundleLookup relativeLookup;
 
+		/**
+		 * Creates a context that is not associated with any storage.
+		 */
+		public DependencyResolutionBundleContext() {
+		}
+
 		public DependencyResolutionBundleContext(BundleVersionLookupResult lookupresult) {
 			this.storageView = lookupresult.getStorageView();
 			this.relativeLookup = lookupresult.getRelativeLookup();
@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.nest.support.impl.dependency;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+import saker.build.task.dependencies.TaskOutputChangeDetector;
+import saker.nest.support.api.dependency.DependencyResolutionTaskOutput;
+
+/**
+ * Detects if the number of resolved bundles in a dependency resolution output changed.
+ * <p>
+ * Used together with the {@link ResolvedBundleTaskOutputChangeDetector} of the elements by the tasks that use all
+ * elements of {@link DependencyResolutionTaskOutput#getBundleResults()}. The element detectors report the removed
+ * bundles, while this detects the added ones. Changes to other bundles than the used ones don't affect the callers.
+ * <p>
+ * If the module index is not negative, the bundles are checked in the output of the module at the given index of a
+ * {@link BatchDependencyResolutionTaskOutput}.
+ */
+public class ResolvedBundleCountTaskOutputChangeDetector implements TaskOutputChangeDetector, Externalizable {
+	private static final long serialVersionUID = 1L;
+
+	private int moduleIndex = -1;
+	private int count;
+
+	/**
+	 * For {@link Externalizable}.
+	 */
+	public ResolvedBundleCountTaskOutputChangeDetector() {
+	}
+
+	public ResolvedBundleCountTaskOutputChangeDetector(int moduleIndex, int count) {
+		this.moduleIndex = moduleIndex;
+		this.count = count;
+	}
+
+	@Override
+	public boolean isChanged(Object taskoutput) {
+		DependencyResolutionTaskOutput output = BatchDependencyResolutionTaskOutput.getModuleOutput(taskoutput,
+				moduleIndex);
+		if (output == null) {
+			return true;
+		}
+		return output.getBundles().size() != count;
+	}
+
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		out.writeInt(moduleIndex);
+		out.writeInt(count);
+	}
+
+	@Override
+	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+		moduleIndex = in.readInt();
+		count = in.readInt();
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + count;
+		result = prime * result + moduleIndex;
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		ResolvedBundleCountTaskOutputChangeDetector other = (ResolvedBundleCountTaskOutputChangeDetector) obj;
+		if (count != other.count)
+			return false;
+		if (moduleIndex != other.moduleIndex)
+			return false;
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[moduleIndex=" + moduleIndex + ", count=" + count + "]";
+	}
+
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.nest.support.impl.dependency;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+import saker.build.task.TaskResultDependencyHandle;
+import saker.build.task.TaskResultResolver;
+import saker.build.task.identifier.TaskIdentifier;
+import saker.build.task.utils.StructuredTaskResult;
+import saker.nest.bundle.BundleKey;
+import saker.nest.support.api.dependency.DependencyResolutionTaskOutput;
+
+/**
+ * Structured task result of a single bundle in the output of a dependency resolution worker task.
+ * <p>
+ * Only reports a dependency on the presence of the associated bundle in the resolution output. Other bundles being
+ * added, removed, or reordered in the output doesn't affect the callers.
+ * <p>
+ * If the module index is not negative, the resolver task is expected to return a
+ * {@link BatchDependencyResolutionTaskOutput}, and the bundle is retrieved from the output of the module at the given
+ * index.
+ */
+public class ResolvedBundleStructuredTaskResult implements StructuredTaskResult, Externalizable {
+	private static final long serialVersionUID = 1L;
+
+	private TaskIdentifier resolverTaskId;
+	private int moduleIndex = -1;
+	private BundleKey bundleKey;
+
+	/**
+	 * For {@link Externalizable}.
+	 */
+	public ResolvedBundleStructuredTaskResult() {
+	}
+
+	public ResolvedBundleStructuredTaskResult(TaskIdentifier resolverTaskId, BundleKey bundleKey) {
+		this(resolverTaskId, -1, bundleKey);
+	}
+
+	public ResolvedBundleStructuredTaskResult(TaskIdentifier resolverTaskId, int moduleIndex, BundleKey bundleKey) {
+		this.resolverTaskId = resolverTaskId;
+		this.moduleIndex = moduleIndex;
+		this.bundleKey = bundleKey;
+	}
+
+	@Override
+	public Object toResult(TaskResultResolver results) {
+		TaskResultDependencyHandle dephandle = results.getTaskResultDependencyHandle(resolverTaskId);
+		DependencyResolutionTaskOutput out = BatchDependencyResolutionTaskOutput.getModuleOutput(dephandle.get(),
+				moduleIndex);
+		dephandle.setTaskOutputChangeDetector(new ResolvedBundleTaskOutputChangeDetector(moduleIndex, bundleKey));
+		if (out == null || !out.getBundles().contains(bundleKey)) {
+			return null;
+		}
+		return bundleKey;
+	}
+
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		out.writeObject(resolverTaskId);
+		out.writeInt(moduleIndex);
+		out.writeObject(bundleKey);
+	}
+
+	@Override
+	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+		resolverTaskId = (TaskIdentifier) in.readObject();
+		moduleIndex = in.readInt();
+		bundleKey = (BundleKey) in.readObject();
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((bundleKey == null) ? 0 : bundleKey.hashCode());
+		result = prime * result + moduleIndex;
+		result = prime * result + ((resolverTaskId == null) ? 0 : resolverTaskId.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		ResolvedBundleStructuredTaskResult other = (ResolvedBundleStructuredTaskResult) obj;
+		if (bundleKey == null) {
+			if (other.bundleKey != null)
+				return false;
+		} else if (!bundleKey.equals(other.bundleKey))
+			return false;
+		if (moduleIndex != other.moduleIndex)
+			return false;
+		if (resolverTaskId == null) {
+			if (other.resolverTaskId != null)
+				return false;
+		} else if (!resolverTaskId.equals(other.resolverTaskId))
+			return false;
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[" + resolverTaskId + (moduleIndex < 0 ? "" : "[" + moduleIndex + "]")
+				+ "[" + bundleKey + "]]";
+	}
+
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.nest.support.impl.dependency;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+import saker.build.task.dependencies.TaskOutputChangeDetector;
+import saker.nest.bundle.BundleKey;
+import saker.nest.support.api.dependency.DependencyResolutionTaskOutput;
+
+/**
+ * Detects if a bundle is no longer present in a dependency resolution output.
+ * <p>
+ * The bundles are matched by their {@link BundleKey}, so adding, removing, or reordering other bundles in the output
+ * isn't considered to be a change.
+ * <p>
+ * If the module index is not negative, the bundle is checked in the output of the module at the given index of a
+ * {@link BatchDependencyResolutionTaskOutput}.
+ */
+public class ResolvedBundleTaskOutputChangeDetector implements TaskOutputChangeDetector, Externalizable {
+	private static final long serialVersionUID = 1L;
+
+	private int moduleIndex = -1;
+	private BundleKey bundleKey;
+
+	/**
+	 * For {@link Externalizable}.
+	 */
+	public ResolvedBundleTaskOutputChangeDetector() {
+	}
+
+	public ResolvedBundleTaskOutputChangeDetector(BundleKey bundleKey) {
+		this(-1, bundleKey);
+	}
+
+	public ResolvedBundleTaskOutputChangeDetector(int moduleIndex, BundleKey bundleKey) {
+		this.moduleIndex = moduleIndex;
+		this.bundleKey = bundleKey;
+	}
+
+	@Override
+	public boolean isChanged(Object taskoutput) {
+		DependencyResolutionTaskOutput output = BatchDependencyResolutionTaskOutput.getModuleOutput(taskoutput,
+				moduleIndex);
+		if (output == null) {
+			return true;
+		}
+		return !output.getBundles().contains(bundleKey);
+	}
+
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		out.writeInt(moduleIndex);
+		out.writeObject(bundleKey);
+	}
+
+	@Override
+	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+		moduleIndex = in.readInt();
+		bundleKey = (BundleKey) in.readObject();
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((bundleKey == null) ? 0 : bundleKey.hashCode());
+		result = prime * result + moduleIndex;
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		ResolvedBundleTaskOutputChangeDetector other = (ResolvedBundleTaskOutputChangeDetector) obj;
+		if (bundleKey == null) {
+			if (other.bundleKey != null)
+				return false;
+		} else if (!bundleKey.equals(other.bundleKey))
+			return false;
+		if (moduleIndex != other.moduleIndex)
+			return false;
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[" + (moduleIndex < 0 ? "" : moduleIndex + ": ") + bundleKey + "]";
+	}
+
+}
@@ -0,0 +1,338 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.nest.support.impl.dependency;
+
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.function.BiFunction;
+
+import saker.nest.bundle.BundleDependency;
+import saker.nest.bundle.BundleDependencyInformation;
+import saker.nest.bundle.BundleDependencyList;
+import saker.nest.bundle.BundleIdentifier;
+import saker.nest.bundle.BundleKey;
+
+/**
+ * Dependency resolver that encodes the dependency graph as a boolean satisfiability problem and solves it using
+ * {@link CdclSolver}.
+ * <p>
+ * Each candidate bundle is a variable. For each bundle name (identifier without version and meta qualifiers) at most
+ * one bundle can be selected. This is encoded using the sequential (ladder) encoding, so the number of clauses is
+ * linear in the number of candidates. Each selected bundle requires that one of the candidates for each of its dependencies
+ * that satisfies all of the declared version ranges is selected. A bundle which cannot be used (e.g. excluded by the
+ * dependency constraints) is never selected.
+ * <p>
+ * The encoding uses a single version per bundle name for the whole dependency graph. This is only equivalent to the
+ * domain based resolution of the Nest repository if there are no private dependencies in the graph, as those start new
+ * dependency domains where different versions of the same bundle may be present. If a private dependency is
+ * encountered, the resolution is stopped and {@link #isDomainResolutionRequired()} returns <code>true</code>.
+ * <p>
+ * The candidates are tried in the order the lookup function returns them, therefore the higher versions are
+ * preferred. The dependencies are decided depth first, in the order they are declared, similarly to the domain based
+ * resolution. If the choices don't lead to conflicts, the result is the same as the result of the domain based
+ * resolution. Otherwise the solver may find a different valid solution, as the learnt clauses prune the search
+ * differently than chronological backtracking.
+ *
+ * @param <C>
+ *            The bundle context type.
+ */
+final class SatDependencyResolver<C> {
+	/**
+	 * The default maximum number of conflicts after which the resolution is aborted.
+	 */
+	public static final long DEFAULT_CONFLICT_LIMIT = 200_000;
+
+	private static final class Candidate<C> {
+		protected final BundleKey bundleKey;
+		protected final C context;
+		protected final VersionNumber version;
+
+		public Candidate(BundleKey bundleKey, C context) {
+			this.bundleKey = bundleKey;
+			this.context = context;
+			this.version = VersionNumber.valueOf(bundleKey.getBundleIdentifier().getVersionNumber());
+		}
+	}
+
+	private static final class Node<C> {
+		protected final BundleKey bundleKey;
+		protected final C context;
+		protected final int variable;
+		protected List<List<Node<C>>> dependencyCandidates = Collections.emptyList();
+
+		public Node(BundleKey bundleKey, C context, int variable) {
+			this.bundleKey = bundleKey;
+			this.context = context;
+			this.variable = variable;
+		}
+	}
+
+	private final BiFunction<BundleIdentifier, C, ? extends Iterable<? extends Entry<? extends BundleKey, ? extends C>>> bundlesLookupFunction;
+	private final BiFunction<? super BundleKey, ? super C, ? extends BundleDependencyInformation> bundleDependenciesLookupFunction;
+
+	private final CdclSolver solver = new CdclSolver();
+	private final Map<BundleKey, Node<C>> nodes = new HashMap<>();
+	/**
+	 * Maps the bundle names to the literal that is <code>true</code> if any of the candidates with the name is
+	 * selected. (The last register of the sequential at-most-one encoding.)
+	 */
+	private final Map<BundleIdentifier, Integer> nameSelectedLiterals = new HashMap<>();
+	private final Map<BundleIdentifier, Integer> nameOrigins = new HashMap<>();
+	private final Map<Entry<BundleIdentifier, C>, List<Candidate<C>>> lookupResults = new HashMap<>();
+	private final VersionRangeMatchCache versionRangeMatches;
+	private final List<String> originDescriptions = new ArrayList<>();
+	private final ArrayDeque<Node<C>> encodeQueue = new ArrayDeque<>();
+
+	private String failureMessage;
+	private boolean domainResolutionRequired;
+
+	public SatDependencyResolver(
+			BiFunction<BundleIdentifier, C, ? extends Iterable<? extends Entry<? extends BundleKey, ? extends C>>> bundlesLookupFunction,
+			BiFunction<? super BundleKey, ? super C, ? extends BundleDependencyInformation> bundleDependenciesLookupFunction,
+			VersionRangeMatchCache versionRangeMatches) {
+		this.bundlesLookupFunction = bundlesLookupFunction;
+		this.bundleDependenciesLookupFunction = bundleDependenciesLookupFunction;
+		this.versionRangeMatches = versionRangeMatches;
+	}
+
+	/**
+	 * Executes the dependency resolution.
+	 *
+	 * @param rootdepinfo
+	 *            The dependencies of the root.
+	 * @param conflictlimit
+	 *            The maximum number of conflicts to encounter before giving up.
+	 * @return The resolved bundles in resolution order, or <code>null</code> if the resolution failed. See
+	 *             {@link #getFailureMessage()} and {@link #isDomainResolutionRequired()}.
+	 */
+	public Set<BundleKey> resolve(BundleDependencyInformation rootdepinfo, long conflictlimit) {
+		List<List<Node<C>>> rootcandidates = encodeDependencies(null, null, rootdepinfo);
+		while (!encodeQueue.isEmpty()) {
+			if (domainResolutionRequired) {
+				return null;
+			}
+			Node<C> n = encodeQueue.poll();
+			BundleDependencyInformation depinfo = bundleDependenciesLookupFunction.apply(n.bundleKey, n.context);
+			if (depinfo == null) {
+				solver.addClause(new int[] { CdclSolver.negative(n.variable) },
+						addOrigin(n.bundleKey.getBundleIdentifier() + " is not usable."));
+				continue;
+			}
+			n.dependencyCandidates = encodeDependencies(n, n.context, depinfo);
+		}
+		if (domainResolutionRequired) {
+			return null;
+		}
+
+		int solveresult = solver.solve(conflictlimit);
+		switch (solveresult) {
+			case CdclSolver.RESULT_SATISFIABLE: {
+				return createResolutionGraph(rootcandidates).collectBundles(0);
+			}
+			case CdclSolver.RESULT_UNSATISFIABLE: {
+				StringBuilder sb = new StringBuilder("Failed to satisfy dependencies. Conflicting requirements:");
+				BitSet core = solver.getUnsatisfiableCore();
+				for (int i = core.nextSetBit(0); i >= 0; i = core.nextSetBit(i + 1)) {
+					sb.append("\n\t");
+					sb.append(originDescriptions.get(i));
+				}
+				failureMessage = sb.toString();
+				return null;
+			}
+			default: {
+				failureMessage = "Failed to satisfy dependencies. Conflict limit exceeded: " + conflictlimit + " ("
+						+ nodes.size() + " candidate bundles)";
+				return null;
+			}
+		}
+	}
+
+	public String getFailureMessage() {
+		return failureMessage;
+	}
+
+	/**
+	 * Checks if the resolution was stopped because the dependency graph contains private dependencies.
+	 * <p>
+	 * In this case the dependencies should be resolved using the domain based resolution.
+	 *
+	 * @return <code>true</code> if the graph cannot be resolved by this resolver.
+	 */
+	public boolean isDomainResolutionRequired() {
+		return domainResolutionRequired;
+	}
+
+	/**
+	 * Creates the graph of the selected bundles.
+	 * <p>
+	 * The root is the node 0, the bundle for variable <code>v</code> is node <code>v + 1</code>.
+	 */
+	private BundleResolutionGraph createResolutionGraph(List<List<Node<C>>> rootcandidates) {
+		BundleResolutionGraph graph = new BundleResolutionGraph();
+		graph.addNode();
+		for (int i = 0, count = solver.getVariableCount(); i < count; i++) {
+			graph.addNode();
+		}
+		addSelectedEdges(graph, 0, rootcandidates);
+		for (Node<C> n : nodes.values()) {
+			if (solver.isTrue(n.variable)) {
+				addSelectedEdges(graph, n.variable + 1, n.dependencyCandidates);
+			}
+		}
+		return graph;
+	}
+
+	private void addSelectedEdges(BundleResolutionGraph graph, int graphnode, List<List<Node<C>>> candidates) {
+		for (List<Node<C>> depcandidates : candidates) {
+			for (Node<C> n : depcandidates) {
+				if (solver.isTrue(n.variable)) {
+					graph.addEdge(graphnode, n.bundleKey, n.variable + 1);
+					break;
+				}
+			}
+		}
+	}
+
+	private List<List<Node<C>>> encodeDependencies(Node<C> owner, C ownercontext,
+			BundleDependencyInformation depinfo) {
+		Map<BundleIdentifier, ? extends BundleDependencyList> dependencies = depinfo.getDependencies();
+		if (dependencies.isEmpty()) {
+			return Collections.emptyList();
+		}
+		List<List<Node<C>>> result = new ArrayList<>(dependencies.size());
+		for (Entry<BundleIdentifier, ? extends BundleDependencyList> entry : dependencies.entrySet()) {
+			BundleIdentifier depbundleid = entry.getKey();
+			BundleDependencyList deplist = entry.getValue();
+			if (hasPrivateDependency(deplist)) {
+				domainResolutionRequired = true;
+				return Collections.emptyList();
+			}
+
+			List<Node<C>> candidates = new ArrayList<>();
+			for (Candidate<C> lookedup : lookupBundles(depbundleid, ownercontext)) {
+				if (!isSatisfiedBy(deplist, lookedup.version)) {
+					continue;
+				}
+				candidates.add(getNode(lookedup.bundleKey, lookedup.context));
+			}
+			result.add(candidates);
+
+			String description;
+			if (owner == null) {
+				description = "Dependency on " + depbundleid + ": " + deplist;
+			} else {
+				description = owner.bundleKey.getBundleIdentifier() + " depends on " + depbundleid + ": " + deplist;
+			}
+			int[] candidatevars = new int[candidates.size()];
+			for (int i = 0; i < candidatevars.length; i++) {
+				candidatevars[i] = candidates.get(i).variable;
+			}
+			if (candidates.isEmpty()) {
+				description += " (no matching bundles found)";
+			}
+			solver.addDependencyClause(owner == null ? -1 : owner.variable, candidatevars, addOrigin(description));
+		}
+		return result;
+	}
+
+	/**
+	 * Looks up the candidates for the given bundle.
+	 * <p>
+	 * The version numbers of the candidates are parsed once per lookup, and not for every range check.
+	 */
+	private List<Candidate<C>> lookupBundles(BundleIdentifier bundleid, C context) {
+		return lookupResults.computeIfAbsent(new AbstractMap.SimpleImmutableEntry<>(bundleid, context), k -> {
+			Iterable<? extends Entry<? extends BundleKey, ? extends C>> lookedup = bundlesLookupFunction
+					.apply(bundleid, context);
+			if (lookedup == null) {
+				return Collections.emptyList();
+			}
+			List<Candidate<C>> entries = new ArrayList<>();
+			for (Entry<? extends BundleKey, ? extends C> e : lookedup) {
+				entries.add(new Candidate<>(e.getKey(), e.getValue()));
+			}
+			return entries;
+		});
+	}
+
+	private Node<C> getNode(BundleKey bundlekey, C context) {
+		Node<C> present = nodes.get(bundlekey);
+		if (present != null) {
+			return present;
+		}
+		Node<C> n = new Node<>(bundlekey, context, solver.newVariable());
+		nodes.put(bundlekey, n);
+		encodeQueue.add(n);
+
+		BundleIdentifier name = bundlekey.getBundleIdentifier().withoutMetaQualifiers();
+		int nlit = CdclSolver.positive(n.variable);
+		Integer prevselected = nameSelectedLiterals.get(name);
+		if (prevselected == null) {
+			nameSelectedLiterals.put(name, nlit);
+			return n;
+		}
+		Integer origin = nameOrigins.get(name);
+		if (origin == null) {
+			origin = addOrigin("Only a single version of " + name + " can be used.");
+			nameOrigins.put(name, origin);
+		}
+		//sequential encoding:
+		//    prev -> !n
+		//    prev -> selected
+		//    n -> selected
+		int prevlit = prevselected;
+		int selectedlit = CdclSolver.positive(solver.newAuxiliaryVariable());
+		solver.addClause(new int[] { prevlit ^ 1, nlit ^ 1 }, origin);
+		solver.addClause(new int[] { prevlit ^ 1, selectedlit }, origin);
+		solver.addClause(new int[] { nlit ^ 1, selectedlit }, origin);
+		nameSelectedLiterals.put(name, selectedlit);
+		return n;
+	}
+
+	private int addOrigin(String description) {
+		originDescriptions.add(description);
+		return originDescriptions.size() - 1;
+	}
+
+	private static boolean hasPrivateDependency(BundleDependencyList deplist) {
+		for (BundleDependency dep : deplist.getDependencies()) {
+			if (dep.isPrivate()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean isSatisfiedBy(BundleDependencyList deplist, VersionNumber version) {
+		if (version == null) {
+			return true;
+		}
+		for (BundleDependency dep : deplist.getDependencies()) {
+			if (!versionRangeMatches.includes(dep.getRange(), version)) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.nest.support.impl.dependency;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import saker.build.runtime.execution.ExecutionContext;
+import saker.build.thirdparty.saker.util.ObjectUtils;
+import saker.nest.bundle.BundleDependencyInformation;
+import saker.nest.bundle.BundleIdentifier;
+import saker.nest.bundle.BundleInformation;
+import saker.nest.bundle.BundleKey;
+import saker.nest.bundle.DependencyConstraintConfiguration;
+import saker.nest.bundle.storage.BundleStorageView;
+import saker.nest.dependency.DependencyUtils;
+import saker.nest.exc.BundleLoadingFailedException;
+import saker.nest.support.api.dependency.filter.DependencyFilter;
+import saker.nest.support.impl.util.BundleConstraintExclusionCache;
+import saker.nest.support.impl.util.BundleInformationCache;
+
+/**
+ * Build execution scoped cache of the dependency graph nodes that are used during dependency resolution.
+ * <p>
+ * The multiple dependency resolution tasks in a build usually share a large part of their transitive dependency
+ * graphs. The cache holds the loaded bundle informations and the filtered dependencies of the bundles keyed by the
+ * bundle key, dependency filter, and dependency constraints, so they're only computed once in a build. The version
+ * range evaluations are also shared in a bounded cache.
+ * <p>
+ * If a value is being computed by a resolver, other resolvers that need the same value will wait for the computation
+ * to finish instead of computing it again.
+ * <p>
+ * The cache doesn't report any dependencies. The callers are responsible for reporting the appropriate execution
+ * dependencies for the values they use. The tasks that modify the bundles during the build should call
+ * {@link #invalidate(BundleIdentifier)}.
+ */
+public final class SharedDependencyResolutionCache {
+	private static final Map<ExecutionContext, SharedDependencyResolutionCache> EXECUTION_CACHES = new WeakHashMap<>();
+
+	private final ConcurrentMap<BundleKey, CompletableFuture<BundleInformation>> bundleInformations = new ConcurrentHashMap<>();
+	private final ConcurrentMap<FilteredDependenciesKey, CompletableFuture<BundleDependencyInformation>> filteredDependencies = new ConcurrentHashMap<>();
+	private final VersionRangeMatchCache versionRangeMatches = new VersionRangeMatchCache(
+			VersionRangeMatchCache.DEFAULT_MAX_SIZE);
+
+	private SharedDependencyResolutionCache() {
+	}
+
+	static SharedDependencyResolutionCache get(ExecutionContext executioncontext) {
+		synchronized (EXECUTION_CACHES) {
+			return EXECUTION_CACHES.computeIfAbsent(executioncontext, x -> new SharedDependencyResolutionCache());
+		}
+	}
+
+	/**
+	 * Removes the cached informations and dependencies of all versions of the given bundle from all caches.
+	 */
+	public static void invalidate(BundleIdentifier bundleid) {
+		BundleIdentifier withoutversion = bundleid.withoutMetaQualifiers();
+		synchronized (EXECUTION_CACHES) {
+			for (SharedDependencyResolutionCache cache : EXECUTION_CACHES.values()) {
+				cache.bundleInformations.keySet().removeIf(
+						bk -> withoutversion.equals(bk.getBundleIdentifier().withoutMetaQualifiers()));
+				cache.filteredDependencies.keySet().removeIf(
+						k -> withoutversion.equals(k.bundleKey.getBundleIdentifier().withoutMetaQualifiers()));
+			}
+		}
+	}
+
+	/**
+	 * Removes all cached informations and dependencies from all caches.
+	 */
+	public static void invalidateAll() {
+		synchronized (EXECUTION_CACHES) {
+			for (SharedDependencyResolutionCache cache : EXECUTION_CACHES.values()) {
+				cache.bundleInformations.clear();
+				cache.filteredDependencies.clear();
+			}
+		}
+	}
+
+	public BundleInformation getBundleInformation(BundleKey bundlekey, BundleStorageView storageview,
+			BundleInformationCache.Statistics statistics) throws BundleLoadingFailedException {
+		CompletableFuture<BundleInformation> future = new CompletableFuture<>();
+		CompletableFuture<BundleInformation> prev = bundleInformations.putIfAbsent(bundlekey, future);
+		if (prev != null) {
+			if (statistics != null) {
+				statistics.addHit();
+			}
+			return join(prev);
+		}
+		try {
+			BundleInformation info = BundleInformationCache.getBundleInformation(storageview,
+					bundlekey.getBundleIdentifier(), statistics);
+			future.complete(info);
+			return info;
+		} catch (Throwable e) {
+			//don't keep the failures, other resolvers may retry
+			bundleInformations.remove(bundlekey, future);
+			future.completeExceptionally(e);
+			throw e;
+		}
+	}
+
+	/**
+	 * Gets the dependencies of the bundle after the constraints and the filter has been applied.
+	 * <p>
+	 * The result is <code>null</code> if the bundle is excluded by the dependency constraints.
+	 */
+	public BundleDependencyInformation getFilteredDependencies(BundleKey bundlekey, BundleInformation bundleinfo,
+			DependencyConstraintConfiguration constraints, DependencyFilter filter) {
+		FilteredDependenciesKey key = new FilteredDependenciesKey(bundlekey, constraints, filter);
+		CompletableFuture<BundleDependencyInformation> future = new CompletableFuture<>();
+		CompletableFuture<BundleDependencyInformation> prev = filteredDependencies.putIfAbsent(key, future);
+		if (prev != null) {
+			try {
+				return join(prev);
+			} catch (BundleLoadingFailedException e) {
+				//not thrown by the computation
+				throw ObjectUtils.sneakyThrow(e);
+			}
+		}
+		try {
+			BundleDependencyInformation result;
+			if (DependencyUtils.isDependencyConstraintClassPathExcludes(constraints, bundleinfo)) {
+				//record it, so the bundle is pruned from the candidates without loading it next time
+				BundleConstraintExclusionCache.addExcluded(bundlekey, constraints, bundleinfo);
+				result = null;
+			} else {
+				result = ResolveBundleDependencyFileWorkerTaskFactory.filterBundleDependencyInformation(bundlekey,
+						constraints, filter, bundleinfo.getDependencyInformation());
+			}
+			future.complete(result);
+			return result;
+		} catch (Throwable e) {
+			filteredDependencies.remove(key, future);
+			future.completeExceptionally(e);
+			throw e;
+		}
+	}
+
+	public VersionRangeMatchCache getVersionRangeMatches() {
+		return versionRangeMatches;
+	}
+
+	private static <T> T join(CompletableFuture<T> future) throws BundleLoadingFailedException {
+		try {
+			return future.join();
+		} catch (CompletionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof BundleLoadingFailedException) {
+				throw (BundleLoadingFailedException) cause;
+			}
+			throw ObjectUtils.sneakyThrow(cause);
+		}
+	}
+
+	private static final class FilteredDependenciesKey {
+		private final BundleKey bundleKey;
+		private final DependencyConstraintConfiguration constraints;
+		private final DependencyFilter filter;
+
+		public FilteredDependenciesKey(BundleKey bundleKey, DependencyConstraintConfiguration constraints,
+				DependencyFilter filter) {
+			this.bundleKey = bundleKey;
+			this.constraints = constraints;
+			this.filter = filter;
+		}
+
+		@Override
+		public int hashCode() {
+			final int prime = 31;
+			int result = 1;
+			result = prime * result + ((bundleKey == null) ? 0 : bundleKey.hashCode());
+			result = prime * result + ((constraints == null) ? 0 : constraints.hashCode());
+			result = prime * result + ((filter == null) ? 0 : filter.hashCode());
+			return result;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (obj == null)
+				return false;
+			if (getClass() != obj.getClass())
+				return false;
+			FilteredDependenciesKey other = (FilteredDependenciesKey) obj;
+			if (bundleKey == null) {
+				if (other.bundleKey != null)
+					return false;
+			} else if (!bundleKey.equals(other.bundleKey))
+				return false;
+			if (constraints == null) {
+				if (other.constraints != null)
+					return false;
+			} else if (!constraints.equals(other.constraints))
+				return false;
+			if (filter == null) {
+				if (other.filter != null)
+					return false;
+			} else if (!filter.equals(other.filter))
+				return false;
+			return true;
+		}
+	}
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.nest.support.impl.dependency;
+
+import java.util.Arrays;
+
+import saker.nest.version.VersionRange;
+
+/**
+ * Pre-parsed representation of a bundle version number.
+ * <p>
+ * The version number is parsed once into its numeric components, so the hashing and equality checks of the version
+ * numbers don't need to process the string representation. The original string is kept, as it is required by
+ * {@link VersionRange#includes(String)}.
+ * <p>
+ * If a component of the version number doesn't fit into an <code>int</code> or has leading zeros, the string
+ * representation is used for the comparisons. Version numbers like <code>"1.01"</code> and <code>"1.1"</code> are not
+ * equal, as the version ranges may evaluate them differently.
+ */
+final class VersionNumber {
+	private final String version;
+	private final int[] components;
+	private final int hashCode;
+
+	private VersionNumber(String version, int[] components) {
+		this.version = version;
+		this.components = components;
+		this.hashCode = components == null ? version.hashCode() : Arrays.hashCode(components);
+	}
+
+	public static VersionNumber valueOf(String version) {
+		if (version == null) {
+			return null;
+		}
+		return new VersionNumber(version, parseComponents(version));
+	}
+
+	public String getVersion() {
+		return version;
+	}
+
+	private static int[] parseComponents(String version) {
+		int len = version.length();
+		int count = 1;
+		for (int i = 0; i < len; i++) {
+			if (version.charAt(i) == '.') {
+				++count;
+			}
+		}
+		int[] result = new int[count];
+		int idx = 0;
+		long current = 0;
+		boolean empty = true;
+		for (int i = 0; i < len; i++) {
+			char c = version.charAt(i);
+			if (c == '.') {
+				if (empty) {
+					return null;
+				}
+				result[idx++] = (int) current;
+				current = 0;
+				empty = true;
+				continue;
+			}
+			if (c < '0' || c > '9') {
+				return null;
+			}
+			if (current == 0 && !empty) {
+				//leading zero
+				return null;
+			}
+			current = current * 10 + (c - '0');
+			if (current > Integer.MAX_VALUE) {
+				return null;
+			}
+			empty = false;
+		}
+		if (empty) {
+			return null;
+		}
+		result[idx] = (int) current;
+		return result;
+	}
+
+	@Override
+	public int hashCode() {
+		return hashCode;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		VersionNumber other = (VersionNumber) obj;
+		if (hashCode != other.hashCode)
+			return false;
+		if (components == null || other.components == null) {
+			return version.equals(other.version);
+		}
+		return Arrays.equals(components, other.components);
+	}
+
+	@Override
+	public String toString() {
+		return version;
+	}
+}
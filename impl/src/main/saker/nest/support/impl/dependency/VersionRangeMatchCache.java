@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.nest.support.impl.dependency;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import saker.nest.version.VersionRange;
+
+/**
+ * Bounded cache of the version range evaluation results.
+ * <p>
+ * The dependency resolution checks the same version ranges against the same candidate versions repeatedly. The cache
+ * memoizes the results of {@link VersionRange#includes(String)} for (range, version) pairs.
+ * <p>
+ * The entries are stored in two concurrent generations. Lookups check the current generation first, and move the
+ * entries found in the previous generation to the current one. When the current generation is full, it becomes the
+ * previous one and the entries that weren't used since are dropped. This approximates least recently used eviction
+ * without serializing the concurrent resolutions on a common lock.
+ * <p>
+ * The class is thread safe.
+ */
+final class VersionRangeMatchCache {
+	/**
+	 * The default maximum number of cached (range, version) pairs.
+	 */
+	public static final int DEFAULT_MAX_SIZE = 16 * 1024;
+
+	private final int generationSize;
+
+	private volatile ConcurrentMap<MatchKey, Boolean> current = new ConcurrentHashMap<>();
+	private volatile ConcurrentMap<MatchKey, Boolean> previous = new ConcurrentHashMap<>();
+
+	public VersionRangeMatchCache(int maxsize) {
+		this.generationSize = Math.max(1, maxsize / 2);
+	}
+
+	public boolean includes(VersionRange range, VersionNumber version) {
+		MatchKey key = new MatchKey(range, version);
+		Boolean result = current.get(key);
+		if (result != null) {
+			return result;
+		}
+		result = previous.get(key);
+		if (result == null) {
+			//concurrent evaluations of the same pair are harmless
+			result = range.includes(version.getVersion());
+		}
+		put(key, result);
+		return result;
+	}
+
+	private void put(MatchKey key, Boolean result) {
+		ConcurrentMap<MatchKey, Boolean> gen = current;
+		gen.put(key, result);
+		if (gen.size() > generationSize) {
+			synchronized (this) {
+				if (current == gen) {
+					previous = gen;
+					current = new ConcurrentHashMap<>();
+				}
+			}
+		}
+	}
+
+	private static final class MatchKey {
+		private final VersionRange range;
+		private final VersionNumber version;
+
+		public MatchKey(VersionRange range, VersionNumber version) {
+			this.range = range;
+			this.version = version;
+		}
+
+		@Override
+		public int hashCode() {
+			final int prime = 31;
+			int result = 1;
+			result = prime * result + ((range == null) ? 0 : range.hashCode());
+			result = prime * result + ((version == null) ? 0 : version.hashCode());
+			return result;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (obj == null)
+				return false;
+			if (getClass() != obj.getClass())
+				return false;
+			MatchKey other = (MatchKey) obj;
+			if (range == null) {
+				if (other.range != null)
+					return false;
+			} else if (!range.equals(other.range))
+				return false;
+			if (version == null) {
+				if (other.version != null)
+					return false;
+			} else if (!version.equals(other.version))
+				return false;
+			return true;
+		}
+	}
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.nest.support.impl.download;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import saker.build.exception.PropertyComputationFailedException;
+import saker.build.file.path.SakerPath;
+import saker.build.runtime.execution.ExecutionContext;
+import saker.build.runtime.execution.SakerLog;
+import saker.build.task.Task;
+import saker.build.task.TaskContext;
+import saker.build.task.TaskFactory;
+import saker.build.task.identifier.TaskIdentifier;
+import saker.build.thirdparty.saker.util.ImmutableUtils;
+import saker.build.thirdparty.saker.util.ObjectUtils;
+import saker.build.thirdparty.saker.util.io.SerialUtils;
+import saker.build.thirdparty.saker.util.thread.ThreadUtils;
+import saker.build.trace.BuildTrace;
+import saker.nest.bundle.BundleIdentifier;
+import saker.nest.bundle.BundleKey;
+import saker.nest.support.api.download.DownloadAttachmentsTaskOutput;
+import saker.nest.support.impl.util.BundleKeysAttachmentsExecutionProperty;
+import saker.nest.support.main.download.DownloadAttachmentsTaskFactory;
+
+/**
+ * Worker task that downloads the source and documentation attachments of multiple bundles.
+ * <p>
+ * The attachment identifiers of all bundles are retrieved using a single {@link BundleKeysAttachmentsExecutionProperty}.
+ * The attachments are looked up in the same storage view as the bundle they are attached to, and are downloaded
+ * concurrently by at most {@link #getConcurrency()} threads. An attachment that is shared by multiple bundles is only
+ * downloaded once.
+ * <p>
+ * If any of the attachments fail to download, the failures are reported as errors and the task fails, so it is
+ * rerun in the next build.
+ */
+public class AttachmentDownloadingWorkerTaskFactory implements TaskFactory<DownloadAttachmentsTaskOutput>,
+		Task<DownloadAttachmentsTaskOutput>, Externalizable, TaskIdentifier {
+	private static final long serialVersionUID = 1L;
+
+	private List<BundleKey> bundleKeys;
+	private boolean sources;
+	private boolean documentation;
+	private int concurrency;
+
+	/**
+	 * For {@link Externalizable}.
+	 */
+	public AttachmentDownloadingWorkerTaskFactory() {
+	}
+
+	public AttachmentDownloadingWorkerTaskFactory(List<BundleKey> bundleKeys, boolean sources, boolean documentation,
+			int concurrency) {
+		this.bundleKeys = ImmutableUtils.makeImmutableList(bundleKeys);
+		this.sources = sources;
+		this.documentation = documentation;
+		this.concurrency = concurrency;
+	}
+
+	public int getConcurrency() {
+		return concurrency;
+	}
+
+	@Override
+	public Task<? extends DownloadAttachmentsTaskOutput> createTask(ExecutionContext executioncontext) {
+		return this;
+	}
+
+	@Override
+	public DownloadAttachmentsTaskOutput run(TaskContext taskcontext) throws Exception {
+		if (saker.build.meta.Versions.VERSION_FULL_COMPOUND >= 8_006) {
+			BuildTrace.classifyTask(BuildTrace.CLASSIFICATION_WORKER);
+			if (saker.build.meta.Versions.VERSION_FULL_COMPOUND >= 8_009) {
+				Map<String, Object> valmap = new LinkedHashMap<>();
+				valmap.put("Bundle count", bundleKeys.size());
+				valmap.put("Sources", sources);
+				valmap.put("Documentation", documentation);
+				valmap.put("Concurrency", concurrency);
+				BuildTrace.setValues(valmap, BuildTrace.VALUE_CATEGORY_TASK);
+			}
+		}
+		taskcontext.setStandardOutDisplayIdentifier(DownloadAttachmentsTaskFactory.TASK_NAME);
+
+		BundleKeysAttachmentsExecutionProperty.PropertyResult attachments;
+		try {
+			attachments = taskcontext.getTaskUtilities()
+					.getReportExecutionDependency(new BundleKeysAttachmentsExecutionProperty(bundleKeys));
+		} catch (PropertyComputationFailedException e) {
+			throw ObjectUtils.sneakyThrow(e.getCause());
+		}
+		List<BundleKey> sourcekeys = toAttachmentKeys(sources ? attachments.getSourceAttachments() : null);
+		List<BundleKey> dockeys = toAttachmentKeys(documentation ? attachments.getDocumentationAttachments() : null);
+
+		Set<BundleKey> downloadkeys = new LinkedHashSet<>();
+		addNonNulls(downloadkeys, sourcekeys);
+		addNonNulls(downloadkeys, dockeys);
+
+		Map<BundleKey, SakerPath> downloadpaths = new ConcurrentHashMap<>();
+		Map<BundleKey, Throwable> errors = new ConcurrentHashMap<>();
+		ThreadUtils.parallelRunner().setThreadCount(concurrency).runItems(downloadkeys, bk -> {
+			try {
+				downloadpaths.put(bk,
+						BundleKeyDownloadingWorkerTaskFactory.executeBundleKeyDownload(taskcontext, bk).getPath());
+			} catch (Exception e) {
+				errors.put(bk, e);
+			}
+		});
+		if (!errors.isEmpty()) {
+			IllegalArgumentException exc = new IllegalArgumentException(
+					"Failed to download " + errors.size() + " attachment(s).");
+			for (Map.Entry<BundleKey, Throwable> entry : errors.entrySet()) {
+				SakerLog.error().out(taskcontext).println("Failed to download attachment: "
+						+ entry.getKey().getBundleIdentifier() + " (" + entry.getValue() + ")");
+				exc.addSuppressed(entry.getValue());
+			}
+			throw exc;
+		}
+		if (saker.build.meta.Versions.VERSION_FULL_COMPOUND >= 8_009) {
+			BuildTrace.setValues(Collections.singletonMap("Downloaded attachments", downloadpaths.size()),
+					BuildTrace.VALUE_CATEGORY_TASK);
+		}
+		return new DownloadAttachmentsWorkerTaskOutputImpl(bundleKeys, toPaths(sourcekeys, downloadpaths),
+				toPaths(dockeys, downloadpaths));
+	}
+
+	private List<BundleKey> toAttachmentKeys(List<BundleIdentifier> attachmentids) {
+		BundleKey[] result = new BundleKey[bundleKeys.size()];
+		if (attachmentids != null) {
+			for (int i = 0; i < result.length; i++) {
+				BundleIdentifier attachmentid = attachmentids.get(i);
+				if (attachmentid != null) {
+					result[i] = BundleKey.create(bundleKeys.get(i).getStorageViewKey(), attachmentid);
+				}
+			}
+		}
+		return Arrays.asList(result);
+	}
+
+	private static void addNonNulls(Set<BundleKey> result, List<BundleKey> keys) {
+		for (BundleKey bk : keys) {
+			if (bk != null) {
+				result.add(bk);
+			}
+		}
+	}
+
+	private static List<SakerPath> toPaths(List<BundleKey> keys, Map<BundleKey, SakerPath> downloadpaths) {
+		List<SakerPath> result = new ArrayList<>(keys.size());
+		for (BundleKey bk : keys) {
+			result.add(bk == null ? null : downloadpaths.get(bk));
+		}
+		return result;
+	}
+
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		SerialUtils.writeExternalCollection(out, bundleKeys);
+		out.writeBoolean(sources);
+		out.writeBoolean(documentation);
+		out.writeInt(concurrency);
+	}
+
+	@Override
+	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+		bundleKeys = SerialUtils.readExternalImmutableList(in);
+		sources = in.readBoolean();
+		documentation = in.readBoolean();
+		concurrency = in.readInt();
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((bundleKeys == null) ? 0 : bundleKeys.hashCode());
+		result = prime * result + concurrency;
+		result = prime * result + (documentation ? 1231 : 1237);
+		result = prime * result + (sources ? 1231 : 1237);
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		AttachmentDownloadingWorkerTaskFactory other = (AttachmentDownloadingWorkerTaskFactory) obj;
+		if (bundleKeys == null) {
+			if (other.bundleKeys != null)
+				return false;
+		} else if (!bundleKeys.equals(other.bundleKeys))
+			return false;
+		if (concurrency != other.concurrency)
+			return false;
+		if (documentation != other.documentation)
+			return false;
+		if (sources != other.sources)
+			return false;
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[" + (bundleKeys != null ? "bundleKeys=" + bundleKeys + ", " : "")
+				+ "sources=" + sources + ", documentation=" + documentation + ", concurrency=" + concurrency + "]";
+	}
+}
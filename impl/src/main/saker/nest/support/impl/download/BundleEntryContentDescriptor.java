@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.nest.support.impl.download;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+import saker.build.file.content.ContentDescriptor;
+
+/**
+ * Content descriptor of an entry extracted from a bundle archive.
+ * <p>
+ * The descriptor is based on the CRC and the size of the entry that is recorded in the archive, so the contents of
+ * the entries don't need to be read to determine if they changed.
+ */
+public class BundleEntryContentDescriptor implements ContentDescriptor, Externalizable {
+	private static final long serialVersionUID = 1L;
+
+	private long crc;
+	private long size;
+
+	/**
+	 * For {@link Externalizable}.
+	 */
+	public BundleEntryContentDescriptor() {
+	}
+
+	public BundleEntryContentDescriptor(long crc, long size) {
+		this.crc = crc;
+		this.size = size;
+	}
+
+	@Override
+	public boolean isChanged(ContentDescriptor previouscontent) {
+		return !this.equals(previouscontent);
+	}
+
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		out.writeLong(crc);
+		out.writeLong(size);
+	}
+
+	@Override
+	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+		crc = in.readLong();
+		size = in.readLong();
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + (int) (crc ^ (crc >>> 32));
+		result = prime * result + (int) (size ^ (size >>> 32));
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		BundleEntryContentDescriptor other = (BundleEntryContentDescriptor) obj;
+		if (crc != other.crc)
+			return false;
+		if (size != other.size)
+			return false;
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[crc=" + Long.toHexString(crc) + ", size=" + size + "]";
+	}
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.nest.support.impl.download;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import saker.build.exception.InvalidPathFormatException;
+import saker.build.file.SakerFileBase;
+import saker.build.file.content.ContentDescriptor;
+import saker.build.thirdparty.saker.util.io.IOUtils;
+import saker.build.thirdparty.saker.util.io.StreamUtils;
+
+/**
+ * {@link saker.build.file.SakerFile SakerFile} implementation that has the contents of an entry in a bundle archive.
+ * <p>
+ * The archive is only opened if the contents of the file are actually needed, e.g. when the file is written to the
+ * disk during synchronization because its content descriptor changed. The files of the same bundle share the
+ * {@link Archive}, so it is opened at most once during the synchronization of the extracted directory.
+ */
+public class BundleEntrySakerFile extends SakerFileBase {
+	private final Archive archive;
+	private final String entryName;
+	private final ContentDescriptor contentDescriptor;
+
+	public BundleEntrySakerFile(String name, Archive archive, String entryName, ContentDescriptor contentDescriptor)
+			throws NullPointerException, InvalidPathFormatException {
+		super(name);
+		this.archive = archive;
+		this.entryName = entryName;
+		this.contentDescriptor = contentDescriptor;
+	}
+
+	@Override
+	public ContentDescriptor getContentDescriptor() {
+		return contentDescriptor;
+	}
+
+	@Override
+	public void writeToStreamImpl(OutputStream os) throws IOException, NullPointerException {
+		ZipFile zf = archive.open();
+		ZipEntry entry = zf.getEntry(entryName);
+		if (entry == null) {
+			throw new IOException("Entry not found: " + entryName + " in " + archive.archivePath);
+		}
+		try (InputStream is = zf.getInputStream(entry)) {
+			StreamUtils.copyStream(is, os);
+		}
+	}
+
+	/**
+	 * Lazily opened bundle archive that is shared by the entry files.
+	 * <p>
+	 * The archive is opened when the contents of an entry is first requested, and stays open until
+	 * {@link #close()} is called. If an entry is requested after closing, the archive is opened again.
+	 */
+	public static final class Archive implements Closeable {
+		private final Path archivePath;
+		private ZipFile zipFile;
+
+		public Archive(Path archivePath) {
+			this.archivePath = archivePath;
+		}
+
+		public synchronized ZipFile open() throws IOException {
+			if (zipFile == null) {
+				zipFile = new ZipFile(archivePath.toFile());
+			}
+			return zipFile;
+		}
+
+		@Override
+		public synchronized void close() throws IOException {
+			ZipFile zf = zipFile;
+			zipFile = null;
+			IOUtils.close(zf);
+		}
+	}
+}
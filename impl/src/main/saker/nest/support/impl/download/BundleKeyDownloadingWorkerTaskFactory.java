@@ -79,6 +79,16 @@ public class BundleKeyDownloadingWorkerTaskFactory
 		}
 		taskcontext.setStandardOutDisplayIdentifier(DownloadBundleTaskFactory.TASK_NAME);
 
+		return executeBundleKeyDownload(taskcontext, bundleKey);
+	}
+
+	/**
+	 * Downloads the bundle with the given key and reports the dependencies of the download in the task context.
+	 * <p>
+	 * Used by both the single bundle and the grouped download worker tasks.
+	 */
+	static DownloadBundleWorkerTaskOutput executeBundleKeyDownload(TaskContext taskcontext, BundleKey bundleKey)
+			throws IOException {
 		BundleContentDescriptorPropertyValue propertyresult;
 		try {
 			propertyresult = taskcontext.getTaskUtilities()
@@ -104,6 +114,8 @@ public class BundleKeyDownloadingWorkerTaskFactory
 				contentdescriptor);
 
 		SakerDirectory outdir = builddir.getDirectoryCreate(bundle.getBundleIdentifier().getName().toString());
+		//recorded before adding the file, so a concurrent collection doesn't remove it
+		DownloadDirectoryGarbageCollector.recordReference(taskcontext, outdir, bundlefilename);
 		SakerFile syncfile;
 		while (true) {
 			SakerFile prevfile = outdir.addIfAbsent(bundlefile);
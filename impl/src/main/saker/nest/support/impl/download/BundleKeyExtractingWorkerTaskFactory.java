@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.nest.support.impl.download;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import saker.build.exception.PropertyComputationFailedException;
+import saker.build.file.SakerDirectory;
+import saker.build.file.SakerFile;
+import saker.build.file.path.SakerPath;
+import saker.build.file.provider.SakerPathFiles;
+import saker.build.runtime.execution.ExecutionContext;
+import saker.build.task.Task;
+import saker.build.task.TaskContext;
+import saker.build.task.TaskFactory;
+import saker.build.task.identifier.TaskIdentifier;
+import saker.build.thirdparty.saker.util.ObjectUtils;
+import saker.build.trace.BuildTrace;
+import saker.nest.bundle.BundleIdentifier;
+import saker.nest.bundle.BundleKey;
+import saker.nest.bundle.JarNestRepositoryBundle;
+import saker.nest.bundle.NestRepositoryBundle;
+import saker.nest.support.api.download.DownloadBundleWorkerTaskOutput;
+import saker.nest.support.api.property.BundleContentDescriptorPropertyValue;
+import saker.nest.support.impl.util.BundleKeyContentDescriptorExecutionProperty;
+import saker.nest.support.main.download.DownloadBundleTaskFactory;
+
+/**
+ * Worker task that extracts the contents of a bundle to a directory in the build directory.
+ * <p>
+ * The bundle is extracted to the <code>&lt;bundle-name&gt;/&lt;bundle-identifier-without-version&gt;_extract</code>
+ * directory under the {@link DownloadBundleTaskFactory#TASK_NAME} build directory. The directory is shared by the
+ * versions of the bundle, so when the bundle is updated to a new version, the new version is extracted over the
+ * previous one. The entries have content descriptors based on their CRC and size in the archive, so only the changed
+ * entries are written to the disk. The entries that are no longer present in the bundle are removed.
+ * <p>
+ * As the versions share the directory, only a single version of a bundle can be extracted in a build.
+ * <p>
+ * The {@linkplain DownloadBundleWorkerTaskOutput#getPath() path} in the output is the path of the directory.
+ */
+public class BundleKeyExtractingWorkerTaskFactory implements TaskFactory<DownloadBundleWorkerTaskOutput>,
+		Task<DownloadBundleWorkerTaskOutput>, Externalizable, TaskIdentifier {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The suffix of the extraction directory names.
+	 */
+	public static final String EXTRACT_DIRECTORY_NAME_SUFFIX = "_extract";
+
+	private BundleKey bundleKey;
+
+	/**
+	 * For {@link Externalizable}.
+	 */
+	public BundleKeyExtractingWorkerTaskFactory() {
+	}
+
+	public BundleKeyExtractingWorkerTaskFactory(BundleKey bundleKey) {
+		this.bundleKey = bundleKey;
+	}
+
+	@Override
+	public Task<? extends DownloadBundleWorkerTaskOutput> createTask(ExecutionContext executioncontext) {
+		return this;
+	}
+
+	@Override
+	public DownloadBundleWorkerTaskOutput run(TaskContext taskcontext) throws Exception {
+		if (saker.build.meta.Versions.VERSION_FULL_COMPOUND >= 8_006) {
+			BuildTrace.classifyTask(BuildTrace.CLASSIFICATION_WORKER);
+			BundleIdentifier bundleid = bundleKey.getBundleIdentifier();
+			BuildTrace.setDisplayInformation("nest.extract:" + bundleid, null);
+			if (saker.build.meta.Versions.VERSION_FULL_COMPOUND >= 8_009) {
+				BuildTrace.setValues(Collections.singletonMap("Bundle identifier", bundleid.toString()),
+						BuildTrace.VALUE_CATEGORY_TASK);
+			}
+		}
+		taskcontext.setStandardOutDisplayIdentifier(DownloadBundleTaskFactory.TASK_NAME);
+
+		return executeBundleKeyExtract(taskcontext, bundleKey);
+	}
+
+	/**
+	 * Gets the name of the directory that the versions of the bundle are extracted to.
+	 */
+	public static String getExtractDirectoryName(BundleIdentifier bundleid) {
+		return bundleid.withoutMetaQualifiers() + EXTRACT_DIRECTORY_NAME_SUFFIX;
+	}
+
+	/**
+	 * Extracts the bundle with the given key and reports the dependencies of the extraction in the task context.
+	 * <p>
+	 * Used by both the single bundle and the grouped download worker tasks.
+	 */
+	static DownloadBundleWorkerTaskOutput executeBundleKeyExtract(TaskContext taskcontext, BundleKey bundleKey)
+			throws IOException {
+		BundleContentDescriptorPropertyValue propertyresult;
+		try {
+			propertyresult = taskcontext.getTaskUtilities()
+					.getReportExecutionDependency(new BundleKeyContentDescriptorExecutionProperty(bundleKey));
+		} catch (PropertyComputationFailedException e) {
+			throw ObjectUtils.sneakyThrow(e.getCause());
+		}
+		NestRepositoryBundle bundle = propertyresult.getBundle();
+		Path jarpath = ((JarNestRepositoryBundle) bundle).getJarPath();
+
+		BundleIdentifier bundleid = bundle.getBundleIdentifier();
+		SakerDirectory extractdir = SakerPathFiles.requireBuildDirectory(taskcontext.getExecutionContext())
+				.getDirectoryCreate(DownloadBundleTaskFactory.TASK_NAME).getDirectoryCreate(bundleid.getName())
+				.getDirectoryCreate(getExtractDirectoryName(bundleid));
+		//the contents are added again, the entries that didn't change are not written during synchronization
+		extractdir.clear();
+
+		List<SakerFile> entryfiles = new ArrayList<>();
+		//the archive is shared by the entries that are written during the synchronization
+		try (BundleEntrySakerFile.Archive archive = new BundleEntrySakerFile.Archive(jarpath)) {
+			ZipFile zf = archive.open();
+			for (Enumeration<? extends ZipEntry> it = zf.entries(); it.hasMoreElements();) {
+				ZipEntry entry = it.nextElement();
+				if (entry.isDirectory()) {
+					continue;
+				}
+				String entryname = entry.getName();
+				SakerPath entrypath = SakerPath.valueOf(entryname);
+				if (!entrypath.isForwardRelative() || entrypath.getFileName() == null) {
+					throw new IOException("Invalid entry name in bundle: " + entryname + " in " + bundleid);
+				}
+				SakerDirectory entrydir = extractdir;
+				SakerPath entryparent = entrypath.getParent();
+				if (entryparent != null) {
+					entrydir = taskcontext.getTaskUtilities().resolveDirectoryAtPathCreate(extractdir, entryparent);
+				}
+				BundleEntrySakerFile entryfile = new BundleEntrySakerFile(entrypath.getFileName(), archive,
+						entryname, new BundleEntryContentDescriptor(entry.getCrc(), entry.getSize()));
+				entrydir.add(entryfile);
+				entryfiles.add(entryfile);
+			}
+			extractdir.synchronize();
+		}
+
+		for (SakerFile f : entryfiles) {
+			taskcontext.reportOutputFileDependency(null, f.getSakerPath(), f.getContentDescriptor());
+		}
+		return new SimpleDownloadWorkerTaskOutput(extractdir.getSakerPath(), bundleKey,
+				propertyresult.getContentDescriptor());
+	}
+
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		out.writeObject(bundleKey);
+	}
+
+	@Override
+	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+		bundleKey = (BundleKey) in.readObject();
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((bundleKey == null) ? 0 : bundleKey.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		BundleKeyExtractingWorkerTaskFactory other = (BundleKeyExtractingWorkerTaskFactory) obj;
+		if (bundleKey == null) {
+			if (other.bundleKey != null)
+				return false;
+		} else if (!bundleKey.equals(other.bundleKey))
+			return false;
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[" + (bundleKey != null ? "bundleKey=" + bundleKey : "") + "]";
+	}
+}
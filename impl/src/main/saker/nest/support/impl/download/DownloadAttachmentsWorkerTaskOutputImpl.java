@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.nest.support.impl.download;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.List;
+
+import saker.build.file.path.SakerPath;
+import saker.build.thirdparty.saker.util.ImmutableUtils;
+import saker.build.thirdparty.saker.util.io.SerialUtils;
+import saker.nest.bundle.BundleKey;
+import saker.nest.support.api.download.DownloadAttachmentsTaskOutput;
+
+public class DownloadAttachmentsWorkerTaskOutputImpl implements DownloadAttachmentsTaskOutput, Externalizable {
+	private static final long serialVersionUID = 1L;
+
+	private List<BundleKey> bundles;
+	private List<SakerPath> sourceAttachmentPaths;
+	private List<SakerPath> documentationAttachmentPaths;
+
+	/**
+	 * For {@link Externalizable}.
+	 */
+	public DownloadAttachmentsWorkerTaskOutputImpl() {
+	}
+
+	public DownloadAttachmentsWorkerTaskOutputImpl(List<BundleKey> bundles, List<SakerPath> sourceAttachmentPaths,
+			List<SakerPath> documentationAttachmentPaths) {
+		this.bundles = ImmutableUtils.makeImmutableList(bundles);
+		this.sourceAttachmentPaths = ImmutableUtils.unmodifiableList(sourceAttachmentPaths);
+		this.documentationAttachmentPaths = ImmutableUtils.unmodifiableList(documentationAttachmentPaths);
+	}
+
+	@Override
+	public List<? extends BundleKey> getBundles() {
+		return bundles;
+	}
+
+	@Override
+	public List<? extends SakerPath> getSourceAttachmentPaths() {
+		return sourceAttachmentPaths;
+	}
+
+	@Override
+	public List<? extends SakerPath> getDocumentationAttachmentPaths() {
+		return documentationAttachmentPaths;
+	}
+
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		SerialUtils.writeExternalCollection(out, bundles);
+		SerialUtils.writeExternalCollection(out, sourceAttachmentPaths);
+		SerialUtils.writeExternalCollection(out, documentationAttachmentPaths);
+	}
+
+	@Override
+	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+		bundles = SerialUtils.readExternalImmutableList(in);
+		sourceAttachmentPaths = SerialUtils.readExternalImmutableList(in);
+		documentationAttachmentPaths = SerialUtils.readExternalImmutableList(in);
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((bundles == null) ? 0 : bundles.hashCode());
+		result = prime * result
+				+ ((documentationAttachmentPaths == null) ? 0 : documentationAttachmentPaths.hashCode());
+		result = prime * result + ((sourceAttachmentPaths == null) ? 0 : sourceAttachmentPaths.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		DownloadAttachmentsWorkerTaskOutputImpl other = (DownloadAttachmentsWorkerTaskOutputImpl) obj;
+		if (bundles == null) {
+			if (other.bundles != null)
+				return false;
+		} else if (!bundles.equals(other.bundles))
+			return false;
+		if (documentationAttachmentPaths == null) {
+			if (other.documentationAttachmentPaths != null)
+				return false;
+		} else if (!documentationAttachmentPaths.equals(other.documentationAttachmentPaths))
+			return false;
+		if (sourceAttachmentPaths == null) {
+			if (other.sourceAttachmentPaths != null)
+				return false;
+		} else if (!sourceAttachmentPaths.equals(other.sourceAttachmentPaths))
+			return false;
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[sourceAttachmentPaths=" + sourceAttachmentPaths
+				+ ", documentationAttachmentPaths=" + documentationAttachmentPaths + "]";
+	}
+}
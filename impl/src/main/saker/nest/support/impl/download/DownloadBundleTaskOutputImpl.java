@@ -54,6 +54,28 @@ public class DownloadBundleTaskOutputImpl implements DownloadBundleTaskOutput, E
 		this.bundlePaths = new SimpleStructuredListTaskResult(bundlepaths);
 	}
 
+	/**
+	 * Creates a new instance for bundles that were downloaded by {@link GroupBundleDownloadingWorkerTaskFactory} tasks.
+	 * 
+	 * @param groupworkertaskids
+	 *            The task identifiers of the grouped download worker tasks for each bundle.
+	 * @param groupindices
+	 *            The index of each bundle in the associated group worker task.
+	 */
+	public DownloadBundleTaskOutputImpl(List<? extends TaskIdentifier> groupworkertaskids, List<Integer> groupindices) {
+		List<StructuredTaskResult> bundlepaths = new ArrayList<>();
+		List<StructuredTaskResult> dlresults = new ArrayList<>();
+		for (int i = 0; i < groupworkertaskids.size(); i++) {
+			TaskIdentifier grouptaskid = groupworkertaskids.get(i);
+			int idx = groupindices.get(i);
+			dlresults.add(new GroupDownloadWorkerTaskElementStructuredTaskResult(grouptaskid, idx));
+			bundlepaths.add(new GroupDownloadWorkerTaskElementPathStructuredTaskResult(grouptaskid, idx));
+		}
+
+		this.downloadResults = new SimpleStructuredListTaskResult(dlresults);
+		this.bundlePaths = new SimpleStructuredListTaskResult(bundlepaths);
+	}
+
 	@Override
 	public StructuredListTaskResult getBundlePaths() {
 		return bundlePaths;
@@ -0,0 +1,329 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.nest.support.impl.download;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import saker.build.file.ByteArraySakerFile;
+import saker.build.file.SakerDirectory;
+import saker.build.file.SakerFile;
+import saker.build.file.path.ProviderHolderPathKey;
+import saker.build.file.path.SakerPath;
+import saker.build.file.provider.SakerPathFiles;
+import saker.build.runtime.execution.ExecutionContext;
+import saker.build.runtime.execution.SakerLog;
+import saker.build.task.TaskContext;
+import saker.nest.bundle.BundleIdentifier;
+import saker.nest.support.main.download.DownloadBundleTaskFactory;
+
+/**
+ * Removes the stale downloaded bundles from the {@link DownloadBundleTaskFactory#TASK_NAME} build directory.
+ * <p>
+ * Each bundle name directory has an index file in the {@link #INDEX_DIRECTORY_NAME} directory that records when the
+ * downloaded files in the directory were last referenced by a download task. The downloaded files are named as
+ * <code>&lt;bundle-identifier&gt;_&lt;hash&gt;.jar</code>, so the different contents of the same bundle version are
+ * tracked separately, and the files of the previous contents are removed as well.
+ * <p>
+ * Every download worker records its file in the index when it is run, regardless of whether the download task that
+ * started it collects the directory. The collection is executed by
+ * {@link DownloadDirectoryGarbageCollectorWorkerTaskFactory} after the download workers of a collecting download task
+ * have finished. The download workers of other tasks in the same build may be run later than the collection. In order
+ * to avoid removing the files that they use, the files are only removed if they weren't referenced in the previous
+ * build that collected the same directory either. The removal of a file is therefore deferred to a subsequent build,
+ * even if the retention period is 0. If a download worker is run after its file was removed, it downloads the file
+ * again.
+ * <p>
+ * The download workers that are not run in a build don't refresh their references. Their files are kept until the
+ * retention period passes, and are downloaded again in the next build if they are still in use after that.
+ * <p>
+ * The download tasks that don't collect the directories record the bundles they download as kept. The downloads of
+ * the kept bundles are never removed, as these tasks don't record the files they use when they are not run.
+ * <p>
+ * Only the files that were recorded in the index are removed. The extraction directories are not affected.
+ */
+public final class DownloadDirectoryGarbageCollector {
+	public static final String INDEX_DIRECTORY_NAME = ".nest.download.index";
+
+	private static final String INDEX_BUILDS_LINE_PREFIX = "#builds\t";
+	private static final String INDEX_KEEP_LINE_PREFIX = "#keep\t";
+
+	private static final ConcurrentHashMap<SakerPath, Object> DIRECTORY_LOCKS = new ConcurrentHashMap<>();
+
+	private DownloadDirectoryGarbageCollector() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Records the argument downloaded file as referenced in the current build.
+	 * <p>
+	 * Called by the download workers before the file is added to the directory, so a concurrent collection doesn't
+	 * remove it.
+	 *
+	 * @param taskcontext
+	 *            The task context.
+	 * @param namedir
+	 *            The bundle name directory that contains the downloaded file.
+	 * @param filename
+	 *            The name of the downloaded file.
+	 */
+	public static void recordReference(TaskContext taskcontext, SakerDirectory namedir, String filename) {
+		if (!isCollectableFileName(filename)) {
+			return;
+		}
+		long buildtime = taskcontext.getExecutionContext().getBuildTimeMillis();
+		SakerDirectory indexdir = namedir.getParent().getDirectoryCreate(INDEX_DIRECTORY_NAME);
+		String name = namedir.getName();
+		synchronized (getDirectoryLock(namedir.getSakerPath())) {
+			try {
+				DirectoryIndex index = readIndex(indexdir, name);
+				Long prev = index.references.get(filename);
+				if (prev != null && prev >= buildtime) {
+					//already recorded by another worker in this build
+					return;
+				}
+				index.references.put(filename, buildtime);
+				writeIndex(indexdir, name, index);
+			} catch (IOException e) {
+				SakerLog.warning().out(taskcontext).println(
+						"Failed to record bundle download reference in " + namedir.getSakerPath() + " (" + e + ")");
+			}
+		}
+	}
+
+	/**
+	 * Records the argument bundles as kept, so their downloads are never removed.
+	 *
+	 * @param taskcontext
+	 *            The task context.
+	 * @param bundleids
+	 *            The identifiers of the downloaded bundles.
+	 */
+	public static void keep(TaskContext taskcontext, Collection<? extends BundleIdentifier> bundleids) {
+		Map<String, Set<String>> nameids = new TreeMap<>();
+		for (BundleIdentifier bundleid : bundleids) {
+			nameids.computeIfAbsent(bundleid.getName(), x -> new TreeSet<>()).add(bundleid.toString());
+		}
+		if (nameids.isEmpty()) {
+			return;
+		}
+		SakerDirectory downloaddir = SakerPathFiles.requireBuildDirectory(taskcontext.getExecutionContext())
+				.getDirectoryCreate(DownloadBundleTaskFactory.TASK_NAME);
+		SakerDirectory indexdir = downloaddir.getDirectoryCreate(INDEX_DIRECTORY_NAME);
+		for (Entry<String, Set<String>> entry : nameids.entrySet()) {
+			String name = entry.getKey();
+			synchronized (getDirectoryLock(downloaddir.getSakerPath().resolve(name))) {
+				try {
+					DirectoryIndex index = readIndex(indexdir, name);
+					if (index.keptBundles.addAll(entry.getValue())) {
+						writeIndex(indexdir, name, index);
+					}
+				} catch (IOException e) {
+					SakerLog.warning().out(taskcontext)
+							.println("Failed to record kept bundle downloads for " + name + " (" + e + ")");
+				}
+			}
+		}
+	}
+
+	/**
+	 * Records the argument downloaded files as referenced, and removes the stale downloads in their directories.
+	 * <p>
+	 * The index files of the collected directories are reported as the output files of the task.
+	 *
+	 * @param taskcontext
+	 *            The task context.
+	 * @param downloadpaths
+	 *            The paths of the downloaded bundles.
+	 * @param retentionmillis
+	 *            The retention period in milliseconds.
+	 */
+	public static void collect(TaskContext taskcontext, Collection<? extends SakerPath> downloadpaths,
+			long retentionmillis) {
+		ExecutionContext executioncontext = taskcontext.getExecutionContext();
+		long buildtime = executioncontext.getBuildTimeMillis();
+		long mintime = retentionmillis >= buildtime ? Long.MIN_VALUE : buildtime - retentionmillis;
+
+		SakerDirectory downloaddir = SakerPathFiles.requireBuildDirectory(executioncontext)
+				.getDirectoryCreate(DownloadBundleTaskFactory.TASK_NAME);
+		SakerPath downloaddirpath = downloaddir.getSakerPath();
+
+		Map<String, Set<String>> namefilenames = new TreeMap<>();
+		for (SakerPath path : downloadpaths) {
+			if (path == null || path.getNameCount() != downloaddirpath.getNameCount() + 2
+					|| !path.startsWith(downloaddirpath)) {
+				continue;
+			}
+			String filename = path.getFileName();
+			if (!isCollectableFileName(filename)) {
+				continue;
+			}
+			namefilenames.computeIfAbsent(path.getName(path.getNameCount() - 2), x -> new TreeSet<>()).add(filename);
+		}
+		if (namefilenames.isEmpty()) {
+			return;
+		}
+		SakerDirectory indexdir = downloaddir.getDirectoryCreate(INDEX_DIRECTORY_NAME);
+		for (Entry<String, Set<String>> entry : namefilenames.entrySet()) {
+			SakerDirectory namedir = downloaddir.getDirectory(entry.getKey());
+			if (namedir == null) {
+				continue;
+			}
+			synchronized (getDirectoryLock(namedir.getSakerPath())) {
+				try {
+					SakerFile indexfile = collectDirectory(executioncontext, indexdir, namedir, entry.getValue(),
+							buildtime, mintime);
+					taskcontext.reportOutputFileDependency(null, indexfile.getSakerPath(),
+							indexfile.getContentDescriptor());
+				} catch (IOException e) {
+					SakerLog.warning().out(taskcontext).println(
+							"Failed to remove stale bundle downloads in " + namedir.getSakerPath() + " (" + e + ")");
+				}
+			}
+		}
+	}
+
+	private static SakerFile collectDirectory(ExecutionContext executioncontext, SakerDirectory indexdir,
+			SakerDirectory namedir, Set<String> referencedfilenames, long buildtime, long mintime) throws IOException {
+		String name = namedir.getName();
+		DirectoryIndex index = readIndex(indexdir, name);
+		if (index.currentBuildTime != buildtime) {
+			index.previousBuildTime = index.currentBuildTime;
+			index.currentBuildTime = buildtime;
+		}
+		for (String filename : referencedfilenames) {
+			index.references.merge(filename, buildtime, Math::max);
+		}
+
+		Map<String, ? extends SakerFile> children = new HashMap<>(namedir.getChildren());
+		for (Iterator<Entry<String, Long>> it = index.references.entrySet().iterator(); it.hasNext();) {
+			Entry<String, Long> entry = it.next();
+			SakerFile file = children.get(entry.getKey());
+			if (file == null) {
+				//removed by other means
+				it.remove();
+				continue;
+			}
+			String filename = entry.getKey();
+			if (index.keptBundles.contains(filename.substring(0, filename.lastIndexOf('_')))) {
+				continue;
+			}
+			long lastreference = entry.getValue();
+			if (lastreference >= mintime || lastreference >= index.previousBuildTime) {
+				continue;
+			}
+			it.remove();
+			SakerPath filepath = file.getSakerPath();
+			file.remove();
+			ProviderHolderPathKey pathkey = executioncontext.getPathConfiguration().getPathKey(filepath);
+			pathkey.getFileProvider().deleteRecursively(pathkey.getPath());
+		}
+
+		return writeIndex(indexdir, name, index);
+	}
+
+	private static Object getDirectoryLock(SakerPath namedirpath) {
+		return DIRECTORY_LOCKS.computeIfAbsent(namedirpath, x -> new Object());
+	}
+
+	private static boolean isCollectableFileName(String filename) {
+		return filename.endsWith(".jar") && filename.lastIndexOf('_') > 0;
+	}
+
+	private static DirectoryIndex readIndex(SakerDirectory indexdir, String name) throws IOException {
+		DirectoryIndex result = new DirectoryIndex();
+		SakerFile indexfile = indexdir.get(name);
+		if (indexfile == null) {
+			return result;
+		}
+		String content = indexfile.getBytes().toString();
+		for (String line : content.split("\n")) {
+			try {
+				if (line.startsWith(INDEX_BUILDS_LINE_PREFIX)) {
+					String[] split = line.substring(INDEX_BUILDS_LINE_PREFIX.length()).trim().split("\t");
+					if (split.length == 2) {
+						result.previousBuildTime = Long.parseLong(split[0]);
+						result.currentBuildTime = Long.parseLong(split[1]);
+					}
+					continue;
+				}
+				if (line.startsWith(INDEX_KEEP_LINE_PREFIX)) {
+					result.keptBundles.add(line.substring(INDEX_KEEP_LINE_PREFIX.length()).trim());
+					continue;
+				}
+				int idx = line.indexOf('\t');
+				if (idx < 0) {
+					continue;
+				}
+				String filename = line.substring(0, idx);
+				if (!isCollectableFileName(filename)) {
+					//entry of a previous format
+					continue;
+				}
+				result.references.put(filename, Long.parseLong(line.substring(idx + 1).trim()));
+			} catch (NumberFormatException e) {
+				//ignore the malformed line, the entry is considered to be unreferenced
+			}
+		}
+		return result;
+	}
+
+	private static SakerFile writeIndex(SakerDirectory indexdir, String name, DirectoryIndex index)
+			throws IOException {
+		StringBuilder sb = new StringBuilder();
+		sb.append(INDEX_BUILDS_LINE_PREFIX);
+		sb.append(index.previousBuildTime);
+		sb.append('\t');
+		sb.append(index.currentBuildTime);
+		sb.append('\n');
+		for (String bundleid : index.keptBundles) {
+			sb.append(INDEX_KEEP_LINE_PREFIX);
+			sb.append(bundleid);
+			sb.append('\n');
+		}
+		for (Entry<String, Long> entry : index.references.entrySet()) {
+			sb.append(entry.getKey());
+			sb.append('\t');
+			sb.append(entry.getValue());
+			sb.append('\n');
+		}
+		ByteArraySakerFile indexfile = new ByteArraySakerFile(name, sb.toString().getBytes(StandardCharsets.UTF_8));
+		indexdir.add(indexfile);
+		indexfile.synchronize();
+		return indexfile;
+	}
+
+	private static final class DirectoryIndex {
+		/**
+		 * The build time of the previous build that collected the directory.
+		 * <p>
+		 * {@link Long#MAX_VALUE} if there was no such build, so nothing is removed.
+		 */
+		long previousBuildTime = Long.MAX_VALUE;
+		long currentBuildTime = Long.MAX_VALUE;
+		final Map<String, Long> references = new TreeMap<>();
+		final Set<String> keptBundles = new TreeSet<>();
+	}
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.nest.support.impl.download;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import saker.build.file.path.SakerPath;
+import saker.build.runtime.execution.ExecutionContext;
+import saker.build.task.Task;
+import saker.build.task.TaskContext;
+import saker.build.task.TaskFactory;
+import saker.build.task.identifier.TaskIdentifier;
+import saker.build.task.utils.StructuredListTaskResult;
+import saker.build.trace.BuildTrace;
+import saker.nest.support.main.download.DownloadBundleTaskFactory;
+
+/**
+ * Worker task that removes the stale downloads after the bundles of a download task have been downloaded.
+ * <p>
+ * The task waits for the download worker tasks by retrieving the paths of the downloaded bundles, so it records the
+ * file names that are actually in use.
+ * 
+ * @see DownloadDirectoryGarbageCollector
+ */
+public class DownloadDirectoryGarbageCollectorWorkerTaskFactory
+		implements TaskFactory<Void>, Task<Void>, Externalizable, TaskIdentifier {
+	private static final long serialVersionUID = 1L;
+
+	private StructuredListTaskResult bundlePaths;
+	private long retentionMillis;
+
+	/**
+	 * For {@link Externalizable}.
+	 */
+	public DownloadDirectoryGarbageCollectorWorkerTaskFactory() {
+	}
+
+	public DownloadDirectoryGarbageCollectorWorkerTaskFactory(StructuredListTaskResult bundlePaths,
+			long retentionMillis) {
+		this.bundlePaths = bundlePaths;
+		this.retentionMillis = retentionMillis;
+	}
+
+	@Override
+	public Task<? extends Void> createTask(ExecutionContext executioncontext) {
+		return this;
+	}
+
+	@Override
+	public Void run(TaskContext taskcontext) throws Exception {
+		if (saker.build.meta.Versions.VERSION_FULL_COMPOUND >= 8_006) {
+			BuildTrace.classifyTask(BuildTrace.CLASSIFICATION_WORKER);
+			BuildTrace.setDisplayInformation("nest.download.gc", null);
+			if (saker.build.meta.Versions.VERSION_FULL_COMPOUND >= 8_009) {
+				BuildTrace.setValues(Collections.singletonMap("Retention millis", retentionMillis),
+						BuildTrace.VALUE_CATEGORY_TASK);
+			}
+		}
+		taskcontext.setStandardOutDisplayIdentifier(DownloadBundleTaskFactory.TASK_NAME);
+
+		List<SakerPath> paths = new ArrayList<>();
+		for (Object p : (Iterable<?>) bundlePaths.toResult(taskcontext)) {
+			if (p instanceof SakerPath) {
+				paths.add((SakerPath) p);
+			}
+		}
+		DownloadDirectoryGarbageCollector.collect(taskcontext, paths, retentionMillis);
+		return null;
+	}
+
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		out.writeObject(bundlePaths);
+		out.writeLong(retentionMillis);
+	}
+
+	@Override
+	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+		bundlePaths = (StructuredListTaskResult) in.readObject();
+		retentionMillis = in.readLong();
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((bundlePaths == null) ? 0 : bundlePaths.hashCode());
+		result = prime * result + (int) (retentionMillis ^ (retentionMillis >>> 32));
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		DownloadDirectoryGarbageCollectorWorkerTaskFactory other = (DownloadDirectoryGarbageCollectorWorkerTaskFactory) obj;
+		if (bundlePaths == null) {
+			if (other.bundlePaths != null)
+				return false;
+		} else if (!bundlePaths.equals(other.bundlePaths))
+			return false;
+		if (retentionMillis != other.retentionMillis)
+			return false;
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[" + (bundlePaths != null ? "bundlePaths=" + bundlePaths + ", " : "")
+				+ "retentionMillis=" + retentionMillis + "]";
+	}
+}
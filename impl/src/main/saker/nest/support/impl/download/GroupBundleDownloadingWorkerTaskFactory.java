@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.nest.support.impl.download;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import saker.build.runtime.execution.ExecutionContext;
+import saker.build.task.Task;
+import saker.build.task.TaskContext;
+import saker.build.task.TaskFactory;
+import saker.build.task.identifier.TaskIdentifier;
+import saker.build.thirdparty.saker.util.ImmutableUtils;
+import saker.build.thirdparty.saker.util.io.SerialUtils;
+import saker.build.thirdparty.saker.util.thread.ThreadUtils;
+import saker.build.trace.BuildTrace;
+import saker.nest.bundle.BundleKey;
+import saker.nest.support.api.download.DownloadBundleWorkerTaskOutput;
+import saker.nest.support.main.download.DownloadBundleTaskFactory;
+
+/**
+ * Worker task that downloads multiple bundles in a single task.
+ * <p>
+ * Starting a separate task for each bundle has a per task overhead in the build system that can be larger than the
+ * download itself when there are many bundles. This task downloads the bundles concurrently and reports the same
+ * dependencies as the single bundle download tasks would.
+ * <p>
+ * The bundle keys are expected to be distinct.
+ * <p>
+ * If {@linkplain #isExtract() extraction} is enabled, the bundles are extracted to directories in the same way as
+ * {@link BundleKeyExtractingWorkerTaskFactory} does.
+ */
+public class GroupBundleDownloadingWorkerTaskFactory implements TaskFactory<GroupDownloadWorkerTaskOutput>,
+		Task<GroupDownloadWorkerTaskOutput>, Externalizable, TaskIdentifier {
+	private static final long serialVersionUID = 1L;
+
+	private List<BundleKey> bundleKeys;
+	private boolean extract;
+
+	/**
+	 * For {@link Externalizable}.
+	 */
+	public GroupBundleDownloadingWorkerTaskFactory() {
+	}
+
+	public GroupBundleDownloadingWorkerTaskFactory(List<BundleKey> bundleKeys) {
+		this(bundleKeys, false);
+	}
+
+	public GroupBundleDownloadingWorkerTaskFactory(List<BundleKey> bundleKeys, boolean extract) {
+		this.bundleKeys = ImmutableUtils.makeImmutableList(bundleKeys);
+		this.extract = extract;
+	}
+
+	public boolean isExtract() {
+		return extract;
+	}
+
+	@Override
+	public Task<? extends GroupDownloadWorkerTaskOutput> createTask(ExecutionContext executioncontext) {
+		return this;
+	}
+
+	@Override
+	public GroupDownloadWorkerTaskOutput run(TaskContext taskcontext) throws Exception {
+		if (saker.build.meta.Versions.VERSION_FULL_COMPOUND >= 8_006) {
+			BuildTrace.classifyTask(BuildTrace.CLASSIFICATION_WORKER);
+			if (saker.build.meta.Versions.VERSION_FULL_COMPOUND >= 8_009) {
+				Map<String, Object> valmap = new LinkedHashMap<>();
+				valmap.put("Bundle identifiers",
+						bundleKeys.stream().map(bk -> bk.getBundleIdentifier().toString()).toArray());
+				valmap.put("Extract", extract);
+				BuildTrace.setValues(valmap, BuildTrace.VALUE_CATEGORY_TASK);
+			}
+		}
+		taskcontext.setStandardOutDisplayIdentifier(DownloadBundleTaskFactory.TASK_NAME);
+
+		Map<BundleKey, DownloadBundleWorkerTaskOutput> downloads = new ConcurrentHashMap<>();
+		ThreadUtils.runParallelItems(bundleKeys, bk -> {
+			if (extract) {
+				downloads.put(bk, BundleKeyExtractingWorkerTaskFactory.executeBundleKeyExtract(taskcontext, bk));
+			} else {
+				downloads.put(bk, BundleKeyDownloadingWorkerTaskFactory.executeBundleKeyDownload(taskcontext, bk));
+			}
+		});
+		List<DownloadBundleWorkerTaskOutput> outputs = new ArrayList<>(bundleKeys.size());
+		for (BundleKey bk : bundleKeys) {
+			outputs.add(downloads.get(bk));
+		}
+		return new GroupDownloadWorkerTaskOutput(outputs);
+	}
+
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		SerialUtils.writeExternalCollection(out, bundleKeys);
+		out.writeBoolean(extract);
+	}
+
+	@Override
+	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+		bundleKeys = SerialUtils.readExternalImmutableList(in);
+		extract = in.readBoolean();
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((bundleKeys == null) ? 0 : bundleKeys.hashCode());
+		result = prime * result + (extract ? 1231 : 1237);
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		GroupBundleDownloadingWorkerTaskFactory other = (GroupBundleDownloadingWorkerTaskFactory) obj;
+		if (bundleKeys == null) {
+			if (other.bundleKeys != null)
+				return false;
+		} else if (!bundleKeys.equals(other.bundleKeys))
+			return false;
+		if (extract != other.extract)
+			return false;
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[" + (bundleKeys != null ? "bundleKeys=" + bundleKeys + ", " : "")
+				+ "extract=" + extract + "]";
+	}
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.nest.support.impl.download;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.Objects;
+
+import saker.build.file.content.ContentDescriptor;
+import saker.build.file.path.SakerPath;
+import saker.build.task.dependencies.TaskOutputChangeDetector;
+import saker.nest.support.api.download.DownloadBundleWorkerTaskOutput;
+
+/**
+ * Detects if the download output of a given bundle in a {@link GroupDownloadWorkerTaskOutput} changed.
+ * <p>
+ * The output is considered to be changed if the download path or the content descriptor of the bundle changes.
+ */
+public class GroupDownloadElementTaskOutputChangeDetector implements TaskOutputChangeDetector, Externalizable {
+	private static final long serialVersionUID = 1L;
+
+	private int index;
+	private SakerPath path;
+	private ContentDescriptor contentDescriptor;
+
+	/**
+	 * For {@link Externalizable}.
+	 */
+	public GroupDownloadElementTaskOutputChangeDetector() {
+	}
+
+	public GroupDownloadElementTaskOutputChangeDetector(int index, DownloadBundleWorkerTaskOutput output) {
+		this.index = index;
+		if (output != null) {
+			this.path = output.getPath();
+			this.contentDescriptor = output.getContentDescriptor();
+		}
+	}
+
+	@Override
+	public boolean isChanged(Object taskoutput) {
+		DownloadBundleWorkerTaskOutput bundleoutput = GroupDownloadWorkerTaskOutput.getBundleOutput(taskoutput, index);
+		if (bundleoutput == null) {
+			return true;
+		}
+		return !Objects.equals(path, bundleoutput.getPath())
+				|| !Objects.equals(contentDescriptor, bundleoutput.getContentDescriptor());
+	}
+
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		out.writeInt(index);
+		out.writeObject(path);
+		out.writeObject(contentDescriptor);
+	}
+
+	@Override
+	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+		index = in.readInt();
+		path = (SakerPath) in.readObject();
+		contentDescriptor = (ContentDescriptor) in.readObject();
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + index;
+		result = prime * result + ((path == null) ? 0 : path.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		GroupDownloadElementTaskOutputChangeDetector other = (GroupDownloadElementTaskOutputChangeDetector) obj;
+		if (index != other.index)
+			return false;
+		if (path == null) {
+			if (other.path != null)
+				return false;
+		} else if (!path.equals(other.path))
+			return false;
+		if (contentDescriptor == null) {
+			if (other.contentDescriptor != null)
+				return false;
+		} else if (!contentDescriptor.equals(other.contentDescriptor))
+			return false;
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[" + index + ": " + path + "]";
+	}
+}
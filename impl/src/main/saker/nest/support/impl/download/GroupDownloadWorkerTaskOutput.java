@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.nest.support.impl.download;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.List;
+
+import saker.build.thirdparty.saker.util.ImmutableUtils;
+import saker.build.thirdparty.saker.util.io.SerialUtils;
+import saker.nest.support.api.download.DownloadBundleWorkerTaskOutput;
+
+/**
+ * Output of the grouped bundle download worker task.
+ * <p>
+ * Contains the download output of each bundle in the same order as the bundles were specified.
+ */
+public class GroupDownloadWorkerTaskOutput implements Externalizable {
+	private static final long serialVersionUID = 1L;
+
+	private List<DownloadBundleWorkerTaskOutput> bundleOutputs;
+
+	/**
+	 * For {@link Externalizable}.
+	 */
+	public GroupDownloadWorkerTaskOutput() {
+	}
+
+	public GroupDownloadWorkerTaskOutput(List<? extends DownloadBundleWorkerTaskOutput> bundleOutputs) {
+		this.bundleOutputs = ImmutableUtils.makeImmutableList(bundleOutputs);
+	}
+
+	public List<DownloadBundleWorkerTaskOutput> getBundleOutputs() {
+		return bundleOutputs;
+	}
+
+	/**
+	 * Gets the download output of a bundle from a task output.
+	 *
+	 * @return The output or <code>null</code> if not found.
+	 */
+	public static DownloadBundleWorkerTaskOutput getBundleOutput(Object taskoutput, int index) {
+		if (!(taskoutput instanceof GroupDownloadWorkerTaskOutput)) {
+			return null;
+		}
+		List<DownloadBundleWorkerTaskOutput> outputs = ((GroupDownloadWorkerTaskOutput) taskoutput).bundleOutputs;
+		if (index < 0 || index >= outputs.size()) {
+			return null;
+		}
+		return outputs.get(index);
+	}
+
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		SerialUtils.writeExternalCollection(out, bundleOutputs);
+	}
+
+	@Override
+	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+		bundleOutputs = SerialUtils.readExternalImmutableList(in);
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[" + bundleOutputs + "]";
+	}
+}
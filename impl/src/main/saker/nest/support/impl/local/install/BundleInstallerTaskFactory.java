@@ -37,8 +37,10 @@ import saker.nest.bundle.BundleIdentifier;
 import saker.nest.bundle.BundleKey;
 import saker.nest.bundle.storage.LocalBundleStorageView;
 import saker.nest.bundle.storage.LocalBundleStorageView.InstallResult;
+import saker.nest.support.api.dependency.DependencyResolutionUtils;
 import saker.nest.support.api.local.install.LocalInstallWorkerTaskOutput;
 import saker.nest.support.impl.util.BundleKeyContentDescriptorExecutionProperty;
+import saker.nest.support.impl.util.LocalStorageChangeTracker;
 import saker.nest.support.main.local.install.LocalInstallTaskFactory;
 
 public class BundleInstallerTaskFactory implements TaskFactory<LocalInstallWorkerTaskOutput>, Externalizable {
@@ -95,6 +97,9 @@ public class BundleInstallerTaskFactory implements TaskFactory<LocalInstallWorke
 					LocalBundleStorageView storageview = localstorageproperty.getStorageView();
 					installresult = storageview.install(bundlefile);
 					installedbundleid = installresult.getBundleIdentifier();
+					//the bundle may have been recorded as missing, excluded, or loaded by a previous dependency resolution
+					DependencyResolutionUtils.invalidateBundleLookupCaches(installedbundleid);
+					LocalStorageChangeTracker.invalidateAll();
 					SakerLog.success().out(taskcontext).verbose()
 							.println("Bundle successfully installed: " + installedbundleid);
 
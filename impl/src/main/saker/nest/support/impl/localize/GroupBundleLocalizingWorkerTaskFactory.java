@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.nest.support.impl.localize;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import saker.build.file.path.SakerPath;
+import saker.build.runtime.execution.ExecutionContext;
+import saker.build.task.Task;
+import saker.build.task.TaskContext;
+import saker.build.task.TaskFactory;
+import saker.build.task.identifier.TaskIdentifier;
+import saker.build.task.utils.dependencies.EqualityTaskOutputChangeDetector;
+import saker.build.thirdparty.saker.util.ImmutableUtils;
+import saker.build.thirdparty.saker.util.io.SerialUtils;
+import saker.build.trace.BuildTrace;
+import saker.nest.bundle.BundleKey;
+import saker.nest.support.impl.util.BundleKeysLocalPathExecutionProperty;
+import saker.nest.support.main.localize.LocalizeBundleTaskFactory;
+
+/**
+ * Worker task that localizes multiple bundles in a single task.
+ * <p>
+ * The local paths of the bundles are retrieved using a single {@link BundleKeysLocalPathExecutionProperty}, so an
+ * incremental build only checks one execution property for all bundles in the group instead of one for each bundle.
+ * <p>
+ * The bundle keys are expected to be distinct.
+ */
+public class GroupBundleLocalizingWorkerTaskFactory implements TaskFactory<GroupLocalizeWorkerTaskOutput>,
+		Task<GroupLocalizeWorkerTaskOutput>, Externalizable, TaskIdentifier {
+	private static final long serialVersionUID = 1L;
+
+	private List<BundleKey> bundleKeys;
+
+	/**
+	 * For {@link Externalizable}.
+	 */
+	public GroupBundleLocalizingWorkerTaskFactory() {
+	}
+
+	public GroupBundleLocalizingWorkerTaskFactory(List<BundleKey> bundleKeys) {
+		this.bundleKeys = ImmutableUtils.makeImmutableList(bundleKeys);
+	}
+
+	@Override
+	public Task<? extends GroupLocalizeWorkerTaskOutput> createTask(ExecutionContext executioncontext) {
+		return this;
+	}
+
+	@Override
+	public GroupLocalizeWorkerTaskOutput run(TaskContext taskcontext) throws Exception {
+		if (saker.build.meta.Versions.VERSION_FULL_COMPOUND >= 8_006) {
+			BuildTrace.classifyTask(BuildTrace.CLASSIFICATION_WORKER);
+			if (saker.build.meta.Versions.VERSION_FULL_COMPOUND >= 8_009) {
+				Map<String, Object> valmap = new LinkedHashMap<>();
+				valmap.put("Bundle identifiers",
+						bundleKeys.stream().map(bk -> bk.getBundleIdentifier().toString()).toArray());
+				BuildTrace.setValues(valmap, BuildTrace.VALUE_CATEGORY_TASK);
+			}
+		}
+		taskcontext.setStandardOutDisplayIdentifier(LocalizeBundleTaskFactory.TASK_NAME);
+
+		List<SakerPath> localpaths = taskcontext.getTaskUtilities()
+				.getReportExecutionDependency(new BundleKeysLocalPathExecutionProperty(bundleKeys));
+
+		List<LocalizeWorkerTaskOutputImpl> outputs = new ArrayList<>(bundleKeys.size());
+		for (int i = 0; i < bundleKeys.size(); i++) {
+			outputs.add(new LocalizeWorkerTaskOutputImpl(bundleKeys.get(i), localpaths.get(i)));
+		}
+		GroupLocalizeWorkerTaskOutput result = new GroupLocalizeWorkerTaskOutput(outputs);
+		taskcontext.reportSelfTaskOutputChangeDetector(new EqualityTaskOutputChangeDetector(result));
+		return result;
+	}
+
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		SerialUtils.writeExternalCollection(out, bundleKeys);
+	}
+
+	@Override
+	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+		bundleKeys = SerialUtils.readExternalImmutableList(in);
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((bundleKeys == null) ? 0 : bundleKeys.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		GroupBundleLocalizingWorkerTaskFactory other = (GroupBundleLocalizingWorkerTaskFactory) obj;
+		if (bundleKeys == null) {
+			if (other.bundleKeys != null)
+				return false;
+		} else if (!bundleKeys.equals(other.bundleKeys))
+			return false;
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[" + (bundleKeys != null ? "bundleKeys=" + bundleKeys : "") + "]";
+	}
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.nest.support.impl.localize;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.Objects;
+
+import saker.build.task.dependencies.TaskOutputChangeDetector;
+import saker.nest.support.api.localize.LocalizeBundleWorkerTaskOutput;
+
+/**
+ * Detects if the localization output of a given bundle in a {@link GroupLocalizeWorkerTaskOutput} changed.
+ */
+public class GroupLocalizeElementTaskOutputChangeDetector implements TaskOutputChangeDetector, Externalizable {
+	private static final long serialVersionUID = 1L;
+
+	private int index;
+	private LocalizeBundleWorkerTaskOutput output;
+
+	/**
+	 * For {@link Externalizable}.
+	 */
+	public GroupLocalizeElementTaskOutputChangeDetector() {
+	}
+
+	public GroupLocalizeElementTaskOutputChangeDetector(int index, LocalizeBundleWorkerTaskOutput output) {
+		this.index = index;
+		this.output = output;
+	}
+
+	@Override
+	public boolean isChanged(Object taskoutput) {
+		LocalizeBundleWorkerTaskOutput bundleoutput = GroupLocalizeWorkerTaskOutput.getBundleOutput(taskoutput, index);
+		if (bundleoutput == null) {
+			return true;
+		}
+		return !Objects.equals(output, bundleoutput);
+	}
+
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		out.writeInt(index);
+		out.writeObject(output);
+	}
+
+	@Override
+	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+		index = in.readInt();
+		output = (LocalizeBundleWorkerTaskOutput) in.readObject();
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + index;
+		result = prime * result + ((output == null) ? 0 : output.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		GroupLocalizeElementTaskOutputChangeDetector other = (GroupLocalizeElementTaskOutputChangeDetector) obj;
+		if (index != other.index)
+			return false;
+		if (output == null) {
+			if (other.output != null)
+				return false;
+		} else if (!output.equals(other.output))
+			return false;
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[" + index + ": " + output + "]";
+	}
+}
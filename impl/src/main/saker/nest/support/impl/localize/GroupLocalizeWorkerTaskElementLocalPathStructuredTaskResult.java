@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.nest.support.impl.localize;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+import saker.build.task.TaskResultDependencyHandle;
+import saker.build.task.TaskResultResolver;
+import saker.build.task.identifier.TaskIdentifier;
+import saker.build.task.utils.StructuredTaskResult;
+import saker.nest.support.api.localize.LocalizeBundleWorkerTaskOutput;
+
+/**
+ * Structured task result of the local path of a single bundle in the output of a grouped localization worker
+ * task.
+ * <p>
+ * Only reports a dependency on the localization output of the associated bundle.
+ */
+public class GroupLocalizeWorkerTaskElementLocalPathStructuredTaskResult
+		implements StructuredTaskResult, Externalizable {
+	private static final long serialVersionUID = 1L;
+
+	private TaskIdentifier groupTaskId;
+	private int index;
+
+	/**
+	 * For {@link Externalizable}.
+	 */
+	public GroupLocalizeWorkerTaskElementLocalPathStructuredTaskResult() {
+	}
+
+	public GroupLocalizeWorkerTaskElementLocalPathStructuredTaskResult(TaskIdentifier groupTaskId, int index) {
+		this.groupTaskId = groupTaskId;
+		this.index = index;
+	}
+
+	@Override
+	public Object toResult(TaskResultResolver results) {
+		TaskResultDependencyHandle dephandle = results.getTaskResultDependencyHandle(groupTaskId);
+		LocalizeBundleWorkerTaskOutput bundleoutput = GroupLocalizeWorkerTaskOutput.getBundleOutput(dephandle.get(),
+				index);
+		dephandle.setTaskOutputChangeDetector(new GroupLocalizeElementTaskOutputChangeDetector(index, bundleoutput));
+		if (bundleoutput == null) {
+			return null;
+		}
+		return bundleoutput.getLocalPath();
+	}
+
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		out.writeObject(groupTaskId);
+		out.writeInt(index);
+	}
+
+	@Override
+	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+		groupTaskId = (TaskIdentifier) in.readObject();
+		index = in.readInt();
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((groupTaskId == null) ? 0 : groupTaskId.hashCode());
+		result = prime * result + index;
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		GroupLocalizeWorkerTaskElementLocalPathStructuredTaskResult other = (GroupLocalizeWorkerTaskElementLocalPathStructuredTaskResult) obj;
+		if (groupTaskId == null) {
+			if (other.groupTaskId != null)
+				return false;
+		} else if (!groupTaskId.equals(other.groupTaskId))
+			return false;
+		if (index != other.index)
+			return false;
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[" + groupTaskId + ": " + index + "]";
+	}
+}
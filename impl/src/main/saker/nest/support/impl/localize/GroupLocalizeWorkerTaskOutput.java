@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.nest.support.impl.localize;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.List;
+
+import saker.build.thirdparty.saker.util.ImmutableUtils;
+import saker.build.thirdparty.saker.util.io.SerialUtils;
+import saker.nest.support.api.localize.LocalizeBundleWorkerTaskOutput;
+
+/**
+ * Output of the grouped bundle localization worker task.
+ * <p>
+ * Contains the localization output of each bundle in the same order as the bundles were specified.
+ */
+public class GroupLocalizeWorkerTaskOutput implements Externalizable {
+	private static final long serialVersionUID = 1L;
+
+	private List<LocalizeBundleWorkerTaskOutput> bundleOutputs;
+
+	/**
+	 * For {@link Externalizable}.
+	 */
+	public GroupLocalizeWorkerTaskOutput() {
+	}
+
+	public GroupLocalizeWorkerTaskOutput(List<? extends LocalizeBundleWorkerTaskOutput> bundleOutputs) {
+		this.bundleOutputs = ImmutableUtils.makeImmutableList(bundleOutputs);
+	}
+
+	public List<LocalizeBundleWorkerTaskOutput> getBundleOutputs() {
+		return bundleOutputs;
+	}
+
+	/**
+	 * Gets the localization output of a bundle from a task output.
+	 *
+	 * @return The output or <code>null</code> if not found.
+	 */
+	public static LocalizeBundleWorkerTaskOutput getBundleOutput(Object taskoutput, int index) {
+		if (!(taskoutput instanceof GroupLocalizeWorkerTaskOutput)) {
+			return null;
+		}
+		List<LocalizeBundleWorkerTaskOutput> outputs = ((GroupLocalizeWorkerTaskOutput) taskoutput).bundleOutputs;
+		if (index < 0 || index >= outputs.size()) {
+			return null;
+		}
+		return outputs.get(index);
+	}
+
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		SerialUtils.writeExternalCollection(out, bundleOutputs);
+	}
+
+	@Override
+	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+		bundleOutputs = SerialUtils.readExternalImmutableList(in);
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((bundleOutputs == null) ? 0 : bundleOutputs.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		GroupLocalizeWorkerTaskOutput other = (GroupLocalizeWorkerTaskOutput) obj;
+		if (bundleOutputs == null) {
+			if (other.bundleOutputs != null)
+				return false;
+		} else if (!bundleOutputs.equals(other.bundleOutputs))
+			return false;
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[" + bundleOutputs + "]";
+	}
+}
@@ -54,6 +54,28 @@ public class LocalizeBundleTaskOutputImpl implements LocalizeBundleTaskOutput, E
 		this.bundlePaths = new SimpleStructuredListTaskResult(bundlepaths);
 	}
 
+	/**
+	 * Creates a new instance for bundles that were localized by {@link GroupBundleLocalizingWorkerTaskFactory} tasks.
+	 * 
+	 * @param groupworkertaskids
+	 *            The task identifiers of the grouped localization worker tasks for each bundle.
+	 * @param groupindices
+	 *            The index of each bundle in the associated group worker task.
+	 */
+	public LocalizeBundleTaskOutputImpl(List<? extends TaskIdentifier> groupworkertaskids, List<Integer> groupindices) {
+		List<StructuredTaskResult> bundlepaths = new ArrayList<>();
+		List<StructuredTaskResult> localizeresults = new ArrayList<>();
+		for (int i = 0; i < groupworkertaskids.size(); i++) {
+			TaskIdentifier grouptaskid = groupworkertaskids.get(i);
+			int idx = groupindices.get(i);
+			localizeresults.add(new GroupLocalizeWorkerTaskElementStructuredTaskResult(grouptaskid, idx));
+			bundlepaths.add(new GroupLocalizeWorkerTaskElementLocalPathStructuredTaskResult(grouptaskid, idx));
+		}
+
+		this.localizeResults = new SimpleStructuredListTaskResult(localizeresults);
+		this.bundlePaths = new SimpleStructuredListTaskResult(bundlepaths);
+	}
+
 	@Override
 	public StructuredListTaskResult getBundleLocalPaths() {
 		return bundlePaths;
@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.nest.support.impl.server.upload;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import saker.build.file.SakerFile;
+import saker.build.file.path.ProviderHolderPathKey;
+import saker.build.runtime.execution.ExecutionContext;
+import saker.build.runtime.execution.SakerLog;
+import saker.build.task.TaskContext;
+import saker.build.trace.BuildTrace;
+import saker.nest.bundle.BundleIdentifier;
+import saker.nest.bundle.storage.ServerStorageUtils;
+import saker.nest.bundle.storage.ServerStorageUtils.UploadResult;
+
+/**
+ * Executes the bundle upload requests with limited parallelism and retries.
+ * <p>
+ * The uploads to the same server with the same {@linkplain BundleUploadSettings#getParallelism() parallelism} share a
+ * build scoped limit, so at most that many upload requests are in progress at the same time. The upload worker tasks
+ * wait for their turn.
+ * <p>
+ * A failed upload attempt is retried after a delay that is doubled for each retry. The limit is released while
+ * waiting for the retry. Only the transient failures are retried, that is, I/O errors and server errors with HTTP 5xx
+ * status. The requests rejected by the server with HTTP 4xx status (e.g. authentication failure or already existing
+ * bundle) are not retried, as they would fail again. As the upload request reports the failure status only in the
+ * exception message, the status code is parsed from the <code>response code: NNN</code> part of it. Other numbers in
+ * the message, like the port of the server, are not considered.
+ * <p>
+ * The upload requests are executed on the calling thread, so an attempt holds the limit until it completes. The
+ * connection and read timeouts are the ones used by {@link ServerStorageUtils}.
+ * <p>
+ * The number of attempts, the upload time and the throughput are reported to the build trace of the calling task.
+ */
+public final class BundleUploadExecutor {
+	private static final long MAX_RETRY_DELAY_MILLIS = 60 * 1000;
+	private static final Pattern HTTP_RESPONSE_CODE_PATTERN = Pattern.compile("response code: ([0-9]{3})(?![0-9])");
+
+	private static final Map<ExecutionContext, Map<UploadLimitKey, Semaphore>> EXECUTION_LIMITS = new WeakHashMap<>();
+
+	private BundleUploadExecutor() {
+		throw new UnsupportedOperationException();
+	}
+
+	public static UploadResult upload(TaskContext taskcontext, String server, BundleIdentifier bundleid,
+			SakerFile file, byte[] apiKey, byte[] apiSecret, Boolean overwrite, BundleUploadSettings settings)
+			throws Exception {
+		Semaphore limit = getLimit(taskcontext.getExecutionContext(), server, settings.getParallelism());
+		long size = saker.build.meta.Versions.VERSION_FULL_COMPOUND >= 8_009 ? getFileSize(taskcontext, file) : -1;
+		for (int attempt = 1;; ++attempt) {
+			Exception failure;
+			long starttime = 0;
+			UploadResult result = null;
+			limit.acquire();
+			try {
+				starttime = System.nanoTime();
+				result = ServerStorageUtils.uploadBundle(server, bundleid, file, apiKey, apiSecret, overwrite);
+				failure = null;
+			} catch (Exception e) {
+				failure = e;
+			} finally {
+				limit.release();
+			}
+			if (failure == null) {
+				if (saker.build.meta.Versions.VERSION_FULL_COMPOUND >= 8_009) {
+					reportUploadMetrics(size, attempt, System.nanoTime() - starttime);
+				}
+				return result;
+			}
+			if (!isTransientFailure(failure)) {
+				throw failure;
+			}
+			if (attempt > settings.getRetryCount()) {
+				throw new IOException("Failed to upload bundle: " + bundleid + " (attempts: " + attempt + ")",
+						failure);
+			}
+			long delay = getRetryDelayMillis(settings.getRetryDelayMillis(), attempt);
+			SakerLog.warning().out(taskcontext).println(
+					"Failed to upload bundle: " + bundleid + ", retrying in " + delay + " ms. (" + failure + ")");
+			Thread.sleep(delay);
+		}
+	}
+
+	private static long getFileSize(TaskContext taskcontext, SakerFile file) {
+		try {
+			ProviderHolderPathKey pathkey = taskcontext.getExecutionContext().getPathConfiguration()
+					.getPathKey(file.getSakerPath());
+			return pathkey.getFileProvider().getFileAttributes(pathkey.getPath()).size();
+		} catch (IOException e) {
+			//not reported
+			return -1;
+		}
+	}
+
+	private static void reportUploadMetrics(long size, int attempts, long nanos) {
+		long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+		Map<String, Object> valmap = new LinkedHashMap<>();
+		valmap.put("Attempts", attempts);
+		valmap.put("Upload time (ms)", millis);
+		if (size >= 0) {
+			valmap.put("Size", size);
+			valmap.put("Throughput (KiB/s)", size * 1000 / 1024 / Math.max(millis, 1));
+		}
+		BuildTrace.setValues(valmap, BuildTrace.VALUE_CATEGORY_TASK);
+	}
+
+	private static long getRetryDelayMillis(long basedelay, int attempt) {
+		if (basedelay <= 0) {
+			return 0;
+		}
+		long delay = basedelay;
+		for (int i = 1; i < attempt && delay < MAX_RETRY_DELAY_MILLIS; i++) {
+			delay *= 2;
+		}
+		return Math.min(delay, MAX_RETRY_DELAY_MILLIS);
+	}
+
+	private static boolean isTransientFailure(Exception failure) {
+		if (!(failure instanceof IOException)) {
+			return false;
+		}
+		for (Throwable t = failure; t != null; t = t.getCause()) {
+			String msg = t.getMessage();
+			if (msg == null) {
+				continue;
+			}
+			Matcher matcher = HTTP_RESPONSE_CODE_PATTERN.matcher(msg);
+			if (matcher.find() && matcher.group(1).charAt(0) == '4') {
+				//the request was rejected by the server
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static Semaphore getLimit(ExecutionContext executioncontext, String server, int parallelism) {
+		synchronized (EXECUTION_LIMITS) {
+			return EXECUTION_LIMITS.computeIfAbsent(executioncontext, x -> new HashMap<>())
+					.computeIfAbsent(new UploadLimitKey(server, parallelism), k -> new Semaphore(parallelism));
+		}
+	}
+
+	private static final class UploadLimitKey {
+		private final String server;
+		private final int parallelism;
+
+		public UploadLimitKey(String server, int parallelism) {
+			this.server = server;
+			this.parallelism = parallelism;
+		}
+
+		@Override
+		public int hashCode() {
+			return server.hashCode() * 31 + parallelism;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (obj == null)
+				return false;
+			if (getClass() != obj.getClass())
+				return false;
+			UploadLimitKey other = (UploadLimitKey) obj;
+			return parallelism == other.parallelism && Objects.equals(server, other.server);
+		}
+	}
+}
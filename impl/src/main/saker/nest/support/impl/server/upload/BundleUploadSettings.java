@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.nest.support.impl.server.upload;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+/**
+ * Settings of the bundle upload requests.
+ * 
+ * @see BundleUploadExecutor
+ */
+public class BundleUploadSettings implements Externalizable {
+	private static final long serialVersionUID = 1L;
+
+	public static final int DEFAULT_PARALLELISM = 4;
+	public static final int DEFAULT_RETRY_COUNT = 3;
+	public static final long DEFAULT_RETRY_DELAY_MILLIS = 1000;
+
+	public static final BundleUploadSettings DEFAULT = new BundleUploadSettings(DEFAULT_PARALLELISM,
+			DEFAULT_RETRY_COUNT, DEFAULT_RETRY_DELAY_MILLIS);
+
+	private int parallelism;
+	private int retryCount;
+	private long retryDelayMillis;
+
+	/**
+	 * For {@link Externalizable}.
+	 */
+	public BundleUploadSettings() {
+	}
+
+	public BundleUploadSettings(int parallelism, int retryCount, long retryDelayMillis) {
+		this.parallelism = parallelism;
+		this.retryCount = retryCount;
+		this.retryDelayMillis = retryDelayMillis;
+	}
+
+	/**
+	 * Gets the maximum number of concurrent uploads to the same server.
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * Gets the number of times a failed upload is retried.
+	 */
+	public int getRetryCount() {
+		return retryCount;
+	}
+
+	/**
+	 * Gets the delay before the first retry. The delay is doubled for each subsequent retry.
+	 */
+	public long getRetryDelayMillis() {
+		return retryDelayMillis;
+	}
+
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		out.writeInt(parallelism);
+		out.writeInt(retryCount);
+		out.writeLong(retryDelayMillis);
+	}
+
+	@Override
+	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+		parallelism = in.readInt();
+		retryCount = in.readInt();
+		retryDelayMillis = in.readLong();
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + parallelism;
+		result = prime * result + retryCount;
+		result = prime * result + (int) (retryDelayMillis ^ (retryDelayMillis >>> 32));
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		BundleUploadSettings other = (BundleUploadSettings) obj;
+		if (parallelism != other.parallelism)
+			return false;
+		if (retryCount != other.retryCount)
+			return false;
+		if (retryDelayMillis != other.retryDelayMillis)
+			return false;
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[parallelism=" + parallelism + ", retryCount=" + retryCount
+				+ ", retryDelayMillis=" + retryDelayMillis + "]";
+	}
+}
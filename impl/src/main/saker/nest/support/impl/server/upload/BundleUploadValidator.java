@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.nest.support.impl.server.upload;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.jar.JarFile;
+import java.util.jar.JarInputStream;
+
+import saker.build.file.SakerFile;
+import saker.build.file.path.SakerPath;
+import saker.build.runtime.execution.SakerLog;
+import saker.build.task.TaskContext;
+import saker.build.thirdparty.saker.util.thread.ThreadUtils;
+import saker.nest.bundle.BundleIdentifier;
+import saker.nest.bundle.BundleInformation;
+
+/**
+ * Validates the bundles before any of them is uploaded.
+ * <p>
+ * Also used by the local install task to validate the bundles before any of them is installed.
+ * <p>
+ * The bundles are opened concurrently, and their manifests, identifiers and dependency files are validated by
+ * constructing their {@link BundleInformation}. The bundles are read from the mirrored files using random access, so
+ * only the entries needed for the validation are read. If a file cannot be mirrored, it is read sequentially.
+ * <p>
+ * The validation fails if any of the bundles are invalid, or multiple files have the same bundle identifier.
+ */
+public final class BundleUploadValidator {
+	private BundleUploadValidator() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Validates the bundles.
+	 * <p>
+	 * The validation errors are printed for each file.
+	 * 
+	 * @return The bundle identifiers of the files.
+	 * @throws IllegalArgumentException
+	 *             If the validation fails. The errors of the bundles are added as suppressed exceptions.
+	 */
+	public static NavigableMap<SakerPath, BundleIdentifier> validate(TaskContext taskcontext,
+			NavigableMap<SakerPath, SakerFile> files) throws IllegalArgumentException {
+		NavigableMap<SakerPath, BundleIdentifier> bundleids = new ConcurrentSkipListMap<>();
+		NavigableMap<SakerPath, Throwable> errors = new ConcurrentSkipListMap<>();
+		ThreadUtils.runParallelItems(files.entrySet(), entry -> {
+			try {
+				bundleids.put(entry.getKey(),
+						readBundleInformation(taskcontext, entry.getValue()).getBundleIdentifier());
+			} catch (Exception e) {
+				errors.put(entry.getKey(), e);
+			}
+		});
+		Map<BundleIdentifier, SakerPath> idpaths = new HashMap<>();
+		for (Map.Entry<SakerPath, BundleIdentifier> entry : bundleids.entrySet()) {
+			SakerPath prev = idpaths.putIfAbsent(entry.getValue(), entry.getKey());
+			if (prev != null) {
+				errors.put(entry.getKey(), new IllegalArgumentException(
+						"Duplicate bundle identifier: " + entry.getValue() + " (also in " + prev + ")"));
+			}
+		}
+		if (!errors.isEmpty()) {
+			IllegalArgumentException exc = new IllegalArgumentException(
+					"Bundle validation failed for " + errors.size() + " file(s). None of the bundles were processed.");
+			for (Map.Entry<SakerPath, Throwable> entry : errors.entrySet()) {
+				SakerLog.error().out(taskcontext)
+						.println("Invalid bundle: " + entry.getKey() + " (" + entry.getValue() + ")");
+				exc.addSuppressed(entry.getValue());
+			}
+			throw exc;
+		}
+		return bundleids;
+	}
+
+	private static BundleInformation readBundleInformation(TaskContext taskcontext, SakerFile file)
+			throws IOException {
+		Path mirrorpath;
+		try {
+			mirrorpath = taskcontext.mirror(file);
+		} catch (Exception e) {
+			mirrorpath = null;
+		}
+		if (mirrorpath != null) {
+			try (JarFile jar = new JarFile(mirrorpath.toFile())) {
+				return new BundleInformation(jar);
+			}
+		}
+		try (InputStream fileis = file.openInputStream();
+				JarInputStream jaris = new JarInputStream(fileis)) {
+			return new BundleInformation(jaris);
+		}
+	}
+}
@@ -40,7 +40,6 @@ import saker.build.trace.BuildTrace;
 import saker.build.util.property.BuildTimeExecutionProperty;
 import saker.nest.bundle.BundleIdentifier;
 import saker.nest.bundle.BundleInformation;
-import saker.nest.bundle.storage.ServerStorageUtils;
 import saker.nest.bundle.storage.ServerStorageUtils.UploadResult;
 import saker.nest.exc.InvalidNestBundleException;
 import saker.nest.support.api.server.upload.BundleUploadWorkerTaskOutput;
@@ -55,6 +54,7 @@ public class BundleUploadWorkerTaskFactory
 	private String server;
 	private byte[] apiKey;
 	private byte[] apiSecret;
+	private BundleUploadSettings settings;
 
 	/**
 	 * For {@link Externalizable}.
@@ -64,11 +64,17 @@ public class BundleUploadWorkerTaskFactory
 
 	public BundleUploadWorkerTaskFactory(SakerPath bundlePath, Boolean overwrite, String server, byte[] apiKey,
 			byte[] apiSecret) {
+		this(bundlePath, overwrite, server, apiKey, apiSecret, BundleUploadSettings.DEFAULT);
+	}
+
+	public BundleUploadWorkerTaskFactory(SakerPath bundlePath, Boolean overwrite, String server, byte[] apiKey,
+			byte[] apiSecret, BundleUploadSettings settings) {
 		this.bundlePath = bundlePath;
 		this.overwrite = overwrite;
 		this.server = server;
 		this.apiKey = apiKey;
 		this.apiSecret = apiSecret;
+		this.settings = settings;
 	}
 
 	@Override
@@ -83,6 +89,8 @@ public class BundleUploadWorkerTaskFactory
 				if (overwrite != null) {
 					valmap.put("Overwrite", overwrite);
 				}
+				valmap.put("Parallelism", settings.getParallelism());
+				valmap.put("Retry count", settings.getRetryCount());
 				BuildTrace.setValues(valmap, BuildTrace.VALUE_CATEGORY_TASK);
 			}
 		}
@@ -108,7 +116,8 @@ public class BundleUploadWorkerTaskFactory
 
 		String url = server;
 		BundleIdentifier bundleid = bundleinfo.getBundleIdentifier();
-		UploadResult uploadresult = ServerStorageUtils.uploadBundle(url, bundleid, file, apiKey, apiSecret, overwrite);
+		UploadResult uploadresult = BundleUploadExecutor.upload(taskcontext, url, bundleid, file, apiKey, apiSecret,
+				overwrite, settings);
 		SakerLog.success().verbose()
 				.println("Uploaded bundle: " + bundleid + "\n    SHA256: "
 						+ StringUtils.toHexString(uploadresult.getSHA256Hash()) + "\n    MD5: "
@@ -143,6 +152,7 @@ public class BundleUploadWorkerTaskFactory
 		out.writeObject(overwrite);
 		out.writeObject(apiKey);
 		out.writeObject(apiSecret);
+		out.writeObject(settings);
 	}
 
 	@Override
@@ -152,6 +162,7 @@ public class BundleUploadWorkerTaskFactory
 		overwrite = (Boolean) in.readObject();
 		apiKey = (byte[]) in.readObject();
 		apiSecret = (byte[]) in.readObject();
+		settings = (BundleUploadSettings) in.readObject();
 	}
 
 	@Override
@@ -163,6 +174,7 @@ public class BundleUploadWorkerTaskFactory
 		result = prime * result + ((bundlePath == null) ? 0 : bundlePath.hashCode());
 		result = prime * result + ((overwrite == null) ? 0 : overwrite.hashCode());
 		result = prime * result + ((server == null) ? 0 : server.hashCode());
+		result = prime * result + ((settings == null) ? 0 : settings.hashCode());
 		return result;
 	}
 
@@ -194,6 +206,11 @@ public class BundleUploadWorkerTaskFactory
 				return false;
 		} else if (!server.equals(other.server))
 			return false;
+		if (settings == null) {
+			if (other.settings != null)
+				return false;
+		} else if (!settings.equals(other.settings))
+			return false;
 		return true;
 	}
 
@@ -201,7 +218,8 @@ public class BundleUploadWorkerTaskFactory
 	public String toString() {
 		return getClass().getSimpleName() + "[" + (bundlePath != null ? "bundlePath=" + bundlePath + ", " : "")
 				+ (overwrite != null ? "overwrite=" + overwrite + ", " : "")
-				+ (server != null ? "server=" + server : "") + "]";
+				+ (server != null ? "server=" + server + ", " : "")
+				+ (settings != null ? "settings=" + settings : "") + "]";
 	}
 
 }
\ No newline at end of file
@@ -24,8 +24,6 @@ import saker.build.runtime.execution.ExecutionContext;
 import saker.build.runtime.execution.ExecutionProperty;
 import saker.nest.bundle.BundleInformation;
 import saker.nest.bundle.BundleKey;
-import saker.nest.bundle.NestBundleClassLoader;
-import saker.nest.bundle.storage.BundleStorageView;
 
 public abstract class AbstractBundleInformationExecutionProperty<R> implements ExecutionProperty<R>, Externalizable {
 	private static final long serialVersionUID = 1L;
@@ -44,13 +42,8 @@ public abstract class AbstractBundleInformationExecutionProperty<R> implements E
 
 	@Override
 	public R getCurrentValue(ExecutionContext executioncontext) throws Exception {
-		NestBundleClassLoader cl = (NestBundleClassLoader) this.getClass().getClassLoader();
-		BundleStorageView storageview = cl.getBundleStorageConfiguration()
-				.getBundleStorageViewForKey(bundleKey.getStorageViewKey());
-		if (storageview == null) {
-			throw new IllegalArgumentException("Storage view not found: " + bundleKey.getStorageViewKey());
-		}
-		BundleInformation bundleinformation = storageview.getBundleInformation(bundleKey.getBundleIdentifier());
+		BundleInformation bundleinformation = StorageViewResolver.get(executioncontext)
+				.getBundleInformation(bundleKey);
 		return getPropertyValue(bundleinformation);
 	}
 
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.nest.support.impl.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import saker.nest.bundle.BundleIdentifier;
+import saker.nest.bundle.BundleInformation;
+import saker.nest.bundle.BundleKey;
+import saker.nest.bundle.DependencyConstraintConfiguration;
+import saker.nest.bundle.storage.StorageViewKey;
+
+/**
+ * Cache of the bundles that were excluded from the dependency resolution by the dependency constraints.
+ * <p>
+ * Determining if a bundle is excluded by the dependency constraints requires loading its bundle information. If the
+ * constraints rule out many versions of a bundle (e.g. because of the JRE version), the dependency resolution would
+ * load the information of every excluded version in every build. The cache records the exclusions for each storage
+ * view, so the excluded candidates can be dropped before their information is loaded.
+ * <p>
+ * The bundle information that the exclusion was determined from is recorded as well. The dependency resolution tasks
+ * report it as the expected value of the bundle information dependency, so they are reinvoked if the bundle is
+ * modified even if the candidate was pruned.
+ * <p>
+ * The cache is kept in memory as long as the bundle is loaded. The entries should be invalidated using
+ * {@link #invalidate(BundleIdentifier)} when a bundle is modified in a storage, e.g. installed to a local storage with
+ * the same version.
+ */
+public final class BundleConstraintExclusionCache {
+	private static final ConcurrentMap<StorageViewKey, StorageViewExclusions> STORAGE_VIEW_EXCLUSIONS = new ConcurrentHashMap<>();
+
+	private BundleConstraintExclusionCache() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Gets the bundle information if the bundle was recorded to be excluded by the given constraints.
+	 *
+	 * @return The bundle information that the exclusion was determined from, or <code>null</code> if the bundle is
+	 *             not recorded to be excluded.
+	 */
+	public static BundleInformation getExcludedBundleInformation(BundleKey bundlekey,
+			DependencyConstraintConfiguration constraints) {
+		StorageViewKey storagekey = bundlekey.getStorageViewKey();
+		if (storagekey == null || constraints == null) {
+			return null;
+		}
+		StorageViewExclusions exclusions = STORAGE_VIEW_EXCLUSIONS.get(storagekey);
+		if (exclusions == null) {
+			return null;
+		}
+		return exclusions.getExcluded(bundlekey.getBundleIdentifier(), constraints);
+	}
+
+	/**
+	 * Records that the bundle is excluded by the given constraints based on the argument bundle information.
+	 */
+	public static void addExcluded(BundleKey bundlekey, DependencyConstraintConfiguration constraints,
+			BundleInformation bundleinfo) {
+		StorageViewKey storagekey = bundlekey.getStorageViewKey();
+		if (storagekey == null || constraints == null) {
+			return;
+		}
+		STORAGE_VIEW_EXCLUSIONS.computeIfAbsent(storagekey, x -> new StorageViewExclusions())
+				.addExcluded(bundlekey.getBundleIdentifier(), constraints, bundleinfo);
+	}
+
+	/**
+	 * Removes the recorded exclusions for the given bundle in all storage views.
+	 * <p>
+	 * All versions of the bundle are invalidated.
+	 */
+	public static void invalidate(BundleIdentifier bundleid) {
+		BundleIdentifier withoutversion = bundleid.withoutMetaQualifiers();
+		for (StorageViewExclusions exclusions : STORAGE_VIEW_EXCLUSIONS.values()) {
+			exclusions.removeIf(withoutversion);
+		}
+	}
+
+	/**
+	 * Removes all recorded exclusions.
+	 */
+	public static void invalidateAll() {
+		STORAGE_VIEW_EXCLUSIONS.clear();
+	}
+
+	private static final class StorageViewExclusions {
+		private final ConcurrentMap<DependencyConstraintConfiguration, ConcurrentMap<BundleIdentifier, BundleInformation>> excludedBundles = new ConcurrentHashMap<>();
+
+		public BundleInformation getExcluded(BundleIdentifier bundleid, DependencyConstraintConfiguration constraints) {
+			ConcurrentMap<BundleIdentifier, BundleInformation> excluded = excludedBundles.get(constraints);
+			if (excluded == null) {
+				return null;
+			}
+			return excluded.get(bundleid);
+		}
+
+		public void addExcluded(BundleIdentifier bundleid, DependencyConstraintConfiguration constraints,
+				BundleInformation bundleinfo) {
+			excludedBundles.computeIfAbsent(constraints, x -> new ConcurrentHashMap<>()).put(bundleid, bundleinfo);
+		}
+
+		public void removeIf(BundleIdentifier withoutversion) {
+			for (ConcurrentMap<BundleIdentifier, BundleInformation> excluded : excludedBundles.values()) {
+				excluded.keySet().removeIf(bid -> withoutversion.equals(bid.withoutMetaQualifiers()));
+			}
+		}
+	}
+}
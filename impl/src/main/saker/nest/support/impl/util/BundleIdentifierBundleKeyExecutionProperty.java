@@ -25,9 +25,6 @@ import saker.build.runtime.execution.ExecutionContext;
 import saker.build.runtime.execution.ExecutionProperty;
 import saker.nest.bundle.BundleIdentifier;
 import saker.nest.bundle.BundleKey;
-import saker.nest.bundle.NestBundleClassLoader;
-import saker.nest.bundle.lookup.BundleInformationLookupResult;
-import saker.nest.bundle.lookup.BundleLookup;
 
 public class BundleIdentifierBundleKeyExecutionProperty implements ExecutionProperty<BundleKey>, Externalizable {
 	private static final long serialVersionUID = 1L;
@@ -47,10 +44,7 @@ public class BundleIdentifierBundleKeyExecutionProperty implements ExecutionProp
 
 	@Override
 	public BundleKey getCurrentValue(ExecutionContext executioncontext) throws Exception {
-		NestBundleClassLoader cl = (NestBundleClassLoader) this.getClass().getClassLoader();
-		BundleLookup lookup = cl.getBundleStorageConfiguration().getBundleLookup();
-		BundleInformationLookupResult lookupresult = lookup.lookupBundleInformation(bundleId);
-		return BundleKey.create(lookupresult.getStorageView().getStorageViewKey(), bundleId);
+		return StorageViewResolver.get(executioncontext).lookupBundleKey(bundleId);
 	}
 
 	@Override
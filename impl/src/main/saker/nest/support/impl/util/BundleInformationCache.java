@@ -0,0 +1,268 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.nest.support.impl.util;
+
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import saker.nest.bundle.BundleIdentifier;
+import saker.nest.bundle.BundleInformation;
+import saker.nest.bundle.JarNestRepositoryBundle;
+import saker.nest.bundle.NestBundleClassLoader;
+import saker.nest.bundle.NestRepositoryBundle;
+import saker.nest.bundle.storage.BundleStorageView;
+import saker.nest.bundle.storage.StorageViewKey;
+import saker.nest.exc.BundleLoadingFailedException;
+
+/**
+ * Environment level cache of the loaded bundle informations.
+ * <p>
+ * Loading the information of a bundle requires reading the manifest and the dependency information from the bundle.
+ * The cache keeps the bundle informations between builds, keyed by the storage view key and bundle identifier. The
+ * cache is checked before the bundle is retrieved from the storage:
+ * <ul>
+ * <li>The bundles in server storages are not modified after they've been published, so their informations are
+ * looked up only by the storage view key and bundle identifier, without retrieving the bundle.</li>
+ * <li>For other storages, the bundle is retrieved from the storage, which doesn't involve network access. The last
+ * modification time and size of the bundle archive is part of the key, so a modified bundle is loaded again. The
+ * contents of the bundle are not hashed.</li>
+ * </ul>
+ * The informations are softly referenced, so they are reclaimed by the garbage collector if the memory is needed. The
+ * number of entries is also limited to {@link #MAX_ENTRY_COUNT}. The entries are stored in two concurrent generations
+ * that approximate least recently used eviction, same as the version range match cache of the dependency resolution.
+ * <p>
+ * The cache lives as long as the repository classes are loaded, which is the lifetime of the build environment for
+ * build daemons.
+ */
+public final class BundleInformationCache {
+	public static final int MAX_ENTRY_COUNT = 16 * 1024;
+
+	private static final ReferenceQueue<BundleInformation> REFERENCE_QUEUE = new ReferenceQueue<>();
+
+	private static volatile ConcurrentMap<CacheKey, InformationReference> currentGeneration = new ConcurrentHashMap<>();
+	private static volatile ConcurrentMap<CacheKey, InformationReference> previousGeneration = new ConcurrentHashMap<>();
+
+	private BundleInformationCache() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Gets the information of the bundle, either from the cache, or by loading it from the storage view.
+	 *
+	 * @param statistics
+	 *            The statistics to record the cache hit or miss in. May be <code>null</code>.
+	 */
+	public static BundleInformation getBundleInformation(BundleStorageView storageview, BundleIdentifier bundleid,
+			Statistics statistics) throws BundleLoadingFailedException {
+		CacheKey key = createCacheKey(storageview, bundleid);
+		BundleInformation result = get(key);
+		if (result != null) {
+			if (statistics != null) {
+				statistics.hits.incrementAndGet();
+			}
+			return result;
+		}
+		if (statistics != null) {
+			statistics.misses.incrementAndGet();
+		}
+		result = storageview.getBundleInformation(bundleid);
+		put(key, result);
+		return result;
+	}
+
+	/**
+	 * Removes all entries from the cache.
+	 */
+	public static void invalidateAll() {
+		synchronized (BundleInformationCache.class) {
+			currentGeneration = new ConcurrentHashMap<>();
+			previousGeneration = new ConcurrentHashMap<>();
+		}
+	}
+
+	private static CacheKey createCacheKey(BundleStorageView storageview, BundleIdentifier bundleid)
+			throws BundleLoadingFailedException {
+		StorageViewKey storageviewkey = storageview.getStorageViewKey();
+		if (isServerStorageView(storageviewkey)) {
+			return new CacheKey(storageviewkey, bundleid, 0, 0, null);
+		}
+		NestRepositoryBundle bundle = storageview.getBundle(bundleid);
+		if (bundle instanceof JarNestRepositoryBundle) {
+			try {
+				BasicFileAttributes attrs = Files.readAttributes(((JarNestRepositoryBundle) bundle).getJarPath(),
+						BasicFileAttributes.class);
+				return new CacheKey(storageviewkey, bundleid, attrs.lastModifiedTime().toMillis(), attrs.size(),
+						null);
+			} catch (IOException e) {
+				//fall back to the hash
+			}
+		}
+		return new CacheKey(storageviewkey, bundleid, 0, 0, bundle.getHash());
+	}
+
+	private static boolean isServerStorageView(StorageViewKey storageviewkey) {
+		ClassLoader cl = BundleInformationCache.class.getClassLoader();
+		if (!(cl instanceof NestBundleClassLoader)) {
+			return false;
+		}
+		for (BundleStorageView sv : ((NestBundleClassLoader) cl).getBundleStorageConfiguration().getServerStorages()
+				.values()) {
+			if (storageviewkey.equals(sv.getStorageViewKey())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static BundleInformation get(CacheKey key) {
+		InformationReference ref = currentGeneration.get(key);
+		if (ref != null) {
+			BundleInformation result = ref.get();
+			if (result != null) {
+				return result;
+			}
+		}
+		ref = previousGeneration.get(key);
+		if (ref != null) {
+			BundleInformation result = ref.get();
+			if (result != null) {
+				//used recently, move to the current generation
+				put(key, result);
+				return result;
+			}
+		}
+		return null;
+	}
+
+	private static void put(CacheKey key, BundleInformation info) {
+		expungeStaleEntries();
+		ConcurrentMap<CacheKey, InformationReference> gen = currentGeneration;
+		gen.put(key, new InformationReference(key, info, REFERENCE_QUEUE));
+		if (gen.size() > MAX_ENTRY_COUNT / 2) {
+			synchronized (BundleInformationCache.class) {
+				if (currentGeneration == gen) {
+					//the entries that weren't used since the last rotation are dropped
+					previousGeneration = gen;
+					currentGeneration = new ConcurrentHashMap<>();
+				}
+			}
+		}
+	}
+
+	private static void expungeStaleEntries() {
+		for (Reference<? extends BundleInformation> ref; (ref = REFERENCE_QUEUE.poll()) != null;) {
+			InformationReference inforef = (InformationReference) ref;
+			currentGeneration.remove(inforef.key, inforef);
+			previousGeneration.remove(inforef.key, inforef);
+		}
+	}
+
+	/**
+	 * Cache hit and miss counters of a single task.
+	 */
+	public static final class Statistics {
+		private final AtomicLong hits = new AtomicLong();
+		private final AtomicLong misses = new AtomicLong();
+
+		public Statistics() {
+		}
+
+		/**
+		 * Records a hit that was served by another cache before this one is consulted.
+		 */
+		public void addHit() {
+			hits.incrementAndGet();
+		}
+
+		public long getHitCount() {
+			return hits.get();
+		}
+
+		public long getMissCount() {
+			return misses.get();
+		}
+	}
+
+	private static final class InformationReference extends SoftReference<BundleInformation> {
+		protected final CacheKey key;
+
+		public InformationReference(CacheKey key, BundleInformation referent,
+				ReferenceQueue<? super BundleInformation> q) {
+			super(referent, q);
+			this.key = key;
+		}
+	}
+
+	private static final class CacheKey {
+		private final StorageViewKey storageViewKey;
+		private final BundleIdentifier bundleId;
+		private final long lastModified;
+		private final long size;
+		private final byte[] hash;
+		private final int hashCode;
+
+		public CacheKey(StorageViewKey storageViewKey, BundleIdentifier bundleId, long lastModified, long size,
+				byte[] hash) {
+			this.storageViewKey = storageViewKey;
+			this.bundleId = bundleId;
+			this.lastModified = lastModified;
+			this.size = size;
+			this.hash = hash;
+			this.hashCode = (bundleId.hashCode() * 31 + Long.hashCode(lastModified ^ size)) * 31
+					+ Arrays.hashCode(hash);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (obj == null)
+				return false;
+			if (getClass() != obj.getClass())
+				return false;
+			CacheKey other = (CacheKey) obj;
+			if (hashCode != other.hashCode)
+				return false;
+			if (!bundleId.equals(other.bundleId))
+				return false;
+			if (lastModified != other.lastModified)
+				return false;
+			if (size != other.size)
+				return false;
+			if (!Arrays.equals(hash, other.hash))
+				return false;
+			if (storageViewKey == null) {
+				if (other.storageViewKey != null)
+					return false;
+			} else if (!storageViewKey.equals(other.storageViewKey))
+				return false;
+			return true;
+		}
+	}
+}
@@ -25,9 +25,7 @@ import saker.build.file.content.HashContentDescriptor;
 import saker.build.runtime.execution.ExecutionContext;
 import saker.build.runtime.execution.ExecutionProperty;
 import saker.nest.bundle.BundleKey;
-import saker.nest.bundle.NestBundleClassLoader;
 import saker.nest.bundle.NestRepositoryBundle;
-import saker.nest.bundle.storage.BundleStorageView;
 import saker.nest.exc.BundleLoadingFailedException;
 import saker.nest.support.api.property.BundleContentDescriptorPropertyValue;
 
@@ -119,14 +117,18 @@ public class BundleKeyContentDescriptorExecutionProperty
 	@Override
 	public PropertyResult getCurrentValue(ExecutionContext executioncontext)
 			throws IllegalArgumentException, BundleLoadingFailedException {
-		NestBundleClassLoader cl = (NestBundleClassLoader) this.getClass().getClassLoader();
-		BundleStorageView storageview = cl.getBundleStorageConfiguration()
-				.getBundleStorageViewForKey(bundleKey.getStorageViewKey());
-		if (storageview == null) {
-			throw new IllegalArgumentException("Storage view not found: " + bundleKey.getStorageViewKey());
+		Object unchanged = LocalStorageChangeTracker.getUnchangedValue(this);
+		if (unchanged != null) {
+			return (PropertyResult) unchanged;
 		}
-		NestRepositoryBundle bundle = storageview.getBundle(bundleKey.getBundleIdentifier());
-		return new PropertyResult(bundle, createContentDescriptorForBundle(bundle));
+		long modificationcount = LocalStorageChangeTracker.getModificationCount();
+		StorageViewResolver resolver = StorageViewResolver.get(executioncontext);
+		NestRepositoryBundle bundle = resolver.getBundle(bundleKey);
+		LocalStorageChangeTracker.Stamp stamp = LocalStorageChangeTracker
+				.getStamp(resolver.getStorageView(bundleKey.getStorageViewKey()), bundle, modificationcount);
+		PropertyResult result = new PropertyResult(bundle, createContentDescriptorForBundle(bundle));
+		LocalStorageChangeTracker.putValue(this, stamp, result);
+		return result;
 	}
 
 	public static ContentDescriptor createContentDescriptorForBundle(NestRepositoryBundle bundle) {
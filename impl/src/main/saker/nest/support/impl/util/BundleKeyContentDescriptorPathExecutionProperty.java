@@ -26,9 +26,7 @@ import saker.build.runtime.execution.ExecutionContext;
 import saker.build.runtime.execution.ExecutionProperty;
 import saker.nest.bundle.BundleKey;
 import saker.nest.bundle.JarNestRepositoryBundle;
-import saker.nest.bundle.NestBundleClassLoader;
 import saker.nest.bundle.NestRepositoryBundle;
-import saker.nest.bundle.storage.BundleStorageView;
 import saker.nest.exc.BundleLoadingFailedException;
 import saker.nest.support.api.property.BundleContentDescriptorPathPropertyValue;
 
@@ -128,13 +126,15 @@ public class BundleKeyContentDescriptorPathExecutionProperty
 	@Override
 	public PropertyResult getCurrentValue(ExecutionContext executioncontext)
 			throws IllegalArgumentException, BundleLoadingFailedException {
-		NestBundleClassLoader cl = (NestBundleClassLoader) this.getClass().getClassLoader();
-		BundleStorageView storageview = cl.getBundleStorageConfiguration()
-				.getBundleStorageViewForKey(bundleKey.getStorageViewKey());
-		if (storageview == null) {
-			throw new IllegalArgumentException("Storage view not found: " + bundleKey.getStorageViewKey());
+		Object unchanged = LocalStorageChangeTracker.getUnchangedValue(this);
+		if (unchanged != null) {
+			return (PropertyResult) unchanged;
 		}
-		NestRepositoryBundle bundle = storageview.getBundle(bundleKey.getBundleIdentifier());
+		long modificationcount = LocalStorageChangeTracker.getModificationCount();
+		StorageViewResolver resolver = StorageViewResolver.get(executioncontext);
+		NestRepositoryBundle bundle = resolver.getBundle(bundleKey);
+		LocalStorageChangeTracker.Stamp stamp = LocalStorageChangeTracker
+				.getStamp(resolver.getStorageView(bundleKey.getStorageViewKey()), bundle, modificationcount);
 		SakerPath localpath;
 		if (bundle instanceof JarNestRepositoryBundle) {
 			localpath = SakerPath.valueOf(((JarNestRepositoryBundle) bundle).getJarPath());
@@ -142,8 +142,10 @@ public class BundleKeyContentDescriptorPathExecutionProperty
 			//the bundle API evolved, a new kind of bundle was added and this code wasn't updated
 			throw new IllegalArgumentException("Bundle not a JAR. Cannot determine local path. (" + bundle + ")");
 		}
-		return new PropertyResult(localpath,
+		PropertyResult result = new PropertyResult(localpath,
 				BundleKeyContentDescriptorExecutionProperty.createContentDescriptorForBundleHash(bundle.getHash()));
+		LocalStorageChangeTracker.putValue(this, stamp, result);
+		return result;
 	}
 
 	@Override
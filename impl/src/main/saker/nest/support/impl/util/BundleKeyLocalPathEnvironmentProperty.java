@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.nest.support.impl.util;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+import saker.build.file.path.SakerPath;
+import saker.build.runtime.environment.EnvironmentProperty;
+import saker.build.runtime.environment.SakerEnvironment;
+import saker.nest.bundle.BundleKey;
+import saker.nest.bundle.JarNestRepositoryBundle;
+import saker.nest.bundle.NestBundleClassLoader;
+import saker.nest.bundle.NestRepositoryBundle;
+import saker.nest.bundle.storage.BundleStorageView;
+import saker.nest.exc.BundleLoadingFailedException;
+
+/**
+ * Environment property that localizes a bundle on the environment that the property is computed on.
+ * <p>
+ * Unlike {@link BundleKeyLocalPathExecutionProperty}, the bundle is retrieved from the storage of the repository that
+ * is loaded in the current build environment. When a task is executed on a build cluster, the bundle is localized to
+ * the storage of the cluster, so the path can be used without transferring the bundle from the coordinator.
+ */
+public class BundleKeyLocalPathEnvironmentProperty implements EnvironmentProperty<SakerPath>, Externalizable {
+	private static final long serialVersionUID = 1L;
+
+	private BundleKey bundleKey;
+
+	/**
+	 * For {@link Externalizable}.
+	 */
+	public BundleKeyLocalPathEnvironmentProperty() {
+	}
+
+	public BundleKeyLocalPathEnvironmentProperty(BundleKey bundleKey) {
+		this.bundleKey = bundleKey;
+	}
+
+	@Override
+	public SakerPath getCurrentValue(SakerEnvironment environment)
+			throws IllegalArgumentException, BundleLoadingFailedException {
+		NestBundleClassLoader cl = (NestBundleClassLoader) this.getClass().getClassLoader();
+		BundleStorageView storageview = cl.getBundleStorageConfiguration()
+				.getBundleStorageViewForKey(bundleKey.getStorageViewKey());
+		if (storageview == null) {
+			throw new IllegalArgumentException("Storage view not found: " + bundleKey.getStorageViewKey());
+		}
+		NestRepositoryBundle bundle = storageview.getBundle(bundleKey.getBundleIdentifier());
+		if (bundle instanceof JarNestRepositoryBundle) {
+			return SakerPath.valueOf(((JarNestRepositoryBundle) bundle).getJarPath());
+		}
+		return null;
+	}
+
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		out.writeObject(bundleKey);
+	}
+
+	@Override
+	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+		bundleKey = (BundleKey) in.readObject();
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((bundleKey == null) ? 0 : bundleKey.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		BundleKeyLocalPathEnvironmentProperty other = (BundleKeyLocalPathEnvironmentProperty) obj;
+		if (bundleKey == null) {
+			if (other.bundleKey != null)
+				return false;
+		} else if (!bundleKey.equals(other.bundleKey))
+			return false;
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[" + (bundleKey != null ? "bundleKey=" + bundleKey : "") + "]";
+	}
+
+}
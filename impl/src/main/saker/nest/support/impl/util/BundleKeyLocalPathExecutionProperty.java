@@ -25,9 +25,7 @@ import saker.build.runtime.execution.ExecutionContext;
 import saker.build.runtime.execution.ExecutionProperty;
 import saker.nest.bundle.BundleKey;
 import saker.nest.bundle.JarNestRepositoryBundle;
-import saker.nest.bundle.NestBundleClassLoader;
 import saker.nest.bundle.NestRepositoryBundle;
-import saker.nest.bundle.storage.BundleStorageView;
 import saker.nest.exc.BundleLoadingFailedException;
 
 public class BundleKeyLocalPathExecutionProperty implements ExecutionProperty<SakerPath>, Externalizable {
@@ -49,19 +47,22 @@ public class BundleKeyLocalPathExecutionProperty implements ExecutionProperty<Sa
 	@Override
 	public SakerPath getCurrentValue(ExecutionContext executioncontext)
 			throws IllegalArgumentException, BundleLoadingFailedException {
-		NestBundleClassLoader cl = (NestBundleClassLoader) this.getClass().getClassLoader();
-		BundleStorageView storageview = cl.getBundleStorageConfiguration()
-				.getBundleStorageViewForKey(bundleKey.getStorageViewKey());
-		if (storageview == null) {
-			throw new IllegalArgumentException("Storage view not found: " + bundleKey.getStorageViewKey());
+		Object unchanged = LocalStorageChangeTracker.getUnchangedValue(this);
+		if (unchanged != null) {
+			return (SakerPath) unchanged;
 		}
-		NestRepositoryBundle bundle = storageview.getBundle(bundleKey.getBundleIdentifier());
+		long modificationcount = LocalStorageChangeTracker.getModificationCount();
+		StorageViewResolver resolver = StorageViewResolver.get(executioncontext);
+		NestRepositoryBundle bundle = resolver.getBundle(bundleKey);
+		LocalStorageChangeTracker.Stamp stamp = LocalStorageChangeTracker
+				.getStamp(resolver.getStorageView(bundleKey.getStorageViewKey()), bundle, modificationcount);
 		SakerPath localpath;
 		if (bundle instanceof JarNestRepositoryBundle) {
 			localpath = SakerPath.valueOf(((JarNestRepositoryBundle) bundle).getJarPath());
 		} else {
 			localpath = null;
 		}
+		LocalStorageChangeTracker.putValue(this, stamp, localpath);
 		return localpath;
 	}
 
@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.nest.support.impl.util;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import saker.build.runtime.execution.ExecutionContext;
+import saker.build.runtime.execution.ExecutionProperty;
+import saker.build.thirdparty.saker.util.ImmutableUtils;
+import saker.build.thirdparty.saker.util.io.SerialUtils;
+import saker.build.thirdparty.saker.util.thread.ThreadUtils;
+import saker.nest.bundle.BundleIdentifier;
+import saker.nest.bundle.BundleInformation;
+import saker.nest.bundle.BundleKey;
+import saker.nest.exc.BundleLoadingFailedException;
+
+/**
+ * Execution property that retrieves the source and documentation attachment bundle identifiers of multiple bundles.
+ * <p>
+ * Same as {@link BundleSouceAttachmentExecutionProperty} and {@link BundleDocumentationAttachmentExecutionProperty}
+ * for each bundle, but the bundle informations are retrieved concurrently, and a single property is reported for all
+ * of them.
+ */
+public class BundleKeysAttachmentsExecutionProperty
+		implements ExecutionProperty<BundleKeysAttachmentsExecutionProperty.PropertyResult>, Externalizable {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The attachment bundle identifiers in the same order as the bundle keys of the property. An element is
+	 * <code>null</code> if the associated bundle has no attachment of the given kind.
+	 */
+	public static class PropertyResult implements Externalizable {
+		private static final long serialVersionUID = 1L;
+
+		private List<BundleIdentifier> sourceAttachments;
+		private List<BundleIdentifier> documentationAttachments;
+
+		/**
+		 * For {@link Externalizable}.
+		 */
+		public PropertyResult() {
+		}
+
+		public PropertyResult(List<BundleIdentifier> sourceAttachments,
+				List<BundleIdentifier> documentationAttachments) {
+			this.sourceAttachments = sourceAttachments;
+			this.documentationAttachments = documentationAttachments;
+		}
+
+		public List<BundleIdentifier> getSourceAttachments() {
+			return sourceAttachments;
+		}
+
+		public List<BundleIdentifier> getDocumentationAttachments() {
+			return documentationAttachments;
+		}
+
+		@Override
+		public void writeExternal(ObjectOutput out) throws IOException {
+			SerialUtils.writeExternalCollection(out, sourceAttachments);
+			SerialUtils.writeExternalCollection(out, documentationAttachments);
+		}
+
+		@Override
+		public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+			sourceAttachments = SerialUtils.readExternalImmutableList(in);
+			documentationAttachments = SerialUtils.readExternalImmutableList(in);
+		}
+
+		@Override
+		public int hashCode() {
+			final int prime = 31;
+			int result = 1;
+			result = prime * result + ((documentationAttachments == null) ? 0 : documentationAttachments.hashCode());
+			result = prime * result + ((sourceAttachments == null) ? 0 : sourceAttachments.hashCode());
+			return result;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (obj == null)
+				return false;
+			if (getClass() != obj.getClass())
+				return false;
+			PropertyResult other = (PropertyResult) obj;
+			if (documentationAttachments == null) {
+				if (other.documentationAttachments != null)
+					return false;
+			} else if (!documentationAttachments.equals(other.documentationAttachments))
+				return false;
+			if (sourceAttachments == null) {
+				if (other.sourceAttachments != null)
+					return false;
+			} else if (!sourceAttachments.equals(other.sourceAttachments))
+				return false;
+			return true;
+		}
+
+		@Override
+		public String toString() {
+			return getClass().getSimpleName() + "[sourceAttachments=" + sourceAttachments
+					+ ", documentationAttachments=" + documentationAttachments + "]";
+		}
+	}
+
+	private List<BundleKey> bundleKeys;
+
+	/**
+	 * For {@link Externalizable}.
+	 */
+	public BundleKeysAttachmentsExecutionProperty() {
+	}
+
+	public BundleKeysAttachmentsExecutionProperty(List<BundleKey> bundleKeys) {
+		this.bundleKeys = ImmutableUtils.makeImmutableList(bundleKeys);
+	}
+
+	@Override
+	public PropertyResult getCurrentValue(ExecutionContext executioncontext)
+			throws IllegalArgumentException, BundleLoadingFailedException {
+		StorageViewResolver resolver = StorageViewResolver.get(executioncontext);
+		//look up the storage views before starting the concurrent retrievals
+		for (BundleKey bk : bundleKeys) {
+			resolver.getStorageView(bk.getStorageViewKey());
+		}
+
+		BundleIdentifier[] sources = new BundleIdentifier[bundleKeys.size()];
+		BundleIdentifier[] docs = new BundleIdentifier[bundleKeys.size()];
+		List<Integer> indices = new ArrayList<>(bundleKeys.size());
+		for (int i = 0; i < bundleKeys.size(); i++) {
+			indices.add(i);
+		}
+		ThreadUtils.runParallelItems(indices, idx -> {
+			BundleInformation bundleinfo = resolver.getBundleInformation(bundleKeys.get(idx));
+			sources[idx] = bundleinfo.getSourceAttachmentBundleIdentifier();
+			docs[idx] = bundleinfo.getDocumentationAttachmentBundleIdentifier();
+		});
+		return new PropertyResult(ImmutableUtils.unmodifiableList(Arrays.asList(sources)),
+				ImmutableUtils.unmodifiableList(Arrays.asList(docs)));
+	}
+
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		SerialUtils.writeExternalCollection(out, bundleKeys);
+	}
+
+	@Override
+	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+		bundleKeys = SerialUtils.readExternalImmutableList(in);
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((bundleKeys == null) ? 0 : bundleKeys.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		BundleKeysAttachmentsExecutionProperty other = (BundleKeysAttachmentsExecutionProperty) obj;
+		if (bundleKeys == null) {
+			if (other.bundleKeys != null)
+				return false;
+		} else if (!bundleKeys.equals(other.bundleKeys))
+			return false;
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[" + (bundleKeys != null ? "bundleKeys=" + bundleKeys : "") + "]";
+	}
+
+}
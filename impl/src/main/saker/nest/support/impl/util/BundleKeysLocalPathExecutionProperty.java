@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.nest.support.impl.util;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import saker.build.file.path.SakerPath;
+import saker.build.runtime.execution.ExecutionContext;
+import saker.build.runtime.execution.ExecutionProperty;
+import saker.build.thirdparty.saker.util.ImmutableUtils;
+import saker.build.thirdparty.saker.util.io.SerialUtils;
+import saker.build.thirdparty.saker.util.thread.ThreadUtils;
+import saker.nest.bundle.BundleKey;
+import saker.nest.bundle.JarNestRepositoryBundle;
+import saker.nest.bundle.NestRepositoryBundle;
+import saker.nest.exc.BundleLoadingFailedException;
+
+/**
+ * Execution property that retrieves the local paths of multiple bundles.
+ * <p>
+ * Same as {@link BundleKeyLocalPathExecutionProperty}, but the bundles are retrieved concurrently.
+ * <p>
+ * The value is a list of local paths in the same order as the bundle keys. An element is <code>null</code> if the
+ * associated bundle has no local path.
+ */
+public class BundleKeysLocalPathExecutionProperty implements ExecutionProperty<List<SakerPath>>, Externalizable {
+	private static final long serialVersionUID = 1L;
+
+	private List<BundleKey> bundleKeys;
+
+	/**
+	 * For {@link Externalizable}.
+	 */
+	public BundleKeysLocalPathExecutionProperty() {
+	}
+
+	public BundleKeysLocalPathExecutionProperty(List<BundleKey> bundleKeys) {
+		this.bundleKeys = ImmutableUtils.makeImmutableList(bundleKeys);
+	}
+
+	@Override
+	public List<SakerPath> getCurrentValue(ExecutionContext executioncontext)
+			throws IllegalArgumentException, BundleLoadingFailedException {
+		StorageViewResolver resolver = StorageViewResolver.get(executioncontext);
+		//look up the storage views before starting the concurrent retrievals
+		for (BundleKey bk : bundleKeys) {
+			resolver.getStorageView(bk.getStorageViewKey());
+		}
+
+		SakerPath[] result = new SakerPath[bundleKeys.size()];
+		List<Integer> indices = new ArrayList<>(bundleKeys.size());
+		for (int i = 0; i < bundleKeys.size(); i++) {
+			indices.add(i);
+		}
+		ThreadUtils.runParallelItems(indices, idx -> {
+			NestRepositoryBundle bundle = resolver.getBundle(bundleKeys.get(idx));
+			if (bundle instanceof JarNestRepositoryBundle) {
+				result[idx] = SakerPath.valueOf(((JarNestRepositoryBundle) bundle).getJarPath());
+			}
+		});
+		return ImmutableUtils.unmodifiableList(Arrays.asList(result));
+	}
+
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		SerialUtils.writeExternalCollection(out, bundleKeys);
+	}
+
+	@Override
+	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+		bundleKeys = SerialUtils.readExternalImmutableList(in);
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((bundleKeys == null) ? 0 : bundleKeys.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		BundleKeysLocalPathExecutionProperty other = (BundleKeysLocalPathExecutionProperty) obj;
+		if (bundleKeys == null) {
+			if (other.bundleKeys != null)
+				return false;
+		} else if (!bundleKeys.equals(other.bundleKeys))
+			return false;
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[" + (bundleKeys != null ? "bundleKeys=" + bundleKeys : "") + "]";
+	}
+
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.nest.support.impl.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import saker.nest.bundle.BundleIdentifier;
+import saker.nest.bundle.lookup.LookupKey;
+
+/**
+ * Cache of the bundle version lookups that didn't find any bundles in the server storages.
+ * <p>
+ * If a bundle is not found in a lookup, the dependency resolution will look it up again during the same and every
+ * subsequent build. As the lookups require network requests for server storages, the misses are recorded with an
+ * expiration time. Until the entry expires, the dependency resolution reports a
+ * {@link BundleLookupMissExecutionProperty} for the recorded miss instead of depending on the lookup itself. The time
+ * to live is part of that dependency, so the server storages are not queried again until the miss expires, even if
+ * the build runs in a new process.
+ * <p>
+ * The cache is kept in memory. The entries should be invalidated using {@link #invalidate(BundleIdentifier)} when a
+ * bundle is made available by the build, so it is discovered by the next lookup.
+ */
+public final class BundleLookupMissCache {
+	/**
+	 * The time after a recorded miss is looked up again.
+	 */
+	public static final long DEFAULT_TIME_TO_LIVE_MILLIS = 10 * 60 * 1000;
+
+	private static final ConcurrentMap<MissKey, Long> EXPIRATIONS = new ConcurrentHashMap<>();
+	/**
+	 * The last invalidation times of the bundle identifiers without meta qualifiers.
+	 */
+	private static final ConcurrentMap<BundleIdentifier, Long> INVALIDATION_TIMES = new ConcurrentHashMap<>();
+	private static volatile long invalidateAllTime = 0;
+
+	private BundleLookupMissCache() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Gets the expiration time of the recorded miss for the given lookup.
+	 * 
+	 * @return The expiration time in milliseconds or 0 if there's no recorded miss.
+	 */
+	public static long getMissExpiration(LookupKey lookupkey, BundleIdentifier bundleid) {
+		MissKey key = new MissKey(lookupkey, bundleid);
+		Long expiration = EXPIRATIONS.get(key);
+		if (expiration == null) {
+			return 0;
+		}
+		if (expiration <= System.currentTimeMillis()) {
+			EXPIRATIONS.remove(key, expiration);
+			return 0;
+		}
+		return expiration;
+	}
+
+	/**
+	 * Records a lookup miss.
+	 * 
+	 * @return The expiration time of the recorded miss in milliseconds.
+	 */
+	public static long addMissing(LookupKey lookupkey, BundleIdentifier bundleid) {
+		long expiration = System.currentTimeMillis() + DEFAULT_TIME_TO_LIVE_MILLIS;
+		EXPIRATIONS.put(new MissKey(lookupkey, bundleid), expiration);
+		return expiration;
+	}
+
+	/**
+	 * Checks if the bundle was invalidated at or after the given time.
+	 * <p>
+	 * Only the invalidations in the current process are known.
+	 */
+	public static boolean isInvalidatedSince(BundleIdentifier bundleid, long time) {
+		if (invalidateAllTime >= time) {
+			return true;
+		}
+		Long invalidation = INVALIDATION_TIMES.get(bundleid.withoutMetaQualifiers());
+		return invalidation != null && invalidation >= time;
+	}
+
+	/**
+	 * Removes the recorded misses for the given bundle.
+	 * <p>
+	 * All versions of the bundle are invalidated.
+	 */
+	public static void invalidate(BundleIdentifier bundleid) {
+		BundleIdentifier withoutversion = bundleid.withoutMetaQualifiers();
+		INVALIDATION_TIMES.put(withoutversion, System.currentTimeMillis());
+		EXPIRATIONS.keySet().removeIf(k -> withoutversion.equals(k.bundleId.withoutMetaQualifiers()));
+	}
+
+	/**
+	 * Removes all recorded misses.
+	 */
+	public static void invalidateAll() {
+		invalidateAllTime = System.currentTimeMillis();
+		INVALIDATION_TIMES.clear();
+		EXPIRATIONS.clear();
+	}
+
+	private static final class MissKey {
+		final LookupKey lookupKey;
+		final BundleIdentifier bundleId;
+
+		public MissKey(LookupKey lookupKey, BundleIdentifier bundleId) {
+			this.lookupKey = lookupKey;
+			this.bundleId = bundleId;
+		}
+
+		@Override
+		public int hashCode() {
+			final int prime = 31;
+			int result = 1;
+			result = prime * result + ((bundleId == null) ? 0 : bundleId.hashCode());
+			result = prime * result + ((lookupKey == null) ? 0 : lookupKey.hashCode());
+			return result;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (obj == null)
+				return false;
+			if (getClass() != obj.getClass())
+				return false;
+			MissKey other = (MissKey) obj;
+			if (bundleId == null) {
+				if (other.bundleId != null)
+					return false;
+			} else if (!bundleId.equals(other.bundleId))
+				return false;
+			if (lookupKey == null) {
+				if (other.lookupKey != null)
+					return false;
+			} else if (!lookupKey.equals(other.lookupKey))
+				return false;
+			return true;
+		}
+	}
+}
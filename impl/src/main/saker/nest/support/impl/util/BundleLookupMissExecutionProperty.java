@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.nest.support.impl.util;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.Map;
+import java.util.Set;
+
+import saker.build.runtime.execution.ExecutionContext;
+import saker.build.runtime.execution.ExecutionProperty;
+import saker.nest.bundle.BundleIdentifier;
+import saker.nest.bundle.NestBundleClassLoader;
+import saker.nest.bundle.NestBundleStorageConfiguration;
+import saker.nest.bundle.lookup.LookupKey;
+import saker.nest.bundle.storage.BundleStorageView;
+
+/**
+ * Execution property that checks if a recorded bundle lookup miss is still in effect.
+ * <p>
+ * Reported by the dependency resolution instead of {@link BundleVersionsLookupExecutionProperty} if the bundle was
+ * recently not found in a lookup. The property depends on the current time, its value changes to <code>false</code>
+ * when the recorded miss expires. It also changes if the bundle is invalidated in the {@link BundleLookupMissCache}, or
+ * if it becomes available in a local or parameter storage, as the recorded miss only applies to the server storages.
+ * <p>
+ * The expiration time is part of the property identity, so a new miss is a different dependency.
+ */
+public class BundleLookupMissExecutionProperty implements ExecutionProperty<Boolean>, Externalizable {
+	private static final long serialVersionUID = 1L;
+
+	private LookupKey lookupKey;
+	private BundleIdentifier bundleIdentifier;
+	private long expiration;
+
+	/**
+	 * For {@link Externalizable}.
+	 */
+	public BundleLookupMissExecutionProperty() {
+	}
+
+	public BundleLookupMissExecutionProperty(LookupKey lookupKey, BundleIdentifier bundleIdentifier,
+			long expiration) {
+		this.lookupKey = lookupKey;
+		this.bundleIdentifier = bundleIdentifier;
+		this.expiration = expiration;
+	}
+
+	@Override
+	public Boolean getCurrentValue(ExecutionContext executioncontext) {
+		if (expiration <= System.currentTimeMillis()) {
+			return false;
+		}
+		if (BundleLookupMissCache.isInvalidatedSince(bundleIdentifier,
+				expiration - BundleLookupMissCache.DEFAULT_TIME_TO_LIVE_MILLIS)) {
+			return false;
+		}
+		NestBundleStorageConfiguration storageconfig = ((NestBundleClassLoader) this.getClass().getClassLoader())
+				.getBundleStorageConfiguration();
+		if (isInStorage(storageconfig.getLocalStorages()) || isInStorage(storageconfig.getParameterStorages())) {
+			return false;
+		}
+		return true;
+	}
+
+	private boolean isInStorage(Map<String, ? extends BundleStorageView> storages) {
+		for (BundleStorageView storage : storages.values()) {
+			Set<? extends BundleIdentifier> versions = storage.lookupBundleVersions(bundleIdentifier);
+			if (versions != null && !versions.isEmpty()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		out.writeObject(lookupKey);
+		out.writeObject(bundleIdentifier);
+		out.writeLong(expiration);
+	}
+
+	@Override
+	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+		lookupKey = (LookupKey) in.readObject();
+		bundleIdentifier = (BundleIdentifier) in.readObject();
+		expiration = in.readLong();
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((bundleIdentifier == null) ? 0 : bundleIdentifier.hashCode());
+		result = prime * result + (int) (expiration ^ (expiration >>> 32));
+		result = prime * result + ((lookupKey == null) ? 0 : lookupKey.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		BundleLookupMissExecutionProperty other = (BundleLookupMissExecutionProperty) obj;
+		if (bundleIdentifier == null) {
+			if (other.bundleIdentifier != null)
+				return false;
+		} else if (!bundleIdentifier.equals(other.bundleIdentifier))
+			return false;
+		if (expiration != other.expiration)
+			return false;
+		if (lookupKey == null) {
+			if (other.lookupKey != null)
+				return false;
+		} else if (!lookupKey.equals(other.lookupKey))
+			return false;
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "["
+				+ (bundleIdentifier != null ? "bundleIdentifier=" + bundleIdentifier + ", " : "")
+				+ (lookupKey != null ? "lookupKey=" + lookupKey + ", " : "") + "expiration=" + expiration + "]";
+	}
+
+}
@@ -0,0 +1,364 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.nest.support.impl.util;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import saker.nest.bundle.JarNestRepositoryBundle;
+import saker.nest.bundle.NestBundleClassLoader;
+import saker.nest.bundle.NestBundleStorageConfiguration;
+import saker.nest.bundle.NestRepositoryBundle;
+import saker.nest.bundle.storage.BundleStorageView;
+import saker.nest.bundle.storage.LocalBundleStorageView;
+
+/**
+ * Tracks the modifications of the bundles in the local bundle storages, so the execution properties of the bundles
+ * don't need to load them again if they haven't changed.
+ * <p>
+ * The directories of the bundle JARs are watched using a {@link WatchService}. Each event increases a global
+ * modification counter, and the directory records the counter value of its last modification. A property value
+ * computed while the counter was <code>N</code> remains valid as long as the last modification of the associated
+ * directory is not after <code>N</code>.
+ * <p>
+ * As the watch events are delivered asynchronously, a modification may not be reported yet when a value is checked.
+ * The last modification time and size of the bundle JAR are recorded with the value, and the value is only reused if
+ * they are unchanged.
+ * <p>
+ * The events are processed when a value is checked, so no background thread is needed. If the watching fails, or
+ * the watch key is invalidated, the values associated with the directory are recomputed.
+ * <p>
+ * Only the bundles in {@linkplain LocalBundleStorageView local storages} are tracked. The bundles of other storages
+ * may change without file system modifications on the local machine. The tracked values, watch keys, and the watch
+ * service are discarded if the storage configuration of the repository changes.
+ * <p>
+ * At most {@link #MAX_TRACKED_VALUE_COUNT} values are tracked. The values are stored in two generations that
+ * approximate least recently used eviction. The directories that have no tracked values remaining after a rotation
+ * are no longer watched.
+ */
+public final class LocalStorageChangeTracker {
+	public static final int MAX_TRACKED_VALUE_COUNT = 4 * 1024;
+
+	private static final AtomicLong MODIFICATION_COUNTER = new AtomicLong();
+	private static final ConcurrentMap<Path, WatchedDirectory> WATCHED_DIRECTORIES = new ConcurrentHashMap<>();
+	private static final ConcurrentMap<WatchKey, WatchedDirectory> WATCH_KEY_DIRECTORIES = new ConcurrentHashMap<>();
+
+	private static volatile ConcurrentMap<Object, TrackedValue> trackedValues = new ConcurrentHashMap<>();
+	private static volatile ConcurrentMap<Object, TrackedValue> previousTrackedValues = new ConcurrentHashMap<>();
+
+	private static volatile NestBundleStorageConfiguration trackedStorageConfiguration;
+	private static volatile WatchService watchService;
+	private static volatile boolean watchServiceFailed;
+
+	private LocalStorageChangeTracker() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Gets the current value of the modification counter.
+	 * <p>
+	 * Should be called before retrieving the bundle, and passed to {@link #getStamp}.
+	 */
+	public static long getModificationCount() {
+		return MODIFICATION_COUNTER.get();
+	}
+
+	/**
+	 * Gets the modification stamp of a bundle.
+	 * <p>
+	 * Should be called before computing a value based on the bundle. The result is passed to {@link #putValue}.
+	 *
+	 * @param modificationcount
+	 *            The {@linkplain #getModificationCount() modification count} before the bundle was retrieved.
+	 * @return The stamp or <code>null</code> if the bundle cannot be tracked.
+	 */
+	public static Stamp getStamp(BundleStorageView storageview, NestRepositoryBundle bundle,
+			long modificationcount) {
+		if (!(storageview instanceof LocalBundleStorageView) || !(bundle instanceof JarNestRepositoryBundle)) {
+			return null;
+		}
+		Path jarpath = ((JarNestRepositoryBundle) bundle).getJarPath();
+		Path dir = jarpath.getParent();
+		if (dir == null) {
+			return null;
+		}
+		checkStorageConfiguration();
+		if (!watch(dir)) {
+			return null;
+		}
+		BasicFileAttributes attrs;
+		try {
+			attrs = Files.readAttributes(jarpath, BasicFileAttributes.class);
+		} catch (IOException e) {
+			return null;
+		}
+		return new Stamp(jarpath, dir, modificationcount, attrs.lastModifiedTime().toMillis(), attrs.size());
+	}
+
+	/**
+	 * Gets the previously computed value for the given key if the associated bundle hasn't been modified since.
+	 *
+	 * @return The value or <code>null</code> if not found or the bundle may have been modified.
+	 */
+	public static Object getUnchangedValue(Object key) {
+		checkStorageConfiguration();
+		ConcurrentMap<Object, TrackedValue> values = trackedValues;
+		TrackedValue tracked = values.get(key);
+		if (tracked == null) {
+			tracked = previousTrackedValues.get(key);
+			if (tracked == null) {
+				return null;
+			}
+		}
+		processEvents();
+		Stamp stamp = tracked.stamp;
+		WatchedDirectory dir = WATCHED_DIRECTORIES.get(stamp.directory);
+		if (dir == null || dir.lastModification > stamp.modificationCount || !stamp.isUnchanged()) {
+			values.remove(key, tracked);
+			previousTrackedValues.remove(key, tracked);
+			return null;
+		}
+		if (values.get(key) != tracked) {
+			//used recently, move to the current generation
+			put(key, tracked);
+		}
+		return tracked.value;
+	}
+
+	/**
+	 * Records a computed value for the given key.
+	 * 
+	 * @param stamp
+	 *            The {@linkplain #getStamp stamp} of the bundle before the value was computed. May be
+	 *            <code>null</code>, in which case the value is not tracked.
+	 */
+	public static void putValue(Object key, Stamp stamp, Object value) {
+		if (value == null || stamp == null) {
+			return;
+		}
+		put(key, new TrackedValue(stamp, value));
+	}
+
+	/**
+	 * Considers all tracked bundles to be modified.
+	 * <p>
+	 * Should be called when the build modifies a local storage.
+	 */
+	public static void invalidateAll() {
+		synchronized (LocalStorageChangeTracker.class) {
+			trackedValues = new ConcurrentHashMap<>();
+			previousTrackedValues = new ConcurrentHashMap<>();
+		}
+	}
+
+	private static void put(Object key, TrackedValue tracked) {
+		ConcurrentMap<Object, TrackedValue> values = trackedValues;
+		values.put(key, tracked);
+		if (values.size() > MAX_TRACKED_VALUE_COUNT / 2) {
+			synchronized (LocalStorageChangeTracker.class) {
+				if (trackedValues == values) {
+					//the values that weren't used since the last rotation are dropped
+					previousTrackedValues = values;
+					trackedValues = new ConcurrentHashMap<>();
+					unwatchUnused(values);
+				}
+			}
+		}
+	}
+
+	private static void unwatchUnused(ConcurrentMap<Object, TrackedValue> retained) {
+		Set<Path> useddirs = new HashSet<>();
+		for (TrackedValue tracked : retained.values()) {
+			useddirs.add(tracked.stamp.directory);
+		}
+		synchronized (WATCHED_DIRECTORIES) {
+			for (Iterator<WatchedDirectory> it = WATCHED_DIRECTORIES.values().iterator(); it.hasNext();) {
+				WatchedDirectory dir = it.next();
+				if (!useddirs.contains(dir.path)) {
+					it.remove();
+					WATCH_KEY_DIRECTORIES.remove(dir.key);
+					dir.key.cancel();
+				}
+			}
+		}
+	}
+
+	private static void checkStorageConfiguration() {
+		NestBundleStorageConfiguration config = ((NestBundleClassLoader) LocalStorageChangeTracker.class
+				.getClassLoader()).getBundleStorageConfiguration();
+		if (trackedStorageConfiguration == config) {
+			return;
+		}
+		synchronized (LocalStorageChangeTracker.class) {
+			if (trackedStorageConfiguration == config) {
+				return;
+			}
+			trackedValues = new ConcurrentHashMap<>();
+			previousTrackedValues = new ConcurrentHashMap<>();
+			synchronized (WATCHED_DIRECTORIES) {
+				for (WatchKey key : WATCH_KEY_DIRECTORIES.keySet()) {
+					key.cancel();
+				}
+				WATCH_KEY_DIRECTORIES.clear();
+				WATCHED_DIRECTORIES.clear();
+				WatchService ws = watchService;
+				watchService = null;
+				watchServiceFailed = false;
+				if (ws != null) {
+					try {
+						ws.close();
+					} catch (IOException e) {
+						//ignore, the watch service is no longer used
+					}
+				}
+			}
+			trackedStorageConfiguration = config;
+		}
+	}
+
+	private static boolean watch(Path dir) {
+		if (WATCHED_DIRECTORIES.containsKey(dir)) {
+			return true;
+		}
+		synchronized (WATCHED_DIRECTORIES) {
+			if (WATCHED_DIRECTORIES.containsKey(dir)) {
+				return true;
+			}
+			WatchService ws = getWatchService();
+			if (ws == null) {
+				return false;
+			}
+			WatchKey key;
+			try {
+				key = dir.register(ws, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE,
+						StandardWatchEventKinds.ENTRY_MODIFY);
+			} catch (IOException | UnsupportedOperationException | IllegalStateException e) {
+				return false;
+			}
+			//the directory may have been modified before it was registered, so the values computed so far are
+			//considered to be stale
+			WatchedDirectory watched = new WatchedDirectory(dir, key, MODIFICATION_COUNTER.incrementAndGet());
+			WATCH_KEY_DIRECTORIES.put(key, watched);
+			WATCHED_DIRECTORIES.put(dir, watched);
+			return true;
+		}
+	}
+
+	private static void processEvents() {
+		WatchService ws = watchService;
+		if (ws == null) {
+			return;
+		}
+		while (true) {
+			WatchKey key;
+			try {
+				key = ws.poll();
+			} catch (IllegalStateException e) {
+				//closed concurrently
+				return;
+			}
+			if (key == null) {
+				return;
+			}
+			WatchedDirectory dir = WATCH_KEY_DIRECTORIES.get(key);
+			key.pollEvents();
+			if (dir != null) {
+				dir.lastModification = MODIFICATION_COUNTER.incrementAndGet();
+			}
+			if (!key.reset()) {
+				WATCH_KEY_DIRECTORIES.remove(key);
+				if (dir != null) {
+					WATCHED_DIRECTORIES.remove(dir.path, dir);
+				}
+			}
+		}
+	}
+
+	private static WatchService getWatchService() {
+		//called while locked on WATCHED_DIRECTORIES
+		if (watchService == null && !watchServiceFailed) {
+			try {
+				watchService = FileSystems.getDefault().newWatchService();
+			} catch (IOException | UnsupportedOperationException e) {
+				watchServiceFailed = true;
+			}
+		}
+		return watchService;
+	}
+
+	/**
+	 * The modification state of a bundle JAR at the time a value was computed.
+	 */
+	public static final class Stamp {
+		private final Path jarPath;
+		private final Path directory;
+		private final long modificationCount;
+		private final long lastModified;
+		private final long size;
+
+		private Stamp(Path jarPath, Path directory, long modificationCount, long lastModified, long size) {
+			this.jarPath = jarPath;
+			this.directory = directory;
+			this.modificationCount = modificationCount;
+			this.lastModified = lastModified;
+			this.size = size;
+		}
+
+		private boolean isUnchanged() {
+			BasicFileAttributes attrs;
+			try {
+				attrs = Files.readAttributes(jarPath, BasicFileAttributes.class);
+			} catch (IOException e) {
+				return false;
+			}
+			return attrs.lastModifiedTime().toMillis() == lastModified && attrs.size() == size;
+		}
+	}
+
+	private static final class WatchedDirectory {
+		protected final Path path;
+		protected final WatchKey key;
+		protected volatile long lastModification;
+
+		public WatchedDirectory(Path path, WatchKey key, long lastModification) {
+			this.path = path;
+			this.key = key;
+			this.lastModification = lastModification;
+		}
+	}
+
+	private static final class TrackedValue {
+		protected final Stamp stamp;
+		protected final Object value;
+
+		public TrackedValue(Stamp stamp, Object value) {
+			this.stamp = stamp;
+			this.value = value;
+		}
+	}
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.nest.support.impl.util;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import saker.build.runtime.execution.ExecutionContext;
+import saker.build.thirdparty.saker.util.ObjectUtils;
+import saker.nest.bundle.BundleIdentifier;
+import saker.nest.bundle.BundleInformation;
+import saker.nest.bundle.BundleKey;
+import saker.nest.bundle.NestBundleClassLoader;
+import saker.nest.bundle.NestBundleStorageConfiguration;
+import saker.nest.bundle.NestRepositoryBundle;
+import saker.nest.bundle.lookup.BundleInformationLookupResult;
+import saker.nest.bundle.lookup.BundleLookup;
+import saker.nest.bundle.lookup.BundleVersionLookupResult;
+import saker.nest.bundle.storage.BundleStorageView;
+import saker.nest.bundle.storage.StorageViewKey;
+import saker.nest.exc.BundleLoadingFailedException;
+
+/**
+ * Build scoped cache of the storage views and the bundles that are retrieved from them by the execution properties.
+ * <p>
+ * Multiple execution properties usually retrieve the same bundles in a build. E.g. the bundle information, content
+ * descriptor and local path properties of a bundle all load the same bundle from the same storage view. The resolver
+ * looks up the storage views once per {@link StorageViewKey}, and loads each bundle and bundle information once per
+ * {@link BundleKey}. If a value is being loaded, other callers wait for it instead of loading it again.
+ * <p>
+ * The resolver also caches the {@linkplain #lookupBundleKey(BundleIdentifier) storage locations} of the bundles that
+ * are looked up by their identifiers.
+ * <p>
+ * The cached values are discarded if the storage configuration of the repository changes. The failures are not
+ * cached. The cached bundles should be invalidated using {@link #invalidate(BundleIdentifier)} when a bundle is
+ * modified by the build.
+ */
+public final class StorageViewResolver {
+	private static final Map<ExecutionContext, StorageViewResolver> EXECUTION_RESOLVERS = new WeakHashMap<>();
+
+	private volatile NestBundleStorageConfiguration storageConfiguration;
+	private final ConcurrentMap<StorageViewKey, BundleStorageView> storageViews = new ConcurrentHashMap<>();
+	private final ConcurrentMap<BundleKey, CompletableFuture<NestRepositoryBundle>> bundles = new ConcurrentHashMap<>();
+	private final ConcurrentMap<BundleKey, CompletableFuture<BundleInformation>> bundleInformations = new ConcurrentHashMap<>();
+	private final ConcurrentMap<BundleIdentifier, CompletableFuture<BundleKey>> bundleKeys = new ConcurrentHashMap<>();
+
+	private StorageViewResolver() {
+	}
+
+	public static StorageViewResolver get(ExecutionContext executioncontext) {
+		synchronized (EXECUTION_RESOLVERS) {
+			return EXECUTION_RESOLVERS.computeIfAbsent(executioncontext, x -> new StorageViewResolver());
+		}
+	}
+
+	/**
+	 * Removes the cached bundles with the given identifier from all resolvers.
+	 */
+	public static void invalidate(BundleIdentifier bundleid) {
+		synchronized (EXECUTION_RESOLVERS) {
+			for (StorageViewResolver resolver : EXECUTION_RESOLVERS.values()) {
+				resolver.bundles.keySet().removeIf(bk -> bundleid.equals(bk.getBundleIdentifier()));
+				resolver.bundleInformations.keySet().removeIf(bk -> bundleid.equals(bk.getBundleIdentifier()));
+				//the storage that contains the bundle name may change for any version of the bundle
+				resolver.bundleKeys.keySet().removeIf(bi -> bundleid.getName().equals(bi.getName()));
+			}
+		}
+	}
+
+	/**
+	 * Removes all cached bundles from all resolvers.
+	 */
+	public static void invalidateAll() {
+		synchronized (EXECUTION_RESOLVERS) {
+			for (StorageViewResolver resolver : EXECUTION_RESOLVERS.values()) {
+				resolver.bundles.clear();
+				resolver.bundleInformations.clear();
+				resolver.bundleKeys.clear();
+			}
+		}
+	}
+
+	/**
+	 * Gets the storage view for the given key.
+	 *
+	 * @throws IllegalArgumentException
+	 *             If the storage view is not found.
+	 */
+	public BundleStorageView getStorageView(StorageViewKey storageviewkey) throws IllegalArgumentException {
+		NestBundleStorageConfiguration storageconfig = getCurrentStorageConfiguration();
+		BundleStorageView result = storageViews.get(storageviewkey);
+		if (result != null) {
+			return result;
+		}
+		result = storageconfig.getBundleStorageViewForKey(storageviewkey);
+		if (result == null) {
+			throw new IllegalArgumentException("Storage view not found: " + storageviewkey);
+		}
+		storageViews.putIfAbsent(storageviewkey, result);
+		return result;
+	}
+
+	public NestRepositoryBundle getBundle(BundleKey bundlekey)
+			throws IllegalArgumentException, BundleLoadingFailedException {
+		BundleStorageView storageview = getStorageView(bundlekey.getStorageViewKey());
+		return load(bundles, bundlekey, () -> storageview.getBundle(bundlekey.getBundleIdentifier()));
+	}
+
+	public BundleInformation getBundleInformation(BundleKey bundlekey)
+			throws IllegalArgumentException, BundleLoadingFailedException {
+		BundleStorageView storageview = getStorageView(bundlekey.getStorageViewKey());
+		return load(bundleInformations, bundlekey,
+				() -> BundleInformationCache.getBundleInformation(storageview, bundlekey.getBundleIdentifier(), null));
+	}
+
+	/**
+	 * Looks up the key of the bundle using the {@linkplain NestBundleStorageConfiguration#getBundleLookup() root bundle
+	 * lookup}.
+	 * <p>
+	 * The lookup has the same semantics as {@link BundleLookup#lookupBundleInformation(BundleIdentifier)}, but the
+	 * bundle information is only loaded if the bundle is not found in the first storage that contains any version of
+	 * the bundle.
+	 */
+	public BundleKey lookupBundleKey(BundleIdentifier bundleid) throws BundleLoadingFailedException {
+		BundleLookup lookup = getCurrentStorageConfiguration().getBundleLookup();
+		return load(bundleKeys, bundleid, () -> lookupBundleKey(lookup, bundleid));
+	}
+
+	private static BundleKey lookupBundleKey(BundleLookup lookup, BundleIdentifier bundleid)
+			throws BundleLoadingFailedException {
+		//the storages before the first one that has a version of the bundle cannot contain the bundle itself
+		BundleVersionLookupResult versionsresult = lookup.lookupBundleVersions(bundleid);
+		if (versionsresult != null && versionsresult.getBundles().contains(bundleid)) {
+			return BundleKey.create(versionsresult.getStorageView().getStorageViewKey(), bundleid);
+		}
+		BundleInformationLookupResult lookupresult = lookup.lookupBundleInformation(bundleid);
+		return BundleKey.create(lookupresult.getStorageView().getStorageViewKey(), bundleid);
+	}
+
+	private NestBundleStorageConfiguration getCurrentStorageConfiguration() {
+		NestBundleStorageConfiguration storageconfig = ((NestBundleClassLoader) this.getClass().getClassLoader())
+				.getBundleStorageConfiguration();
+		if (storageconfig != storageConfiguration) {
+			synchronized (this) {
+				if (storageconfig != storageConfiguration) {
+					storageViews.clear();
+					bundles.clear();
+					bundleInformations.clear();
+					bundleKeys.clear();
+					storageConfiguration = storageconfig;
+				}
+			}
+		}
+		return storageconfig;
+	}
+
+	private static <K, T> T load(ConcurrentMap<K, CompletableFuture<T>> cache, K key, BundleLoader<T> loader)
+			throws BundleLoadingFailedException {
+		CompletableFuture<T> future = new CompletableFuture<>();
+		CompletableFuture<T> prev = cache.putIfAbsent(key, future);
+		if (prev != null) {
+			try {
+				return prev.join();
+			} catch (CompletionException e) {
+				throw ObjectUtils.sneakyThrow(e.getCause());
+			}
+		}
+		try {
+			T result = loader.load();
+			future.complete(result);
+			return result;
+		} catch (Throwable e) {
+			//don't keep the failures, the loading is retried by the next caller
+			cache.remove(key, future);
+			future.completeExceptionally(e);
+			throw e;
+		}
+	}
+
+	@FunctionalInterface
+	private interface BundleLoader<T> {
+		public T load() throws BundleLoadingFailedException;
+	}
+}
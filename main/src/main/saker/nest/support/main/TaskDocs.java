@@ -24,6 +24,7 @@ import saker.nest.scriptinfo.reflection.annot.NestInformation;
 import saker.nest.scriptinfo.reflection.annot.NestTypeInformation;
 import saker.nest.scriptinfo.reflection.annot.NestTypeUsage;
 import saker.nest.support.main.dependency.ResolveBundleDependencyTaskFactory;
+import saker.nest.support.main.download.DownloadAttachmentsTaskFactory;
 import saker.nest.support.main.download.DownloadBundleTaskFactory;
 import saker.nest.support.main.localize.LocalizeBundleTaskFactory;
 
@@ -103,6 +104,12 @@ public class TaskDocs {
 			type = @NestTypeUsage(value = Collection.class, elementTypes = DocBundleKey.class),
 			info = @NestInformation("Collection of bundle keys that are the result of the dependency resolution.\n"
 					+ "Each bundle key uniquely identifies a bundle for the current storage configuration."))
+	@NestFieldInformation(value = "BundleResults",
+			type = @NestTypeUsage(value = Collection.class, elementTypes = DocBundleKey.class),
+			info = @NestInformation("Collection of bundle keys that are the result of the dependency resolution.\n"
+					+ "The elements are the same as in the Bundles field, but each element only depends on the presence "
+					+ "of its bundle in the resolution result. Tasks that use the elements separately are only "
+					+ "affected by the bundles that changed."))
 	public static class DocDependencyResolutionTaskOutput {
 	}
 
@@ -134,6 +141,23 @@ public class TaskDocs {
 	public static class DocDownloadWorkerTaskOutput {
 	}
 
+	@NestTypeInformation(qualifiedName = "saker.nest.support.api.download.DownloadAttachmentsTaskOutput")
+	@NestInformation("Output of the " + DownloadAttachmentsTaskFactory.TASK_NAME + "() attachment downloading task.\n"
+			+ "The lists in the result have the same size, and the elements at the same index belong to the same bundle.")
+	@NestFieldInformation(value = "Bundles",
+			type = @NestTypeUsage(value = Collection.class, elementTypes = DocBundleKey.class),
+			info = @NestInformation("The bundles for which the attachments were downloaded."))
+	@NestFieldInformation(value = "SourceAttachmentPaths",
+			type = @NestTypeUsage(value = Collection.class, elementTypes = { SakerPath.class }),
+			info = @NestInformation("The execution paths of the downloaded source attachments.\n"
+					+ "An element is null if the associated bundle has no source attachment."))
+	@NestFieldInformation(value = "DocumentationAttachmentPaths",
+			type = @NestTypeUsage(value = Collection.class, elementTypes = { SakerPath.class }),
+			info = @NestInformation("The execution paths of the downloaded documentation attachments.\n"
+					+ "An element is null if the associated bundle has no documentation attachment."))
+	public static class DocDownloadAttachmentsTaskOutput {
+	}
+
 	@NestTypeInformation(qualifiedName = "saker.nest.support.api.localize.LocalizeBundleTaskOutput")
 	@NestInformation("Output of the " + LocalizeBundleTaskFactory.TASK_NAME + "() bundle localizing task.\n"
 			+ "The result provides access to the local file system paths of the bundles and to each individually localized bundle.")
@@ -153,7 +177,9 @@ public class TaskDocs {
 	@NestFieldInformation(value = "LocalPath",
 			type = @NestTypeUsage(SakerPath.class),
 			info = @NestInformation("The local file system path of the localization result.\n"
-					+ "The file at the given path is the result of the bundle localization."))
+					+ "The file at the given path is the result of the bundle localization.\n"
+					+ "The path is only valid on the build machine that coordinates the build, not on build "
+					+ "clusters."))
 	@NestFieldInformation(value = "BundleIdentifier",
 			type = @NestTypeUsage(DocBundleIdentifier.class),
 			info = @NestInformation("The bundle identifier of the localized bundle."))
@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.nest.support.main.dependency;
+
+import java.io.Externalizable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import saker.build.file.path.SakerPath;
+import saker.build.runtime.execution.ExecutionContext;
+import saker.build.task.ParameterizableTask;
+import saker.build.task.TaskContext;
+import saker.build.task.identifier.TaskIdentifier;
+import saker.build.task.utils.SimpleStructuredListTaskResult;
+import saker.build.task.utils.StructuredTaskResult;
+import saker.build.task.utils.annot.SakerInput;
+import saker.build.task.utils.dependencies.EqualityTaskOutputChangeDetector;
+import saker.build.thirdparty.saker.util.ObjectUtils;
+import saker.build.trace.BuildTrace;
+import saker.nest.bundle.BundleIdentifier;
+import saker.nest.bundle.DependencyConstraintConfiguration;
+import saker.nest.scriptinfo.reflection.annot.NestInformation;
+import saker.nest.scriptinfo.reflection.annot.NestParameterInformation;
+import saker.nest.scriptinfo.reflection.annot.NestTaskInformation;
+import saker.nest.scriptinfo.reflection.annot.NestTypeUsage;
+import saker.nest.support.api.dependency.filter.DependencyFilter;
+import saker.nest.support.impl.dependency.BatchModuleStructuredTaskResult;
+import saker.nest.support.impl.dependency.BatchResolveBundleDependencyWorkerTaskFactory;
+import saker.nest.support.impl.dependency.ResolveBundleDependencyFileWorkerTaskFactory;
+import saker.nest.support.main.TaskDocs.DocDependencyResolutionTaskOutput;
+import saker.nest.support.main.TaskDocs.DocSakerPath;
+import saker.nest.utils.FrontendTaskFactory;
+
+@NestTaskInformation(returnType = @NestTypeUsage(value = List.class,
+		elementTypes = DocDependencyResolutionTaskOutput.class))
+@NestInformation("Resolves the saker.nest bundle dependencies of multiple modules.\n"
+		+ "The task executes the dependency resolution for each specified module in a single worker task. "
+		+ "The bundle lookups and loaded bundle informations are shared between the resolutions.\n"
+		+ "It returns a list of dependency resolution results in the same order as the Modules were specified. "
+		+ "Each element is the same as the result of the " + ResolveBundleDependencyTaskFactory.TASK_NAME
+		+ "() task for the configuration of the associated module.\n"
+		+ "This task may initiate network requests in order to complete its work.")
+@NestParameterInformation(value = "Modules",
+		aliases = { "" },
+		required = true,
+		type = @NestTypeUsage(value = List.class, elementTypes = { DependencyResolutionModuleTaskOption.class }),
+		info = @NestInformation("Specifies the modules for which the dependencies should be resolved.\n"
+				+ "Each module must have at least one of the Bundles or DependencyFile fields specified."))
+@NestParameterInformation(value = "DependencyConstraints",
+		type = @NestTypeUsage(DependencyConstraintsTaskOption.class),
+		info = @NestInformation("Specifies the environmental dependency constraints which should be applied to the dependencies "
+				+ "of all modules.\n" + "See " + ResolveBundleDependencyTaskFactory.TASK_NAME
+				+ "() for more information."))
+@NestParameterInformation(value = "Engine",
+		type = @NestTypeUsage(String.class),
+		info = @NestInformation("Specifies the dependency resolution engine to use for all modules.\n" + "See "
+				+ ResolveBundleDependencyTaskFactory.TASK_NAME + "() for more information."))
+@NestParameterInformation(value = "IndexFile",
+		type = @NestTypeUsage(DocSakerPath.class),
+		info = @NestInformation("Path to a bundle index file that the dependencies of all modules should be resolved from.\n"
+				+ "See " + ResolveBundleDependencyTaskFactory.TASK_NAME + "() for more information."))
+public class BatchResolveBundleDependencyTaskFactory extends FrontendTaskFactory<Object> {
+	private static final long serialVersionUID = 1L;
+
+	public static final String TASK_NAME = "nest.dependency.resolve.batch";
+
+	/**
+	 * For {@link Externalizable}.
+	 */
+	public BatchResolveBundleDependencyTaskFactory() {
+	}
+
+	@Override
+	public ParameterizableTask<? extends Object> createTask(ExecutionContext executioncontext) {
+		return new BatchResolveBundleDependencyTaskFactoryImpl();
+	}
+
+	private static final class BatchResolveBundleDependencyTaskFactoryImpl implements ParameterizableTask<Object> {
+		@SakerInput(value = { "", "Modules" }, required = true)
+		public List<DependencyResolutionModuleTaskOption> modulesOption;
+
+		@SakerInput(value = "DependencyConstraints")
+		public DependencyConstraintsTaskOption constraintsOption;
+
+		@SakerInput(value = "Engine")
+		public String engineOption;
+
+		@SakerInput(value = "IndexFile")
+		public SakerPath indexFileOption;
+
+		@Override
+		public Object run(TaskContext taskcontext) throws Exception {
+			if (saker.build.meta.Versions.VERSION_FULL_COMPOUND >= 8_006) {
+				BuildTrace.classifyTask(BuildTrace.CLASSIFICATION_FRONTEND);
+			}
+			String engine;
+			try {
+				engine = ResolveBundleDependencyTaskFactory.getEngine(engineOption);
+			} catch (IllegalArgumentException e) {
+				taskcontext.abortExecution(e);
+				return null;
+			}
+			DependencyConstraintConfiguration constraintconfig = ResolveBundleDependencyTaskFactory
+					.getDependencyConstraintConfiguration(taskcontext, constraintsOption);
+
+			List<ResolveBundleDependencyFileWorkerTaskFactory> modules = new ArrayList<>();
+			if (modulesOption != null) {
+				for (DependencyResolutionModuleTaskOption moduleoption : modulesOption) {
+					if (moduleoption == null) {
+						continue;
+					}
+					if (moduleoption.getBundles() == null && moduleoption.getDependencyFile() == null) {
+						taskcontext.abortExecution(new IllegalArgumentException(
+								"Bundles or DependencyFile field missing for module at index: " + modules.size()));
+						return null;
+					}
+					Set<BundleIdentifier> bundleids = ObjectUtils.newLinkedHashSet(moduleoption.getBundles());
+					ResolveBundleDependencyTaskFactory.removeNulls(bundleids);
+					DependencyFilter depfilter = ResolveBundleDependencyTaskFactory
+							.getDependencyFilter(moduleoption.getFilters());
+					modules.add(new ResolveBundleDependencyFileWorkerTaskFactory(depfilter, constraintconfig,
+							bundleids, moduleoption.getDependencyFile(), moduleoption.getSelfBundle(), engine,
+							indexFileOption));
+				}
+			}
+
+			BatchResolveBundleDependencyWorkerTaskFactory workertask = new BatchResolveBundleDependencyWorkerTaskFactory(
+					modules);
+			TaskIdentifier workertaskid = workertask;
+
+			taskcontext.startTask(workertaskid, workertask, null);
+
+			List<StructuredTaskResult> moduleresults = new ArrayList<>(modules.size());
+			for (int i = 0; i < modules.size(); i++) {
+				moduleresults.add(new BatchModuleStructuredTaskResult(workertaskid, i));
+			}
+			SimpleStructuredListTaskResult result = new SimpleStructuredListTaskResult(moduleresults);
+			taskcontext.reportSelfTaskOutputChangeDetector(new EqualityTaskOutputChangeDetector(result));
+			return result;
+		}
+	}
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.nest.support.main.dependency;
+
+import java.util.Collection;
+
+import saker.build.file.path.SakerPath;
+import saker.nest.bundle.BundleIdentifier;
+import saker.nest.scriptinfo.reflection.annot.NestFieldInformation;
+import saker.nest.scriptinfo.reflection.annot.NestInformation;
+import saker.nest.scriptinfo.reflection.annot.NestTypeUsage;
+import saker.nest.support.main.TaskDocs.DocBundleIdentifier;
+import saker.nest.support.main.TaskDocs.DocDependencyFilter;
+import saker.nest.support.main.TaskDocs.DocSakerPath;
+
+@NestInformation("Specifies the dependency resolution configuration of a single module.\n"
+		+ "The fields have the same semantics as the parameters of the "
+		+ ResolveBundleDependencyTaskFactory.TASK_NAME + "() task with the same name.")
+@NestFieldInformation(value = "Bundles",
+		type = @NestTypeUsage(value = Collection.class, elementTypes = { DocBundleIdentifier.class }),
+		info = @NestInformation("The bundle identifiers for which the dependencies should be resolved."))
+@NestFieldInformation(value = "DependencyFile",
+		type = @NestTypeUsage(DocSakerPath.class),
+		info = @NestInformation("Path to a saker.nest bundle dependency file from which the dependencies should be resolved."))
+@NestFieldInformation(value = "SelfBundle",
+		type = @NestTypeUsage(DocBundleIdentifier.class),
+		info = @NestInformation("The self bundle used to substitute the \"this\" tokens in the DependencyFile."))
+@NestFieldInformation(value = "Filters",
+		type = @NestTypeUsage(value = Collection.class, elementTypes = { DocDependencyFilter.class }),
+		info = @NestInformation("The dependency filters to use when resolving the dependencies of the module."))
+public interface DependencyResolutionModuleTaskOption {
+	public Collection<BundleIdentifier> getBundles();
+
+	public SakerPath getDependencyFile();
+
+	public BundleIdentifier getSelfBundle();
+
+	public Collection<DependencyFilterTaskOption> getFilters();
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.nest.support.main.dependency;
+
+import java.io.Externalizable;
+import java.util.Collection;
+import java.util.Set;
+
+import saker.build.file.path.SakerPath;
+import saker.build.runtime.execution.ExecutionContext;
+import saker.build.task.ParameterizableTask;
+import saker.build.task.TaskContext;
+import saker.build.task.identifier.TaskIdentifier;
+import saker.build.task.utils.SimpleStructuredObjectTaskResult;
+import saker.build.task.utils.annot.SakerInput;
+import saker.build.task.utils.dependencies.EqualityTaskOutputChangeDetector;
+import saker.build.thirdparty.saker.util.ObjectUtils;
+import saker.build.trace.BuildTrace;
+import saker.nest.bundle.BundleIdentifier;
+import saker.nest.bundle.DependencyConstraintConfiguration;
+import saker.nest.scriptinfo.reflection.annot.NestInformation;
+import saker.nest.scriptinfo.reflection.annot.NestParameterInformation;
+import saker.nest.scriptinfo.reflection.annot.NestTaskInformation;
+import saker.nest.scriptinfo.reflection.annot.NestTypeUsage;
+import saker.nest.support.impl.dependency.ExportBundleIndexWorkerTaskFactory;
+import saker.nest.support.main.TaskDocs.DocBundleIdentifier;
+import saker.nest.support.main.TaskDocs.DocSakerPath;
+import saker.nest.utils.FrontendTaskFactory;
+
+@NestTaskInformation(returnType = @NestTypeUsage(DocSakerPath.class))
+@NestInformation("Exports a snapshot of the bundles and their dependencies to a bundle index file.\n"
+		+ "The task looks up all versions of the specified bundles and the bundles that are transitively "
+		+ "reachable through their dependencies, and writes their identifiers and dependency information "
+		+ "to the output file.\n"
+		+ "The index file can be passed as the IndexFile parameter of the "
+		+ ResolveBundleDependencyTaskFactory.TASK_NAME
+		+ "() task, in which case the dependency resolution doesn't access the bundle storages. "
+		+ "This can be used to resolve the dependencies without network access.\n"
+		+ "The task returns the path to the index file.")
+@NestParameterInformation(value = "Bundles",
+		aliases = { "", "Bundle" },
+		required = true,
+		type = @NestTypeUsage(value = Set.class, elementTypes = { DocBundleIdentifier.class }),
+		info = @NestInformation("Specifies the bundles that should be exported to the index.\n"
+				+ "All versions of the bundles are exported regardless of the version numbers in the identifiers."))
+@NestParameterInformation(value = "DependencyConstraints",
+		type = @NestTypeUsage(DependencyConstraintsTaskOption.class),
+		info = @NestInformation("Specifies the environmental dependency constraints which should be applied to the "
+				+ "exported bundles.\n"
+				+ "The bundles that don't match the constraints are not exported, so the index can only be used "
+				+ "by dependency resolutions that are executed with the same constraints.\n" + "See "
+				+ ResolveBundleDependencyTaskFactory.TASK_NAME + "() for more information."))
+@NestParameterInformation(value = "Output",
+		type = @NestTypeUsage(DocSakerPath.class),
+		info = @NestInformation("Specifies a relative output path where the index file should be created.\n"
+				+ "The path is the relative path under the " + ExportBundleIndexTaskFactory.TASK_NAME
+				+ " directory in the build directory.\n" + "The default is "
+				+ ExportBundleIndexTaskFactory.DEFAULT_OUTPUT_FILE_NAME + "."))
+public class ExportBundleIndexTaskFactory extends FrontendTaskFactory<Object> {
+	private static final long serialVersionUID = 1L;
+
+	public static final String TASK_NAME = "nest.dependency.index.export";
+
+	public static final String DEFAULT_OUTPUT_FILE_NAME = "bundles.index";
+
+	/**
+	 * For {@link Externalizable}.
+	 */
+	public ExportBundleIndexTaskFactory() {
+	}
+
+	@Override
+	public ParameterizableTask<? extends Object> createTask(ExecutionContext executioncontext) {
+		return new ParameterizableTask<Object>() {
+			@SakerInput(value = { "", "Bundle", "Bundles" }, required = true)
+			public Collection<BundleIdentifier> bundles;
+
+			@SakerInput(value = "DependencyConstraints")
+			public DependencyConstraintsTaskOption constraintsOption;
+
+			@SakerInput("Output")
+			public SakerPath outputPathOption;
+
+			@Override
+			public Object run(TaskContext taskcontext) throws Exception {
+				if (saker.build.meta.Versions.VERSION_FULL_COMPOUND >= 8_006) {
+					BuildTrace.classifyTask(BuildTrace.CLASSIFICATION_FRONTEND);
+				}
+				SakerPath outputpath = this.outputPathOption;
+				if (outputpath == null) {
+					outputpath = SakerPath.valueOf(DEFAULT_OUTPUT_FILE_NAME);
+				} else if (!outputpath.isRelative()) {
+					taskcontext.abortExecution(new IllegalArgumentException("Output path must be relative."));
+					return null;
+				}
+				Set<BundleIdentifier> bundleids = ObjectUtils.newLinkedHashSet(this.bundles);
+				ResolveBundleDependencyTaskFactory.removeNulls(bundleids);
+				if (bundleids.isEmpty()) {
+					taskcontext.abortExecution(new IllegalArgumentException("No Bundles specified."));
+					return null;
+				}
+				DependencyConstraintConfiguration constraintconfig = ResolveBundleDependencyTaskFactory
+						.getDependencyConstraintConfiguration(taskcontext, constraintsOption);
+
+				ExportBundleIndexWorkerTaskFactory workertask = new ExportBundleIndexWorkerTaskFactory(bundleids,
+						constraintconfig, outputpath);
+				TaskIdentifier workertaskid = workertask;
+				taskcontext.startTask(workertaskid, workertask, null);
+
+				SimpleStructuredObjectTaskResult result = new SimpleStructuredObjectTaskResult(workertaskid);
+				taskcontext.reportSelfTaskOutputChangeDetector(new EqualityTaskOutputChangeDetector(result));
+				return result;
+			}
+		};
+	}
+
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.nest.support.main.dependency;
+
+import java.io.Externalizable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import saker.build.file.path.SakerPath;
+import saker.build.runtime.execution.ExecutionContext;
+import saker.build.task.ParameterizableTask;
+import saker.build.task.TaskContext;
+import saker.build.task.identifier.TaskIdentifier;
+import saker.build.task.utils.SimpleStructuredListTaskResult;
+import saker.build.task.utils.StructuredTaskResult;
+import saker.build.task.utils.annot.SakerInput;
+import saker.build.task.utils.dependencies.EqualityTaskOutputChangeDetector;
+import saker.build.thirdparty.saker.util.ObjectUtils;
+import saker.build.trace.BuildTrace;
+import saker.nest.bundle.BundleIdentifier;
+import saker.nest.bundle.DependencyConstraintConfiguration;
+import saker.nest.scriptinfo.reflection.annot.NestInformation;
+import saker.nest.scriptinfo.reflection.annot.NestParameterInformation;
+import saker.nest.scriptinfo.reflection.annot.NestTaskInformation;
+import saker.nest.scriptinfo.reflection.annot.NestTypeUsage;
+import saker.nest.support.api.dependency.filter.DependencyFilter;
+import saker.nest.support.impl.dependency.BatchModuleStructuredTaskResult;
+import saker.nest.support.impl.dependency.BatchResolveBundleDependencyWorkerTaskFactory;
+import saker.nest.support.impl.dependency.ResolveBundleDependencyFileWorkerTaskFactory;
+import saker.nest.support.main.TaskDocs.DocBundleIdentifier;
+import saker.nest.support.main.TaskDocs.DocDependencyFilter;
+import saker.nest.support.main.TaskDocs.DocDependencyResolutionTaskOutput;
+import saker.nest.support.main.TaskDocs.DocSakerPath;
+import saker.nest.utils.FrontendTaskFactory;
+
+@NestTaskInformation(returnType = @NestTypeUsage(value = List.class,
+		elementTypes = DocDependencyResolutionTaskOutput.class))
+@NestInformation("Resolves saker.nest bundle dependencies for multiple dependency constraint configurations.\n"
+		+ "The task executes the dependency resolution for each specified DependencyConstraints element "
+		+ "in a single worker task. The bundle lookups and loaded bundle informations are shared between the "
+		+ "resolutions, so resolving for multiple JRE versions or native architectures costs little more than "
+		+ "a single resolution.\n"
+		+ "It returns a list of dependency resolution results in the same order as the DependencyConstraints "
+		+ "were specified. Each element is the same as the result of the "
+		+ ResolveBundleDependencyTaskFactory.TASK_NAME + "() task with the associated constraints.\n"
+		+ "This task may initiate network requests in order to complete its work.")
+@NestParameterInformation(value = "Bundles",
+		aliases = { "", "Bundle" },
+		type = @NestTypeUsage(value = Set.class, elementTypes = { DocBundleIdentifier.class }),
+		info = @NestInformation("Specifies the bundle identifiers for which the dependencies should be resolved.\n"
+				+ "See " + ResolveBundleDependencyTaskFactory.TASK_NAME + "() for more information."))
+@NestParameterInformation(value = "DependencyFile",
+		type = @NestTypeUsage(DocSakerPath.class),
+		info = @NestInformation("Path to a saker.nest bundle dependency file from which the dependencies should be resolved.\n"
+				+ "See " + ResolveBundleDependencyTaskFactory.TASK_NAME + "() for more information."))
+@NestParameterInformation(value = "SelfBundle",
+		type = @NestTypeUsage(DocBundleIdentifier.class),
+		info = @NestInformation("Specifies the self bundle in relation to the dependency resolution.\n"
+				+ "See " + ResolveBundleDependencyTaskFactory.TASK_NAME + "() for more information."))
+@NestParameterInformation(value = "DependencyConstraints",
+		required = true,
+		type = @NestTypeUsage(value = List.class, elementTypes = { DependencyConstraintsTaskOption.class }),
+		info = @NestInformation("Specifies the dependency constraint configurations for which the dependencies "
+				+ "should be resolved.\n"
+				+ "A dependency resolution is executed for each element. The constraints that are missing from an "
+				+ "element are filled out based on the current build execution constraint configuration.\n" + "See "
+				+ ResolveBundleDependencyTaskFactory.TASK_NAME + "() for more information."))
+@NestParameterInformation(value = "Filters",
+		aliases = { "Filter" },
+		type = @NestTypeUsage(value = Collection.class, elementTypes = { DocDependencyFilter.class }),
+		info = @NestInformation("Specifies one or more dependency filter to be used when resolving the dependencies.\n"
+				+ "See " + ResolveBundleDependencyTaskFactory.TASK_NAME + "() for more information."))
+@NestParameterInformation(value = "Engine",
+		type = @NestTypeUsage(String.class),
+		info = @NestInformation("Specifies the dependency resolution engine to use.\n" + "See "
+				+ ResolveBundleDependencyTaskFactory.TASK_NAME + "() for more information."))
+@NestParameterInformation(value = "IndexFile",
+		type = @NestTypeUsage(DocSakerPath.class),
+		info = @NestInformation("Path to a bundle index file that the dependencies should be resolved from.\n"
+				+ "See " + ResolveBundleDependencyTaskFactory.TASK_NAME + "() for more information."))
+public class MatrixResolveBundleDependencyTaskFactory extends FrontendTaskFactory<Object> {
+	private static final long serialVersionUID = 1L;
+
+	public static final String TASK_NAME = "nest.dependency.resolve.matrix";
+
+	/**
+	 * For {@link Externalizable}.
+	 */
+	public MatrixResolveBundleDependencyTaskFactory() {
+	}
+
+	@Override
+	public ParameterizableTask<? extends Object> createTask(ExecutionContext executioncontext) {
+		return new MatrixResolveBundleDependencyTaskFactoryImpl();
+	}
+
+	private static final class MatrixResolveBundleDependencyTaskFactoryImpl implements ParameterizableTask<Object> {
+		@SakerInput(value = { "", "Bundle", "Bundles" })
+		public Collection<BundleIdentifier> bundles;
+
+		@SakerInput(value = "DependencyFile")
+		public SakerPath dependencyFile;
+		@SakerInput(value = "SelfBundle")
+		public BundleIdentifier thisBundleId;
+
+		@SakerInput(value = { "Filter", "Filters" })
+		public Collection<DependencyFilterTaskOption> filtersOption;
+
+		@SakerInput(value = "DependencyConstraints", required = true)
+		public List<DependencyConstraintsTaskOption> constraintsOption;
+
+		@SakerInput(value = "Engine")
+		public String engineOption;
+
+		@SakerInput(value = "IndexFile")
+		public SakerPath indexFileOption;
+
+		@Override
+		public Object run(TaskContext taskcontext) throws Exception {
+			if (saker.build.meta.Versions.VERSION_FULL_COMPOUND >= 8_006) {
+				BuildTrace.classifyTask(BuildTrace.CLASSIFICATION_FRONTEND);
+			}
+
+			if (this.bundles == null && this.dependencyFile == null) {
+				taskcontext
+						.abortExecution(new IllegalArgumentException("Bundles or DependencyFile parameter missing."));
+				return null;
+			}
+			String engine;
+			try {
+				engine = ResolveBundleDependencyTaskFactory.getEngine(engineOption);
+			} catch (IllegalArgumentException e) {
+				taskcontext.abortExecution(e);
+				return null;
+			}
+
+			Set<BundleIdentifier> bundleids = ObjectUtils.newLinkedHashSet(this.bundles);
+			ResolveBundleDependencyTaskFactory.removeNulls(bundleids);
+			DependencyFilter depfilter = ResolveBundleDependencyTaskFactory.getDependencyFilter(filtersOption);
+
+			List<ResolveBundleDependencyFileWorkerTaskFactory> modules = new ArrayList<>();
+			if (constraintsOption != null) {
+				for (DependencyConstraintsTaskOption constraintoption : constraintsOption) {
+					if (constraintoption == null) {
+						continue;
+					}
+					DependencyConstraintConfiguration constraintconfig = ResolveBundleDependencyTaskFactory
+							.getDependencyConstraintConfiguration(taskcontext, constraintoption);
+					modules.add(new ResolveBundleDependencyFileWorkerTaskFactory(depfilter, constraintconfig,
+							bundleids, dependencyFile, thisBundleId, engine, indexFileOption));
+				}
+			}
+			if (modules.isEmpty()) {
+				taskcontext.abortExecution(new IllegalArgumentException("No DependencyConstraints specified."));
+				return null;
+			}
+
+			BatchResolveBundleDependencyWorkerTaskFactory workertask = new BatchResolveBundleDependencyWorkerTaskFactory(
+					modules);
+			TaskIdentifier workertaskid = workertask;
+
+			taskcontext.startTask(workertaskid, workertask, null);
+
+			List<StructuredTaskResult> constraintresults = new ArrayList<>(modules.size());
+			for (int i = 0; i < modules.size(); i++) {
+				constraintresults.add(new BatchModuleStructuredTaskResult(workertaskid, i));
+			}
+			SimpleStructuredListTaskResult result = new SimpleStructuredListTaskResult(constraintresults);
+			taskcontext.reportSelfTaskOutputChangeDetector(new EqualityTaskOutputChangeDetector(result));
+			return result;
+		}
+	}
+}
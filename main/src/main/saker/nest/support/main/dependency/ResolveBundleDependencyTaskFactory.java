@@ -99,6 +99,32 @@ import saker.nest.utils.FrontendTaskFactory;
 				+ "all dependencies are resolved, and they are not filtered.\n"
 				+ "Other dependency filters can be applied when it is suitable for a given use-case. Dependency filters can be "
 				+ "created by other Nest packages as well."))
+@NestParameterInformation(value = "Engine",
+		type = @NestTypeUsage(String.class),
+		info = @NestInformation("Specifies the dependency resolution engine to use.\n"
+				+ "The value may be " + ResolveBundleDependencyFileWorkerTaskFactory.ENGINE_DOMAIN + " or "
+				+ ResolveBundleDependencyFileWorkerTaskFactory.ENGINE_SAT + ". The default is "
+				+ ResolveBundleDependencyFileWorkerTaskFactory.ENGINE_DOMAIN + ".\n"
+				+ "The " + ResolveBundleDependencyFileWorkerTaskFactory.ENGINE_DOMAIN
+				+ " engine uses the backtracking dependency domain resolution of the Nest repository.\n"
+				+ "The " + ResolveBundleDependencyFileWorkerTaskFactory.ENGINE_SAT
+				+ " engine encodes the bundle versions and dependency ranges as boolean clauses and solves them using "
+				+ "conflict driven clause learning. It only allows a single version of a given bundle in the "
+				+ "resolution result, and reports the conflicting requirements if the dependencies cannot be satisfied. "
+				+ "The dependencies are decided depth first in declaration order, preferring the higher versions, same as "
+				+ "with the " + ResolveBundleDependencyFileWorkerTaskFactory.ENGINE_DOMAIN + " engine. However, if the "
+				+ "choices lead to conflicts, it may select a different valid set of bundles than the "
+				+ ResolveBundleDependencyFileWorkerTaskFactory.ENGINE_DOMAIN + " engine.\n"
+				+ "It can finish in reasonable time for dependency graphs that cause excessive backtracking "
+				+ "with the default engine."))
+@NestParameterInformation(value = "IndexFile",
+		type = @NestTypeUsage(DocSakerPath.class),
+		info = @NestInformation("Path to a bundle index file that the dependencies should be resolved from.\n"
+				+ "If specified, the bundles and their dependencies are retrieved from the index file instead of the "
+				+ "bundle storages of the repository. The resolution doesn't initiate network requests in this case.\n"
+				+ "The index file can be created with the " + ExportBundleIndexTaskFactory.TASK_NAME + "() task. "
+				+ "It must be exported with the same DependencyConstraints as the resolution is executed with, "
+				+ "otherwise the task fails."))
 public class ResolveBundleDependencyTaskFactory extends FrontendTaskFactory<Object> {
 	private static final long serialVersionUID = 1L;
 
@@ -130,6 +156,12 @@ public class ResolveBundleDependencyTaskFactory extends FrontendTaskFactory<Obje
 		@SakerInput(value = "DependencyConstraints")
 		public DependencyConstraintsTaskOption constraintsOption;
 
+		@SakerInput(value = "Engine")
+		public String engineOption;
+
+		@SakerInput(value = "IndexFile")
+		public SakerPath indexFileOption;
+
 		@Override
 		public Object run(TaskContext taskcontext) throws Exception {
 			if (saker.build.meta.Versions.VERSION_FULL_COMPOUND >= 8_006) {
@@ -141,37 +173,23 @@ public class ResolveBundleDependencyTaskFactory extends FrontendTaskFactory<Obje
 						.abortExecution(new IllegalArgumentException("Bundles or DependencyFile parameter missing."));
 				return null;
 			}
-			DependencyConstraintConfiguration constraintconfig;
-			if (constraintsOption == null) {
-				constraintconfig = taskcontext.getTaskUtilities().getReportExecutionDependency(
-						RepositoryPropertyUtils.getRepositoryDependencyConstraingConfigurationExecutionProperty());
-			} else {
-				constraintconfig = DependencyConstraintConfiguration.builder()
-						.setBuildSystemVersion(constraintsOption.getNativeArchitecture())
-						.setJreMajorVersion(constraintsOption.getJREMajorVersion())
-						.setRepositoryVersion(constraintsOption.getRepositoryVersion())
-						.setNativeArchitecture(constraintsOption.getNativeArchitecture()).buildWithDefaults(() -> {
-							return taskcontext.getTaskUtilities().getReportExecutionDependency(RepositoryPropertyUtils
-									.getRepositoryDependencyConstraingConfigurationExecutionProperty());
-						});
+			String engine;
+			try {
+				engine = getEngine(engineOption);
+			} catch (IllegalArgumentException e) {
+				taskcontext.abortExecution(e);
+				return null;
 			}
+			DependencyConstraintConfiguration constraintconfig = getDependencyConstraintConfiguration(taskcontext,
+					constraintsOption);
 
 			Set<BundleIdentifier> bundleids = ObjectUtils.newLinkedHashSet(this.bundles);
 			removeNulls(bundleids);
 			SakerPath depfilepath = this.dependencyFile;
 
-			List<DependencyFilter> filters = new ArrayList<>();
-			if (!ObjectUtils.isNullOrEmpty(filtersOption)) {
-				for (DependencyFilterTaskOption fo : filtersOption) {
-					if (fo == null) {
-						continue;
-					}
-					filters.add(fo.getFilter());
-				}
-			}
-			DependencyFilter depfilter = ChainDependencyFilter.create(filters);
+			DependencyFilter depfilter = getDependencyFilter(filtersOption);
 			ResolveBundleDependencyFileWorkerTaskFactory workertask = new ResolveBundleDependencyFileWorkerTaskFactory(
-					depfilter, constraintconfig, bundleids, depfilepath, thisBundleId);
+					depfilter, constraintconfig, bundleids, depfilepath, thisBundleId, engine, indexFileOption);
 			TaskIdentifier workertaskid = workertask;
 
 			taskcontext.startTask(workertaskid, workertask, null);
@@ -181,15 +199,62 @@ public class ResolveBundleDependencyTaskFactory extends FrontendTaskFactory<Obje
 			return result;
 		}
 
-		private static void removeNulls(Iterable<?> items) {
-			if (items == null) {
-				return;
-			}
-			for (Iterator<?> it = items.iterator(); it.hasNext();) {
-				Object o = it.next();
-				if (o == null) {
-					it.remove();
+	}
+
+	/**
+	 * Converts the Engine parameter to the engine of the worker task.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If the engine is unknown.
+	 */
+	static String getEngine(String engineoption) throws IllegalArgumentException {
+		if (engineoption == null
+				|| ResolveBundleDependencyFileWorkerTaskFactory.ENGINE_DOMAIN.equalsIgnoreCase(engineoption)) {
+			return null;
+		}
+		if (ResolveBundleDependencyFileWorkerTaskFactory.ENGINE_SAT.equalsIgnoreCase(engineoption)) {
+			return ResolveBundleDependencyFileWorkerTaskFactory.ENGINE_SAT;
+		}
+		throw new IllegalArgumentException("Unknown dependency resolution Engine: " + engineoption);
+	}
+
+	static DependencyConstraintConfiguration getDependencyConstraintConfiguration(TaskContext taskcontext,
+			DependencyConstraintsTaskOption constraintsoption) {
+		if (constraintsoption == null) {
+			return taskcontext.getTaskUtilities().getReportExecutionDependency(
+					RepositoryPropertyUtils.getRepositoryDependencyConstraingConfigurationExecutionProperty());
+		}
+		return DependencyConstraintConfiguration.builder()
+				.setBuildSystemVersion(constraintsoption.getBuildSystemVersion())
+				.setJreMajorVersion(constraintsoption.getJREMajorVersion())
+				.setRepositoryVersion(constraintsoption.getRepositoryVersion())
+				.setNativeArchitecture(constraintsoption.getNativeArchitecture()).buildWithDefaults(() -> {
+					return taskcontext.getTaskUtilities().getReportExecutionDependency(
+							RepositoryPropertyUtils.getRepositoryDependencyConstraingConfigurationExecutionProperty());
+				});
+	}
+
+	static DependencyFilter getDependencyFilter(Collection<DependencyFilterTaskOption> filtersoption) {
+		List<DependencyFilter> filters = new ArrayList<>();
+		if (!ObjectUtils.isNullOrEmpty(filtersoption)) {
+			for (DependencyFilterTaskOption fo : filtersoption) {
+				if (fo == null) {
+					continue;
 				}
+				filters.add(fo.getFilter());
+			}
+		}
+		return ChainDependencyFilter.create(filters);
+	}
+
+	static void removeNulls(Iterable<?> items) {
+		if (items == null) {
+			return;
+		}
+		for (Iterator<?> it = items.iterator(); it.hasNext();) {
+			Object o = it.next();
+			if (o == null) {
+				it.remove();
 			}
 		}
 	}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.nest.support.main.download;
+
+import java.io.Externalizable;
+import java.util.ArrayList;
+import java.util.List;
+
+import saker.build.runtime.execution.ExecutionContext;
+import saker.build.task.ParameterizableTask;
+import saker.build.task.TaskContext;
+import saker.build.task.identifier.TaskIdentifier;
+import saker.build.task.utils.SimpleStructuredObjectTaskResult;
+import saker.build.task.utils.StructuredTaskResult;
+import saker.build.task.utils.annot.SakerInput;
+import saker.build.task.utils.dependencies.EqualityTaskOutputChangeDetector;
+import saker.build.trace.BuildTrace;
+import saker.build.util.data.DataConverterUtils;
+import saker.nest.bundle.BundleKey;
+import saker.nest.scriptinfo.reflection.annot.NestInformation;
+import saker.nest.scriptinfo.reflection.annot.NestParameterInformation;
+import saker.nest.scriptinfo.reflection.annot.NestTaskInformation;
+import saker.nest.scriptinfo.reflection.annot.NestTypeUsage;
+import saker.nest.support.api.dependency.DependencyResolutionTaskOutput;
+import saker.nest.support.impl.download.AttachmentDownloadingWorkerTaskFactory;
+import saker.nest.support.main.TaskDocs.DocDependencyResolutionTaskOutput;
+import saker.nest.support.main.TaskDocs.DocDownloadAttachmentsTaskOutput;
+import saker.nest.support.main.dependency.ResolveBundleDependencyTaskFactory;
+import saker.nest.utils.FrontendTaskFactory;
+
+@NestTaskInformation(returnType = @NestTypeUsage(DocDownloadAttachmentsTaskOutput.class))
+@NestInformation("Downloads the source and documentation attachments of the resolved bundles.\n"
+		+ "The task takes the output of the " + ResolveBundleDependencyTaskFactory.TASK_NAME
+		+ "() task, and downloads the attachments of all resolved bundles to the build directory. "
+		+ "The attachment informations of the bundles are retrieved at once, and the attachments are downloaded "
+		+ "concurrently in a single worker task.\n"
+		+ "The task can be used to configure the source and documentation attachments of the classpath for IDE "
+		+ "projects.\n" + "This task may initiate network requests in order to complete its work.")
+@NestParameterInformation(value = "Bundles",
+		aliases = { "" },
+		required = true,
+		type = @NestTypeUsage(DocDependencyResolutionTaskOutput.class),
+		info = @NestInformation("Specifies the dependency resolution result for which the attachments should be "
+				+ "downloaded.\n" + "The parameter accepts the output from the "
+				+ ResolveBundleDependencyTaskFactory.TASK_NAME + "() task."))
+@NestParameterInformation(value = "Sources",
+		type = @NestTypeUsage(boolean.class),
+		info = @NestInformation("Specifies whether the source attachments should be downloaded.\n"
+				+ "The default is true."))
+@NestParameterInformation(value = "Documentation",
+		type = @NestTypeUsage(boolean.class),
+		info = @NestInformation("Specifies whether the documentation attachments should be downloaded.\n"
+				+ "The default is true."))
+@NestParameterInformation(value = "Concurrency",
+		type = @NestTypeUsage(int.class),
+		info = @NestInformation("Specifies the maximum number of attachments that are downloaded concurrently.\n"
+				+ "The default is " + DownloadAttachmentsTaskFactory.DEFAULT_CONCURRENCY + "."))
+public class DownloadAttachmentsTaskFactory extends FrontendTaskFactory<Object> {
+	private static final long serialVersionUID = 1L;
+
+	public static final String TASK_NAME = "nest.bundle.download.attachments";
+
+	public static final int DEFAULT_CONCURRENCY = 8;
+
+	/**
+	 * For {@link Externalizable}.
+	 */
+	public DownloadAttachmentsTaskFactory() {
+	}
+
+	@Override
+	public ParameterizableTask<? extends Object> createTask(ExecutionContext executioncontext) {
+		return new ParameterizableTask<Object>() {
+			@SakerInput(value = { "", "Bundles" }, required = true)
+			public Object bundles;
+
+			@SakerInput(value = "Sources")
+			public boolean sourcesOption = true;
+
+			@SakerInput(value = "Documentation")
+			public boolean documentationOption = true;
+
+			@SakerInput(value = "Concurrency")
+			public Integer concurrencyOption;
+
+			@Override
+			public Object run(TaskContext taskcontext) throws Exception {
+				if (saker.build.meta.Versions.VERSION_FULL_COMPOUND >= 8_006) {
+					BuildTrace.classifyTask(BuildTrace.CLASSIFICATION_FRONTEND);
+				}
+				int concurrency = DEFAULT_CONCURRENCY;
+				if (concurrencyOption != null) {
+					if (concurrencyOption < 1) {
+						taskcontext.abortExecution(new IllegalArgumentException(
+								"Invalid Concurrency: " + concurrencyOption + " (must be positive)"));
+						return null;
+					}
+					concurrency = concurrencyOption;
+				}
+				Object bundlesobj = bundles;
+				if (bundlesobj instanceof StructuredTaskResult) {
+					bundlesobj = ((StructuredTaskResult) bundlesobj).toResult(taskcontext);
+				}
+				Object adapted = DataConverterUtils.adaptInterface(this.getClass().getClassLoader(), bundlesobj);
+				if (!(adapted instanceof DependencyResolutionTaskOutput)) {
+					taskcontext.abortExecution(new IllegalArgumentException(
+							"Bundles is not a dependency resolution result: " + bundlesobj));
+					return null;
+				}
+				List<BundleKey> bundlekeys = new ArrayList<>(
+						((DependencyResolutionTaskOutput) adapted).getBundles());
+
+				AttachmentDownloadingWorkerTaskFactory workertask = new AttachmentDownloadingWorkerTaskFactory(
+						bundlekeys, sourcesOption, documentationOption, concurrency);
+				TaskIdentifier workertaskid = workertask;
+				taskcontext.startTask(workertaskid, workertask, null);
+
+				SimpleStructuredObjectTaskResult result = new SimpleStructuredObjectTaskResult(workertaskid);
+				taskcontext.reportSelfTaskOutputChangeDetector(new EqualityTaskOutputChangeDetector(result));
+				return result;
+			}
+		};
+	}
+}
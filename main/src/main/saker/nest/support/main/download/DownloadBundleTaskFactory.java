@@ -17,9 +17,14 @@ package saker.nest.support.main.download;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import saker.build.exception.PropertyComputationFailedException;
 import saker.build.runtime.execution.ExecutionContext;
@@ -43,10 +48,15 @@ import saker.nest.scriptinfo.reflection.annot.NestTaskInformation;
 import saker.nest.scriptinfo.reflection.annot.NestTypeUsage;
 import saker.nest.support.api.dependency.DependencyResolutionTaskOutput;
 import saker.nest.support.api.download.BundleDownloadUtils;
+import saker.nest.support.api.download.DownloadBundleTaskOutput;
 import saker.nest.support.api.download.DownloadBundleWorkerTaskOutput;
 import saker.nest.support.api.localize.LocalizeBundleTaskOutput;
 import saker.nest.support.api.localize.LocalizeBundleWorkerTaskOutput;
 import saker.nest.support.impl.NestSupportImpl;
+import saker.nest.support.impl.download.BundleKeyExtractingWorkerTaskFactory;
+import saker.nest.support.impl.download.DownloadDirectoryGarbageCollector;
+import saker.nest.support.impl.download.DownloadDirectoryGarbageCollectorWorkerTaskFactory;
+import saker.nest.support.impl.download.GroupBundleDownloadingWorkerTaskFactory;
 import saker.nest.support.impl.util.BundleIdentifierBundleKeyExecutionProperty;
 import saker.nest.support.main.TaskDocs.DocDownloadBundleTaskOutput;
 import saker.nest.support.main.dependency.ResolveBundleDependencyTaskFactory;
@@ -68,6 +78,43 @@ import saker.nest.utils.FrontendTaskFactory;
 				+ "The parameter accepts a list of bundle identifiers, or the output from the "
 				+ ResolveBundleDependencyTaskFactory.TASK_NAME + "() task.\n"
 				+ "If a specified bundle identifier doesn't have a version number, the most recent bundle version will be downloaded."))
+@NestParameterInformation(value = "GroupSize",
+		type = @NestTypeUsage(int.class),
+		info = @NestInformation("Specifies the number of bundles that should be downloaded by a single worker task.\n"
+				+ "By default, each bundle is downloaded by a separate task. If the number of bundles is large, the "
+				+ "per task overhead of the build system may be greater than the cost of the downloads. "
+				+ "If GroupSize is specified, the bundles are split into groups of the given size on average, and "
+				+ "each group is downloaded concurrently in a single task.\n"
+				+ "The groups are assigned based on the bundle identifiers, so adding or removing a bundle only "
+				+ "affects the group it is assigned to, and the tasks of the other groups are not rerun.\n"
+				+ "The output of the task is the same regardless of this parameter."))
+@NestParameterInformation(value = "Extract",
+		type = @NestTypeUsage(boolean.class),
+		info = @NestInformation("Specifies whether the bundles should be extracted to directories instead of being "
+				+ "downloaded as archives.\n"
+				+ "If set to true, the contents of each bundle is extracted to a directory in the build directory, "
+				+ "and the paths in the task output refer to these directories. "
+				+ "The versions of a bundle are extracted to the same directory, and the extracted entries are "
+				+ "tracked separately, so when the bundle is updated, only the modified entries are rewritten, "
+				+ "and the removed entries are deleted. Only a single version of a bundle can be extracted "
+				+ "in a build.\n"
+				+ "The default is false."))
+@NestParameterInformation(value = "RetentionDays",
+		type = @NestTypeUsage(int.class),
+		info = @NestInformation("Specifies the number of days after which the unreferenced downloads of the bundles "
+				+ "should be removed from the build directory.\n"
+				+ "If specified, the task records the downloaded bundle files it references in the download "
+				+ "directories after the downloads finish, and removes the other previously recorded downloads of the "
+				+ "same bundles that haven't been referenced by any download task for the given number of days. "
+				+ "The files of the previous versions and the previous contents of the same version are removed.\n"
+				+ "A file is only removed if it wasn't referenced in the previous build either, so the download "
+				+ "tasks that run later in the same build can still use it. If 0, the downloads that weren't "
+				+ "referenced in the current and previous builds are removed.\n"
+				+ "The bundles downloaded by tasks that don't specify this parameter are never removed.\n"
+				+ "The references are only recorded when the task is run, so the retention period should be longer "
+				+ "than the time between the builds. If a removed bundle is still in use, it is downloaded again "
+				+ "in the next build.\n"
+				+ "By default, downloaded bundles are not removed."))
 public class DownloadBundleTaskFactory extends FrontendTaskFactory<Object> {
 	private static final long serialVersionUID = 1L;
 
@@ -79,24 +126,51 @@ public class DownloadBundleTaskFactory extends FrontendTaskFactory<Object> {
 			@SakerInput(value = { "", "Bundle", "Bundles" }, required = true)
 			public Object bundles;
 
+			@SakerInput(value = "GroupSize")
+			public Integer groupSizeOption;
+
+			@SakerInput(value = "Extract")
+			public boolean extractOption;
+
+			@SakerInput(value = "RetentionDays")
+			public Integer retentionDaysOption;
+
 			@Override
 			public Object run(TaskContext taskcontext) throws Exception {
 				if (saker.build.meta.Versions.VERSION_FULL_COMPOUND >= 8_006) {
 					BuildTrace.classifyTask(BuildTrace.CLASSIFICATION_FRONTEND);
 				}
 
+				if (groupSizeOption != null && groupSizeOption < 1) {
+					taskcontext.abortExecution(
+							new IllegalArgumentException("Invalid GroupSize: " + groupSizeOption + " (must be positive)"));
+					return null;
+				}
+				if (retentionDaysOption != null && retentionDaysOption < 0) {
+					taskcontext.abortExecution(new IllegalArgumentException(
+							"Invalid RetentionDays: " + retentionDaysOption + " (must be non-negative)"));
+					return null;
+				}
+
 				//XXX abort executions where possible instead of throwing
 				if (bundles instanceof StructuredTaskResult) {
+					if (!(bundles instanceof StructuredListTaskResult)) {
+						//depend on the resolved bundles separately, so only the changed ones affect the task
+						StructuredListTaskResult resolvedbundles = NestSupportImpl
+								.getDependencyResolutionBundleResults(taskcontext, (StructuredTaskResult) bundles);
+						if (resolvedbundles != null) {
+							bundles = resolvedbundles;
+						}
+					}
 					if (bundles instanceof StructuredListTaskResult) {
 						StructuredListTaskResult bundlesstructuredlist = (StructuredListTaskResult) bundles;
 						Iterator<? extends StructuredTaskResult> it = bundlesstructuredlist.resultIterator();
-						List<TaskIdentifier> bundlepaths = new ArrayList<>();
+						List<BundleKey> bundlekeys = new ArrayList<>();
 						while (it.hasNext()) {
 							Object taskres = it.next().toResult(taskcontext);
-							TaskIdentifier dltaskid = handleBundleObject(taskcontext, taskres);
-							bundlepaths.add(dltaskid);
+							bundlekeys.add(getBundleKeyOfObject(taskcontext, taskres));
 						}
-						return NestSupportImpl.createBundleDownloadTaskOutput(bundlepaths);
+						return startDownloadTasks(taskcontext, bundlekeys);
 					}
 					StructuredTaskResult structuredbundles = (StructuredTaskResult) bundles;
 					bundles = structuredbundles.toResult(taskcontext);
@@ -106,7 +180,7 @@ public class DownloadBundleTaskFactory extends FrontendTaskFactory<Object> {
 				}
 				if (bundles instanceof Iterable<?>) {
 					Iterable<?> bundlesiterable = (Iterable<?>) bundles;
-					List<TaskIdentifier> bundlepaths = new ArrayList<>();
+					List<BundleKey> bundlekeys = new ArrayList<>();
 					for (Object o : bundlesiterable) {
 						if (o == null) {
 							continue;
@@ -114,10 +188,9 @@ public class DownloadBundleTaskFactory extends FrontendTaskFactory<Object> {
 						if (o instanceof StructuredTaskResult) {
 							o = ((StructuredTaskResult) o).toResult(taskcontext);
 						}
-						TaskIdentifier dltaskid = handleBundleObject(taskcontext, o);
-						bundlepaths.add(dltaskid);
+						bundlekeys.add(getBundleKeyOfObject(taskcontext, o));
 					}
-					return NestSupportImpl.createBundleDownloadTaskOutput(bundlepaths);
+					return startDownloadTasks(taskcontext, bundlekeys);
 				}
 
 				Exception adaptexc = null;
@@ -125,37 +198,31 @@ public class DownloadBundleTaskFactory extends FrontendTaskFactory<Object> {
 					Object adapted = DataConverterUtils.adaptInterface(this.getClass().getClassLoader(), bundles);
 					if (adapted instanceof DependencyResolutionTaskOutput) {
 						DependencyResolutionTaskOutput depoutput = (DependencyResolutionTaskOutput) adapted;
-						List<TaskIdentifier> bundlepaths = new ArrayList<>();
-						for (BundleKey bundlekey : depoutput.getBundles()) {
-							TaskIdentifier dltaskid = handleBundleObject(taskcontext, bundlekey);
-							bundlepaths.add(dltaskid);
-						}
-						return NestSupportImpl.createBundleDownloadTaskOutput(bundlepaths);
+						return startDownloadTasks(taskcontext, new ArrayList<>(depoutput.getBundles()));
 					}
 					if (adapted instanceof LocalizeBundleTaskOutput) {
 						LocalizeBundleTaskOutput locoutput = (LocalizeBundleTaskOutput) adapted;
 						StructuredListTaskResult bundlesstructuredlist = locoutput.getLocalizeResults();
 						Iterator<? extends StructuredTaskResult> it = bundlesstructuredlist.resultIterator();
-						List<TaskIdentifier> bundlepaths = new ArrayList<>();
+						List<BundleKey> bundlekeys = new ArrayList<>();
 						while (it.hasNext()) {
 							StructuredTaskResult taskres = it.next();
 							LocalizeBundleWorkerTaskOutput bundlelocalizeworkerout = (LocalizeBundleWorkerTaskOutput) taskres
 									.toResult(taskcontext);
-							TaskIdentifier dltaskid = handleBundleObject(taskcontext,
-									bundlelocalizeworkerout.getBundleKey());
-							bundlepaths.add(dltaskid);
+							bundlekeys.add(bundlelocalizeworkerout.getBundleKey());
 						}
-						return NestSupportImpl.createBundleDownloadTaskOutput(bundlepaths);
+						return startDownloadTasks(taskcontext, bundlekeys);
 					}
 				} catch (Exception e) {
 					adaptexc = e;
 				}
+				BundleKey singlebundlekey;
 				try {
-					TaskIdentifier singledltaskid = handleBundleObject(taskcontext, bundles);
-					return NestSupportImpl.createBundleDownloadTaskOutput(Collections.singletonList(singledltaskid));
+					singlebundlekey = getBundleKeyOfObject(taskcontext, bundles);
 				} catch (Exception e) {
 					throw IOUtils.addExc(e, adaptexc);
 				}
+				return startDownloadTasks(taskcontext, Collections.singletonList(singlebundlekey));
 			}
 
 			private BundleKey getBundleKeyOfObject(TaskContext taskcontext, Object obj)
@@ -198,11 +265,86 @@ public class DownloadBundleTaskFactory extends FrontendTaskFactory<Object> {
 				}
 			}
 
-			private TaskIdentifier handleBundleObject(TaskContext taskcontext, Object obj) throws Exception {
-				return handleBundleObject(taskcontext, getBundleKeyOfObject(taskcontext, obj));
+			private Object startDownloadTasks(TaskContext taskcontext, List<BundleKey> bundlekeys) {
+				if (extractOption) {
+					//the versions of a bundle share the extraction directory
+					Map<String, BundleKey> extractdirkeys = new HashMap<>();
+					for (BundleKey bundlekey : bundlekeys) {
+						if (bundlekey == null) {
+							continue;
+						}
+						BundleKey prev = extractdirkeys.putIfAbsent(BundleKeyExtractingWorkerTaskFactory
+								.getExtractDirectoryName(bundlekey.getBundleIdentifier()), bundlekey);
+						if (prev != null && !prev.equals(bundlekey)) {
+							taskcontext.abortExecution(new IllegalArgumentException(
+									"Multiple versions of the same bundle cannot be extracted: " + prev + " and "
+											+ bundlekey));
+							return null;
+						}
+					}
+				}
+				if (retentionDaysOption == null) {
+					//the downloads used by this task are not collected by other tasks
+					Set<BundleIdentifier> bundleids = new LinkedHashSet<>();
+					for (BundleKey bundlekey : bundlekeys) {
+						if (bundlekey != null) {
+							bundleids.add(bundlekey.getBundleIdentifier());
+						}
+					}
+					DownloadDirectoryGarbageCollector.keep(taskcontext, bundleids);
+				}
+				DownloadBundleTaskOutput result = startDownloadWorkerTasks(taskcontext, bundlekeys);
+				if (retentionDaysOption != null) {
+					//collected after the downloads are done, so the actually downloaded files are recorded
+					DownloadDirectoryGarbageCollectorWorkerTaskFactory gctask = new DownloadDirectoryGarbageCollectorWorkerTaskFactory(
+							result.getBundlePaths(), TimeUnit.DAYS.toMillis(retentionDaysOption));
+					taskcontext.startTask(gctask, gctask, null);
+				}
+				return result;
+			}
+
+			private DownloadBundleTaskOutput startDownloadWorkerTasks(TaskContext taskcontext,
+					List<BundleKey> bundlekeys) {
+				if (groupSizeOption == null) {
+					List<TaskIdentifier> bundlepaths = new ArrayList<>(bundlekeys.size());
+					for (BundleKey bundlekey : bundlekeys) {
+						bundlepaths.add(startBundleDownloadTask(taskcontext, bundlekey));
+					}
+					return NestSupportImpl.createBundleDownloadTaskOutput(bundlepaths);
+				}
+				//the same bundle is only downloaded once
+				Set<BundleKey> distinctkeys = new LinkedHashSet<>();
+				for (BundleKey bundlekey : bundlekeys) {
+					Objects.requireNonNull(bundlekey, "bundle key");
+					distinctkeys.add(bundlekey);
+				}
+				Map<BundleKey, TaskIdentifier> bundlegrouptasks = new HashMap<>();
+				Map<BundleKey, Integer> bundlegroupindices = new HashMap<>();
+				for (List<BundleKey> group : assignBundleGroups(distinctkeys, groupSizeOption)) {
+					GroupBundleDownloadingWorkerTaskFactory grouptask = new GroupBundleDownloadingWorkerTaskFactory(
+							group, extractOption);
+					taskcontext.startTask(grouptask, grouptask, null);
+					for (int i = 0; i < group.size(); i++) {
+						bundlegrouptasks.put(group.get(i), grouptask);
+						bundlegroupindices.put(group.get(i), i);
+					}
+				}
+				List<TaskIdentifier> resultgrouptaskids = new ArrayList<>(bundlekeys.size());
+				List<Integer> resultgroupindices = new ArrayList<>(bundlekeys.size());
+				for (BundleKey bundlekey : bundlekeys) {
+					resultgrouptaskids.add(bundlegrouptasks.get(bundlekey));
+					resultgroupindices.add(bundlegroupindices.get(bundlekey));
+				}
+				return NestSupportImpl.createGroupedBundleDownloadTaskOutput(resultgrouptaskids, resultgroupindices);
 			}
 
-			private TaskIdentifier handleBundleObject(TaskContext taskcontext, BundleKey bundlekey) {
+			private TaskIdentifier startBundleDownloadTask(TaskContext taskcontext, BundleKey bundlekey) {
+				if (extractOption) {
+					BundleKeyExtractingWorkerTaskFactory extracttask = new BundleKeyExtractingWorkerTaskFactory(
+							bundlekey);
+					taskcontext.startTask(extracttask, extracttask, null);
+					return extracttask;
+				}
 				TaskIdentifier taskid = BundleDownloadUtils.createBundleDownloadWorkerTaskIdentifier(bundlekey);
 				TaskFactory<? extends DownloadBundleWorkerTaskOutput> task = BundleDownloadUtils
 						.createBundleDownloadWorkerTask(bundlekey);
@@ -211,4 +353,53 @@ public class DownloadBundleTaskFactory extends FrontendTaskFactory<Object> {
 			}
 		};
 	}
+
+	/**
+	 * Splits the bundles into download groups.
+	 * <p>
+	 * The bundles are ordered by the hash of their identifiers, and a group is closed after each bundle whose hash is
+	 * divisible by the group size. The group boundaries depend only on the bundles themselves and not on their
+	 * positions in the argument, so adding or removing a bundle only modifies the group that it belongs to. The
+	 * identities of the other group tasks stay the same, and they are not rerun.
+	 * <p>
+	 * The average size of the groups is the specified group size.
+	 */
+	private static List<List<BundleKey>> assignBundleGroups(Set<BundleKey> bundlekeys, int groupsize) {
+		List<BundleKey> sortedkeys = new ArrayList<>(bundlekeys);
+		//the identifier string hash is used, as it is the same in all JVMs
+		sortedkeys.sort((l, r) -> {
+			String lid = l.getBundleIdentifier().toString();
+			String rid = r.getBundleIdentifier().toString();
+			int cmp = Integer.compareUnsigned(getBundleGroupHash(lid), getBundleGroupHash(rid));
+			if (cmp != 0) {
+				return cmp;
+			}
+			return lid.compareTo(rid);
+		});
+		List<List<BundleKey>> result = new ArrayList<>();
+		List<BundleKey> current = new ArrayList<>();
+		for (BundleKey bundlekey : sortedkeys) {
+			current.add(bundlekey);
+			if (Integer.remainderUnsigned(getBundleGroupHash(bundlekey.getBundleIdentifier().toString()),
+					groupsize) == 0) {
+				result.add(current);
+				current = new ArrayList<>();
+			}
+		}
+		if (!current.isEmpty()) {
+			result.add(current);
+		}
+		return result;
+	}
+
+	private static int getBundleGroupHash(String bundleid) {
+		//spread the bits of the string hash, as similar identifiers have similar hashes
+		int h = bundleid.hashCode();
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return h;
+	}
 }
@@ -28,7 +28,6 @@ import saker.build.file.path.SakerPath;
 import saker.build.file.path.WildcardPath;
 import saker.build.runtime.execution.ExecutionContext;
 import saker.build.runtime.execution.SakerLog;
-import saker.build.task.CommonTaskContentDescriptors;
 import saker.build.task.ParameterizableTask;
 import saker.build.task.TaskContext;
 import saker.build.task.TaskFactory;
@@ -37,7 +36,6 @@ import saker.build.task.identifier.TaskIdentifier;
 import saker.build.task.utils.annot.SakerInput;
 import saker.build.task.utils.dependencies.EqualityTaskOutputChangeDetector;
 import saker.build.task.utils.dependencies.WildcardFileCollectionStrategy;
-import saker.build.thirdparty.saker.util.ObjectUtils;
 import saker.build.trace.BuildTrace;
 import saker.nest.scriptinfo.reflection.annot.NestInformation;
 import saker.nest.scriptinfo.reflection.annot.NestParameterInformation;
@@ -47,6 +45,7 @@ import saker.nest.support.api.local.install.LocalInstallTaskOutput;
 import saker.nest.support.api.local.install.LocalInstallWorkerTaskOutput;
 import saker.nest.support.api.property.RepositoryPropertyUtils;
 import saker.nest.support.impl.NestSupportImpl;
+import saker.nest.support.impl.server.upload.BundleUploadValidator;
 import saker.nest.support.main.TaskDocs.DocLocalInstallTaskOutput;
 import saker.nest.support.main.TaskDocs.DocWildcardPath;
 import saker.nest.utils.FrontendTaskFactory;
@@ -57,7 +56,9 @@ import saker.nest.utils.FrontendTaskFactory;
 		+ "The bundle installation will have no effect on the current build execution. Any contained tasks will be visible only "
 		+ "in the next execution.\n"
 		+ "If multiple local storages are configured for the current build execution, the StorageName parameter can be used "
-		+ "to specify which storage is the installation target.")
+		+ "to specify which storage is the installation target.\n"
+		+ "All bundles are validated before any of them is installed. If a bundle is invalid, or multiple bundles "
+		+ "have the same identifier, the task fails without installing any bundles.")
 @NestParameterInformation(value = "Bundle",
 		aliases = { "", "Bundles" },
 		required = true,
@@ -98,8 +99,16 @@ public class LocalInstallTaskFactory extends FrontendTaskFactory<Object> {
 						.println("No bundles found for wildcards: " + bundles);
 				return null;
 			}
-			taskcontext.getTaskUtilities().reportInputFileDependency(null,
-					ObjectUtils.singleValueMap(files.navigableKeySet(), CommonTaskContentDescriptors.PRESENT));
+			//the contents are validated, so depend on them instead of only the presence of the files
+			for (SakerFile file : files.values()) {
+				taskcontext.getTaskUtilities().reportInputFileDependency(null, file);
+			}
+			try {
+				BundleUploadValidator.validate(taskcontext, files);
+			} catch (IllegalArgumentException e) {
+				taskcontext.abortExecution(e);
+				return null;
+			}
 
 			String actualstoragename = this.storageName;
 			if (actualstoragename == null) {
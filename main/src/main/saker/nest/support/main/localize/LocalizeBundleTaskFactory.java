@@ -18,7 +18,9 @@ package saker.nest.support.main.localize;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 import saker.build.runtime.execution.ExecutionContext;
@@ -42,6 +44,8 @@ import saker.nest.scriptinfo.reflection.annot.NestTypeUsage;
 import saker.nest.support.api.dependency.DependencyResolutionTaskOutput;
 import saker.nest.support.api.localize.BundleLocalizeUtils;
 import saker.nest.support.api.localize.LocalizeBundleWorkerTaskOutput;
+import saker.nest.support.impl.NestSupportImpl;
+import saker.nest.support.impl.localize.GroupBundleLocalizingWorkerTaskFactory;
 import saker.nest.support.impl.localize.LocalizeBundleTaskOutputImpl;
 import saker.nest.support.impl.util.BundleIdentifierBundleKeyExecutionProperty;
 import saker.nest.support.main.TaskDocs.DocLocalizeBundleTaskOutput;
@@ -55,7 +59,11 @@ import saker.nest.utils.FrontendTaskFactory;
 		+ "Unlike bundle downloading, this task doesn't make the bundles available for the current build execution file system. "
 		+ "The bundles will only be accessible using paths on the local file system.\n"
 		+ "Generally speaking, this task will retrieve the bundles to the backing bundle storage of the repository.\n"
-		+ "Take care when using the result of this task, as it may cause unexpected results when mixed with execution paths.")
+		+ "Take care when using the result of this task, as it may cause unexpected results when mixed with execution paths.\n"
+		+ "The bundles are localized on the build machine that coordinates the build, and the local paths are only "
+		+ "valid there. The localization is not dispatched to build clusters. Tasks that run on clusters should "
+		+ "localize the bundles themselves on the cluster, using the localizeOnCurrentEnvironment method of the "
+		+ "saker.nest.support.api.localize.BundleLocalizeUtils class.")
 @NestParameterInformation(value = "Bundles",
 		aliases = { "", "Bundle" },
 		required = true,
@@ -63,6 +71,16 @@ import saker.nest.utils.FrontendTaskFactory;
 				+ "The parameter accepts a list of bundle identifiers, or the output from the "
 				+ ResolveBundleDependencyTaskFactory.TASK_NAME + "() task.\n"
 				+ "If a specified bundle identifier doesn't have a version number, the most recent bundle version will be downloaded."))
+@NestParameterInformation(value = "GroupSize",
+		type = @NestTypeUsage(int.class),
+		info = @NestInformation("Specifies the number of bundles that should be localized by a single worker task.\n"
+				+ "By default, each bundle is localized by a separate task. If the number of bundles is large, the "
+				+ "per task and per bundle overhead of the build system may be greater than the cost of the "
+				+ "localization. "
+				+ "If GroupSize is specified, the bundles are split into groups of the given size, and the bundles "
+				+ "in a group are localized concurrently in a single task, with a single dependency on their local "
+				+ "paths.\n"
+				+ "The output of the task is the same regardless of this parameter."))
 public class LocalizeBundleTaskFactory extends FrontendTaskFactory<Object> {
 	private static final long serialVersionUID = 1L;
 
@@ -74,24 +92,40 @@ public class LocalizeBundleTaskFactory extends FrontendTaskFactory<Object> {
 			@SakerInput(value = { "", "Bundle", "Bundles" }, required = true)
 			public Object bundles;
 
+			@SakerInput(value = "GroupSize")
+			public Integer groupSizeOption;
+
 			@Override
 			public Object run(TaskContext taskcontext) throws Exception {
 				if (saker.build.meta.Versions.VERSION_FULL_COMPOUND >= 8_006) {
 					BuildTrace.classifyTask(BuildTrace.CLASSIFICATION_FRONTEND);
 				}
 
+				if (groupSizeOption != null && groupSizeOption < 1) {
+					taskcontext.abortExecution(
+							new IllegalArgumentException("Invalid GroupSize: " + groupSizeOption + " (must be positive)"));
+					return null;
+				}
+
 				//XXX abort executions where possible instead of throwing
 				if (bundles instanceof StructuredTaskResult) {
+					if (!(bundles instanceof StructuredListTaskResult)) {
+						//depend on the resolved bundles separately, so only the changed ones affect the task
+						StructuredListTaskResult resolvedbundles = NestSupportImpl
+								.getDependencyResolutionBundleResults(taskcontext, (StructuredTaskResult) bundles);
+						if (resolvedbundles != null) {
+							bundles = resolvedbundles;
+						}
+					}
 					if (bundles instanceof StructuredListTaskResult) {
 						StructuredListTaskResult bundlesstructuredlist = (StructuredListTaskResult) bundles;
 						Iterator<? extends StructuredTaskResult> it = bundlesstructuredlist.resultIterator();
-						List<TaskIdentifier> bundlepaths = new ArrayList<>();
+						List<BundleKey> bundlekeys = new ArrayList<>();
 						while (it.hasNext()) {
 							Object taskres = it.next().toResult(taskcontext);
-							TaskIdentifier localizetaskid = handleBundleObject(taskcontext, taskres);
-							bundlepaths.add(localizetaskid);
+							bundlekeys.add(getBundleKeyOfObject(taskcontext, taskres));
 						}
-						return new LocalizeBundleTaskOutputImpl(bundlepaths);
+						return startLocalizeTasks(taskcontext, bundlekeys);
 					}
 					StructuredTaskResult structuredbundles = (StructuredTaskResult) bundles;
 					bundles = structuredbundles.toResult(taskcontext);
@@ -101,7 +135,7 @@ public class LocalizeBundleTaskFactory extends FrontendTaskFactory<Object> {
 				}
 				if (bundles instanceof Iterable<?>) {
 					Iterable<?> bundlesiterable = (Iterable<?>) bundles;
-					List<TaskIdentifier> bundlepaths = new ArrayList<>();
+					List<BundleKey> bundlekeys = new ArrayList<>();
 					for (Object o : bundlesiterable) {
 						if (o == null) {
 							continue;
@@ -109,10 +143,9 @@ public class LocalizeBundleTaskFactory extends FrontendTaskFactory<Object> {
 						if (o instanceof StructuredTaskResult) {
 							o = ((StructuredTaskResult) o).toResult(taskcontext);
 						}
-						TaskIdentifier localizetaskid = handleBundleObject(taskcontext, o);
-						bundlepaths.add(localizetaskid);
+						bundlekeys.add(getBundleKeyOfObject(taskcontext, o));
 					}
-					return new LocalizeBundleTaskOutputImpl(bundlepaths);
+					return startLocalizeTasks(taskcontext, bundlekeys);
 				}
 
 				Exception adaptexc = null;
@@ -120,19 +153,14 @@ public class LocalizeBundleTaskFactory extends FrontendTaskFactory<Object> {
 					Object adapted = DataConverterUtils.adaptInterface(this.getClass().getClassLoader(), bundles);
 					if (adapted instanceof DependencyResolutionTaskOutput) {
 						DependencyResolutionTaskOutput depoutput = (DependencyResolutionTaskOutput) adapted;
-						List<TaskIdentifier> bundlepaths = new ArrayList<>();
-						for (BundleKey bundlekey : depoutput.getBundles()) {
-							TaskIdentifier localizetaskid = handleBundleObject(taskcontext, bundlekey);
-							bundlepaths.add(localizetaskid);
-						}
-						return new LocalizeBundleTaskOutputImpl(bundlepaths);
+						return startLocalizeTasks(taskcontext, new ArrayList<>(depoutput.getBundles()));
 					}
 				} catch (Exception e) {
 					adaptexc = e;
 				}
 				try {
-					TaskIdentifier singlelocalizetaskid = handleBundleObject(taskcontext, bundles);
-					return new LocalizeBundleTaskOutputImpl(Collections.singletonList(singlelocalizetaskid));
+					return startLocalizeTasks(taskcontext,
+							Collections.singletonList(getBundleKeyOfObject(taskcontext, bundles)));
 				} catch (Exception e) {
 					throw IOUtils.addExc(e, adaptexc);
 				}
@@ -170,11 +198,40 @@ public class LocalizeBundleTaskFactory extends FrontendTaskFactory<Object> {
 						.getReportExecutionDependency(new BundleIdentifierBundleKeyExecutionProperty(bundleid));
 			}
 
-			private TaskIdentifier handleBundleObject(TaskContext taskcontext, Object obj) throws Exception {
-				return handleBundleObject(taskcontext, getBundleKeyOfObject(taskcontext, obj));
+			private Object startLocalizeTasks(TaskContext taskcontext, List<BundleKey> bundlekeys) {
+				if (groupSizeOption == null) {
+					List<TaskIdentifier> bundlepaths = new ArrayList<>(bundlekeys.size());
+					for (BundleKey bundlekey : bundlekeys) {
+						bundlepaths.add(startBundleLocalizeTask(taskcontext, bundlekey));
+					}
+					return new LocalizeBundleTaskOutputImpl(bundlepaths);
+				}
+				int groupsize = groupSizeOption;
+				//the same bundle is only localized once, in the group that it is first assigned to
+				Map<BundleKey, Integer> bundleindices = new LinkedHashMap<>();
+				for (BundleKey bundlekey : bundlekeys) {
+					Objects.requireNonNull(bundlekey, "bundle key");
+					bundleindices.putIfAbsent(bundlekey, bundleindices.size());
+				}
+				List<BundleKey> distinctkeys = new ArrayList<>(bundleindices.keySet());
+				List<TaskIdentifier> grouptaskids = new ArrayList<>();
+				for (int i = 0; i < distinctkeys.size(); i += groupsize) {
+					GroupBundleLocalizingWorkerTaskFactory grouptask = new GroupBundleLocalizingWorkerTaskFactory(
+							distinctkeys.subList(i, Math.min(i + groupsize, distinctkeys.size())));
+					taskcontext.startTask(grouptask, grouptask, null);
+					grouptaskids.add(grouptask);
+				}
+				List<TaskIdentifier> bundlegrouptaskids = new ArrayList<>(bundlekeys.size());
+				List<Integer> bundlegroupindices = new ArrayList<>(bundlekeys.size());
+				for (BundleKey bundlekey : bundlekeys) {
+					int idx = bundleindices.get(bundlekey);
+					bundlegrouptaskids.add(grouptaskids.get(idx / groupsize));
+					bundlegroupindices.add(idx % groupsize);
+				}
+				return new LocalizeBundleTaskOutputImpl(bundlegrouptaskids, bundlegroupindices);
 			}
 
-			private TaskIdentifier handleBundleObject(TaskContext taskcontext, BundleKey bundlekey) {
+			private TaskIdentifier startBundleLocalizeTask(TaskContext taskcontext, BundleKey bundlekey) {
 				TaskIdentifier taskid = BundleLocalizeUtils.createBundleLocalizeWorkerTaskIdentifier(bundlekey);
 				TaskFactory<? extends LocalizeBundleWorkerTaskOutput> task = BundleLocalizeUtils
 						.createBundleLocalizeWorkerTask(bundlekey);
@@ -28,7 +28,6 @@ import saker.build.file.path.SakerPath;
 import saker.build.file.path.WildcardPath;
 import saker.build.runtime.execution.ExecutionContext;
 import saker.build.runtime.execution.SakerLog;
-import saker.build.task.CommonTaskContentDescriptors;
 import saker.build.task.ParameterizableTask;
 import saker.build.task.TaskContext;
 import saker.build.task.TaskFactory;
@@ -47,6 +46,8 @@ import saker.nest.scriptinfo.reflection.annot.NestTypeUsage;
 import saker.nest.support.api.server.upload.BundleUploadTaskOutput;
 import saker.nest.support.api.server.upload.BundleUploadWorkerTaskOutput;
 import saker.nest.support.impl.NestSupportImpl;
+import saker.nest.support.impl.server.upload.BundleUploadSettings;
+import saker.nest.support.impl.server.upload.BundleUploadValidator;
 import saker.nest.support.main.TaskDocs.DocBundleUploadTaskOutput;
 import saker.nest.support.main.TaskDocs.DocWildcardPath;
 import saker.nest.utils.FrontendTaskFactory;
@@ -58,7 +59,9 @@ import saker.nest.utils.FrontendTaskFactory;
 		+ "Note that this task is NOT incremental. Every time it is invoked, the specified bundles will be uploaded "
 		+ "to the server. Make sure to specify bundle upload tasks in a different build target than the usually used "
 		+ "build targets. It is recommended to have a separate \"upload\" build target that contains the upload tasks, "
-		+ "and is manually invoked when the bundles are publishing ready.")
+		+ "and is manually invoked when the bundles are publishing ready.\n"
+		+ "All bundles are validated before any of them is uploaded. If a bundle is invalid, or multiple bundles "
+		+ "have the same identifier, the task fails without uploading any bundles.")
 @NestParameterInformation(value = "Bundle",
 		aliases = { "", "Bundles" },
 		required = true,
@@ -89,6 +92,23 @@ import saker.nest.utils.FrontendTaskFactory;
 		info = @NestInformation("Specifies the Base64 (URL-safe) encoded API secret that should be used when making the request.\n"
 				+ "The API key and secret pair is used to determine if the uploader has sufficient permissions to execute the request.\n"
 				+ "These keys can be retrieved from the bundle configuration page at: https://nest.saker.build/user/packages"))
+@NestParameterInformation(value = "Parallelism",
+		type = @NestTypeUsage(int.class),
+		info = @NestInformation("Specifies the maximum number of bundles that are uploaded to the server concurrently.\n"
+				+ "The limit is shared by the upload tasks in the build that use the same Server and Parallelism.\n"
+				+ "The default is " + BundleUploadSettings.DEFAULT_PARALLELISM + "."))
+@NestParameterInformation(value = "RetryCount",
+		type = @NestTypeUsage(int.class),
+		info = @NestInformation("Specifies the number of times a failed upload of a bundle is retried.\n"
+				+ "Only the transient failures are retried, that is, network errors and server errors (HTTP 5xx). "
+				+ "Rejected requests (HTTP 4xx), such as authentication failures or already existing bundles, "
+				+ "fail the upload without retrying.\n"
+				+ "The default is " + BundleUploadSettings.DEFAULT_RETRY_COUNT + "."))
+@NestParameterInformation(value = "RetryDelay",
+		type = @NestTypeUsage(long.class),
+		info = @NestInformation("Specifies the delay in milliseconds before the first retry of a failed upload.\n"
+				+ "The delay is doubled for each subsequent retry of the same bundle, up to one minute.\n"
+				+ "The default is " + BundleUploadSettings.DEFAULT_RETRY_DELAY_MILLIS + "."))
 public class ServerUploadTaskFactory extends FrontendTaskFactory<Object> {
 	private static final long serialVersionUID = 1L;
 
@@ -111,6 +131,13 @@ public class ServerUploadTaskFactory extends FrontendTaskFactory<Object> {
 			@SakerInput(value = "APISecret", required = true)
 			public String apiSecretOption;
 
+			@SakerInput("Parallelism")
+			public int parallelismOption = BundleUploadSettings.DEFAULT_PARALLELISM;
+			@SakerInput("RetryCount")
+			public int retryCountOption = BundleUploadSettings.DEFAULT_RETRY_COUNT;
+			@SakerInput("RetryDelay")
+			public long retryDelayOption = BundleUploadSettings.DEFAULT_RETRY_DELAY_MILLIS;
+
 			@Override
 			public Object run(TaskContext taskcontext) throws Exception {
 				if (saker.build.meta.Versions.VERSION_FULL_COMPOUND >= 8_006) {
@@ -121,6 +148,23 @@ public class ServerUploadTaskFactory extends FrontendTaskFactory<Object> {
 							new IllegalArgumentException("Invalid Server parameter value: " + serverOption));
 					return null;
 				}
+				if (parallelismOption < 1) {
+					taskcontext.abortExecution(new IllegalArgumentException(
+							"Invalid Parallelism: " + parallelismOption + " (must be positive)"));
+					return null;
+				}
+				if (retryCountOption < 0) {
+					taskcontext.abortExecution(new IllegalArgumentException(
+							"Invalid RetryCount: " + retryCountOption + " (must be non-negative)"));
+					return null;
+				}
+				if (retryDelayOption < 0) {
+					taskcontext.abortExecution(new IllegalArgumentException(
+							"Invalid RetryDelay: " + retryDelayOption + " (must be non-negative)"));
+					return null;
+				}
+				BundleUploadSettings settings = new BundleUploadSettings(parallelismOption, retryCountOption,
+						retryDelayOption);
 				byte[] apikeybytes;
 				byte[] apisecretbytes;
 				try {
@@ -150,8 +194,17 @@ public class ServerUploadTaskFactory extends FrontendTaskFactory<Object> {
 							.println("No bundles found for wildcards: " + bundles);
 					return null;
 				}
-				taskcontext.getTaskUtilities().reportInputFileDependency(null,
-						ObjectUtils.singleValueMap(files.navigableKeySet(), CommonTaskContentDescriptors.PRESENT));
+				//the contents are validated, so depend on them instead of only the presence of the files
+				for (SakerFile file : files.values()) {
+					taskcontext.getTaskUtilities().reportInputFileDependency(null, file);
+				}
+
+				try {
+					BundleUploadValidator.validate(taskcontext, files);
+				} catch (IllegalArgumentException e) {
+					taskcontext.abortExecution(e);
+					return null;
+				}
 
 				List<TaskIdentifier> workertaskids = new ArrayList<>();
 				for (SakerPath bundlepath : files.keySet()) {
@@ -159,7 +212,7 @@ public class ServerUploadTaskFactory extends FrontendTaskFactory<Object> {
 							serverOption);
 					TaskFactory<? extends BundleUploadWorkerTaskOutput> workertask = NestSupportImpl
 							.createBundleUploadWorkerTaskFactory(bundlepath, overwriteOption, serverOption, apikeybytes,
-									apisecretbytes);
+									apisecretbytes, settings);
 					taskcontext.startTask(workertaskid, workertask, null);
 					workertaskids.add(workertaskid);
 				}
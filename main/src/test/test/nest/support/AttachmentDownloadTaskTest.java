@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package test.nest.support;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+
+import saker.build.file.path.SakerPath;
+import saker.build.file.provider.LocalFileProvider;
+import saker.build.thirdparty.saker.util.ObjectUtils;
+import testing.saker.SakerTest;
+import testing.saker.build.tests.EnvironmentTestCase;
+import testing.saker.build.tests.TestUtils;
+import testing.saker.nest.util.NestIntegrationTestUtils;
+import testing.saker.nest.util.RepositoryLoadingVariablesMetricEnvironmentTestCase;
+
+@SakerTest
+public class AttachmentDownloadTaskTest extends RepositoryLoadingVariablesMetricEnvironmentTestCase {
+
+	@Override
+	protected void runTestImpl() throws Throwable {
+		TreeMap<String, Set<Class<?>>> bundleclasses;
+		bundleclasses = TestUtils.<String, Set<Class<?>>>treeMapBuilder()//
+				.put("attach.bundle-v1", ObjectUtils.newHashSet())//
+				.put("attach.bundle-sources-v1", ObjectUtils.newHashSet())//
+				.put("plain.bundle-v1", ObjectUtils.newHashSet())//
+				.put("missing.bundle-v1", ObjectUtils.newHashSet())//
+				.build();
+
+		String classsubdirpath = getClass().getName().replace('.', '/');
+		Path workdir = EnvironmentTestCase.getTestingBaseWorkingDirectory().resolve(classsubdirpath);
+		Path bundleoutdir = EnvironmentTestCase.getTestingBaseBuildDirectory().resolve(classsubdirpath);
+		NestIntegrationTestUtils.createAllJarsFromDirectoriesWithClasses(LocalFileProvider.getInstance(),
+				SakerPath.valueOf(workdir).resolve("bundles"), bundleoutdir, bundleclasses);
+
+		NestIntegrationTestUtils.appendToUserParam(parameters, "nest.params.bundles",
+				";" + NestIntegrationTestUtils.createParameterBundlesParameter(bundleclasses.keySet(), bundleoutdir));
+
+		CombinedTargetTaskResult res;
+
+		res = runScriptTask("download");
+		List<?> sources = (List<?>) res.getTargetTaskResult("sources");
+		List<?> docs = (List<?>) res.getTargetTaskResult("docs");
+		assertEquals(sources.size(), 2);
+		assertEquals(docs.size(), 2);
+		int sourcecount = 0;
+		for (Object p : sources) {
+			if (p != null) {
+				++sourcecount;
+				assertTrue(p instanceof SakerPath);
+				files.getAllBytes((SakerPath) p);
+			}
+		}
+		assertEquals(sourcecount, 1);
+		for (Object p : docs) {
+			assertEquals(p, null);
+		}
+
+		res = runScriptTask("download");
+		assertEmpty(getMetric().getRunTaskIdFactories());
+
+		//the source attachment of the bundle doesn't exist, the task fails and is rerun
+		assertTaskException("java.lang.IllegalArgumentException", () -> runScriptTask("downloadmissing"));
+		assertTaskException("java.lang.IllegalArgumentException", () -> runScriptTask("downloadmissing"));
+	}
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package test.nest.support;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Set;
+
+import saker.build.file.path.SakerPath;
+import saker.build.file.provider.SakerPathFiles;
+import saker.build.thirdparty.saker.util.ObjectUtils;
+import testing.saker.SakerTest;
+import testing.saker.build.tests.TestUtils;
+import testing.saker.nest.util.NestIntegrationTestUtils;
+import testing.saker.nest.util.RepositoryLoadingVariablesMetricEnvironmentTestCase;
+
+@SakerTest
+public class DependencyPrefetchTaskTest extends RepositoryLoadingVariablesMetricEnvironmentTestCase {
+	private static final SakerPath PATH_BUNDLES_DIRECTORY = PATH_WORKING_DIRECTORY.resolve("bundles");
+
+	@Override
+	protected void runTestImpl() throws Throwable {
+		NavigableMap<String, Set<Class<?>>> bundleclasses = TestUtils.<String, Set<Class<?>>>treeMapBuilder()//
+				.put("app.bundle-v1", ObjectUtils.newHashSet())//
+				.put("first.bundle-v1", ObjectUtils.newHashSet())//
+				.put("second.bundle-v1", ObjectUtils.newHashSet())//
+				.put("third.bundle-v1", ObjectUtils.newHashSet())//
+				.build();
+		NestIntegrationTestUtils.createAllJarsFromDirectoriesWithClasses(files, PATH_BUNDLES_DIRECTORY,
+				SakerPathFiles.getPathKey(files, PATH_WORKING_DIRECTORY), bundleclasses);
+
+		String originalparambundlesparam = parameters.getUserParameters().get("nest.params.bundles");
+		StringBuilder parambundles = new StringBuilder(originalparambundlesparam);
+		for (String bundleid : bundleclasses.keySet()) {
+			parambundles.append(';');
+			parambundles.append(PATH_WORKING_DIRECTORY.resolve(bundleid + ".jar"));
+		}
+		NestIntegrationTestUtils.addUserParam(parameters, "nest.params.bundles", parambundles.toString());
+
+		CombinedTargetTaskResult res;
+
+		res = runScriptTask("test");
+		assertEquals(new HashSet<>(bundlesToStringList(res.getTargetTaskResult("bundles"))), ObjectUtils
+				.newHashSet("app.bundle-v1", "first.bundle-v1", "second.bundle-v1", "third.bundle-v1"));
+		ClassLoader supportcl = res.getTargetTaskResult("result").getClass().getClassLoader();
+		long prefetched = getPrefetcherStatistic(supportcl, "getTotalPrefetchCount");
+		long hits = getPrefetcherStatistic(supportcl, "getTotalHitCount");
+
+		//rerun the resolution with an equivalent dependency file
+		files.putFile(PATH_WORKING_DIRECTORY.resolve("dependencies"), "app.bundle\n\tclasspath: [1]");
+		res = runScriptTask("test");
+		assertEquals(new HashSet<>(bundlesToStringList(res.getTargetTaskResult("bundles"))), ObjectUtils
+				.newHashSet("app.bundle-v1", "first.bundle-v1", "second.bundle-v1", "third.bundle-v1"));
+
+		//the app bundle is prefetched from the dependency file
+		//the 3 dependencies of the app bundle are prefetched while the resolver processes it
+		//all of them are used by the resolver
+		assertEquals(getPrefetcherStatistic(supportcl, "getTotalPrefetchCount") - prefetched, 4L);
+		assertEquals(getPrefetcherStatistic(supportcl, "getTotalHitCount") - hits, 4L);
+	}
+
+	private static long getPrefetcherStatistic(ClassLoader cl, String methodname) throws Exception {
+		Method method = Class.forName("saker.nest.support.impl.dependency.DependencyPrefetcher", false, cl)
+				.getDeclaredMethod(methodname);
+		method.setAccessible(true);
+		return (long) method.invoke(null);
+	}
+
+	private static Collection<String> bundlesToStringList(Object obj) throws Exception {
+		List<String> result = new ArrayList<>();
+		for (Object o : (Iterable<?>) obj) {
+			result.add(o.getClass().getMethod("getBundleIdentifier").invoke(o).toString());
+		}
+		return result;
+	}
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package test.nest.support;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+
+import saker.build.file.path.SakerPath;
+import saker.build.file.provider.LocalFileProvider;
+import saker.build.thirdparty.saker.util.ObjectUtils;
+import testing.saker.SakerTest;
+import testing.saker.build.tests.EnvironmentTestCase;
+import testing.saker.build.tests.TestUtils;
+import testing.saker.nest.util.NestIntegrationTestUtils;
+import testing.saker.nest.util.RepositoryLoadingVariablesMetricEnvironmentTestCase;
+
+@SakerTest
+public class ExtractDownloadBundleTaskTest extends RepositoryLoadingVariablesMetricEnvironmentTestCase {
+
+	@Override
+	protected void runTestImpl() throws Throwable {
+		TreeMap<String, Set<Class<?>>> bundleclasses;
+		bundleclasses = TestUtils.<String, Set<Class<?>>>treeMapBuilder()//
+				.put("extract.bundle-v1", ObjectUtils.newHashSet())//
+				.put("extract.bundle-v2", ObjectUtils.newHashSet())//
+				.build();
+
+		String classsubdirpath = getClass().getName().replace('.', '/');
+		Path workdir = EnvironmentTestCase.getTestingBaseWorkingDirectory().resolve(classsubdirpath);
+		Path bundleoutdir = EnvironmentTestCase.getTestingBaseBuildDirectory().resolve(classsubdirpath);
+		NestIntegrationTestUtils.createAllJarsFromDirectoriesWithClasses(LocalFileProvider.getInstance(),
+				SakerPath.valueOf(workdir).resolve("bundles"), bundleoutdir, bundleclasses);
+
+		NestIntegrationTestUtils.appendToUserParam(parameters, "nest.params.bundles",
+				";" + NestIntegrationTestUtils.createParameterBundlesParameter(bundleclasses.keySet(), bundleoutdir));
+
+		CombinedTargetTaskResult res;
+
+		res = runScriptTask("download");
+		List<?> paths = (List<?>) res.getTargetTaskResult("paths");
+		assertEquals(paths.size(), 1);
+		SakerPath extractdir = (SakerPath) paths.get(0);
+		SakerPath datapath = extractdir.resolve("res/data.txt");
+		assertEquals(files.getAllBytes(datapath).toString(), "content");
+		files.getAllBytes(extractdir.resolve("META-INF/MANIFEST.MF"));
+
+		res = runScriptTask("download");
+		assertEmpty(getMetric().getRunTaskIdFactories());
+
+		//make sure it was put back
+		files.delete(datapath);
+		runScriptTask("download");
+		assertEquals(files.getAllBytes(datapath).toString(), "content");
+		SakerPath changedpath = extractdir.resolve("res/changed.txt");
+		assertEquals(files.getAllBytes(changedpath).toString(), "first");
+
+		//the new version is extracted to the same directory, the unchanged entries are not rewritten
+		long datamodification = files.getFileAttributes(datapath).getLastModifiedMillis();
+		Thread.sleep(10);
+		res = runScriptTask("downloadv2");
+		assertEquals(((List<?>) res.getTargetTaskResult("paths")).get(0), extractdir);
+		assertEquals(files.getAllBytes(changedpath).toString(), "second");
+		assertEquals(files.getAllBytes(datapath).toString(), "content");
+		assertEquals(files.getFileAttributes(datapath).getLastModifiedMillis(), datamodification);
+
+		assertTaskException("java.lang.IllegalArgumentException", () -> runScriptTask("downloadboth"));
+	}
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package test.nest.support;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+
+import saker.build.file.path.SakerPath;
+import saker.build.file.provider.LocalFileProvider;
+import saker.build.thirdparty.saker.util.ObjectUtils;
+import testing.saker.SakerTest;
+import testing.saker.build.tests.EnvironmentTestCase;
+import testing.saker.build.tests.TestUtils;
+import testing.saker.nest.util.NestIntegrationTestUtils;
+import testing.saker.nest.util.RepositoryLoadingVariablesMetricEnvironmentTestCase;
+
+@SakerTest
+public class GcDownloadBundleTaskTest extends RepositoryLoadingVariablesMetricEnvironmentTestCase {
+
+	@Override
+	protected void runTestImpl() throws Throwable {
+		TreeMap<String, Set<Class<?>>> bundleclasses;
+		bundleclasses = TestUtils.<String, Set<Class<?>>>treeMapBuilder()//
+				.put("gc.bundle-v1", ObjectUtils.newHashSet())//
+				.put("gc.bundle-v2", ObjectUtils.newHashSet())//
+				.build();
+
+		String classsubdirpath = getClass().getName().replace('.', '/');
+		Path workdir = EnvironmentTestCase.getTestingBaseWorkingDirectory().resolve(classsubdirpath);
+		Path bundleoutdir = EnvironmentTestCase.getTestingBaseBuildDirectory().resolve(classsubdirpath);
+		NestIntegrationTestUtils.createAllJarsFromDirectoriesWithClasses(LocalFileProvider.getInstance(),
+				SakerPath.valueOf(workdir).resolve("bundles"), bundleoutdir, bundleclasses);
+
+		NestIntegrationTestUtils.appendToUserParam(parameters, "nest.params.bundles",
+				";" + NestIntegrationTestUtils.createParameterBundlesParameter(bundleclasses.keySet(), bundleoutdir));
+
+		SakerPath bundledir = PATH_BUILD_DIRECTORY.resolve("nest.bundle.download/gc.bundle");
+
+		CombinedTargetTaskResult res;
+
+		res = runScriptTask("downloadv1");
+		SakerPath v1path = (SakerPath) ((List<?>) res.getTargetTaskResult("paths")).get(0);
+		assertTrue(files.getDirectoryEntryNames(bundledir).contains(v1path.getFileName()));
+
+		res = runScriptTask("downloadv2");
+		SakerPath v2path = (SakerPath) ((List<?>) res.getTargetTaskResult("paths")).get(0);
+		//the previous version was referenced in the previous build, other download tasks may still use it
+		assertEquals(files.getDirectoryEntryNames(bundledir),
+				ObjectUtils.newTreeSet(v1path.getFileName(), v2path.getFileName()));
+
+		res = runScriptTask("downloadv2grouped");
+		assertEquals(((List<?>) res.getTargetTaskResult("paths")).get(0), v2path);
+		//the previous version is no longer referenced
+		assertEquals(files.getDirectoryEntryNames(bundledir), ObjectUtils.newTreeSet(v2path.getFileName()));
+		files.getAllBytes(PATH_BUILD_DIRECTORY.resolve("nest.bundle.download/.nest.download.index/gc.bundle"));
+
+		//downloaded by a task that doesn't collect the directory
+		res = runScriptTask("downloadv1nogc");
+		assertEquals(((List<?>) res.getTargetTaskResult("paths")).get(0), v1path);
+
+		runScriptTask("downloadv2grouped");
+		runScriptTask("downloadv2");
+		//the previous version is still kept, as it may be in use by the non-collecting task
+		assertEquals(files.getDirectoryEntryNames(bundledir),
+				ObjectUtils.newTreeSet(v1path.getFileName(), v2path.getFileName()));
+	}
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package test.nest.support;
+
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+
+import saker.build.file.path.SakerPath;
+import saker.build.file.provider.LocalFileProvider;
+import saker.build.thirdparty.saker.util.ObjectUtils;
+import testing.saker.SakerTest;
+import testing.saker.build.tests.EnvironmentTestCase;
+import testing.saker.build.tests.TestUtils;
+import testing.saker.nest.util.NestIntegrationTestUtils;
+import testing.saker.nest.util.RepositoryLoadingVariablesMetricEnvironmentTestCase;
+
+@SakerTest
+public class GroupDownloadBundleTaskTest extends RepositoryLoadingVariablesMetricEnvironmentTestCase {
+
+	@Override
+	protected void runTestImpl() throws Throwable {
+		TreeMap<String, Set<Class<?>>> bundleclasses;
+		bundleclasses = TestUtils.<String, Set<Class<?>>>treeMapBuilder()//
+				.put("first.bundle-v1", ObjectUtils.newHashSet())//
+				.put("second.bundle-v1", ObjectUtils.newHashSet())//
+				.put("third.bundle-v1", ObjectUtils.newHashSet())//
+				.put("fourth.bundle-v1", ObjectUtils.newHashSet())//
+				.put("fifth.bundle-v1", ObjectUtils.newHashSet())//
+				.put("sixth.bundle-v1", ObjectUtils.newHashSet())//
+				.put("seventh.bundle-v1", ObjectUtils.newHashSet())//
+				.put("eighth.bundle-v1", ObjectUtils.newHashSet())//
+				.put("ninth.bundle-v1", ObjectUtils.newHashSet())//
+				.build();
+
+		String classsubdirpath = getClass().getName().replace('.', '/');
+		Path workdir = EnvironmentTestCase.getTestingBaseWorkingDirectory().resolve(classsubdirpath);
+		Path bundleoutdir = EnvironmentTestCase.getTestingBaseBuildDirectory().resolve(classsubdirpath);
+		NestIntegrationTestUtils.createAllJarsFromDirectoriesWithClasses(LocalFileProvider.getInstance(),
+				SakerPath.valueOf(workdir).resolve("bundles"), bundleoutdir, bundleclasses);
+
+		NestIntegrationTestUtils.appendToUserParam(parameters, "nest.params.bundles",
+				";" + NestIntegrationTestUtils.createParameterBundlesParameter(bundleclasses.keySet(), bundleoutdir));
+
+		SakerPath downloaddir = PATH_BUILD_DIRECTORY.resolve("nest.bundle.download");
+
+		CombinedTargetTaskResult res;
+
+		res = runScriptTask("download");
+		List<?> paths = (List<?>) res.getTargetTaskResult("paths");
+		assertEquals(paths.size(), 4);
+		//the duplicate bundle is downloaded once, to the same path
+		assertEquals(paths.get(0), paths.get(3));
+		for (String name : new String[] { "first.bundle", "second.bundle", "third.bundle" }) {
+			assertEquals(files.getDirectoryEntryNames(downloaddir.resolve(name)).size(), 1);
+		}
+
+		res = runScriptTask("download");
+		assertEmpty(getMetric().getRunTaskIdFactories());
+
+		//make sure it was put back
+		SakerPath secondpath = (SakerPath) paths.get(1);
+		files.delete(secondpath);
+		runScriptTask("download");
+		files.getAllBytes(secondpath);
+
+		res = runScriptTask("downloadmany");
+		assertEquals(((List<?>) res.getTargetTaskResult("paths")).size(), 8);
+		int groupcount = countGroupTasks(getMetric().getRunTaskIdFactories().values());
+
+		//inserting a bundle only reruns the group it is assigned to, or the two groups it splits into
+		res = runScriptTask("downloadinserted");
+		assertEquals(((List<?>) res.getTargetTaskResult("paths")).size(), 9);
+		int insertedgroupcount = countGroupTasks(getMetric().getRunTaskIdFactories().values());
+		assertTrue(insertedgroupcount >= 1 && insertedgroupcount <= 2);
+		assertTrue(insertedgroupcount < groupcount);
+		files.getAllBytes(downloaddir.resolve("ninth.bundle"));
+	}
+
+	private static int countGroupTasks(Collection<?> factories) {
+		int result = 0;
+		for (Object f : factories) {
+			if (f.getClass().getSimpleName().equals("GroupBundleDownloadingWorkerTaskFactory")) {
+				++result;
+			}
+		}
+		return result;
+	}
+}
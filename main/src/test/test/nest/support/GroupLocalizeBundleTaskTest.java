@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package test.nest.support;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+
+import saker.build.file.path.SakerPath;
+import saker.build.file.provider.LocalFileProvider;
+import saker.build.thirdparty.saker.util.ObjectUtils;
+import testing.saker.SakerTest;
+import testing.saker.build.tests.EnvironmentTestCase;
+import testing.saker.build.tests.TestUtils;
+import testing.saker.nest.util.NestIntegrationTestUtils;
+import testing.saker.nest.util.RepositoryLoadingVariablesMetricEnvironmentTestCase;
+
+@SakerTest
+public class GroupLocalizeBundleTaskTest extends RepositoryLoadingVariablesMetricEnvironmentTestCase {
+
+	@Override
+	protected void runTestImpl() throws Throwable {
+		TreeMap<String, Set<Class<?>>> bundleclasses;
+		bundleclasses = TestUtils.<String, Set<Class<?>>>treeMapBuilder()//
+				.put("first.bundle-v1", ObjectUtils.newHashSet())//
+				.put("second.bundle-v1", ObjectUtils.newHashSet())//
+				.put("third.bundle-v1", ObjectUtils.newHashSet())//
+				.build();
+
+		String classsubdirpath = getClass().getName().replace('.', '/');
+		Path workdir = EnvironmentTestCase.getTestingBaseWorkingDirectory().resolve(classsubdirpath);
+		Path bundleoutdir = EnvironmentTestCase.getTestingBaseBuildDirectory().resolve(classsubdirpath);
+		NestIntegrationTestUtils.createAllJarsFromDirectoriesWithClasses(LocalFileProvider.getInstance(),
+				SakerPath.valueOf(workdir).resolve("bundles"), bundleoutdir, bundleclasses);
+
+		NestIntegrationTestUtils.appendToUserParam(parameters, "nest.params.bundles",
+				";" + NestIntegrationTestUtils.createParameterBundlesParameter(bundleclasses.keySet(), bundleoutdir));
+
+		CombinedTargetTaskResult res;
+
+		res = runScriptTask("localize");
+		List<?> paths = (List<?>) res.getTargetTaskResult("paths");
+		assertEquals(paths.size(), 4);
+		assertEquals(paths.get(0), paths.get(3));
+		assertEquals(ObjectUtils.newHashSet(paths).size(), 3);
+		for (Object p : paths) {
+			assertTrue(p instanceof SakerPath);
+		}
+
+		res = runScriptTask("localize");
+		assertEmpty(getMetric().getRunTaskIdFactories());
+	}
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package test.nest.support;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Set;
+
+import saker.build.file.path.SakerPath;
+import saker.build.file.provider.SakerPathFiles;
+import saker.build.thirdparty.saker.util.ObjectUtils;
+import testing.saker.SakerTest;
+import testing.saker.build.tests.TestUtils;
+import testing.saker.nest.util.NestIntegrationTestUtils;
+import testing.saker.nest.util.RepositoryLoadingVariablesMetricEnvironmentTestCase;
+
+@SakerTest
+public class IndexResolveTaskTest extends RepositoryLoadingVariablesMetricEnvironmentTestCase {
+	private static final SakerPath PATH_BUNDLES_DIRECTORY = PATH_WORKING_DIRECTORY.resolve("bundles");
+
+	@Override
+	protected void runTestImpl() throws Throwable {
+		NavigableMap<String, Set<Class<?>>> bundleclasses = TestUtils.<String, Set<Class<?>>>treeMapBuilder()//
+				.put("first.bundle-v1", ObjectUtils.newHashSet())//
+				.put("lib.bundle-v1", ObjectUtils.newHashSet())//
+				.put("lib.bundle-v2", ObjectUtils.newHashSet())//
+				.build();
+		NestIntegrationTestUtils.createAllJarsFromDirectoriesWithClasses(files, PATH_BUNDLES_DIRECTORY,
+				SakerPathFiles.getPathKey(files, PATH_WORKING_DIRECTORY), bundleclasses);
+
+		String originalparambundlesparam = parameters.getUserParameters().get("nest.params.bundles");
+		NestIntegrationTestUtils.addUserParam(parameters, "nest.params.bundles",
+				originalparambundlesparam + ";" + PATH_WORKING_DIRECTORY.resolve("first.bundle-v1.jar") + ";"
+						+ PATH_WORKING_DIRECTORY.resolve("lib.bundle-v1.jar") + ";"
+						+ PATH_WORKING_DIRECTORY.resolve("lib.bundle-v2.jar"));
+
+		CombinedTargetTaskResult res;
+
+		//the resolution from the index is the same as the resolution from the repository
+		res = runScriptTask("test");
+		assertEquals(bundlesToStringList(res.getTargetTaskResult("output")),
+				listOf("first.bundle-v1", "lib.bundle-v1"));
+		assertEquals(bundlesToStringList(res.getTargetTaskResult("output")),
+				bundlesToStringList(res.getTargetTaskResult("liveoutput")));
+
+		res = runScriptTask("test");
+		assertEmpty(getMetric().getRunTaskIdFactories());
+
+		//the index can't be used with different dependency constraints
+		assertTaskException("java.lang.IllegalArgumentException", () -> runScriptTask("constraintmismatch"));
+	}
+
+	private static Collection<String> bundlesToStringList(Object obj) throws Exception {
+		List<String> result = new ArrayList<>();
+		for (Object o : (Iterable<?>) obj) {
+			result.add(o.getClass().getMethod("getBundleIdentifier").invoke(o).toString());
+		}
+		return result;
+	}
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package test.nest.support;
+
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import saker.build.thirdparty.saker.util.io.ByteArrayRegion;
+import saker.build.thirdparty.saker.util.io.UnsyncByteArrayOutputStream;
+import testing.saker.SakerTest;
+import testing.saker.nest.util.RepositoryLoadingVariablesMetricEnvironmentTestCase;
+
+@SakerTest
+public class LocalInstallValidationTaskTest extends RepositoryLoadingVariablesMetricEnvironmentTestCase {
+
+	@Override
+	protected void runTestImpl() throws Throwable {
+		files.putFile(PATH_WORKING_DIRECTORY.resolve("bundles/first.jar"), createBundleJar("install.first-v1"));
+		files.putFile(PATH_WORKING_DIRECTORY.resolve("bundles/second.jar"), createBundleJar("-invalid-"));
+		assertTaskException("java.lang.IllegalArgumentException", () -> runScriptTask("install"));
+
+		files.putFile(PATH_WORKING_DIRECTORY.resolve("bundles/second.jar"), createBundleJar("install.first-v1"));
+		assertTaskException("java.lang.IllegalArgumentException", () -> runScriptTask("install"));
+
+		files.putFile(PATH_WORKING_DIRECTORY.resolve("bundles/second.jar"), createBundleJar("install.second-v1"));
+		runScriptTask("install");
+
+		runScriptTask("install");
+		assertEmpty(getMetric().getRunTaskIdFactories());
+	}
+
+	private static ByteArrayRegion createBundleJar(String bundleid) throws Exception {
+		try (UnsyncByteArrayOutputStream baos = new UnsyncByteArrayOutputStream()) {
+			Manifest manifest = new Manifest();
+			manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+			manifest.getMainAttributes().putValue("Nest-Bundle-Format-Version", "1");
+			manifest.getMainAttributes().putValue("Nest-Bundle-Identifier", bundleid);
+			try (JarOutputStream jaros = new JarOutputStream(baos, manifest)) {
+			}
+			return baos.toByteArrayRegion();
+		}
+	}
+
+	@Override
+	protected String getRepositoryStorageConfiguration() {
+		return "[:params,:local]";
+	}
+}
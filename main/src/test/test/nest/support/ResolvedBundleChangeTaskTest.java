@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package test.nest.support;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+
+import saker.build.file.path.SakerPath;
+import saker.build.file.provider.LocalFileProvider;
+import saker.build.thirdparty.saker.util.ObjectUtils;
+import testing.saker.SakerTest;
+import testing.saker.build.tests.EnvironmentTestCase;
+import testing.saker.build.tests.TestUtils;
+import testing.saker.nest.util.NestIntegrationTestUtils;
+import testing.saker.nest.util.RepositoryLoadingVariablesMetricEnvironmentTestCase;
+
+@SakerTest
+public class ResolvedBundleChangeTaskTest extends RepositoryLoadingVariablesMetricEnvironmentTestCase {
+	private static final SakerPath PATH_DEPENDENCY_FILE = PATH_WORKING_DIRECTORY.resolve("dependencies");
+
+	@Override
+	protected void runTestImpl() throws Throwable {
+		TreeMap<String, Set<Class<?>>> bundleclasses;
+		bundleclasses = TestUtils.<String, Set<Class<?>>>treeMapBuilder()//
+				.put("first.bundle-v1", ObjectUtils.newHashSet())//
+				.put("second.bundle-v1", ObjectUtils.newHashSet())//
+				.put("second.bundle-v2", ObjectUtils.newHashSet())//
+				.build();
+
+		String classsubdirpath = getClass().getName().replace('.', '/');
+		Path workdir = EnvironmentTestCase.getTestingBaseWorkingDirectory().resolve(classsubdirpath);
+		Path bundleoutdir = EnvironmentTestCase.getTestingBaseBuildDirectory().resolve(classsubdirpath);
+		NestIntegrationTestUtils.createAllJarsFromDirectoriesWithClasses(LocalFileProvider.getInstance(),
+				SakerPath.valueOf(workdir).resolve("bundles"), bundleoutdir, bundleclasses);
+
+		NestIntegrationTestUtils.appendToUserParam(parameters, "nest.params.bundles",
+				";" + NestIntegrationTestUtils.createParameterBundlesParameter(bundleclasses.keySet(), bundleoutdir));
+
+		CombinedTargetTaskResult res;
+
+		files.putFile(PATH_DEPENDENCY_FILE,
+				"first.bundle\r\n\tclasspath: 1\r\nsecond.bundle\r\n\tclasspath: 1".getBytes(StandardCharsets.UTF_8));
+		res = runScriptTask("download");
+		assertEquals(((List<?>) res.getTargetTaskResult("paths")).size(), 2);
+		assertTrue(isDownloadRun("first.bundle-v1"));
+		assertTrue(isDownloadRun("second.bundle-v1"));
+
+		res = runScriptTask("download");
+		assertEmpty(getMetric().getRunTaskIdFactories());
+
+		//only the download of the changed bundle is run again
+		files.putFile(PATH_DEPENDENCY_FILE,
+				"first.bundle\r\n\tclasspath: 1\r\nsecond.bundle\r\n\tclasspath: 2".getBytes(StandardCharsets.UTF_8));
+		res = runScriptTask("download");
+		assertTrue(isDownloadRun("second.bundle-v2"));
+		assertTrue(!isDownloadRun("first.bundle-v1"));
+
+		res = runScriptTask("download");
+		assertEmpty(getMetric().getRunTaskIdFactories());
+
+		//the modules of a batch resolution are tracked separately
+		files.putFile(PATH_DEPENDENCY_FILE, "second.bundle\r\n\tclasspath: 1".getBytes(StandardCharsets.UTF_8));
+		res = runScriptTask("batchdownload");
+		assertEquals(((List<?>) res.getTargetTaskResult("firstpaths")).size(), 1);
+		assertEquals(((List<?>) res.getTargetTaskResult("secondpaths")).size(), 1);
+
+		res = runScriptTask("batchdownload");
+		assertEmpty(getMetric().getRunTaskIdFactories());
+
+		//only the download frontend of the changed module is run again
+		files.putFile(PATH_DEPENDENCY_FILE, "second.bundle\r\n\tclasspath: 2".getBytes(StandardCharsets.UTF_8));
+		res = runScriptTask("batchdownload");
+		assertTrue(isDownloadRun("second.bundle-v2"));
+		assertTrue(!isDownloadRun("first.bundle-v1"));
+		assertEquals(getDownloadFrontendRunCount(), 1);
+
+		res = runScriptTask("batchdownload");
+		assertEmpty(getMetric().getRunTaskIdFactories());
+	}
+
+	private int getDownloadFrontendRunCount() {
+		int result = 0;
+		for (Object factory : getMetric().getRunTaskIdFactories().values()) {
+			if (factory.getClass().getName().equals("saker.nest.support.main.download.DownloadBundleTaskFactory")) {
+				++result;
+			}
+		}
+		return result;
+	}
+
+	private boolean isDownloadRun(String bundleid) {
+		for (Object factory : getMetric().getRunTaskIdFactories().values()) {
+			String str = factory.toString();
+			if (str.startsWith("BundleKeyDownloadingWorkerTaskFactory") && str.contains(bundleid)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
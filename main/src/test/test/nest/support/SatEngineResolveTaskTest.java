@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package test.nest.support;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Set;
+
+import saker.build.file.path.SakerPath;
+import saker.build.file.provider.SakerPathFiles;
+import saker.build.thirdparty.saker.util.ObjectUtils;
+import testing.saker.SakerTest;
+import testing.saker.build.tests.TestUtils;
+import testing.saker.nest.util.NestIntegrationTestUtils;
+import testing.saker.nest.util.RepositoryLoadingVariablesMetricEnvironmentTestCase;
+
+@SakerTest
+public class SatEngineResolveTaskTest extends RepositoryLoadingVariablesMetricEnvironmentTestCase {
+	private static final SakerPath PATH_BUNDLES_DIRECTORY = PATH_WORKING_DIRECTORY.resolve("bundles");
+
+	@Override
+	protected void runTestImpl() throws Throwable {
+		NavigableMap<String, Set<Class<?>>> bundleclasses = TestUtils.<String, Set<Class<?>>>treeMapBuilder()//
+				.put("first.bundle-v1", ObjectUtils.newHashSet())//
+				.put("first.bundle-v2", ObjectUtils.newHashSet())//
+				.put("second.bundle-v1", ObjectUtils.newHashSet())//
+				.put("lib.bundle-v1", ObjectUtils.newHashSet())//
+				.put("lib.bundle-v2", ObjectUtils.newHashSet())//
+				.put("alpha.bundle-v1", ObjectUtils.newHashSet())//
+				.put("beta.bundle-v1", ObjectUtils.newHashSet())//
+				.put("beta.bundle-v2", ObjectUtils.newHashSet())//
+				.put("gamma.bundle-v1", ObjectUtils.newHashSet())//
+				.put("gamma.bundle-v2", ObjectUtils.newHashSet())//
+				.build();
+		NestIntegrationTestUtils.createAllJarsFromDirectoriesWithClasses(files, PATH_BUNDLES_DIRECTORY,
+				SakerPathFiles.getPathKey(files, PATH_WORKING_DIRECTORY), bundleclasses);
+
+		String originalparambundlesparam = parameters.getUserParameters().get("nest.params.bundles");
+		NestIntegrationTestUtils.addUserParam(parameters, "nest.params.bundles",
+				originalparambundlesparam + ";" + PATH_WORKING_DIRECTORY.resolve("first.bundle-v1.jar") + ";"
+						+ PATH_WORKING_DIRECTORY.resolve("first.bundle-v2.jar") + ";"
+						+ PATH_WORKING_DIRECTORY.resolve("second.bundle-v1.jar") + ";"
+						+ PATH_WORKING_DIRECTORY.resolve("lib.bundle-v1.jar") + ";"
+						+ PATH_WORKING_DIRECTORY.resolve("lib.bundle-v2.jar") + ";"
+						+ PATH_WORKING_DIRECTORY.resolve("alpha.bundle-v1.jar") + ";"
+						+ PATH_WORKING_DIRECTORY.resolve("beta.bundle-v1.jar") + ";"
+						+ PATH_WORKING_DIRECTORY.resolve("beta.bundle-v2.jar") + ";"
+						+ PATH_WORKING_DIRECTORY.resolve("gamma.bundle-v1.jar") + ";"
+						+ PATH_WORKING_DIRECTORY.resolve("gamma.bundle-v2.jar"));
+
+		CombinedTargetTaskResult res;
+
+		//first.bundle-v2 requires lib.bundle-v2, but second.bundle-v1 requires lib.bundle-v1
+		//the solver needs to fall back to first.bundle-v1
+		res = runScriptTask("test");
+		assertEquals(bundlesToStringList(res.getTargetTaskResult("output")),
+				listOf("first.bundle-v1", "second.bundle-v1", "lib.bundle-v1"));
+
+		res = runScriptTask("test");
+		assertEmpty(getMetric().getRunTaskIdFactories());
+
+		//second.bundle is a private dependency, so it may use a different version of lib.bundle
+		//the resolution falls back to the domain based one
+		res = runScriptTask("privatetest");
+		assertEquals(ObjectUtils.newHashSet(bundlesToStringList(res.getTargetTaskResult("output"))), ObjectUtils
+				.newHashSet("first.bundle-v2", "second.bundle-v1", "lib.bundle-v1", "lib.bundle-v2"));
+
+		//both [alpha.bundle-v1, gamma.bundle-v2, beta.bundle-v1] and [alpha.bundle-v1, gamma.bundle-v1, beta.bundle-v2]
+		//are valid solutions
+		//the dependencies of alpha.bundle are decided before beta.bundle, so the highest gamma.bundle is selected
+		//and beta.bundle-v2 cannot be used with it, by both engines
+		res = runScriptTask("preferencesat");
+		assertEquals(ObjectUtils.newHashSet(bundlesToStringList(res.getTargetTaskResult("output"))),
+				ObjectUtils.newHashSet("alpha.bundle-v1", "gamma.bundle-v2", "beta.bundle-v1"));
+		res = runScriptTask("preferencedomain");
+		assertEquals(ObjectUtils.newHashSet(bundlesToStringList(res.getTargetTaskResult("output"))),
+				ObjectUtils.newHashSet("alpha.bundle-v1", "gamma.bundle-v2", "beta.bundle-v1"));
+	}
+
+	private static Collection<String> bundlesToStringList(Object obj) throws Exception {
+		List<String> result = new ArrayList<>();
+		for (Object o : (Iterable<?>) obj) {
+			result.add(o.getClass().getMethod("getBundleIdentifier").invoke(o).toString());
+		}
+		return result;
+	}
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package test.nest.support;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.ConnectException;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import com.sun.net.httpserver.HttpServer;
+
+import saker.build.thirdparty.saker.util.StringUtils;
+import saker.build.thirdparty.saker.util.io.ByteArrayRegion;
+import saker.build.thirdparty.saker.util.io.StreamUtils;
+import saker.build.thirdparty.saker.util.io.UnsyncByteArrayOutputStream;
+import testing.saker.SakerTest;
+import testing.saker.nest.util.RepositoryLoadingVariablesMetricEnvironmentTestCase;
+
+@SakerTest
+public class UploadRetryTaskTest extends RepositoryLoadingVariablesMetricEnvironmentTestCase {
+	private static final int RETRY_COUNT = 2;
+
+	@Override
+	protected void runTestImpl() throws Throwable {
+		ByteArrayRegion jarbytes;
+		try (UnsyncByteArrayOutputStream baos = new UnsyncByteArrayOutputStream()) {
+			Manifest manifest = new Manifest();
+			manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+			manifest.getMainAttributes().putValue("Nest-Bundle-Format-Version", "1");
+			manifest.getMainAttributes().putValue("Nest-Bundle-Identifier", "upload.bundle-v1");
+			try (JarOutputStream jaros = new JarOutputStream(baos, manifest)) {
+			}
+			jarbytes = baos.toByteArrayRegion();
+		}
+		files.putFile(PATH_WORKING_DIRECTORY.resolve("upload.bundle.jar"), jarbytes);
+
+		byte[] successresponse = ("{\"MD5\":\"" + hash("MD5", jarbytes) + "\",\"SHA256\":\""
+				+ hash("SHA-256", jarbytes) + "\"}").getBytes(StandardCharsets.UTF_8);
+
+		AtomicInteger requestcount = new AtomicInteger();
+		//the number of requests that fail with the failure status before the server accepts the upload
+		AtomicInteger failingrequests = new AtomicInteger();
+		AtomicInteger failurestatus = new AtomicInteger();
+		HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		server.createContext("/", exchange -> {
+			requestcount.incrementAndGet();
+			try (InputStream is = exchange.getRequestBody()) {
+				StreamUtils.consumeStream(is);
+			}
+			if (failingrequests.getAndDecrement() > 0) {
+				exchange.sendResponseHeaders(failurestatus.get(), -1);
+			} else {
+				exchange.sendResponseHeaders(200, successresponse.length);
+				try (OutputStream os = exchange.getResponseBody()) {
+					os.write(successresponse);
+				}
+			}
+			exchange.close();
+		});
+		server.start();
+		try {
+			String script = "upload(\n" //
+					+ "\tout result,\n" //
+					+ ") {\n" //
+					+ "\t$result = nest.server.upload(\n" //
+					+ "\t\tupload.bundle.jar,\n" //
+					+ "\t\tServer: \"http://127.0.0.1:" + server.getAddress().getPort() + "\",\n" //
+					+ "\t\tAPIKey: AAAA,\n" //
+					+ "\t\tAPISecret: AAAA,\n" //
+					+ "\t\tRetryCount: " + RETRY_COUNT + ",\n" //
+					+ "\t\tRetryDelay: 10,\n" //
+					+ "\t)\n" //
+					+ "}\n";
+			files.putFile(PATH_WORKING_DIRECTORY.resolve("saker.build"), script.getBytes(StandardCharsets.UTF_8));
+
+			//the server responds with service unavailable to all requests, so each attempt should fail
+			failingrequests.set(Integer.MAX_VALUE);
+			failurestatus.set(503);
+			assertTaskException("java.io.IOException", () -> runScriptTask("upload"));
+			assertEquals(requestcount.get(), RETRY_COUNT + 1);
+
+			//the request is rejected, it shouldn't be retried
+			requestcount.set(0);
+			failingrequests.set(Integer.MAX_VALUE);
+			failurestatus.set(401);
+			assertTaskException("java.io.IOException", () -> runScriptTask("upload"));
+			assertEquals(requestcount.get(), 1);
+
+			//the first attempt fails, the retry succeeds
+			requestcount.set(0);
+			failingrequests.set(1);
+			failurestatus.set(503);
+			CombinedTargetTaskResult res = runScriptTask("upload");
+			assertEquals(requestcount.get(), 2);
+
+			assertFailureClassification(res.getTargetTaskResult("result").getClass().getClassLoader());
+		} finally {
+			server.stop(0);
+		}
+	}
+
+	private static void assertFailureClassification(ClassLoader cl) throws Exception {
+		Method method = Class.forName("saker.nest.support.impl.server.upload.BundleUploadExecutor", false, cl)
+				.getDeclaredMethod("isTransientFailure", Exception.class);
+		method.setAccessible(true);
+
+		//connection failures that contain numbers in the 4xx range are retried
+		assertTrue((boolean) method.invoke(null, getConnectionFailure()));
+		assertTrue((boolean) method.invoke(null, new ConnectException("Connection refused: localhost:443")));
+		assertTrue((boolean) method.invoke(null, new UnknownHostException("nest.example.com:443")));
+		assertTrue((boolean) method.invoke(null, new SocketTimeoutException("Read timed out after 404 ms")));
+		assertTrue((boolean) method.invoke(null, new IOException("Failed to upload bundle",
+				new ConnectException("Connection refused: 127.0.0.1:401"))));
+		assertTrue((boolean) method.invoke(null,
+				new IOException("Server returned HTTP response code: 503 for URL: http://localhost:443/upload")));
+
+		//rejected requests are not
+		assertTrue(!(boolean) method.invoke(null,
+				new IOException("Server returned HTTP response code: 401 for URL: http://localhost:443/upload")));
+		assertTrue(!(boolean) method.invoke(null, new IOException("Failed to upload bundle, response code: 409")));
+	}
+
+	private static IOException getConnectionFailure() throws Exception {
+		int port;
+		try (ServerSocket ss = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+			port = ss.getLocalPort();
+		}
+		HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + port + "/").openConnection();
+		try {
+			connection.getResponseCode();
+		} catch (IOException e) {
+			return e;
+		} finally {
+			connection.disconnect();
+		}
+		throw new AssertionError("Connection succeeded to closed port: " + port);
+	}
+
+	private static String hash(String algorithm, ByteArrayRegion bytes) throws Exception {
+		MessageDigest digest = MessageDigest.getInstance(algorithm);
+		digest.update(bytes.getArray(), bytes.getOffset(), bytes.getLength());
+		return StringUtils.toHexString(digest.digest());
+	}
+}
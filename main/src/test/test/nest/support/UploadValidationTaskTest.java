@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package test.nest.support;
+
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import com.sun.net.httpserver.HttpServer;
+
+import saker.build.thirdparty.saker.util.io.ByteArrayRegion;
+import saker.build.thirdparty.saker.util.io.StreamUtils;
+import saker.build.thirdparty.saker.util.io.UnsyncByteArrayOutputStream;
+import testing.saker.SakerTest;
+import testing.saker.nest.util.RepositoryLoadingVariablesMetricEnvironmentTestCase;
+
+@SakerTest
+public class UploadValidationTaskTest extends RepositoryLoadingVariablesMetricEnvironmentTestCase {
+
+	@Override
+	protected void runTestImpl() throws Throwable {
+		files.putFile(PATH_WORKING_DIRECTORY.resolve("bundles/first.jar"), createBundleJar("upload.bundle-v1"));
+		files.putFile(PATH_WORKING_DIRECTORY.resolve("bundles/second.jar"), createBundleJar("upload.bundle-v1"));
+
+		AtomicInteger requestcount = new AtomicInteger();
+		HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		server.createContext("/", exchange -> {
+			requestcount.incrementAndGet();
+			try (InputStream is = exchange.getRequestBody()) {
+				StreamUtils.consumeStream(is);
+			}
+			exchange.sendResponseHeaders(503, -1);
+			exchange.close();
+		});
+		server.start();
+		try {
+			String script = "upload {\n" //
+					+ "\tnest.server.upload(\n" //
+					+ "\t\tbundles/*.jar,\n" //
+					+ "\t\tServer: \"http://127.0.0.1:" + server.getAddress().getPort() + "\",\n" //
+					+ "\t\tAPIKey: AAAA,\n" //
+					+ "\t\tAPISecret: AAAA,\n" //
+					+ "\t\tRetryCount: 0,\n" //
+					+ "\t)\n" //
+					+ "}\n";
+			files.putFile(PATH_WORKING_DIRECTORY.resolve("saker.build"), script.getBytes(StandardCharsets.UTF_8));
+
+			//duplicate bundle identifiers
+			assertTaskException("java.lang.IllegalArgumentException", () -> runScriptTask("upload"));
+			assertEquals(requestcount.get(), 0);
+
+			//invalid bundle
+			files.putFile(PATH_WORKING_DIRECTORY.resolve("bundles/second.jar"), createBundleJar("-invalid-"));
+			assertTaskException("java.lang.IllegalArgumentException", () -> runScriptTask("upload"));
+			assertEquals(requestcount.get(), 0);
+
+			//valid bundles are uploaded
+			files.putFile(PATH_WORKING_DIRECTORY.resolve("bundles/second.jar"), createBundleJar("upload.other-v1"));
+			assertTaskException("java.io.IOException", () -> runScriptTask("upload"));
+			assertTrue(requestcount.get() > 0);
+		} finally {
+			server.stop(0);
+		}
+	}
+
+	private static ByteArrayRegion createBundleJar(String bundleid) throws Exception {
+		try (UnsyncByteArrayOutputStream baos = new UnsyncByteArrayOutputStream()) {
+			Manifest manifest = new Manifest();
+			manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+			manifest.getMainAttributes().putValue("Nest-Bundle-Format-Version", "1");
+			manifest.getMainAttributes().putValue("Nest-Bundle-Identifier", bundleid);
+			try (JarOutputStream jaros = new JarOutputStream(baos, manifest)) {
+			}
+			return baos.toByteArrayRegion();
+		}
+	}
+}